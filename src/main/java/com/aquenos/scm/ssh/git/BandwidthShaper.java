@@ -0,0 +1,308 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.git;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the rate at which Git commands send data to clients, per user, per
+ * repository and for all commands together. Each limit is implemented as a
+ * token bucket that allows a short burst.
+ * 
+ * Data is sent in chunks and each chunk reserves its share of the bucket
+ * before it is sent. If the bucket is empty, the reservation puts the bucket
+ * into debt and the command waits until the debt has been paid off. Because
+ * reservations are served in the order in which they are made, commands that
+ * are limited by the same bucket take turns chunk by chunk, so they get equal
+ * shares of the bandwidth. A chunk only reserves its share of a bucket once
+ * the more restrictive buckets allow it to be sent, so bandwidth that is not
+ * used by one command (e.g. because it is limited by its user's limit, its
+ * repository's limit or by a slow client) is available to the other commands.
+ * 
+ * The buckets of users and repositories are only locked by the commands of
+ * the same user or repository. If a server-wide limit is set, every chunk of
+ * every command locks the server-wide bucket for the short moment it takes to
+ * make a reservation. Splitting this bucket into stripes would give up the
+ * order in which reservations are served, which is what shares the
+ * bandwidth fairly. A bucket without a limit is not locked at all.
+ * 
+ * @author Sebastian Marsching
+ */
+class BandwidthShaper {
+
+	// The size of the chunks in which data is sent. This is the maximum
+	// amount of data in an SSH packet, so a chunk is not split any further.
+	private final static int CHUNK_SIZE = 32768;
+	private final static long BURST_NANOS = 100000000L;
+
+	private long maxBytesPerSecondPerUser;
+	private long maxBytesPerSecondPerRepository;
+	private final Bucket totalBucket = new Bucket();
+	private final HashMap<String, Bucket> userBuckets = new HashMap<String, Bucket>();
+	private final HashMap<String, Bucket> repositoryBuckets = new HashMap<String, Bucket>();
+
+	/**
+	 * Sets the limits. The new limits are applied to all commands, including
+	 * commands that are already running.
+	 * 
+	 * @param maxBytesPerSecondPerUser
+	 *            maximum rate (in bytes per second) for all commands of a
+	 *            user or zero if there is no limit.
+	 * @param maxBytesPerSecondPerRepository
+	 *            maximum rate (in bytes per second) for all commands
+	 *            operating on a repository or zero if there is no limit.
+	 * @param maxBytesPerSecond
+	 *            maximum rate (in bytes per second) for all commands or zero
+	 *            if there is no limit.
+	 */
+	public synchronized void setLimits(long maxBytesPerSecondPerUser,
+			long maxBytesPerSecondPerRepository, long maxBytesPerSecond) {
+		this.maxBytesPerSecondPerUser = maxBytesPerSecondPerUser;
+		this.maxBytesPerSecondPerRepository = maxBytesPerSecondPerRepository;
+		totalBucket.setRate(maxBytesPerSecond);
+		for (Bucket bucket : userBuckets.values()) {
+			bucket.setRate(maxBytesPerSecondPerUser);
+		}
+		for (Bucket bucket : repositoryBuckets.values()) {
+			bucket.setRate(maxBytesPerSecondPerRepository);
+		}
+	}
+
+	/**
+	 * Registers a transfer for the specified user and repository. The
+	 * returned transfer must be closed when the command has finished.
+	 * 
+	 * @param user
+	 *            name of the user running the command.
+	 * @param repository
+	 *            ID of the repository the command operates on.
+	 * @return transfer that is used to shape the output of the command.
+	 */
+	public synchronized Transfer open(String user, String repository) {
+		Bucket userBucket = openBucket(userBuckets, user,
+				maxBytesPerSecondPerUser);
+		Bucket repositoryBucket = openBucket(repositoryBuckets, repository,
+				maxBytesPerSecondPerRepository);
+		return new Transfer(user, repository, userBucket, repositoryBucket);
+	}
+
+	private synchronized void close(Transfer transfer) {
+		closeBucket(userBuckets, transfer.user);
+		closeBucket(repositoryBuckets, transfer.repository);
+	}
+
+	private static Bucket openBucket(Map<String, Bucket> buckets, String key,
+			long rate) {
+		Bucket bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new Bucket();
+			bucket.setRate(rate);
+			buckets.put(key, bucket);
+		}
+		bucket.transfers++;
+		return bucket;
+	}
+
+	private static void closeBucket(Map<String, Bucket> buckets, String key) {
+		Bucket bucket = buckets.get(key);
+		if (bucket != null && --bucket.transfers == 0) {
+			// The bucket is created again with a full burst when the next
+			// command starts, which is what an idle bucket would have anyway.
+			buckets.remove(key);
+		}
+	}
+
+	/**
+	 * Output of a single command. The output streams returned by
+	 * {@link #wrap(OutputStream)} wait before sending data if a limit would
+	 * be exceeded otherwise.
+	 */
+	public class Transfer {
+
+		private final String user;
+		private final String repository;
+		private final Bucket userBucket;
+		private final Bucket repositoryBucket;
+		private boolean closed;
+
+		private Transfer(String user, String repository, Bucket userBucket,
+				Bucket repositoryBucket) {
+			this.user = user;
+			this.repository = repository;
+			this.userBucket = userBucket;
+			this.repositoryBucket = repositoryBucket;
+		}
+
+		/**
+		 * Wraps an output stream, so that the data written to it is shaped
+		 * by this transfer. Waiting for the limits can be interrupted by
+		 * interrupting the writing thread.
+		 * 
+		 * @param out
+		 *            stream to be wrapped.
+		 * @return shaped output stream.
+		 */
+		public OutputStream wrap(OutputStream out) {
+			return new ShapedOutputStream(out);
+		}
+
+		/**
+		 * Unregisters this transfer. Closing a transfer more than once has no
+		 * effect.
+		 */
+		public void close() {
+			synchronized (BandwidthShaper.this) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				BandwidthShaper.this.close(this);
+			}
+		}
+
+		private void acquire(int length) throws InterruptedIOException {
+			// Each bucket is only asked once the more restrictive buckets
+			// allow the chunk to be sent. Otherwise, a command waiting for its
+			// repository limit would hold back bandwidth of its user (and vice
+			// versa) that the user's other commands could use in the
+			// meantime. The global bucket is asked last for the same reason.
+			try {
+				long now = System.nanoTime();
+				Bucket first = userBucket;
+				Bucket second = repositoryBucket;
+				if (repositoryBucket.getSendTime(length, now) > userBucket
+						.getSendTime(length, now)) {
+					first = repositoryBucket;
+					second = userBucket;
+				}
+				sleepUntil(first.reserve(length, now));
+				sleepUntil(second.reserve(length, System.nanoTime()));
+				sleepUntil(totalBucket.reserve(length, System.nanoTime()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Interrupted while waiting for bandwidth.");
+			}
+		}
+
+		private void sleepUntil(long time) throws InterruptedException {
+			long delay = time - System.nanoTime();
+			if (delay > 0) {
+				Thread.sleep(delay / 1000000L, (int) (delay % 1000000L));
+			}
+		}
+
+		private class ShapedOutputStream extends FilterOutputStream {
+
+			public ShapedOutputStream(OutputStream out) {
+				super(out);
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				acquire(1);
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				// FilterOutputStream writes arrays byte by byte, so we have to
+				// delegate directly.
+				while (len > 0) {
+					int chunkLength = Math.min(len, CHUNK_SIZE);
+					acquire(chunkLength);
+					out.write(b, off, chunkLength);
+					off += chunkLength;
+					len -= chunkLength;
+				}
+			}
+
+		}
+
+	}
+
+	/**
+	 * Token bucket. Instead of the number of tokens, the bucket stores the
+	 * time at which it has been refilled completely. A time in the future
+	 * means that the bucket is in debt.
+	 */
+	private static class Bucket {
+
+		// Written while holding the lock of the bucket, but read without it,
+		// so that a bucket without a limit is never locked.
+		private volatile long bytesPerSecond;
+		private long fullTime = Long.MIN_VALUE;
+		// Only accessed while holding the lock of the BandwidthShaper.
+		private int transfers;
+
+		public synchronized void setRate(long bytesPerSecond) {
+			this.bytesPerSecond = bytesPerSecond;
+		}
+
+		/**
+		 * Returns the time at which the specified number of bytes could be
+		 * sent if they were reserved now, without reserving them.
+		 * 
+		 * @param length
+		 *            number of bytes.
+		 * @param now
+		 *            current time (as returned by {@link System#nanoTime()}).
+		 * @return time at which the bytes could be sent.
+		 */
+		public long getSendTime(int length, long now) {
+			long bytesPerSecond = this.bytesPerSecond;
+			if (bytesPerSecond <= 0L) {
+				return now;
+			}
+			synchronized (this) {
+				return Math.max(now, sendTime(length, now, bytesPerSecond));
+			}
+		}
+
+		/**
+		 * Reserves bandwidth for sending the specified number of bytes.
+		 * 
+		 * @param length
+		 *            number of bytes.
+		 * @param now
+		 *            current time (as returned by {@link System#nanoTime()}).
+		 * @return time at which the bytes may be sent.
+		 */
+		public long reserve(int length, long now) {
+			if (bytesPerSecond <= 0L) {
+				return now;
+			}
+			synchronized (this) {
+				long bytesPerSecond = this.bytesPerSecond;
+				if (bytesPerSecond <= 0L) {
+					return now;
+				}
+				long sendTime = sendTime(length, now, bytesPerSecond);
+				fullTime = sendTime + BURST_NANOS;
+				return Math.max(now, sendTime);
+			}
+		}
+
+		private long sendTime(int length, long now, long bytesPerSecond) {
+			// A full bucket holds the tokens for a burst, so the bytes may be
+			// sent as soon as the bucket would be full again within the burst
+			// time after taking their tokens.
+			long cost = length * 1000000000L / bytesPerSecond;
+			return Math.max(fullTime, now) + cost - BURST_NANOS;
+		}
+
+	}
+
+}
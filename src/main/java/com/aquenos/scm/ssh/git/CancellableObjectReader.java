@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.git;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.StoredObjectRepresentationNotAvailableException;
+import org.eclipse.jgit.internal.storage.pack.CachedPack;
+import org.eclipse.jgit.internal.storage.pack.ObjectReuseAsIs;
+import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
+import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Object reader that fails as soon as the command it belongs to has been
+ * cancelled. JGit does not check for cancellation while counting the objects
+ * for a pack or while searching for deltas, but it reads objects through the
+ * object reader in both phases. Checking for cancellation whenever an object
+ * is opened stops the pack generation shortly after the client has gone away.
+ * The delta search uses readers created by {@link #newReader()}, so these
+ * readers are wrapped as well.
+ * 
+ * @author Sebastian Marsching
+ */
+class CancellableObjectReader extends ObjectReader {
+
+	/**
+	 * Check that is run before an object is read.
+	 */
+	interface Cancellation {
+
+		/**
+		 * Throws an exception if the command has been cancelled. This method
+		 * is called for every object that is read, so it must be cheap.
+		 * 
+		 * @throws InterruptedIOException
+		 *             if the command has been cancelled.
+		 */
+		void checkCancelled() throws InterruptedIOException;
+
+	}
+
+	protected final ObjectReader reader;
+	protected final Cancellation cancellation;
+
+	private CancellableObjectReader(ObjectReader reader,
+			Cancellation cancellation) {
+		this.reader = reader;
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * Wraps an object reader. If the reader can reuse stored object
+	 * representations, the returned reader can reuse them too, so that the
+	 * pack generation does not have to inflate and deflate every object.
+	 * 
+	 * @param reader
+	 *            reader that is used for actually reading the objects.
+	 * @param cancellation
+	 *            check that is run before an object is read.
+	 * @return reader that fails once the command has been cancelled.
+	 */
+	static ObjectReader wrap(ObjectReader reader, Cancellation cancellation) {
+		if (reader instanceof ObjectReuseAsIs) {
+			return new ReusingReader(reader, cancellation);
+		} else {
+			return new CancellableObjectReader(reader, cancellation);
+		}
+	}
+
+	@Override
+	public ObjectReader newReader() {
+		return wrap(reader.newReader(), cancellation);
+	}
+
+	@Override
+	public AbbreviatedObjectId abbreviate(AnyObjectId objectId, int len)
+			throws IOException {
+		return reader.abbreviate(objectId, len);
+	}
+
+	@Override
+	public Collection<ObjectId> resolve(AbbreviatedObjectId id)
+			throws IOException {
+		return reader.resolve(id);
+	}
+
+	@Override
+	public boolean has(AnyObjectId objectId, int typeHint) throws IOException {
+		cancellation.checkCancelled();
+		return reader.has(objectId, typeHint);
+	}
+
+	@Override
+	public ObjectLoader open(AnyObjectId objectId, int typeHint)
+			throws MissingObjectException, IncorrectObjectTypeException,
+			IOException {
+		cancellation.checkCancelled();
+		return reader.open(objectId, typeHint);
+	}
+
+	@Override
+	public <T extends ObjectId> AsyncObjectLoaderQueue<T> open(
+			Iterable<T> objectIds, boolean reportMissing) {
+		return reader.open(objectIds, reportMissing);
+	}
+
+	@Override
+	public Set<ObjectId> getShallowCommits() throws IOException {
+		return reader.getShallowCommits();
+	}
+
+	@Override
+	public long getObjectSize(AnyObjectId objectId, int typeHint)
+			throws MissingObjectException, IncorrectObjectTypeException,
+			IOException {
+		cancellation.checkCancelled();
+		return reader.getObjectSize(objectId, typeHint);
+	}
+
+	@Override
+	public <T extends ObjectId> AsyncObjectSizeQueue<T> getObjectSize(
+			Iterable<T> objectIds, boolean reportMissing) {
+		return reader.getObjectSize(objectIds, reportMissing);
+	}
+
+	@Override
+	public void walkAdviceBeginCommits(RevWalk walk,
+			Collection<RevCommit> roots) throws IOException {
+		reader.walkAdviceBeginCommits(walk, roots);
+	}
+
+	@Override
+	public void walkAdviceBeginTrees(ObjectWalk walk, RevCommit min,
+			RevCommit max) throws IOException {
+		reader.walkAdviceBeginTrees(walk, min, max);
+	}
+
+	@Override
+	public void walkAdviceEnd() {
+		reader.walkAdviceEnd();
+	}
+
+	@Override
+	public void setAvoidUnreachableObjects(boolean avoid) {
+		reader.setAvoidUnreachableObjects(avoid);
+	}
+
+	@Override
+	public BitmapIndex getBitmapIndex() throws IOException {
+		return reader.getBitmapIndex();
+	}
+
+	@Override
+	public void release() {
+		reader.release();
+	}
+
+	/**
+	 * Reader for object readers that can reuse stored object representations.
+	 * Selecting the representations and copying them to the pack are passed
+	 * through to the wrapped reader. The objects are copied to the cancellable
+	 * output stream of the command, so writing the pack stops on its own.
+	 */
+	private static class ReusingReader extends CancellableObjectReader
+			implements ObjectReuseAsIs {
+
+		private final ObjectReuseAsIs reuse;
+
+		private ReusingReader(ObjectReader reader, Cancellation cancellation) {
+			super(reader, cancellation);
+			this.reuse = (ObjectReuseAsIs) reader;
+		}
+
+		@Override
+		public ObjectToPack newObjectToPack(AnyObjectId objectId, int type) {
+			return reuse.newObjectToPack(objectId, type);
+		}
+
+		@Override
+		public void selectObjectRepresentation(PackWriter packer,
+				ProgressMonitor monitor, Iterable<ObjectToPack> objects)
+				throws IOException, MissingObjectException {
+			cancellation.checkCancelled();
+			reuse.selectObjectRepresentation(packer, monitor, objects);
+		}
+
+		@Override
+		public void writeObjects(PackOutputStream out, List<ObjectToPack> list)
+				throws IOException {
+			reuse.writeObjects(out, list);
+		}
+
+		@Override
+		public void copyObjectAsIs(PackOutputStream out, ObjectToPack otp,
+				boolean validate) throws IOException,
+				StoredObjectRepresentationNotAvailableException {
+			reuse.copyObjectAsIs(out, otp, validate);
+		}
+
+		@Override
+		public void copyPackAsIs(PackOutputStream out, CachedPack pack,
+				boolean validate) throws IOException {
+			reuse.copyPackAsIs(out, pack, validate);
+		}
+
+		@Override
+		public Collection<CachedPack> getCachedPacksAndUpdate(
+				BitmapBuilder needBitmap) throws IOException {
+			return reuse.getCachedPacksAndUpdate(needBitmap);
+		}
+
+	}
+
+}
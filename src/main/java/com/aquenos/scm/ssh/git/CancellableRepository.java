@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.git;
+
+import org.eclipse.jgit.lib.ObjectDatabase;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.ReflogReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.lib.StoredConfig;
+
+import java.io.IOException;
+
+/**
+ * View of a repository that reads objects through a
+ * {@link CancellableObjectReader}. JGit's
+ * {@link org.eclipse.jgit.transport.UploadPack} creates the reader for
+ * counting the objects and generating the pack from the repository and offers
+ * no other way to stop the pack generation, so the upload is run on this view
+ * instead of the repository itself. All other operations are passed through
+ * to the repository. The view does not own the repository, so closing the
+ * view does not close it.
+ * 
+ * @author Sebastian Marsching
+ */
+class CancellableRepository extends Repository {
+
+	private final Repository repository;
+	private final CancellableObjectReader.Cancellation cancellation;
+
+	/**
+	 * Creates a view of the specified repository.
+	 * 
+	 * @param repository
+	 *            repository that is accessed through this view.
+	 * @param cancellation
+	 *            check that is run before an object is read.
+	 */
+	public CancellableRepository(Repository repository,
+			CancellableObjectReader.Cancellation cancellation) {
+		super(new RepositoryBuilder().setGitDir(repository.getDirectory())
+				.setFS(repository.getFS())
+				.setWorkTree(repository.isBare() ? null : repository
+						.getWorkTree()));
+		this.repository = repository;
+		this.cancellation = cancellation;
+	}
+
+	@Override
+	public void create(boolean bare) throws IOException {
+		repository.create(bare);
+	}
+
+	@Override
+	public ObjectDatabase getObjectDatabase() {
+		return repository.getObjectDatabase();
+	}
+
+	@Override
+	public RefDatabase getRefDatabase() {
+		return repository.getRefDatabase();
+	}
+
+	@Override
+	public StoredConfig getConfig() {
+		return repository.getConfig();
+	}
+
+	@Override
+	public void scanForRepoChanges() throws IOException {
+		repository.scanForRepoChanges();
+	}
+
+	@Override
+	public void notifyIndexChanged() {
+		repository.notifyIndexChanged();
+	}
+
+	@Override
+	public ReflogReader getReflogReader(String refName) throws IOException {
+		return repository.getReflogReader(refName);
+	}
+
+	@Override
+	public ObjectReader newObjectReader() {
+		return CancellableObjectReader.wrap(repository.newObjectReader(),
+				cancellation);
+	}
+
+	@Override
+	protected void doClose() {
+		// The databases belong to the wrapped repository, which is closed by
+		// its owner.
+	}
+
+}
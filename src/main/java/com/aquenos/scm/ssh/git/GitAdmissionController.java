@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.git;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether new read commands (fetches and clones) are admitted. Pack
+ * generation for a read command can use a lot of memory and CPU time, so
+ * accepting more read commands while the JVM is close to its limits can make
+ * the whole SCM server unresponsive. When the heap occupancy after the last
+ * garbage collection, the system load or the number of running pack
+ * generations exceeds its watermark, new read commands are rejected. Read
+ * commands that have been admitted are queued and negotiate before they
+ * generate a pack, so the number of pack generations is checked again when
+ * the pack generation starts. Write
+ * commands (pushes) are always admitted, because rejecting them would lose
+ * work the user has already done.
+ * 
+ * @author Sebastian Marsching
+ */
+class GitAdmissionController {
+
+	private volatile int maxHeapUsage;
+	private volatile int maxSystemLoad;
+	private volatile int maxPackGenerations;
+
+	private final AtomicInteger packGenerations = new AtomicInteger();
+	private final OperatingSystemMXBean operatingSystemMXBean = ManagementFactory
+			.getOperatingSystemMXBean();
+
+	/**
+	 * Sets the watermarks. A watermark of zero disables the respective check.
+	 * 
+	 * @param maxHeapUsage
+	 *            maximum heap occupancy after garbage collection (in percent
+	 *            of the maximum heap size).
+	 * @param maxSystemLoad
+	 *            maximum system load average (in percent of the number of
+	 *            available processors).
+	 * @param maxPackGenerations
+	 *            maximum number of pack generations running concurrently.
+	 */
+	public void setWatermarks(int maxHeapUsage, int maxSystemLoad,
+			int maxPackGenerations) {
+		this.maxHeapUsage = maxHeapUsage;
+		this.maxSystemLoad = maxSystemLoad;
+		this.maxPackGenerations = maxPackGenerations;
+	}
+
+	/**
+	 * Checks whether a new read command may be started.
+	 * 
+	 * @return <code>null</code> if the command may be started or a message
+	 *         describing the exceeded watermark if it must be rejected.
+	 */
+	public String checkReadCommand() {
+		int maxPackGenerations = this.maxPackGenerations;
+		if (maxPackGenerations > 0
+				&& packGenerations.get() >= maxPackGenerations) {
+			return "too many concurrent pack generations";
+		}
+		int maxHeapUsage = this.maxHeapUsage;
+		if (maxHeapUsage > 0 && getHeapUsageAfterGc() >= maxHeapUsage) {
+			return "heap usage above watermark";
+		}
+		int maxSystemLoad = this.maxSystemLoad;
+		if (maxSystemLoad > 0 && getSystemLoad() >= maxSystemLoad) {
+			return "system load above watermark";
+		}
+		return null;
+	}
+
+	/**
+	 * Records that a read command starts generating a pack, unless the
+	 * maximum number of concurrent pack generations has been reached. Each
+	 * successful call must be matched by a call to
+	 * {@link #packGenerationFinished()}.
+	 * 
+	 * @return <code>true</code> if the pack generation may start,
+	 *         <code>false</code> if too many pack generations are running.
+	 */
+	public boolean tryStartPackGeneration() {
+		int maxPackGenerations = this.maxPackGenerations;
+		while (true) {
+			int current = packGenerations.get();
+			if (maxPackGenerations > 0 && current >= maxPackGenerations) {
+				return false;
+			}
+			if (packGenerations.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Records that a read command has finished generating and sending a pack.
+	 */
+	public void packGenerationFinished() {
+		packGenerations.decrementAndGet();
+	}
+
+	private static int getHeapUsageAfterGc() {
+		// We look at the usage after the last collection, because the current
+		// usage includes garbage and thus is not a good indicator for memory
+		// pressure. Only pools that support a usage threshold are considered.
+		// This excludes the eden and survivor spaces, which are regularly full
+		// after a collection, and leaves the old generation.
+		int maxPercent = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP
+					|| !pool.isUsageThresholdSupported()
+					|| !pool.isCollectionUsageThresholdSupported()) {
+				continue;
+			}
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (usage == null || usage.getMax() <= 0) {
+				continue;
+			}
+			int percent = (int) (usage.getUsed() * 100L / usage.getMax());
+			maxPercent = Math.max(maxPercent, percent);
+		}
+		return maxPercent;
+	}
+
+	private int getSystemLoad() {
+		double loadAverage = operatingSystemMXBean.getSystemLoadAverage();
+		if (loadAverage < 0.0) {
+			// The load average is not available on this platform.
+			return 0;
+		}
+		return (int) (loadAverage * 100.0 / Math.max(1,
+				operatingSystemMXBean.getAvailableProcessors()));
+	}
+
+}
@@ -11,6 +11,8 @@ package com.aquenos.scm.ssh.git;
 
 import com.aquenos.scm.ssh.server.AbstractCommand;
 import com.aquenos.scm.ssh.server.ScmSshServer;
+import com.aquenos.scm.ssh.server.ScmSshServerConfiguration;
+import com.aquenos.scm.ssh.server.ScmSshServerConfigurationStore;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.shiro.SecurityUtils;
@@ -18,13 +20,18 @@ import org.apache.shiro.subject.Subject;
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.CommandFactory;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.lib.RepositoryCache.FileKey;
+import org.eclipse.jgit.transport.PreUploadHook;
 import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.ServiceMayNotContinueException;
 import org.eclipse.jgit.transport.UploadPack;
 import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.config.ScmConfiguration;
 import sonia.scm.repository.GitRepositoryHandler;
 import sonia.scm.repository.PermissionType;
@@ -35,10 +42,16 @@ import sonia.scm.user.User;
 import sonia.scm.web.GitReceiveHook;
 
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -53,10 +66,17 @@ import java.util.concurrent.Callable;
 @Singleton
 public class GitCommandFactory implements CommandFactory {
 
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(GitCommandFactory.class);
+
 	private GitRepositoryHandler repositoryHandler;
 	private RepositoryManager repositoryManager;
 	private ScmConfiguration configuration;
 	private GitReceiveHook hook;
+	private final GitCommandLimiter commandLimiter = new GitCommandLimiter();
+	private final GitAdmissionController admissionController = new GitAdmissionController();
+	private final ReverseDnsCache reverseDnsCache = new ReverseDnsCache();
+	private final BandwidthShaper bandwidthShaper = new BandwidthShaper();
 
 	/**
 	 * Constructor. Meant to be called by Guice.
@@ -66,16 +86,46 @@ public class GitCommandFactory implements CommandFactory {
  *            SCM repository manager.
 	 * @param configuration
 	 * @param hookEventFacade
+	 * @param configurationStore
+	 *            store for the SSH server configuration, which provides the
+	 *            limits for concurrent commands and bandwidth and defines
+	 *            whether host names of remote hosts are resolved.
 	 */
 	@Inject
 	public GitCommandFactory(GitRepositoryHandler repositoryHandler,
 							 RepositoryManager repositoryManager,
 							 ScmConfiguration configuration,
-							 HookEventFacade hookEventFacade) {
+							 HookEventFacade hookEventFacade,
+							 ScmSshServerConfigurationStore configurationStore) {
 		this.repositoryHandler = repositoryHandler;
 		this.repositoryManager = repositoryManager;
 		this.configuration = configuration;
 		this.hook = new GitReceiveHook(hookEventFacade, repositoryHandler);
+		configurationStore
+				.addConfigurationChangeListener(new ScmSshServerConfigurationStore.ConfigurationChangeListener() {
+
+					@Override
+					public void configurationChanged(
+							ScmSshServerConfiguration newConfiguration) {
+						applyConfiguration(newConfiguration);
+					}
+				});
+		applyConfiguration(configurationStore.load());
+	}
+
+	private void applyConfiguration(ScmSshServerConfiguration sshConfiguration) {
+		commandLimiter.setLimits(sshConfiguration.getMaxCommandsPerUser(),
+				sshConfiguration.getMaxCommandsPerRepository(),
+				Math.max(0, sshConfiguration.getCommandWaitTimeout()) * 1000L);
+		admissionController.setWatermarks(sshConfiguration.getMaxHeapUsage(),
+				sshConfiguration.getMaxSystemLoad(),
+				sshConfiguration.getMaxPackGenerations());
+		reverseDnsCache.setEnabled(!sshConfiguration.isRecordIpAddressesOnly());
+		// The limits are configured in KB per second.
+		bandwidthShaper.setLimits(
+				sshConfiguration.getMaxBandwidthPerUser() * 1024L,
+				sshConfiguration.getMaxBandwidthPerRepository() * 1024L,
+				sshConfiguration.getMaxBandwidth() * 1024L);
 	}
 
 	@Override
@@ -145,6 +195,12 @@ public class GitCommandFactory implements CommandFactory {
 			return unsupportedParameter();
 		}
 		if (gitUploadPack) {
+			String rejectionReason = admissionController.checkReadCommand();
+			if (rejectionReason != null) {
+				LOGGER.info("Rejecting git-upload-pack for \"" + directory
+						+ "\": " + rejectionReason + ".");
+				return serverBusy();
+			}
 			return new GitUploadPackCommand(directory, strictMode, timeout);
 		} else if (gitReceivePack) {
 			return new GitReceivePackCommand(directory);
@@ -171,6 +227,15 @@ public class GitCommandFactory implements CommandFactory {
 		};
 	}
 
+	private static Command serverBusy() {
+		return new AbstractCommand() {
+			@Override
+			protected int run() {
+				return errorMessage(-7, "The server is busy. Please retry later.");
+			}
+		};
+	}
+
 	private static Command unsupportedParameter() {
 		return new AbstractCommand() {
 			@Override
@@ -288,12 +353,86 @@ public class GitCommandFactory implements CommandFactory {
 		protected Repository gitRepository;
 		protected String username;
 		protected String remoteHost;
+		private String repositoryName;
+		private BandwidthShaper.Transfer transfer;
+		private volatile GitCommandLimiter.Permit permit;
 
 		public AbstractGitCommand(String directory, boolean strictMode) {
 			this.directory = directory;
 			this.strictMode = strictMode;
 		}
 
+		@Override
+		protected void requestAdmission(final Admission admission) {
+			// The command waits for its permit before it is passed to the
+			// command executor, so that the commands of a user or repository
+			// that has reached its limit do not occupy the executor's threads.
+			String[] limiterKey = getLimiterKey();
+			if (limiterKey == null) {
+				// The command is run without a permit. It reports the error
+				// that prevented us from determining the key.
+				admission.admit();
+				return;
+			}
+			commandLimiter.acquire(limiterKey[0], limiterKey[1],
+					new GitCommandLimiter.Callback() {
+						@Override
+						public void admitted(GitCommandLimiter.Permit permit) {
+							AbstractGitCommand.this.permit = permit;
+							admission.admit();
+						}
+
+						@Override
+						public void rejected() {
+							admission
+									.reject("The server is busy. Please retry later.");
+						}
+					});
+		}
+
+		/**
+		 * Returns the user name and the ID of the repository for which this
+		 * command is limited. This method is called from an I/O thread of the
+		 * SSH server, but repositories are looked up in memory, so it does
+		 * not block.
+		 * 
+		 * @return array with the user name and the repository ID or
+		 *         <code>null</code> if they cannot be determined.
+		 */
+		private String[] getLimiterKey() {
+			Subject subject = getSession().getAttribute(
+					ScmSshServer.SUBJECT_SESSION_ATTRIBUTE_KEY);
+			if (subject == null) {
+				return null;
+			}
+			try {
+				return subject.associateWith(new Callable<String[]>() {
+					@Override
+					public String[] call() throws Exception {
+						sonia.scm.repository.Repository scmRepository = repositoryManager
+								.getFromUri(directory);
+						if (scmRepository == null) {
+							return null;
+						}
+						return new String[] {
+								SecurityUtils.getSubject().getPrincipals()
+										.oneByType(User.class).getId(),
+								scmRepository.getId() };
+					}
+				}).call();
+			} catch (Exception e) {
+				return null;
+			}
+		}
+
+		@Override
+		protected void commandFinished() {
+			GitCommandLimiter.Permit permit = this.permit;
+			if (permit != null) {
+				permit.release();
+			}
+		}
+
 		@Override
 		protected int run() {
 			// Get subject from session and set it for this thread.
@@ -319,11 +458,23 @@ public class GitCommandFactory implements CommandFactory {
 		private int runWithSubject() {
 			this.username = SecurityUtils.getSubject().getPrincipals()
 					.oneByType(User.class).getId();
-			SocketAddress remoteSocketAddress = getSession().getIoSession()
-					.getRemoteAddress();
+			SocketAddress remoteSocketAddress = ScmSshServer
+					.getClientAddress(getSession());
 			if (remoteSocketAddress instanceof InetSocketAddress) {
-				this.remoteHost = ((InetSocketAddress) remoteSocketAddress)
-						.getHostName();
+				InetSocketAddress inetSocketAddress = (InetSocketAddress) remoteSocketAddress;
+				if (inetSocketAddress.getAddress() != null) {
+					// A reverse DNS lookup can take several seconds, so we use
+					// the cache instead of resolving the address here.
+					try {
+						this.remoteHost = reverseDnsCache
+								.getHostName(inetSocketAddress.getAddress());
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return errorMessage(-6, "Interrupted");
+					}
+				} else {
+					this.remoteHost = inetSocketAddress.getHostName();
+				}
 			} else {
 				this.remoteHost = "unknown";
 			}
@@ -347,6 +498,7 @@ public class GitCommandFactory implements CommandFactory {
 				return errorMessage(-4,
 						"The requested repository does not exist.");
 			}
+			this.repositoryName = scmRepository.getName();
 			try {
 				FileKey key;
 				if (strictMode) {
@@ -373,14 +525,170 @@ public class GitCommandFactory implements CommandFactory {
 			if (!permitted) {
 				return errorMessage(-5, "Permission denied.");
 			}
-			// Repository request listeners are tied to HTTP request and
-			// response, thus we cannot call them here.
-			return runGitCommand();
+			// The permit for the limits per user and repository has already
+			// been acquired in requestAdmission and is released when the
+			// command has finished.
+			transfer = bandwidthShaper.open(username, scmRepository.getId());
+			try {
+				// Repository request listeners are tied to HTTP request and
+				// response, thus we cannot call them here.
+				return runGitCommand();
+			} finally {
+				transfer.close();
+			}
 		}
 
 		protected abstract int runGitCommand();
 
+		@Override
 		protected abstract boolean isWriteCommand();
+
+		@Override
+		protected String getRepositoryName() {
+			return repositoryName;
+		}
+
+		/**
+		 * Throws an exception if this command has been destroyed, typically
+		 * because the client has disconnected. JGit does not check for
+		 * cancellation while generating or receiving a pack, so this method is
+		 * called whenever JGit reads from or writes to the client, whenever it
+		 * reads an object while generating a pack and from the hooks that JGit
+		 * calls between the phases of a command.
+		 * 
+		 * @throws InterruptedIOException
+		 *             if this command has been destroyed.
+		 */
+		protected void checkCancelled() throws InterruptedIOException {
+			if (isInterruptRequested()) {
+				throw new InterruptedIOException("Command has been cancelled.");
+			}
+		}
+
+		/**
+		 * Returns the input stream wrapped so that reading from it fails as
+		 * soon as this command has been destroyed. A read operation that blocks
+		 * for longer than the idle timeout aborts the command.
+		 * 
+		 * @return cancellable input stream.
+		 */
+		protected InputStream getCancellableInputStream() {
+			return new CancellableInputStream(getInputStream());
+		}
+
+		/**
+		 * Returns the output stream wrapped so that writing to it fails as
+		 * soon as this command has been destroyed. A write operation that
+		 * blocks for longer than the idle timeout aborts the command. The
+		 * rate at which data is sent is limited by the
+		 * {@link BandwidthShaper}. Time spent waiting for bandwidth does not
+		 * count as a blocking operation.
+		 * 
+		 * @return cancellable output stream.
+		 */
+		protected OutputStream getCancellableOutputStream() {
+			return transfer.wrap(new CancellableOutputStream(
+					getOutputStream()));
+		}
+
+		/**
+		 * Returns the error stream wrapped so that writing to it fails as soon
+		 * as this command has been destroyed.
+		 * 
+		 * @return cancellable error stream or <code>null</code> if no error
+		 *         stream is available.
+		 */
+		protected OutputStream getCancellableErrorStream() {
+			if (getErrorStream() == null) {
+				return null;
+			}
+			return new CancellableOutputStream(getErrorStream());
+		}
+
+		private class CancellableInputStream extends FilterInputStream {
+
+			public CancellableInputStream(InputStream in) {
+				super(in);
+			}
+
+			@Override
+			public int read() throws IOException {
+				checkCancelled();
+				beginBlockingOperation();
+				try {
+					return super.read();
+				} finally {
+					endBlockingOperation();
+				}
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				checkCancelled();
+				beginBlockingOperation();
+				try {
+					return super.read(b, off, len);
+				} finally {
+					endBlockingOperation();
+				}
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				checkCancelled();
+				beginBlockingOperation();
+				try {
+					return super.skip(n);
+				} finally {
+					endBlockingOperation();
+				}
+			}
+
+		}
+
+		private class CancellableOutputStream extends FilterOutputStream {
+
+			public CancellableOutputStream(OutputStream out) {
+				super(out);
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				checkCancelled();
+				beginBlockingOperation();
+				try {
+					out.write(b);
+				} finally {
+					endBlockingOperation();
+				}
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				// FilterOutputStream writes arrays byte by byte, so we have to
+				// delegate directly.
+				checkCancelled();
+				beginBlockingOperation();
+				try {
+					out.write(b, off, len);
+				} finally {
+					endBlockingOperation();
+				}
+			}
+
+			@Override
+			public void flush() throws IOException {
+				checkCancelled();
+				beginBlockingOperation();
+				try {
+					out.flush();
+				} finally {
+					endBlockingOperation();
+				}
+			}
+
+		}
+
 	}
 
 	private class GitReceivePackCommand extends AbstractGitCommand {
@@ -389,6 +697,11 @@ public class GitCommandFactory implements CommandFactory {
 			super(directory, true);
 		}
 
+		@Override
+		protected String getCommandName() {
+			return "git-receive-pack";
+		}
+
 		@Override
 		protected int runGitCommand() {
 			ReceivePack receivePack = new ReceivePack(gitRepository);
@@ -397,8 +710,9 @@ public class GitCommandFactory implements CommandFactory {
 			receivePack.setRefLogIdent(new PersonIdent(username, username + "@"
 					+ remoteHost));
 			try {
-				receivePack.receive(getInputStream(), getOutputStream(),
-						getErrorStream());
+				receivePack.receive(getCancellableInputStream(),
+						getCancellableOutputStream(),
+						getCancellableErrorStream());
 			} catch (IOException e) {
 				return -4;
 			}
@@ -414,23 +728,49 @@ public class GitCommandFactory implements CommandFactory {
 
 	private class GitUploadPackCommand extends AbstractGitCommand {
 
-		private int timeout;
+		private boolean generatingPack;
 
 		public GitUploadPackCommand(String directory, boolean strictMode,
 				int timeout) {
 			super(directory, strictMode);
-			this.timeout = timeout;
+			// The timeout requested by the client is enforced by the timer of
+			// the server instead of UploadPack, because UploadPack would
+			// create a timer thread for every command.
+			setIdleTimeout(timeout);
+		}
+
+		@Override
+		protected String getCommandName() {
+			return "git-upload-pack";
 		}
 
 		@Override
 		protected int runGitCommand() {
-			UploadPack uploadPack = new UploadPack(gitRepository);
-			uploadPack.setTimeout(timeout);
+			// JGit does not check for cancellation while counting objects or
+			// searching for deltas, so the pack is generated from a view of
+			// the repository that checks for cancellation whenever an object
+			// is read.
+			Repository cancellableRepository = new CancellableRepository(
+					gitRepository, new CancellableObjectReader.Cancellation() {
+						@Override
+						public void checkCancelled()
+								throws InterruptedIOException {
+							GitUploadPackCommand.this.checkCancelled();
+						}
+					});
+			UploadPack uploadPack = new UploadPack(cancellableRepository);
+			uploadPack.setPreUploadHook(new CancellationHook());
 			try {
-				uploadPack.upload(getInputStream(), getOutputStream(),
-						getErrorStream());
+				uploadPack.upload(getCancellableInputStream(),
+						getCancellableOutputStream(),
+						getCancellableErrorStream());
 			} catch (IOException e) {
 				return -4;
+			} finally {
+				setCompressionBypassed(false);
+				if (generatingPack) {
+					admissionController.packGenerationFinished();
+				}
 			}
 			return 0;
 		}
@@ -440,6 +780,67 @@ public class GitCommandFactory implements CommandFactory {
 			return false;
 		}
 
+		/**
+		 * Hook that stops the upload between negotiation rounds and before
+		 * the pack is generated if the command has been destroyed. Generating
+		 * the pack is the most expensive part of the upload, so we want to
+		 * avoid starting it for a client that has already gone away. Once the
+		 * pack generation has started, it is stopped by the object reader of
+		 * the repository view the upload runs on. The hook also reports the
+		 * start of the pack generation to the admission controller and stops
+		 * the upload if too many packs are being generated already. Commands
+		 * are only checked against this limit when they are created, so a
+		 * burst of clones that are queued or still negotiating would otherwise
+		 * exceed it.
+		 */
+		private class CancellationHook implements PreUploadHook {
+
+			@Override
+			public void onBeginNegotiateRound(UploadPack up,
+					Collection<? extends ObjectId> wants, int cntOffered)
+					throws ServiceMayNotContinueException {
+				checkHookCancelled();
+			}
+
+			@Override
+			public void onEndNegotiateRound(UploadPack up,
+					Collection<? extends ObjectId> wants, int cntCommon,
+					int cntNotFound, boolean ready)
+					throws ServiceMayNotContinueException {
+				checkHookCancelled();
+			}
+
+			@Override
+			public void onSendPack(UploadPack up,
+					Collection<? extends ObjectId> wants,
+					Collection<? extends ObjectId> haves)
+					throws ServiceMayNotContinueException {
+				checkHookCancelled();
+				if (!generatingPack) {
+					if (!admissionController.tryStartPackGeneration()) {
+						LOGGER.info("Rejecting git-upload-pack for \"" + directory
+								+ "\": too many concurrent pack generations.");
+						throw new ServiceMayNotContinueException(
+								"The server is busy. Please retry later.");
+					}
+					generatingPack = true;
+				}
+				// The pack data is already compressed, so compressing it
+				// again would only cost CPU time.
+				setCompressionBypassed(true);
+			}
+
+			private void checkHookCancelled()
+					throws ServiceMayNotContinueException {
+				try {
+					checkCancelled();
+				} catch (InterruptedIOException e) {
+					throw new ServiceMayNotContinueException(e.getMessage(), e);
+				}
+			}
+
+		}
+
 	}
 
 }
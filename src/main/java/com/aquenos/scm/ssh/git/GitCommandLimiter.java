@@ -0,0 +1,329 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.git;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of Git commands that run concurrently per user and per
+ * repository. Commands that exceed a limit wait in a queue. When a running
+ * command finishes, waiting commands are admitted in round-robin order across
+ * users, so that a single user with many queued commands cannot starve other
+ * users.
+ * 
+ * Commands do not block a thread while they wait. Instead, the caller is
+ * notified through a {@link Callback} when the command has been admitted or
+ * when the maximum wait time has passed. This way, the commands of a user who
+ * has reached the limit do not occupy threads of the command executor, which
+ * could otherwise delay the commands of all other users.
+ * 
+ * @author Sebastian Marsching
+ */
+class GitCommandLimiter {
+
+	private int maxCommandsPerUser;
+	private int maxCommandsPerRepository;
+	private long maxWaitMillis;
+
+	private final HashMap<String, Integer> activeByUser = new HashMap<String, Integer>();
+	private final HashMap<String, Integer> activeByRepository = new HashMap<String, Integer>();
+	// The iteration order of this map defines the round-robin order. A user
+	// whose command has been admitted is moved to the end of the map.
+	private final LinkedHashMap<String, LinkedList<Waiter>> waitingByUser = new LinkedHashMap<String, LinkedList<Waiter>>();
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * Constructor.
+	 */
+	public GitCommandLimiter() {
+		timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "SSH-Command-Limiter-Timer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Sets the limits. The new limits are applied to all commands that are
+	 * admitted after this method has been called. Commands that are already
+	 * running are not affected.
+	 * 
+	 * @param maxCommandsPerUser
+	 *            maximum number of concurrent commands per user or zero if
+	 *            there is no limit.
+	 * @param maxCommandsPerRepository
+	 *            maximum number of concurrent commands per repository or zero
+	 *            if there is no limit.
+	 * @param maxWaitMillis
+	 *            maximum time (in milliseconds) a command waits for being
+	 *            admitted or zero if commands that cannot be admitted
+	 *            immediately shall be rejected.
+	 */
+	public void setLimits(int maxCommandsPerUser,
+			int maxCommandsPerRepository, long maxWaitMillis) {
+		List<Waiter> admitted;
+		synchronized (this) {
+			this.maxCommandsPerUser = maxCommandsPerUser;
+			this.maxCommandsPerRepository = maxCommandsPerRepository;
+			this.maxWaitMillis = maxWaitMillis;
+			// Raised limits might allow waiting commands to run.
+			admitted = dispatch();
+		}
+		notifyAdmitted(admitted);
+	}
+
+	/**
+	 * Requests a permit for running a command for the specified user and
+	 * repository. This method does not block. If the command may run, the
+	 * callback is notified immediately, from the calling thread. Otherwise,
+	 * it is notified later, from the thread that releases a permit or from a
+	 * timer thread. If the maximum wait time is zero, a command that may not
+	 * run is rejected immediately, from the calling thread. The permit passed
+	 * to the callback must be released when the command has finished.
+	 * 
+	 * @param user
+	 *            name of the user running the command.
+	 * @param repository
+	 *            ID of the repository the command operates on.
+	 * @param callback
+	 *            callback that is notified when the command has been admitted
+	 *            or when it could not be admitted within the maximum wait
+	 *            time.
+	 */
+	public void acquire(String user, String repository, Callback callback) {
+		Permit permit;
+		synchronized (this) {
+			// Waiting commands are admitted as soon as their limits allow it,
+			// so if this command may run now, no waiting command is being
+			// bypassed.
+			if (mayRun(user, repository)) {
+				permit = admit(user, repository);
+			} else if (maxWaitMillis <= 0L) {
+				permit = null;
+			} else {
+				enqueue(user, repository, callback);
+				return;
+			}
+		}
+		if (permit == null) {
+			callback.rejected();
+		} else {
+			callback.admitted(permit);
+		}
+	}
+
+	private void enqueue(String user, String repository, Callback callback) {
+		final Waiter waiter = new Waiter(user, repository, callback);
+		LinkedList<Waiter> userQueue = waitingByUser.get(user);
+		if (userQueue == null) {
+			userQueue = new LinkedList<Waiter>();
+			waitingByUser.put(user, userQueue);
+		}
+		userQueue.add(waiter);
+		waiter.timeout = timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				expire(waiter);
+			}
+		}, maxWaitMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void expire(Waiter waiter) {
+		synchronized (this) {
+			if (waiter.admitted) {
+				return;
+			}
+			removeWaiter(waiter);
+		}
+		waiter.callback.rejected();
+	}
+
+	private boolean mayRun(String user, String repository) {
+		return (maxCommandsPerUser <= 0 || count(activeByUser, user) < maxCommandsPerUser)
+				&& (maxCommandsPerRepository <= 0 || count(activeByRepository,
+						repository) < maxCommandsPerRepository);
+	}
+
+	private Permit admit(String user, String repository) {
+		activeByUser.put(user, count(activeByUser, user) + 1);
+		activeByRepository.put(repository,
+				count(activeByRepository, repository) + 1);
+		return new Permit(user, repository);
+	}
+
+	private void release(String user, String repository) {
+		List<Waiter> admitted;
+		synchronized (this) {
+			decrement(activeByUser, user);
+			decrement(activeByRepository, repository);
+			admitted = dispatch();
+		}
+		notifyAdmitted(admitted);
+	}
+
+	private void notifyAdmitted(List<Waiter> admitted) {
+		// The callbacks are notified without holding the lock, because they
+		// pass the commands on to the command executor.
+		for (Waiter waiter : admitted) {
+			waiter.timeout.cancel(false);
+			waiter.callback.admitted(new Permit(waiter.user,
+					waiter.repository));
+		}
+	}
+
+	private List<Waiter> dispatch() {
+		List<Waiter> admitted = new ArrayList<Waiter>(0);
+		boolean admittedInPass = true;
+		while (admittedInPass) {
+			admittedInPass = false;
+			Iterator<Map.Entry<String, LinkedList<Waiter>>> iterator = waitingByUser
+					.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, LinkedList<Waiter>> entry = iterator.next();
+				Waiter waiter = firstRunnable(entry.getValue());
+				if (waiter == null) {
+					continue;
+				}
+				entry.getValue().remove(waiter);
+				admit(waiter.user, waiter.repository);
+				waiter.admitted = true;
+				admitted.add(waiter);
+				admittedInPass = true;
+				// Move the user to the end of the round-robin order. We have
+				// modified the map, so we have to start a new pass.
+				iterator.remove();
+				if (!entry.getValue().isEmpty()) {
+					waitingByUser.put(entry.getKey(), entry.getValue());
+				}
+				break;
+			}
+		}
+		return admitted;
+	}
+
+	private Waiter firstRunnable(LinkedList<Waiter> userQueue) {
+		for (Waiter waiter : userQueue) {
+			if (mayRun(waiter.user, waiter.repository)) {
+				return waiter;
+			}
+		}
+		return null;
+	}
+
+	private void removeWaiter(Waiter waiter) {
+		LinkedList<Waiter> userQueue = waitingByUser.get(waiter.user);
+		if (userQueue != null) {
+			userQueue.remove(waiter);
+			if (userQueue.isEmpty()) {
+				waitingByUser.remove(waiter.user);
+			}
+		}
+	}
+
+	private static int count(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		return count == null ? 0 : count;
+	}
+
+	private static void decrement(Map<String, Integer> counts, String key) {
+		int count = count(counts, key) - 1;
+		if (count <= 0) {
+			counts.remove(key);
+		} else {
+			counts.put(key, count);
+		}
+	}
+
+	/**
+	 * Callback notified when a command has been admitted or rejected. Exactly
+	 * one of its methods is called for each request.
+	 */
+	public interface Callback {
+
+		/**
+		 * Called when the command may run.
+		 * 
+		 * @param permit
+		 *            permit that must be released when the command has
+		 *            finished.
+		 */
+		void admitted(Permit permit);
+
+		/**
+		 * Called when the command could not be admitted within the maximum
+		 * wait time.
+		 */
+		void rejected();
+
+	}
+
+	/**
+	 * Command waiting for being admitted.
+	 */
+	private static class Waiter {
+
+		private final String user;
+		private final String repository;
+		private final Callback callback;
+		private boolean admitted;
+		private ScheduledFuture<?> timeout;
+
+		public Waiter(String user, String repository, Callback callback) {
+			this.user = user;
+			this.repository = repository;
+			this.callback = callback;
+		}
+
+	}
+
+	/**
+	 * Permit for running a command. The permit must be released exactly once,
+	 * when the command has finished.
+	 */
+	public class Permit {
+
+		private final String user;
+		private final String repository;
+		private boolean released;
+
+		private Permit(String user, String repository) {
+			this.user = user;
+			this.repository = repository;
+		}
+
+		/**
+		 * Releases this permit, so that waiting commands may run.
+		 */
+		public void release() {
+			synchronized (this) {
+				if (released) {
+					return;
+				}
+				released = true;
+			}
+			GitCommandLimiter.this.release(user, repository);
+		}
+
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.git;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the host names of remote addresses without blocking Git commands
+ * on slow DNS servers. Lookups run in background threads and their results
+ * are cached for a limited time. If a lookup does not finish within a short
+ * time, the IP address is used instead, and the host name is used for later
+ * commands as soon as it is known. Failed lookups are cached, too, so that an
+ * address without a PTR record does not cause a lookup for each command. When
+ * a cached host name expires, it is still used while it is being refreshed in
+ * the background. The number of pending lookups is limited, so that a flood
+ * of connections from addresses that resolve slowly cannot exhaust the
+ * memory. If too many lookups are pending, the IP address is used and the
+ * lookup is retried for a later command.
+ * 
+ * @author Sebastian Marsching
+ */
+class ReverseDnsCache {
+
+	private final static int MAX_ENTRIES = 1024;
+	private final static long POSITIVE_TTL_MILLIS = 3600000L;
+	private final static long NEGATIVE_TTL_MILLIS = 300000L;
+	private final static long MAX_WAIT_MILLIS = 200L;
+	private final static int LOOKUP_THREADS = 4;
+	private final static int MAX_PENDING_LOOKUPS = 256;
+	private final static long LOOKUP_THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+	private boolean enabled = true;
+
+	// A map in access order, so that the least recently used entry is
+	// removed when the cache is full.
+	private final LinkedHashMap<InetAddress, CacheEntry> entries = new LinkedHashMap<InetAddress, CacheEntry>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = 2861398577120386719L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<InetAddress, CacheEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+
+	};
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Constructor.
+	 */
+	public ReverseDnsCache() {
+		executor = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS,
+				LOOKUP_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(MAX_PENDING_LOOKUPS),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "SSH-Reverse-DNS-Lookup");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Enables or disables the resolution of host names. If disabled,
+	 * {@link #getHostName(InetAddress)} always returns the IP address and no
+	 * DNS lookups are made.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> if host names shall be resolved,
+	 *            <code>false</code> if only IP addresses shall be used.
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the host name for an address. If the host name is not known
+	 * yet, this method waits for the lookup for a short time only and returns
+	 * the IP address if the lookup has not finished by then.
+	 * 
+	 * @param address
+	 *            remote address.
+	 * @return host name of the address or the IP address if the host name is
+	 *         not known.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             lookup.
+	 */
+	public synchronized String getHostName(InetAddress address)
+			throws InterruptedException {
+		if (!enabled) {
+			return address.getHostAddress();
+		}
+		long now = System.currentTimeMillis();
+		CacheEntry entry = entries.get(address);
+		if (entry == null) {
+			entry = new CacheEntry();
+			if (!startLookup(address, entry)) {
+				return address.getHostAddress();
+			}
+			entries.put(address, entry);
+			long deadline = now + MAX_WAIT_MILLIS;
+			long remaining = MAX_WAIT_MILLIS;
+			while (entry.hostName == null && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		} else if (entry.expiresAt <= now && !entry.lookupRunning) {
+			startLookup(address, entry);
+		}
+		return entry.hostName != null ? entry.hostName : address
+				.getHostAddress();
+	}
+
+	private boolean startLookup(final InetAddress address,
+			final CacheEntry entry) {
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					lookup(address, entry);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Too many lookups are pending. A new entry is not cached and an
+			// expired entry stays expired, so that the lookup is retried for
+			// the next command from this address.
+			return false;
+		}
+		entry.lookupRunning = true;
+		return true;
+	}
+
+	private void lookup(InetAddress address, CacheEntry entry) {
+		// We create a new instance, because an InetAddress caches its host
+		// name forever, so an existing instance would never be refreshed.
+		String hostName;
+		try {
+			hostName = InetAddress.getByAddress(address.getAddress())
+					.getHostName();
+		} catch (Exception e) {
+			hostName = address.getHostAddress();
+		}
+		synchronized (this) {
+			// If the lookup fails, the IP address is returned. An old host
+			// name is kept in this case, because the failure might be caused
+			// by a temporary problem of the DNS server.
+			boolean failed = hostName.equals(address.getHostAddress());
+			if (!failed || entry.hostName == null) {
+				entry.hostName = hostName;
+			}
+			entry.expiresAt = System.currentTimeMillis()
+					+ (failed ? NEGATIVE_TTL_MILLIS : POSITIVE_TTL_MILLIS);
+			entry.lookupRunning = false;
+			notifyAll();
+		}
+	}
+
+	private static class CacheEntry {
+
+		private String hostName;
+		private long expiresAt;
+		private boolean lookupRunning;
+
+	}
+
+}
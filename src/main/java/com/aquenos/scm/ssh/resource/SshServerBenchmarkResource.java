@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.resource;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.shiro.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sonia.scm.security.Role;
+
+import com.aquenos.scm.ssh.server.SshServerBenchmark;
+import com.google.inject.Singleton;
+
+/**
+ * Resource that runs the SSH I/O benchmark. The benchmark takes a while and
+ * competes with the SSH server for CPU time, so only one benchmark can run at
+ * a time and the amount of data transferred is limited.
+ * 
+ * @author Sebastian Marsching
+ */
+@Singleton
+@Path("scm-ssh-plugin/benchmark")
+public class SshServerBenchmarkResource {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(SshServerBenchmarkResource.class);
+
+	private final static int MAX_CONNECTIONS = 16;
+	private final static int MAX_MEGABYTES = 64;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	/**
+	 * Handles POST requests. Runs the benchmark and returns its results in the
+	 * body of the response in JSON or XML format. If a benchmark is already
+	 * running, the request is rejected instead of waiting for it to finish.
+	 * 
+	 * @param connections
+	 *            number of concurrent connections.
+	 * @param megabytes
+	 *            number of megabytes transferred over each connection.
+	 * @return response with the benchmark results or an error response, if
+	 *         the user does not have administrative privileges, the
+	 *         parameters are invalid, another benchmark is running or the
+	 *         benchmark fails.
+	 */
+	@POST
+	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+	public Response runBenchmark(
+			@QueryParam("connections") @DefaultValue("4") int connections,
+			@QueryParam("megabytes") @DefaultValue("16") int megabytes) {
+		if (!SecurityUtils.getSubject().hasRole(Role.ADMIN)) {
+			return Response.status(Status.FORBIDDEN).build();
+		}
+		if (connections < 1 || connections > MAX_CONNECTIONS || megabytes < 1
+				|| megabytes > MAX_MEGABYTES) {
+			return Response.status(Status.BAD_REQUEST).build();
+		}
+		if (!running.compareAndSet(false, true)) {
+			return Response.status(Status.CONFLICT).build();
+		}
+		try {
+			return Response.ok(
+					new SshServerBenchmark(connections, megabytes).run())
+					.build();
+		} catch (Exception e) {
+			LOGGER.error("SSH benchmark failed: " + e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+		} finally {
+			running.set(false);
+		}
+	}
+
+}
@@ -9,6 +9,9 @@
 
 package com.aquenos.scm.ssh.resource;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
@@ -22,8 +25,12 @@ import org.apache.shiro.SecurityUtils;
 
 import sonia.scm.security.Role;
 
+import com.aquenos.scm.ssh.server.NetworkRange;
+import com.aquenos.scm.ssh.server.NetworkRateLimit;
+import com.aquenos.scm.ssh.server.ScmSshListenerConfiguration;
 import com.aquenos.scm.ssh.server.ScmSshServerConfiguration;
 import com.aquenos.scm.ssh.server.ScmSshServerConfigurationStore;
+import com.aquenos.scm.ssh.server.SshAlgorithms;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -36,6 +43,9 @@ import com.google.inject.Singleton;
 @Path("scm-ssh-plugin/server-config")
 public class SshServerConfigurationResource {
 
+	private final static int MIN_CHANNEL_PACKET_SIZE = 1024;
+	private final static int MAX_CHANNEL_PACKET_SIZE = 131072;
+
 	private ScmSshServerConfigurationStore configurationStore;
 
 	/**
@@ -70,7 +80,9 @@ public class SshServerConfigurationResource {
 
 	/**
 	 * Handles POST requests. Stores the SSH server configuration passed in the
-	 * request body in JSON or XML format.
+	 * request body in JSON or XML format. Host keys that are empty in the
+	 * passed configuration are taken from the stored configuration, so that a
+	 * form that was loaded before a key was generated does not remove the key.
 	 * 
 	 * @param config
 	 *            the configuration to save.
@@ -81,10 +93,64 @@ public class SshServerConfigurationResource {
 	@Consumes({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
 	public Response setConfiguration(ScmSshServerConfiguration config) {
 		if (SecurityUtils.getSubject().hasRole(Role.ADMIN)) {
+			keepStoredHostKeys(config);
 			if (config.getListenAddress() == null || config.getListenPort() < 1
 					|| config.getListenPort() > 65535
 					|| config.getRsaHostKey() == null
-					|| config.getDsaHostKey() == null) {
+					|| config.getDsaHostKey() == null
+					|| config.getEcdsaHostKey() == null
+					|| config.getEd25519HostKey() == null
+					|| config.getCommandThreadPoolCoreSize() < 0
+					|| config.getCommandThreadPoolMaxSize() < 1
+					|| config.getCommandThreadPoolMaxSize() < config
+							.getCommandThreadPoolCoreSize()
+					|| config.getCommandQueueSize() < 0
+					|| config.getCommandRejectionPolicy() == null
+					|| config.getWriteCommandThreadPoolCoreSize() < 0
+					|| config.getWriteCommandThreadPoolMaxSize() < 1
+					|| config.getWriteCommandThreadPoolMaxSize() < config
+							.getWriteCommandThreadPoolCoreSize()
+					|| config.getWriteCommandQueueSize() < 0
+					|| config.getDrainTimeout() < 0
+					|| config.getCommandIdleTimeout() < 0
+					|| config.getCommandMaxDuration() < 0
+					|| config.getMaxHeapUsage() < 0
+					|| config.getMaxHeapUsage() > 100
+					|| config.getMaxSystemLoad() < 0
+					|| config.getMaxPackGenerations() < 0
+					|| config.getNioWorkers() < 0
+					|| config.getChannelMaxPacketSize() < MIN_CHANNEL_PACKET_SIZE
+					|| config.getChannelMaxPacketSize() > MAX_CHANNEL_PACKET_SIZE
+					|| config.getChannelWindowSize() < config
+							.getChannelMaxPacketSize()
+					|| config.getTcpSendBufferSize() < 0
+					|| config.getTcpReceiveBufferSize() < 0
+					|| config.getCompressionLevel() < 1
+					|| config.getCompressionLevel() > 9
+					|| config.getMaxSessions() < 0
+					|| config.getMaxSessionsPerAddress() < 0
+					|| config.getMaxUnauthenticatedSessions() < 0
+					|| config.getMaxSessionsPerUser() < 0
+					|| config.getMaxAuthAttempts() < 1
+					|| config.getAuthTimeout() < 1
+					|| config.getSessionIdleTimeout() < 0
+					|| config.getConnectionRatePerAddress() < 0
+					|| config.getConnectionBurstPerAddress() < 1
+					|| !isValidNetworkRateLimits(config.getNetworkRateLimits())
+					|| !isValidTrustedProxies(config.getTrustedProxies())
+					|| !isValidListeners(config)
+					|| !SshAlgorithms.isValidList(config.getCiphers(),
+							SshAlgorithms.getSupportedCiphers())
+					|| !SshAlgorithms.isValidList(config.getMacs(),
+							SshAlgorithms.getSupportedMacs())
+					|| !SshAlgorithms.isValidList(config.getKeyExchanges(),
+							SshAlgorithms.getSupportedKeyExchanges())
+					|| config.getMaxCommandsPerUser() < 0
+					|| config.getMaxCommandsPerRepository() < 0
+					|| config.getCommandWaitTimeout() < 0
+					|| config.getMaxBandwidthPerUser() < 0
+					|| config.getMaxBandwidthPerRepository() < 0
+					|| config.getMaxBandwidth() < 0) {
 				return Response.status(Status.BAD_REQUEST).build();
 			}
 			configurationStore.store(config);
@@ -93,4 +159,89 @@ public class SshServerConfigurationResource {
 			return Response.status(Status.FORBIDDEN).build();
 		}
 	}
+
+	private void keepStoredHostKeys(ScmSshServerConfiguration config) {
+		// Host keys are generated in the background, so the form might have
+		// been loaded before the key existed. Storing the empty key would
+		// make the server generate another key, which clients would see as a
+		// changed host identity.
+		ScmSshServerConfiguration storedConfig = configurationStore.load();
+		if (isEmpty(config.getRsaHostKey())
+				&& !isEmpty(storedConfig.getRsaHostKey())) {
+			config.setRsaHostKey(storedConfig.getRsaHostKey());
+		}
+		if (isEmpty(config.getDsaHostKey())
+				&& !isEmpty(storedConfig.getDsaHostKey())) {
+			config.setDsaHostKey(storedConfig.getDsaHostKey());
+		}
+		if (isEmpty(config.getEcdsaHostKey())
+				&& !isEmpty(storedConfig.getEcdsaHostKey())) {
+			config.setEcdsaHostKey(storedConfig.getEcdsaHostKey());
+		}
+		if (isEmpty(config.getEd25519HostKey())
+				&& !isEmpty(storedConfig.getEd25519HostKey())) {
+			config.setEd25519HostKey(storedConfig.getEd25519HostKey());
+		}
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
+	private static boolean isValidListeners(ScmSshServerConfiguration config) {
+		// Two listeners must not use the same endpoint. We cannot detect all
+		// conflicts (e.g. a listener for a specific address and one for all
+		// addresses on the same port), but binding would fail for these
+		// anyway.
+		Set<String> endpoints = new HashSet<String>();
+		endpoints.add(getEndpoint(config.getListenAddress(),
+				config.getListenPort()));
+		for (ScmSshListenerConfiguration listener : config.getListeners()) {
+			if (listener == null || listener.getListenPort() < 1
+					|| listener.getListenPort() > 65535
+					|| !endpoints.add(getEndpoint(listener.getListenAddress(),
+							listener.getListenPort()))
+					|| !isValidTrustedProxies(listener.getTrustedProxies())) {
+				return false;
+			}
+			if (!listener.isOwnLimits()) {
+				continue;
+			}
+			if (listener.getMaxSessions() < 0
+					|| listener.getMaxSessionsPerAddress() < 0
+					|| listener.getMaxUnauthenticatedSessions() < 0
+					|| listener.getMaxSessionsPerUser() < 0
+					|| listener.getConnectionRatePerAddress() < 0
+					|| listener.getConnectionBurstPerAddress() < 1
+					|| !isValidNetworkRateLimits(listener
+							.getNetworkRateLimits())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String getEndpoint(String listenAddress, int listenPort) {
+		String address = listenAddress == null ? "" : listenAddress.trim();
+		return address + ":" + listenPort;
+	}
+
+	private static boolean isValidTrustedProxies(String trustedProxies) {
+		try {
+			NetworkRange.parseList(trustedProxies);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static boolean isValidNetworkRateLimits(String networkRateLimits) {
+		try {
+			NetworkRateLimit.parseList(networkRateLimits);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.resource;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.shiro.SecurityUtils;
+
+import sonia.scm.security.Role;
+
+import com.aquenos.scm.ssh.server.ScmSshServer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Resource that provides access to the runtime statistics of the SSH server.
+ * 
+ * @author Sebastian Marsching
+ */
+@Singleton
+@Path("scm-ssh-plugin/server-status")
+public class SshServerStatusResource {
+
+	private ScmSshServer sshServer;
+
+	/**
+	 * Constructor. Meant to be called by Guice.
+	 * 
+	 * @param sshServer
+	 *            the SSH server whose statistics are provided.
+	 */
+	@Inject
+	public SshServerStatusResource(ScmSshServer sshServer) {
+		this.sshServer = sshServer;
+	}
+
+	/**
+	 * Handles GET requests. Returns the SSH server status in the body of the
+	 * response in JSON or XML format.
+	 * 
+	 * @return response with the SSH server status or an error response, if
+	 *         the user does not have administrative privileges.
+	 */
+	@GET
+	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+	public Response getStatus() {
+		if (SecurityUtils.getSubject().hasRole(Role.ADMIN)) {
+			return Response.ok(sshServer.getStatus()).build();
+		} else {
+			return Response.status(Status.FORBIDDEN).build();
+		}
+	}
+
+}
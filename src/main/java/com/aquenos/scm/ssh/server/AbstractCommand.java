@@ -14,44 +14,87 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.Environment;
 import org.apache.sshd.server.ExitCallback;
 import org.apache.sshd.server.SessionAware;
 import org.apache.sshd.server.session.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Base class for SSH commands. Handles common tasks like storing the stream
  * objects, environment and server session and starting and stopping a command
- * thread. Classes derived from this class should simply implement the
- * {@link #run()} method.
+ * thread. When the command is created by the {@link ScmSshServer}, the command
+ * code is run by the server's shared command executor instead of a thread of
+ * its own. Classes derived from this class should simply implement the
+ * {@link #run()} method. Classes that limit how many commands may run at the
+ * same time can override {@link #requestAdmission(Admission)}, so that a
+ * command waits for being admitted before it occupies a thread of the
+ * executor.
  * 
  * @author Sebastian Marsching
  */
 public abstract class AbstractCommand implements Command, SessionAware {
 
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(AbstractCommand.class);
+
 	private Thread commandThread;
-	private boolean interruptRequested = false;
+	private boolean started = false;
+	private volatile boolean interruptRequested = false;
 	private final Object threadLock = new Object();
+	private ScmSshServer server;
+	private CommandTimer commandTimer;
+	private long defaultIdleTimeoutMillis;
+	private long idleTimeoutMillis;
+	private long maxDurationMillis;
+	private volatile long blockedSince;
+	private CommandTimer.Timeout idleTimeout;
+	private CommandTimer.Timeout durationTimeout;
+	private List<CommandListener> commandListeners;
+	private CommandInterceptor[] commandInterceptors;
+	private Invocation invocation;
+	private String commandLine;
 
-	private InputStream inputStream;
-	private OutputStream outputStream;
-	private OutputStream errorStream;
+	private CountingInputStream inputStream;
+	private CountingOutputStream outputStream;
+	private CountingOutputStream errorStream;
 	private Environment environment;
 	private ExitCallback exitCallback;
 	private ServerSession session;
+	private boolean compressionBypassed;
 
 	@Override
 	public void destroy() {
 		synchronized (threadLock) {
-			if (commandThread == null) {
+			if (!started) {
 				return;
 			}
 			interruptRequested = true;
-			commandThread.interrupt();
+			// If the command is still waiting in the queue of the command
+			// executor, there is no thread yet. The command runner checks the
+			// interrupt flag before running the command, so setting the flag
+			// is sufficient in this case.
+			if (commandThread != null) {
+				commandThread.interrupt();
+			}
+		}
+		CommandInterceptor[] interceptors = this.commandInterceptors;
+		if (interceptors != null) {
+			for (int i = 0; i < interceptors.length; i++) {
+				try {
+					interceptors[i].onDestroy(invocation);
+				} catch (RuntimeException e) {
+					LOGGER.error("Command interceptor " + interceptors[i]
+							+ " threw an exception.", e);
+				}
+			}
 		}
-
 	}
 
 	/**
@@ -66,7 +109,7 @@ public abstract class AbstractCommand implements Command, SessionAware {
 
 	@Override
 	public void setErrorStream(OutputStream oes) {
-		this.errorStream = oes;
+		this.errorStream = oes != null ? new CountingOutputStream(oes) : null;
 	}
 
 	@Override
@@ -86,7 +129,7 @@ public abstract class AbstractCommand implements Command, SessionAware {
 
 	@Override
 	public void setInputStream(InputStream is) {
-		this.inputStream = is;
+		this.inputStream = is != null ? new CountingInputStream(is) : null;
 	}
 
 	/**
@@ -101,7 +144,7 @@ public abstract class AbstractCommand implements Command, SessionAware {
 
 	@Override
 	public void setOutputStream(OutputStream os) {
-		this.outputStream = os;
+		this.outputStream = os != null ? new CountingOutputStream(os) : null;
 	}
 
 	/**
@@ -118,31 +161,422 @@ public abstract class AbstractCommand implements Command, SessionAware {
 		this.session = session;
 	}
 
+	/**
+	 * Sets the server whose executor is used to run the command code. The
+	 * executor is looked up when the command is admitted, so that a command
+	 * admitted after the thread pool settings have been changed is run by the
+	 * new executor. If no server is set, the command code is run in a thread
+	 * of its own. This method is called by the {@link ScmSshServer} before the
+	 * command is started.
+	 * 
+	 * @param server
+	 *            server providing the executor used to run the command code.
+	 */
+	void setServer(ScmSshServer server) {
+		this.server = server;
+	}
+
+	/**
+	 * Sets the command line that has been sent by the client. This method is
+	 * called by the {@link ScmSshServer} before the command is started.
+	 * 
+	 * @param commandLine
+	 *            command line or <code>null</code> if the client requested a
+	 *            shell.
+	 */
+	void setCommandLine(String commandLine) {
+		this.commandLine = commandLine;
+	}
+
+	/**
+	 * Sets the interceptors that are called when the command is run and when
+	 * it is destroyed. This method is called by the {@link ScmSshServer}
+	 * before the command is started.
+	 * 
+	 * @param commandInterceptors
+	 *            interceptors in the order in which they are called before
+	 *            the command is run. The array is not copied.
+	 */
+	void setCommandInterceptors(CommandInterceptor[] commandInterceptors) {
+		if (commandInterceptors != null && commandInterceptors.length > 0) {
+			this.commandInterceptors = commandInterceptors;
+			// A single invocation object is used for all callbacks, so that
+			// the interceptors do not cause any allocations while the command
+			// is running.
+			this.invocation = new Invocation();
+		} else {
+			this.commandInterceptors = null;
+			this.invocation = null;
+		}
+	}
+
+	/**
+	 * Sets the listeners that are notified when the command has finished. The
+	 * list is not copied, so listeners that are added to or removed from the
+	 * list later are taken into account. This method is called by the
+	 * {@link ScmSshServer} before the command is started.
+	 * 
+	 * @param commandListeners
+	 *            thread-safe list of listeners.
+	 */
+	void setCommandListeners(List<CommandListener> commandListeners) {
+		this.commandListeners = commandListeners;
+	}
+
+	/**
+	 * Sets the timer that is used to enforce the idle timeout and the maximum
+	 * duration of the command. If no timer is set, the command may run
+	 * indefinitely. This method is called by the {@link ScmSshServer} before
+	 * the command is started.
+	 * 
+	 * @param commandTimer
+	 *            timer shared by all commands of the server.
+	 * @param defaultIdleTimeoutMillis
+	 *            time (in milliseconds) after which the command is aborted if
+	 *            a read or write operation does not complete, unless the
+	 *            command specifies its own idle timeout. Zero means no idle
+	 *            timeout.
+	 * @param maxDurationMillis
+	 *            time (in milliseconds) after which the command is aborted,
+	 *            regardless of its activity. Zero means no limit.
+	 */
+	void setCommandTimer(CommandTimer commandTimer,
+			long defaultIdleTimeoutMillis, long maxDurationMillis) {
+		this.commandTimer = commandTimer;
+		this.defaultIdleTimeoutMillis = defaultIdleTimeoutMillis;
+		this.maxDurationMillis = maxDurationMillis;
+	}
+
+	/**
+	 * Sets the idle timeout for this command, overriding the default idle
+	 * timeout of the server. This is used by commands that allow the client to
+	 * request a specific timeout. It must be called before the command is
+	 * started.
+	 * 
+	 * @param idleTimeoutSeconds
+	 *            time (in seconds) after which the command is aborted if a
+	 *            read or write operation does not complete. Zero means that
+	 *            the default idle timeout of the server is used.
+	 */
+	protected void setIdleTimeout(int idleTimeoutSeconds) {
+		this.idleTimeoutMillis = idleTimeoutSeconds * 1000L;
+	}
+
+	/**
+	 * Records that the command has started a read or write operation that
+	 * might block because the client is not sending data or not accepting
+	 * data. If the operation does not finish within the idle timeout, the
+	 * command is aborted. Time that the command spends without any pending
+	 * read or write operation (e.g. while computing data) is not limited by
+	 * the idle timeout. Child-classes should call this method before each
+	 * read or write operation on the streams of the command and must call
+	 * {@link #endBlockingOperation()} after the operation.
+	 */
+	protected void beginBlockingOperation() {
+		blockedSince = System.currentTimeMillis();
+	}
+
+	/**
+	 * Records that the command has finished a read or write operation that was
+	 * started after calling {@link #beginBlockingOperation()}.
+	 */
+	protected void endBlockingOperation() {
+		blockedSince = 0L;
+	}
+
+	/**
+	 * Sets whether the compression of the SSH session is bypassed for data
+	 * sent by this command. Child-classes should request a bypass while they
+	 * send data that is already compressed and must stop the request before
+	 * the command finishes. This method has no effect if compression has not
+	 * been negotiated for the session.
+	 * 
+	 * @param bypassed
+	 *            <code>true</code> to send data without compression,
+	 *            <code>false</code> to compress it again.
+	 */
+	protected void setCompressionBypassed(boolean bypassed) {
+		if (bypassed == compressionBypassed) {
+			return;
+		}
+		compressionBypassed = bypassed;
+		if (session instanceof ManagedServerSession) {
+			((ManagedServerSession) session).setCompressionBypassed(bypassed);
+		}
+	}
+
 	@Override
 	public void start(Environment environment) throws IOException {
 		synchronized (threadLock) {
-			if (commandThread != null) {
+			if (started) {
 				throw new IllegalStateException(
 						"Command has already been started.");
 			}
+			this.environment = environment;
+			this.started = true;
+		}
+		requestAdmission(new Admission());
+	}
+
+	/**
+	 * Decides when the command may be run. This method is called when the
+	 * command is started, usually from an I/O thread of the SSH server, so it
+	 * must not block. The command is only passed to the command executor once
+	 * {@link Admission#admit()} has been called. Calling
+	 * {@link Admission#reject(String)} instead finishes the command without
+	 * running it. Either method may be called later from a different thread.
+	 * The default implementation admits the command immediately.
+	 * 
+	 * @param admission
+	 *            admission of this command.
+	 */
+	protected void requestAdmission(Admission admission) {
+		admission.admit();
+	}
+
+	/**
+	 * Called exactly once when a command that has been admitted has finished,
+	 * or when it has been rejected or destroyed before running. Child-classes
+	 * can override this method in order to release resources that they
+	 * acquired in {@link #requestAdmission(Admission)}. The default
+	 * implementation does nothing.
+	 */
+	protected void commandFinished() {
+	}
+
+	private void finishCommand() {
+		try {
+			commandFinished();
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while finishing command " + getCommandName()
+					+ ".", e);
+		}
+	}
+
+	private void submit(long waitingSince) {
+		synchronized (threadLock) {
 			Runnable commandRunner = new Runnable() {
 				@Override
 				public void run() {
-					int exitCode = -1;
+					runCommand();
+				}
+			};
+			Runnable expiredHandler = new Runnable() {
+				@Override
+				public void run() {
+					finishCommand();
+					exitCallback.onExit(errorMessage(-7,
+							"The server is busy. Please retry later."));
+				}
+			};
+			CommandExecutor commandExecutor = server == null ? null : server
+					.getCommandExecutor();
+			if (commandExecutor == null) {
+				new Thread(commandRunner, getThreadName()).start();
+				return;
+			}
+			try {
+				commandExecutor.execute(commandRunner, expiredHandler,
+						waitingSince, isWriteCommand());
+				return;
+			} catch (RejectedExecutionException e) {
+				// The executor might have been replaced and shut down after
+				// we looked it up, so we try the current one.
+				CommandExecutor currentExecutor = server.getCommandExecutor();
+				if (currentExecutor != commandExecutor) {
 					try {
-						exitCode = AbstractCommand.this.run();
-					} finally {
-						synchronized (threadLock) {
-							commandThread = null;
-							interruptRequested = false;
-							exitCallback.onExit(exitCode);
-						}
+						currentExecutor.execute(commandRunner,
+								expiredHandler, waitingSince, isWriteCommand());
+						return;
+					} catch (RejectedExecutionException e2) {
+						// Handled below, outside the synchronized block.
 					}
 				}
-			};
-			this.environment = environment;
-			this.commandThread = new Thread(commandRunner, getThreadName());
-			this.commandThread.start();
+			}
+		}
+		finishCommand();
+		exitCallback.onExit(errorMessage(-7,
+				"The server is busy. Please retry later."));
+	}
+
+	private void runCommand() {
+		Thread thread = Thread.currentThread();
+		boolean destroyed;
+		synchronized (threadLock) {
+			// If the command has been destroyed while it was queued, it is
+			// not run.
+			destroyed = interruptRequested;
+			interruptRequested = false;
+			if (!destroyed) {
+				commandThread = thread;
+				startTimeouts();
+			}
+		}
+		if (destroyed) {
+			finishCommand();
+			exitCallback.onExit(-1);
+			return;
+		}
+		String originalThreadName = thread.getName();
+		thread.setName(getThreadName());
+		long startTime = System.currentTimeMillis();
+		long startCpuTime = ThreadResourceMeter.getCurrentThreadCpuTime();
+		long startAllocatedBytes = ThreadResourceMeter
+				.getCurrentThreadAllocatedBytes();
+		int exitCode = -1;
+		boolean aborted;
+		try {
+			exitCode = runWithInterceptors();
+		} finally {
+			// Resources are released before the client is notified, so that
+			// a command sent by the client right afterwards can use them.
+			finishCommand();
+			synchronized (threadLock) {
+				aborted = interruptRequested;
+				cancelTimeouts();
+				commandThread = null;
+				interruptRequested = false;
+				// The thread might be reused for other commands, so we have to
+				// clear a pending interrupt.
+				Thread.interrupted();
+				exitCallback.onExit(exitCode);
+			}
+			thread.setName(originalThreadName);
+		}
+		if (commandListeners != null && !commandListeners.isEmpty()) {
+			CommandStatistics statistics = new CommandStatistics();
+			statistics.setCommandName(getCommandName());
+			statistics.setUsername(session != null ? session.getUsername()
+					: null);
+			statistics.setRepositoryName(getRepositoryName());
+			statistics.setExitCode(exitCode);
+			statistics.setAborted(aborted);
+			statistics.setWallTimeMillis(System.currentTimeMillis()
+					- startTime);
+			statistics.setCpuTimeNanos(difference(startCpuTime,
+					ThreadResourceMeter.getCurrentThreadCpuTime()));
+			statistics.setAllocatedBytes(difference(startAllocatedBytes,
+					ThreadResourceMeter.getCurrentThreadAllocatedBytes()));
+			statistics.setBytesRead(inputStream != null ? inputStream
+					.getCount() : 0L);
+			statistics.setBytesWritten((outputStream != null ? outputStream
+					.getCount() : 0L)
+					+ (errorStream != null ? errorStream.getCount() : 0L));
+			notifyCommandListeners(statistics);
+		}
+	}
+
+	private int runWithInterceptors() {
+		CommandInterceptor[] interceptors = this.commandInterceptors;
+		if (interceptors == null) {
+			return run();
+		}
+		int exitCode = -1;
+		int called = 0;
+		try {
+			for (; called < interceptors.length; called++) {
+				interceptors[called].beforeRun(invocation);
+			}
+			exitCode = run();
+		} catch (CommandRejectedException e) {
+			exitCode = errorMessage(-7, e.getMessage());
+		} finally {
+			for (int i = called - 1; i >= 0; i--) {
+				try {
+					interceptors[i].afterRun(invocation, exitCode);
+				} catch (RuntimeException e) {
+					LOGGER.error("Command interceptor " + interceptors[i]
+							+ " threw an exception.", e);
+				}
+			}
+		}
+		return exitCode;
+	}
+
+	private static long difference(long start, long end) {
+		if (start < 0L || end < 0L) {
+			return -1L;
+		}
+		return end - start;
+	}
+
+	private void notifyCommandListeners(CommandStatistics statistics) {
+		for (CommandListener listener : commandListeners) {
+			try {
+				listener.commandFinished(statistics);
+			} catch (RuntimeException e) {
+				LOGGER.error("Command listener " + listener
+						+ " threw an exception.", e);
+			}
+		}
+	}
+
+	private void startTimeouts() {
+		if (commandTimer == null) {
+			return;
+		}
+		final long idleTimeoutMillis = this.idleTimeoutMillis > 0 ? this.idleTimeoutMillis
+				: defaultIdleTimeoutMillis;
+		if (idleTimeoutMillis > 0) {
+			scheduleIdleTimeout(idleTimeoutMillis, idleTimeoutMillis);
+		}
+		if (maxDurationMillis > 0) {
+			durationTimeout = commandTimer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					abortCommand("it has exceeded the maximum duration of "
+							+ (maxDurationMillis / 1000L) + " seconds");
+				}
+			}, maxDurationMillis);
+		}
+	}
+
+	private void scheduleIdleTimeout(final long idleTimeoutMillis, long delay) {
+		idleTimeout = commandTimer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				long since = blockedSince;
+				long idleTime = since == 0L ? 0L : System.currentTimeMillis()
+						- since;
+				if (idleTime >= idleTimeoutMillis) {
+					abortCommand("it has been waiting for the client for "
+							+ (idleTime / 1000L) + " seconds");
+					return;
+				}
+				// The command is either not waiting or has not been waiting
+				// long enough, so we check again when the remainder of the
+				// idle period has passed.
+				synchronized (threadLock) {
+					if (commandThread != null) {
+						scheduleIdleTimeout(idleTimeoutMillis,
+								idleTimeoutMillis - idleTime);
+					}
+				}
+			}
+		}, delay);
+	}
+
+	private void cancelTimeouts() {
+		if (idleTimeout != null) {
+			idleTimeout.cancel();
+			idleTimeout = null;
+		}
+		if (durationTimeout != null) {
+			durationTimeout.cancel();
+			durationTimeout = null;
+		}
+	}
+
+	private void abortCommand(String reason) {
+		synchronized (threadLock) {
+			if (commandThread == null || interruptRequested) {
+				return;
+			}
+			String username = session != null ? session.getUsername() : null;
+			LOGGER.info("Aborting SSH command of user \"" + username
+					+ "\" because " + reason + ".");
+			interruptRequested = true;
+			commandThread.interrupt();
 		}
 	}
 
@@ -166,17 +600,52 @@ public abstract class AbstractCommand implements Command, SessionAware {
 		return "SSH-Command-Thread";
 	}
 
+	/**
+	 * Returns the name of this command. The name is reported to
+	 * {@link CommandListener}s. This can be overridden by child-classes. The
+	 * default implementation returns the thread name.
+	 * 
+	 * @return name of the command.
+	 */
+	protected String getCommandName() {
+		return getThreadName();
+	}
+
+	/**
+	 * Returns the name of the repository this command operates on. The name
+	 * is reported to {@link CommandListener}s. This can be overridden by
+	 * child-classes. The default implementation returns <code>null</code>.
+	 * 
+	 * @return name of the repository or <code>null</code> if the command does
+	 *         not operate on a repository.
+	 */
+	protected String getRepositoryName() {
+		return null;
+	}
+
+	/**
+	 * Tells whether this command modifies a repository. Write commands are run
+	 * in a lane of their own, separate from read commands, so that the two
+	 * kinds of commands cannot delay each other. This can be overridden by
+	 * child-classes. The default implementation returns <code>false</code>.
+	 * 
+	 * @return <code>true</code> if this command modifies a repository,
+	 *         <code>false</code> otherwise.
+	 */
+	protected boolean isWriteCommand() {
+		return false;
+	}
+
 	/**
 	 * Returns true if the command thread should be stopped. This flag is set by
-	 * {@link #destroy()}.
+	 * {@link #destroy()}. The flag is read without locking, so this method is
+	 * cheap enough to be called for every object that is read.
 	 * 
 	 * @return <code>true</code> if the command thread shall be stopped,
 	 *         <code>false</code> otherwise.
 	 */
 	protected boolean isInterruptRequested() {
-		synchronized (threadLock) {
-			return interruptRequested;
-		}
+		return interruptRequested;
 	}
 
 	/**
@@ -217,4 +686,78 @@ public abstract class AbstractCommand implements Command, SessionAware {
 	 * @return exit code to return to the client.
 	 */
 	protected abstract int run();
+
+	/**
+	 * Admission of a command, which is passed to
+	 * {@link AbstractCommand#requestAdmission(Admission)}. Only the first call
+	 * to one of its methods has an effect.
+	 */
+	protected final class Admission {
+
+		private final AtomicBoolean decided = new AtomicBoolean();
+		// The time spent waiting for admission counts against the wait
+		// timeout of the command executor.
+		private final long requestTime = System.nanoTime();
+
+		private Admission() {
+		}
+
+		/**
+		 * Admits the command, so that it is passed to the command executor.
+		 */
+		public void admit() {
+			if (decided.compareAndSet(false, true)) {
+				submit(requestTime);
+			}
+		}
+
+		/**
+		 * Rejects the command. The command finishes without being run and
+		 * the passed message is sent to the client.
+		 * 
+		 * @param message
+		 *            message telling the client why the command has been
+		 *            rejected.
+		 */
+		public void reject(String message) {
+			if (decided.compareAndSet(false, true)) {
+				finishCommand();
+				exitCallback.onExit(errorMessage(-7, message));
+			}
+		}
+
+	}
+
+	/**
+	 * Information about this command that is passed to the interceptors.
+	 */
+	private class Invocation implements CommandInvocation {
+
+		@Override
+		public ServerSession getSession() {
+			return session;
+		}
+
+		@Override
+		public String getCommandLine() {
+			return commandLine;
+		}
+
+		@Override
+		public String getCommandName() {
+			return AbstractCommand.this.getCommandName();
+		}
+
+		@Override
+		public String getRepositoryName() {
+			return AbstractCommand.this.getRepositoryName();
+		}
+
+		@Override
+		public boolean isWriteCommand() {
+			return AbstractCommand.this.isWriteCommand();
+		}
+
+	}
+
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.sshd.common.Compression;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.util.Buffer;
+
+/**
+ * Delayed zlib compression (<code>zlib@openssh.com</code>) that can be
+ * bypassed while incompressible data is sent. Git pack data is already
+ * compressed, so compressing it again only costs CPU time. While the
+ * compression is bypassed, the data is still passed through the deflater,
+ * but with compression level zero, so that it is wrapped in stored blocks and
+ * the compressed stream stays valid for the client. The amount of data before
+ * and after compression is recorded in a {@link CompressionStatistics}
+ * object. The native zlib memory is released when the compression is replaced
+ * by a key exchange or the session is closed, see {@link #end()}. Flushing
+ * the deflater after each packet needs Java 7, so this compression is only
+ * offered if {@link #isSupported()} returns <code>true</code>.
+ * 
+ * @author Sebastian Marsching
+ */
+class AdaptiveCompression implements Compression {
+
+	private final static int BUFFER_SIZE = 8192;
+	private final static boolean SUPPORTED = checkSupported();
+
+	private final int level;
+	private Deflater deflater;
+	private Inflater inflater;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private volatile boolean bypassed;
+	private boolean deflaterBypassed;
+	private volatile CompressionStatistics statistics;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param level
+	 *            compression level (1 to 9) used while the compression is not
+	 *            bypassed.
+	 */
+	public AdaptiveCompression(int level) {
+		this.level = level;
+	}
+
+	private static boolean checkSupported() {
+		// Deflater.SYNC_FLUSH is a constant, so only the method is missing in
+		// older Java runtimes.
+		try {
+			Deflater.class.getMethod("deflate", byte[].class, int.class,
+					int.class, int.class);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Tells whether the Java runtime supports flushing a deflater without
+	 * finishing the compressed stream, which is needed for compressing SSH
+	 * packets. This is the case for Java 7 and newer.
+	 * 
+	 * @return <code>true</code> if this compression is supported,
+	 *         <code>false</code> otherwise.
+	 */
+	public static boolean isSupported() {
+		return SUPPORTED;
+	}
+
+	@Override
+	public boolean isDelayed() {
+		return true;
+	}
+
+	@Override
+	public synchronized void init(Type type, int level) {
+		// The level requested by the session is ignored in favor of the
+		// level from the server configuration.
+		if (type == Type.Deflater) {
+			if (deflater != null) {
+				deflater.end();
+			}
+			deflater = new Deflater(this.level);
+			deflaterBypassed = false;
+		} else {
+			if (inflater != null) {
+				inflater.end();
+			}
+			inflater = new Inflater();
+		}
+	}
+
+	/**
+	 * Releases the native memory held by the deflater and inflater. This
+	 * method may be called from any thread. After it has been called, the
+	 * compression cannot be used any longer.
+	 */
+	public synchronized void end() {
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+
+	/**
+	 * Sets whether compression is bypassed. This method may be called from
+	 * any thread. The change takes effect with the next packet.
+	 * 
+	 * @param bypassed
+	 *            <code>true</code> if data shall be sent uncompressed,
+	 *            <code>false</code> if it shall be compressed.
+	 */
+	public void setBypassed(boolean bypassed) {
+		this.bypassed = bypassed;
+	}
+
+	/**
+	 * Sets the statistics object which is updated for each compressed packet.
+	 * 
+	 * @param statistics
+	 *            statistics for the session using this compression.
+	 */
+	public void setStatistics(CompressionStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	@Override
+	public synchronized void compress(Buffer buffer) throws IOException {
+		if (deflater == null) {
+			throw new SshException(
+					"Compression has not been initialized or has been ended.");
+		}
+		boolean bypassed = this.bypassed;
+		if (bypassed != deflaterBypassed) {
+			deflater.setLevel(bypassed ? Deflater.NO_COMPRESSION : level);
+			deflaterBypassed = bypassed;
+		}
+		int inputLength = buffer.available();
+		deflater.setInput(buffer.array(), buffer.rpos(), inputLength);
+		// The compressed data is collected in a separate buffer, because the
+		// deflater reads the input lazily and writing to the packet buffer
+		// could overwrite input that has not been consumed yet.
+		byte[] output = this.buffer;
+		int outputLength = 0;
+		do {
+			if (outputLength == output.length) {
+				output = Arrays.copyOf(output, output.length * 2);
+			}
+			outputLength += deflater.deflate(output, outputLength,
+					output.length - outputLength, Deflater.SYNC_FLUSH);
+		} while (!deflater.needsInput() || outputLength == output.length);
+		this.buffer = output;
+		buffer.wpos(buffer.rpos());
+		buffer.putRawBytes(output, 0, outputLength);
+		CompressionStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.record(inputLength, outputLength, bypassed);
+		}
+	}
+
+	@Override
+	public synchronized void uncompress(Buffer from, Buffer to)
+			throws IOException {
+		if (inflater == null) {
+			throw new SshException(
+					"Compression has not been initialized or has been ended.");
+		}
+		inflater.setInput(from.array(), from.rpos(), from.available());
+		try {
+			int length;
+			do {
+				length = inflater.inflate(buffer);
+				to.putRawBytes(buffer, 0, length);
+			} while (length > 0);
+		} catch (DataFormatException e) {
+			throw new SshException("Invalid compressed data: "
+					+ e.getMessage(), e);
+		}
+		if (!inflater.needsInput()) {
+			throw new SshException("Unexpected end of compressed data.");
+		}
+	}
+
+	/**
+	 * Factory for {@link AdaptiveCompression} instances.
+	 */
+	public static class Factory implements NamedFactory<Compression> {
+
+		private final int level;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param level
+		 *            compression level (1 to 9).
+		 */
+		public Factory(int level) {
+			this.level = level;
+		}
+
+		@Override
+		public String getName() {
+			return "zlib@openssh.com";
+		}
+
+		@Override
+		public Compression create() {
+			return new AdaptiveCompression(level);
+		}
+
+	}
+
+}
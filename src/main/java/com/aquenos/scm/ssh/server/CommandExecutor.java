@@ -0,0 +1,303 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor shared by all {@link AbstractCommand}s of an {@link ScmSshServer}.
+ * Read commands (fetches and clones) and write commands (pushes) are run in
+ * separate {@link CommandLane}s, so that a burst of long-running fetches cannot
+ * delay pushes and vice versa. Each lane has a bounded thread pool with a
+ * bounded queue, so that a large number of concurrent commands does not result
+ * in an unbounded number of threads. Unlike a plain {@link ThreadPoolExecutor},
+ * the pool starts new threads up to its maximum size before it queues
+ * commands, because most commands run for a long time and a queued command
+ * would have to wait for one of them to finish. Commands that have been waiting
+ * for longer than the command wait timeout are rejected instead of being run.
+ * If the command wait timeout is zero, commands are never queued.
+ * If enabled in the configuration and supported by the Java runtime, each
+ * command is run in a virtual thread of its own instead.
+ * 
+ * @author Sebastian Marsching
+ */
+class CommandExecutor {
+
+	private final static long KEEP_ALIVE_SECONDS = 60L;
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(CommandExecutor.class);
+
+	private final CommandLane readLane;
+	private final CommandLane writeLane;
+	private final boolean virtualThreads;
+
+	/**
+	 * Creates a command executor using the thread settings from the passed
+	 * configuration.
+	 * 
+	 * @param configuration
+	 *            configuration specifying whether virtual threads shall be
+	 *            used and the size of the thread pools and their queues.
+	 */
+	public CommandExecutor(ScmSshServerConfiguration configuration) {
+		CommandRejectionPolicy rejectionPolicy = configuration
+				.getCommandRejectionPolicy();
+		if (rejectionPolicy == null) {
+			rejectionPolicy = CommandRejectionPolicy.REJECT;
+		}
+		ExecutorService readExecutor = null;
+		ExecutorService writeExecutor = null;
+		if (configuration.isUseVirtualThreads()) {
+			readExecutor = createVirtualThreadExecutor("SSH-Fetch-Virtual-Thread-");
+			writeExecutor = createVirtualThreadExecutor("SSH-Push-Virtual-Thread-");
+			if (readExecutor == null || writeExecutor == null) {
+				LOGGER.warn("Virtual threads are not supported by this Java runtime, using the command thread pools instead.");
+			}
+		}
+		long maxWaitMillis = Math.max(0,
+				configuration.getCommandWaitTimeout()) * 1000L;
+		if (readExecutor != null && writeExecutor != null) {
+			this.virtualThreads = true;
+		} else {
+			// A command may not wait if the wait timeout is zero, so there is
+			// no point in queueing it.
+			readExecutor = createThreadPool(
+					configuration.getCommandThreadPoolCoreSize(),
+					configuration.getCommandThreadPoolMaxSize(),
+					maxWaitMillis > 0L ? configuration.getCommandQueueSize()
+							: 0, "SSH-Fetch-Thread-");
+			writeExecutor = createThreadPool(
+					configuration.getWriteCommandThreadPoolCoreSize(),
+					configuration.getWriteCommandThreadPoolMaxSize(),
+					maxWaitMillis > 0L ? configuration
+							.getWriteCommandQueueSize() : 0,
+					"SSH-Push-Thread-");
+			this.virtualThreads = false;
+		}
+		this.readLane = new CommandLane("read", readExecutor, rejectionPolicy,
+				maxWaitMillis);
+		this.writeLane = new CommandLane("write", writeExecutor,
+				rejectionPolicy, maxWaitMillis);
+	}
+
+	private static ThreadPoolExecutor createThreadPool(int coreSize,
+			int maxSize, int queueSize, String threadNamePrefix) {
+		maxSize = Math.max(1, maxSize);
+		coreSize = Math.min(maxSize, Math.max(0, coreSize));
+		if (queueSize <= 0) {
+			// Without a queue, the executor starts new threads up to the
+			// maximum size anyway.
+			return new ThreadPoolExecutor(coreSize, maxSize,
+					KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), new CommandThreadFactory(
+							threadNamePrefix),
+					new ThreadPoolExecutor.AbortPolicy());
+		}
+		CommandQueue queue = new CommandQueue(queueSize);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize,
+				maxSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue,
+				new CommandThreadFactory(threadNamePrefix), queue);
+		queue.executor = executor;
+		return executor;
+	}
+
+	private static ExecutorService createVirtualThreadExecutor(
+			String threadNamePrefix) {
+		// Virtual threads are only available in Java 21 and newer, so we have
+		// to use reflection in order to stay compatible with older runtimes.
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class)
+					.invoke(builder, threadNamePrefix, 1L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass
+					.getMethod("factory").invoke(builder);
+			Method newThreadPerTaskExecutor = Executors.class.getMethod(
+					"newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newThreadPerTaskExecutor.invoke(null,
+					threadFactory);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Tells whether this executor runs commands in virtual threads.
+	 * 
+	 * @return <code>true</code> if commands are run in virtual threads,
+	 *         <code>false</code> if they are run by the command thread pools.
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Runs the passed command code in the lane for read or write commands.
+	 * Depending on the load, the code is run immediately by a thread from the
+	 * lane's thread pool or it is queued. If virtual threads are used, the code
+	 * is always run immediately.
+	 * 
+	 * @param commandRunner
+	 *            code to be run.
+	 * @param expiredHandler
+	 *            code that is run instead of the command code if the command
+	 *            has been waiting for longer than the command wait timeout.
+	 * @param waitingSince
+	 *            point in time (as returned by {@link System#nanoTime()}) at
+	 *            which the command started waiting, usually when it asked for
+	 *            admission. Time spent waiting before this method is called
+	 *            counts against the command wait timeout.
+	 * @param writeCommand
+	 *            <code>true</code> if the command modifies a repository and
+	 *            shall be run in the write lane, <code>false</code> if it
+	 *            shall be run in the read lane.
+	 * @throws RejectedExecutionException
+	 *             if the thread pool and the queue of the lane are full and the
+	 *             rejection policy is {@link CommandRejectionPolicy#REJECT}, or
+	 *             if the executor has been shut down.
+	 */
+	public void execute(Runnable commandRunner, Runnable expiredHandler,
+			long waitingSince, boolean writeCommand) {
+		if (writeCommand) {
+			writeLane.execute(commandRunner, expiredHandler, waitingSince);
+		} else {
+			readLane.execute(commandRunner, expiredHandler, waitingSince);
+		}
+	}
+
+	/**
+	 * Returns the statistics of the read and the write lane.
+	 * 
+	 * @return list containing the status of the read lane and the status of
+	 *         the write lane.
+	 */
+	public List<CommandLaneStatus> getLaneStatus() {
+		List<CommandLaneStatus> status = new ArrayList<CommandLaneStatus>(2);
+		status.add(readLane.getStatus());
+		status.add(writeLane.getStatus());
+		return status;
+	}
+
+	/**
+	 * Returns the number of commands that are queued or running in any lane.
+	 * 
+	 * @return number of active commands.
+	 */
+	public int getActiveCommands() {
+		return readLane.getActiveCommands() + writeLane.getActiveCommands();
+	}
+
+	/**
+	 * Waits until all queued and running commands have finished or the
+	 * timeout has passed. Usually, this method is called after
+	 * {@link #shutdown()}, so that no new commands are added while waiting.
+	 * 
+	 * @param timeoutMillis
+	 *            maximum time to wait (in milliseconds).
+	 * @return number of commands that are still queued or running when this
+	 *         method returns.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public int awaitIdle(long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		readLane.awaitIdle(deadline);
+		writeLane.awaitIdle(deadline);
+		return getActiveCommands();
+	}
+
+	/**
+	 * Shuts this executor down. Commands that are already running or queued
+	 * are still run, but no new commands are accepted.
+	 */
+	public void shutdown() {
+		readLane.shutdown();
+		writeLane.shutdown();
+	}
+
+	/**
+	 * Queue of a command thread pool. A {@link ThreadPoolExecutor} only starts
+	 * threads beyond its core size when its queue refuses a task, so this
+	 * queue refuses tasks while all threads are busy and the pool may still
+	 * grow. If the pool has reached its maximum size in the meantime, the
+	 * executor rejects the task and this queue, acting as the rejection
+	 * handler, accepts it after all if there is space left.
+	 */
+	private static class CommandQueue extends LinkedBlockingQueue<Runnable>
+			implements RejectedExecutionHandler {
+
+		private static final long serialVersionUID = -3794411208435405946L;
+
+		private volatile ThreadPoolExecutor executor;
+
+		public CommandQueue(int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		public boolean offer(Runnable r) {
+			ThreadPoolExecutor executor = this.executor;
+			if (executor != null
+					&& executor.getPoolSize() < executor.getMaximumPoolSize()
+					&& executor.getActiveCount() >= executor.getPoolSize()) {
+				return false;
+			}
+			return super.offer(r);
+		}
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown() || !super.offer(r)) {
+				throw new RejectedExecutionException(
+						"Command thread pool and queue are full.");
+			}
+		}
+
+	}
+
+	/**
+	 * Thread factory that creates the threads for the command thread pools.
+	 */
+	private static class CommandThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		private final String threadNamePrefix;
+
+		public CommandThreadFactory(String threadNamePrefix) {
+			this.threadNamePrefix = threadNamePrefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, threadNamePrefix
+					+ threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
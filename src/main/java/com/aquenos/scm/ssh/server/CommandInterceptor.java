@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+/**
+ * Interceptor for the lifecycle of commands run by the {@link ScmSshServer}.
+ * Interceptors can be used to add cross-cutting behavior like timing, limits
+ * or auditing to all commands. Interceptors are registered through a Guice
+ * multibinder in {@link ScmSshServerModule}:
+ * 
+ * <pre>
+ * Multibinder.newSetBinder(binder(), CommandInterceptor.class).addBinding()
+ * 		.to(MyInterceptor.class);
+ * </pre>
+ * 
+ * Interceptors are shared by all commands, so they must be thread-safe. The
+ * callbacks are invoked for every command, so they should return quickly.
+ * 
+ * @author Sebastian Marsching
+ */
+public interface CommandInterceptor {
+
+	/**
+	 * Called in the command thread before the command code is run. If this
+	 * method throws a {@link CommandRejectedException}, the command code is
+	 * not run and the message of the exception is sent to the client.
+	 * {@link #afterRun(CommandInvocation, int)} is called for an interceptor
+	 * if and only if its {@link #beforeRun(CommandInvocation)} method has
+	 * returned normally.
+	 * 
+	 * @param invocation
+	 *            the command that is about to run.
+	 * @throws CommandRejectedException
+	 *             if the command must not run.
+	 */
+	void beforeRun(CommandInvocation invocation);
+
+	/**
+	 * Called in the command thread after the command code has finished, but
+	 * before the exit status is sent to the client. Interceptors are called in
+	 * the reverse order of {@link #beforeRun(CommandInvocation)}.
+	 * 
+	 * @param invocation
+	 *            the command that has finished.
+	 * @param exitCode
+	 *            exit code of the command.
+	 */
+	void afterRun(CommandInvocation invocation, int exitCode);
+
+	/**
+	 * Called when the command is destroyed, typically because the client has
+	 * disconnected or the server is stopped. This method is called in the
+	 * thread that destroys the command, which usually is not the command
+	 * thread, and it might be called while the command is still running.
+	 * 
+	 * @param invocation
+	 *            the command that is destroyed.
+	 */
+	void onDestroy(CommandInvocation invocation);
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import org.apache.sshd.server.session.ServerSession;
+
+/**
+ * Information about a command that is passed to {@link CommandInterceptor}s.
+ * 
+ * @author Sebastian Marsching
+ */
+public interface CommandInvocation {
+
+	/**
+	 * Returns the session in which the command is executed.
+	 * 
+	 * @return server session of the command.
+	 */
+	ServerSession getSession();
+
+	/**
+	 * Returns the command line sent by the client.
+	 * 
+	 * @return command line or <code>null</code> if the client requested a
+	 *         shell instead of a command.
+	 */
+	String getCommandLine();
+
+	/**
+	 * Returns the name of the command (e.g. <code>git-upload-pack</code>).
+	 * 
+	 * @return name of the command.
+	 */
+	String getCommandName();
+
+	/**
+	 * Returns the name of the repository the command operates on. Git commands
+	 * determine the repository when they run, so the name is usually not
+	 * available in {@link CommandInterceptor#beforeRun(CommandInvocation)}.
+	 * 
+	 * @return name of the repository or <code>null</code> if the command does
+	 *         not operate on a repository or the repository has not been
+	 *         determined yet.
+	 */
+	String getRepositoryName();
+
+	/**
+	 * Tells whether the command modifies a repository.
+	 * 
+	 * @return <code>true</code> for write commands (push),
+	 *         <code>false</code> for read commands (fetch, clone).
+	 */
+	boolean isWriteCommand();
+
+}
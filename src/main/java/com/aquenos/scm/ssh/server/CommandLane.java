@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution lane of the {@link CommandExecutor}. Each lane has an executor of
+ * its own, so that the commands of one lane cannot use up the capacity of
+ * another lane. The lane keeps track of the number of queued and running
+ * commands and of the time commands have to wait before they are run. Commands
+ * that have waited for longer than the maximum wait time are not run. The wait
+ * time starts when the command asked for admission, so that time spent
+ * waiting before the command was passed to the lane counts as well.
+ * 
+ * @author Sebastian Marsching
+ */
+class CommandLane {
+
+	private final String name;
+	private final ExecutorService executorService;
+	private final CommandRejectionPolicy rejectionPolicy;
+	private final long maxQueueWaitNanos;
+
+	private final AtomicInteger queuedCommands = new AtomicInteger();
+	private final AtomicInteger runningCommands = new AtomicInteger();
+	private final AtomicLong startedCommands = new AtomicLong();
+	private final AtomicLong rejectedCommands = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final Object idleLock = new Object();
+
+	/**
+	 * Creates a lane.
+	 * 
+	 * @param name
+	 *            name of the lane (used for reporting).
+	 * @param executorService
+	 *            executor that runs the commands of this lane.
+	 * @param rejectionPolicy
+	 *            policy for commands that are rejected by the executor.
+	 * @param maxWaitMillis
+	 *            maximum time (in milliseconds) a command may wait before it
+	 *            is run. If zero, the executor must not queue commands, so
+	 *            that commands are either run immediately or rejected.
+	 */
+	public CommandLane(String name, ExecutorService executorService,
+			CommandRejectionPolicy rejectionPolicy, long maxWaitMillis) {
+		this.name = name;
+		this.executorService = executorService;
+		this.rejectionPolicy = rejectionPolicy;
+		this.maxQueueWaitNanos = maxWaitMillis * 1000000L;
+	}
+
+	/**
+	 * Runs the passed command code in this lane.
+	 * 
+	 * @param commandRunner
+	 *            code to be run.
+	 * @param expiredHandler
+	 *            code that is run instead of the command code if the command
+	 *            has waited for longer than the maximum wait time. The command
+	 *            is counted as rejected in this case.
+	 * @param waitingSince
+	 *            point in time (as returned by {@link System#nanoTime()}) at
+	 *            which the command started waiting.
+	 * @throws RejectedExecutionException
+	 *             if the executor of this lane rejects the command and the
+	 *             rejection policy is {@link CommandRejectionPolicy#REJECT},
+	 *             or if the executor has been shut down.
+	 */
+	public void execute(final Runnable commandRunner,
+			final Runnable expiredHandler, final long waitingSince) {
+		final long submitTime = System.nanoTime();
+		Runnable laneRunner = new Runnable() {
+			@Override
+			public void run() {
+				runningCommands.incrementAndGet();
+				queuedCommands.decrementAndGet();
+				long now = System.nanoTime();
+				long waitNanos = now - submitTime;
+				try {
+					// Without a maximum wait time, the executor does not
+					// queue commands, so they never expire.
+					if (maxQueueWaitNanos > 0L
+							&& now - waitingSince > maxQueueWaitNanos) {
+						rejectedCommands.incrementAndGet();
+						expiredHandler.run();
+						return;
+					}
+					recordWaitTime(waitNanos);
+					commandRunner.run();
+				} finally {
+					runningCommands.decrementAndGet();
+					notifyIfIdle();
+				}
+			}
+		};
+		queuedCommands.incrementAndGet();
+		try {
+			executorService.execute(laneRunner);
+		} catch (RejectedExecutionException e) {
+			if (executorService.isShutdown()
+					|| rejectionPolicy != CommandRejectionPolicy.NEW_THREAD) {
+				queuedCommands.decrementAndGet();
+				rejectedCommands.incrementAndGet();
+				notifyIfIdle();
+				throw e;
+			}
+			new Thread(laneRunner).start();
+		}
+	}
+
+	private void recordWaitTime(long waitNanos) {
+		startedCommands.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		long currentMax = maxWaitNanos.get();
+		while (waitNanos > currentMax
+				&& !maxWaitNanos.compareAndSet(currentMax, waitNanos)) {
+			currentMax = maxWaitNanos.get();
+		}
+	}
+
+	private void notifyIfIdle() {
+		if (getActiveCommands() == 0) {
+			synchronized (idleLock) {
+				idleLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of commands in this lane that are either queued or
+	 * running.
+	 * 
+	 * @return number of active commands.
+	 */
+	public int getActiveCommands() {
+		// The running counter is incremented before the queued counter is
+		// decremented, so a command is never missed when moving from the
+		// queue to a thread.
+		return queuedCommands.get() + runningCommands.get();
+	}
+
+	/**
+	 * Waits until there are no queued or running commands in this lane or the
+	 * specified point in time has been reached.
+	 * 
+	 * @param deadlineMillis
+	 *            point in time (as returned by
+	 *            {@link System#currentTimeMillis()}) at which to stop waiting.
+	 * @return <code>true</code> if the lane is idle, <code>false</code> if the
+	 *         deadline has been reached before.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public boolean awaitIdle(long deadlineMillis) throws InterruptedException {
+		synchronized (idleLock) {
+			while (getActiveCommands() > 0) {
+				long remaining = deadlineMillis - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				idleLock.wait(remaining);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the statistics of this lane.
+	 * 
+	 * @return current status of this lane.
+	 */
+	public CommandLaneStatus getStatus() {
+		CommandLaneStatus status = new CommandLaneStatus();
+		status.setName(name);
+		status.setQueuedCommands(queuedCommands.get());
+		status.setRunningCommands(runningCommands.get());
+		long started = startedCommands.get();
+		status.setStartedCommands(started);
+		status.setRejectedCommands(rejectedCommands.get());
+		if (started > 0) {
+			status.setAverageWaitMillis(totalWaitNanos.get() / started / 1000000L);
+		}
+		status.setMaxWaitMillis(maxWaitNanos.get() / 1000000L);
+		return status;
+	}
+
+	/**
+	 * Shuts the executor of this lane down. Commands that are already running
+	 * or queued are still run, but no new commands are accepted.
+	 */
+	public void shutdown() {
+		executorService.shutdown();
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Statistics of an execution lane of the SSH server. Read commands (fetches
+ * and clones) and write commands (pushes) are run in separate lanes.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CommandLaneStatus implements Serializable {
+
+	private static final long serialVersionUID = -4127731559020434165L;
+
+	private String name;
+	private int queuedCommands;
+	private int runningCommands;
+	private long startedCommands;
+	private long rejectedCommands;
+	private long averageWaitMillis;
+	private long maxWaitMillis;
+
+	/**
+	 * Returns the name of the lane.
+	 * 
+	 * @return lane name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of the lane.
+	 * 
+	 * @param name
+	 *            lane name.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the number of commands that are waiting for a free thread
+	 * (queue depth).
+	 * 
+	 * @return number of queued commands.
+	 */
+	public int getQueuedCommands() {
+		return queuedCommands;
+	}
+
+	/**
+	 * Sets the number of commands that are waiting for a free thread.
+	 * 
+	 * @param queuedCommands
+	 *            number of queued commands.
+	 */
+	public void setQueuedCommands(int queuedCommands) {
+		this.queuedCommands = queuedCommands;
+	}
+
+	/**
+	 * Returns the number of commands that are currently running.
+	 * 
+	 * @return number of running commands.
+	 */
+	public int getRunningCommands() {
+		return runningCommands;
+	}
+
+	/**
+	 * Sets the number of commands that are currently running.
+	 * 
+	 * @param runningCommands
+	 *            number of running commands.
+	 */
+	public void setRunningCommands(int runningCommands) {
+		this.runningCommands = runningCommands;
+	}
+
+	/**
+	 * Returns the number of commands that have been started since the server
+	 * was started.
+	 * 
+	 * @return number of started commands.
+	 */
+	public long getStartedCommands() {
+		return startedCommands;
+	}
+
+	/**
+	 * Sets the number of commands that have been started since the server was
+	 * started.
+	 * 
+	 * @param startedCommands
+	 *            number of started commands.
+	 */
+	public void setStartedCommands(long startedCommands) {
+		this.startedCommands = startedCommands;
+	}
+
+	/**
+	 * Returns the number of commands that have been rejected because the lane
+	 * was full.
+	 * 
+	 * @return number of rejected commands.
+	 */
+	public long getRejectedCommands() {
+		return rejectedCommands;
+	}
+
+	/**
+	 * Sets the number of commands that have been rejected because the lane was
+	 * full.
+	 * 
+	 * @param rejectedCommands
+	 *            number of rejected commands.
+	 */
+	public void setRejectedCommands(long rejectedCommands) {
+		this.rejectedCommands = rejectedCommands;
+	}
+
+	/**
+	 * Returns the average time (in milliseconds) commands waited in the queue
+	 * before they were started.
+	 * 
+	 * @return average wait time in milliseconds.
+	 */
+	public long getAverageWaitMillis() {
+		return averageWaitMillis;
+	}
+
+	/**
+	 * Sets the average time (in milliseconds) commands waited in the queue
+	 * before they were started.
+	 * 
+	 * @param averageWaitMillis
+	 *            average wait time in milliseconds.
+	 */
+	public void setAverageWaitMillis(long averageWaitMillis) {
+		this.averageWaitMillis = averageWaitMillis;
+	}
+
+	/**
+	 * Returns the longest time (in milliseconds) a command waited in the queue
+	 * before it was started.
+	 * 
+	 * @return maximum wait time in milliseconds.
+	 */
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	/**
+	 * Sets the longest time (in milliseconds) a command waited in the queue
+	 * before it was started.
+	 * 
+	 * @param maxWaitMillis
+	 *            maximum wait time in milliseconds.
+	 */
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+/**
+ * Listener that is notified when a command run by the {@link ScmSshServer}
+ * has finished. Listeners are registered with
+ * {@link ScmSshServer#addCommandListener(CommandListener)}.
+ * 
+ * @author Sebastian Marsching
+ */
+public interface CommandListener {
+
+	/**
+	 * Called after a command has finished and its exit status has been sent to
+	 * the client. This method is called in the thread that ran the command, so
+	 * it should return quickly.
+	 * 
+	 * @param statistics
+	 *            resource usage and result of the command.
+	 */
+	void commandFinished(CommandStatistics statistics);
+
+}
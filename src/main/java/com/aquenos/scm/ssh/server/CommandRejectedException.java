@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+/**
+ * Exception thrown by a {@link CommandInterceptor} in order to prevent a
+ * command from running. The message of the exception is sent to the client.
+ * 
+ * @author Sebastian Marsching
+ */
+public class CommandRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 2951164021398452214L;
+
+	/**
+	 * Creates an exception with the specified message.
+	 * 
+	 * @param message
+	 *            message that is sent to the client.
+	 */
+	public CommandRejectedException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+/**
+ * Policy that decides what happens to an SSH command that can neither be run
+ * by the command thread pool nor be queued, because both the pool and its queue
+ * are full.
+ * 
+ * @author Sebastian Marsching
+ */
+public enum CommandRejectionPolicy {
+
+	/**
+	 * The command is not run. The client receives an error message asking it
+	 * to retry later.
+	 */
+	REJECT,
+
+	/**
+	 * The command is run in a new thread that is not part of the command
+	 * thread pool. This restores the behavior of earlier versions, but does
+	 * not protect the server from overload.
+	 */
+	NEW_THREAD
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+/**
+ * Resource usage and result of a command run by the {@link ScmSshServer}. An
+ * instance of this class is passed to all registered {@link CommandListener}s
+ * when a command has finished.
+ * 
+ * @author Sebastian Marsching
+ */
+public class CommandStatistics {
+
+	private String commandName;
+	private String username;
+	private String repositoryName;
+	private int exitCode;
+	private boolean aborted;
+	private long wallTimeMillis;
+	private long cpuTimeNanos;
+	private long allocatedBytes;
+	private long bytesRead;
+	private long bytesWritten;
+
+	/**
+	 * Returns the name of the command.
+	 * 
+	 * @return name of the command (e.g. <code>git-upload-pack</code>).
+	 */
+	public String getCommandName() {
+		return commandName;
+	}
+
+	void setCommandName(String commandName) {
+		this.commandName = commandName;
+	}
+
+	/**
+	 * Returns the name of the user that ran the command.
+	 * 
+	 * @return user name or <code>null</code> if the session has not been
+	 *         authenticated.
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	void setUsername(String username) {
+		this.username = username;
+	}
+
+	/**
+	 * Returns the name of the repository the command operated on.
+	 * 
+	 * @return repository name or <code>null</code> if the command does not
+	 *         operate on a repository or the repository could not be
+	 *         determined.
+	 */
+	public String getRepositoryName() {
+		return repositoryName;
+	}
+
+	void setRepositoryName(String repositoryName) {
+		this.repositoryName = repositoryName;
+	}
+
+	/**
+	 * Returns the exit code the command returned.
+	 * 
+	 * @return exit code.
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	void setExitCode(int exitCode) {
+		this.exitCode = exitCode;
+	}
+
+	/**
+	 * Tells whether the command has been aborted because the client
+	 * disconnected, a timeout expired or the server was stopped.
+	 * 
+	 * @return <code>true</code> if the command has been aborted,
+	 *         <code>false</code> if it finished regularly.
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	void setAborted(boolean aborted) {
+		this.aborted = aborted;
+	}
+
+	/**
+	 * Returns the wall-clock time (in milliseconds) the command was running,
+	 * not including the time it waited in the queue.
+	 * 
+	 * @return wall-clock time in milliseconds.
+	 */
+	public long getWallTimeMillis() {
+		return wallTimeMillis;
+	}
+
+	void setWallTimeMillis(long wallTimeMillis) {
+		this.wallTimeMillis = wallTimeMillis;
+	}
+
+	/**
+	 * Returns the CPU time (in nanoseconds) used by the thread running the
+	 * command. Helper threads started by the command (e.g. for JGit's
+	 * multi-threaded delta search) are not included.
+	 * 
+	 * @return CPU time in nanoseconds or -1 if the Java runtime does not
+	 *         support measuring the CPU time.
+	 */
+	public long getCpuTimeNanos() {
+		return cpuTimeNanos;
+	}
+
+	void setCpuTimeNanos(long cpuTimeNanos) {
+		this.cpuTimeNanos = cpuTimeNanos;
+	}
+
+	/**
+	 * Returns the number of bytes allocated on the heap by the thread running
+	 * the command. Helper threads started by the command are not included.
+	 * 
+	 * @return allocated bytes or -1 if the Java runtime does not support
+	 *         measuring allocated memory.
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	void setAllocatedBytes(long allocatedBytes) {
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	/**
+	 * Returns the number of bytes the command read from the client (stdin).
+	 * 
+	 * @return number of bytes read.
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	void setBytesRead(long bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+
+	/**
+	 * Returns the number of bytes the command wrote to the client (stdout and
+	 * stderr).
+	 * 
+	 * @return number of bytes written.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	void setBytesWritten(long bytesWritten) {
+		this.bytesWritten = bytesWritten;
+	}
+
+}
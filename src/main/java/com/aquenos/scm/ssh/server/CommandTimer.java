@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed wheel timer shared by all commands of an {@link ScmSshServer}. The
+ * timer uses a single thread and a fixed number of buckets, so that scheduling
+ * and cancelling a timeout is cheap, even if there are thousands of commands
+ * with pending timeouts. The price for this is that timeouts are only checked
+ * once per tick, so they may expire up to one tick late.
+ * 
+ * @author Sebastian Marsching
+ */
+class CommandTimer {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(CommandTimer.class);
+
+	private final long tickMillis;
+	private final List<LinkedList<Timeout>> wheel;
+	private final Thread workerThread;
+	private final Object lock = new Object();
+	private long tick;
+	private boolean stopped;
+
+	/**
+	 * Creates a timer and starts its thread.
+	 * 
+	 * @param tickMillis
+	 *            duration of a tick (in milliseconds). This is the resolution
+	 *            of the timer.
+	 * @param wheelSize
+	 *            number of buckets in the wheel. Timeouts that are longer than
+	 *            <code>tickMillis * wheelSize</code> stay in their bucket for
+	 *            more than one round.
+	 */
+	public CommandTimer(long tickMillis, int wheelSize) {
+		this.tickMillis = tickMillis;
+		this.wheel = new ArrayList<LinkedList<Timeout>>(wheelSize);
+		for (int i = 0; i < wheelSize; i++) {
+			wheel.add(new LinkedList<Timeout>());
+		}
+		this.workerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runWorker();
+			}
+		}, "SSH-Command-Timer");
+		this.workerThread.setDaemon(true);
+		this.workerThread.start();
+	}
+
+	/**
+	 * Schedules a task. The task is run by the timer thread, so it must not
+	 * block.
+	 * 
+	 * @param task
+	 *            task to be run when the timeout expires.
+	 * @param delayMillis
+	 *            delay (in milliseconds) after which the task is run.
+	 * @return timeout that can be used to cancel the task.
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		long ticks = Math.max(1L, (delayMillis + tickMillis - 1) / tickMillis);
+		synchronized (lock) {
+			Timeout timeout = new Timeout(task, (ticks - 1) / wheel.size());
+			if (!stopped) {
+				int bucket = (int) ((tick + ticks) % wheel.size());
+				wheel.get(bucket).add(timeout);
+			}
+			return timeout;
+		}
+	}
+
+	/**
+	 * Stops the timer thread. Pending timeouts are discarded.
+	 */
+	public void stop() {
+		synchronized (lock) {
+			stopped = true;
+			for (LinkedList<Timeout> bucket : wheel) {
+				bucket.clear();
+			}
+		}
+		workerThread.interrupt();
+	}
+
+	private void runWorker() {
+		long nextTickTime = System.currentTimeMillis() + tickMillis;
+		List<Timeout> expired = new ArrayList<Timeout>();
+		while (true) {
+			try {
+				long sleepTime = nextTickTime - System.currentTimeMillis();
+				if (sleepTime > 0) {
+					Thread.sleep(sleepTime);
+				}
+			} catch (InterruptedException e) {
+				// Interrupted by stop().
+			}
+			synchronized (lock) {
+				if (stopped) {
+					return;
+				}
+				tick++;
+				Iterator<Timeout> iterator = wheel.get(
+						(int) (tick % wheel.size())).iterator();
+				while (iterator.hasNext()) {
+					Timeout timeout = iterator.next();
+					if (timeout.cancelled) {
+						iterator.remove();
+					} else if (timeout.remainingRounds > 0) {
+						timeout.remainingRounds--;
+					} else {
+						iterator.remove();
+						expired.add(timeout);
+					}
+				}
+			}
+			for (Timeout timeout : expired) {
+				try {
+					timeout.task.run();
+				} catch (RuntimeException e) {
+					LOGGER.error("Command timeout task failed.", e);
+				}
+			}
+			expired.clear();
+			nextTickTime += tickMillis;
+		}
+	}
+
+	/**
+	 * Handle for a scheduled task.
+	 */
+	public class Timeout {
+
+		private final Runnable task;
+		private long remainingRounds;
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long remainingRounds) {
+			this.task = task;
+			this.remainingRounds = remainingRounds;
+		}
+
+		/**
+		 * Cancels the task. If the task is already running, it is not
+		 * interrupted. The timeout is removed from the wheel when its bucket
+		 * is processed next.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+	}
+
+}
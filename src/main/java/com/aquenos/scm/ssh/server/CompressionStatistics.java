@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the data passed through the SSH compression. Statistics can be
+ * chained, so that the statistics of a session also update the statistics of
+ * the whole server.
+ * 
+ * @author Sebastian Marsching
+ */
+class CompressionStatistics {
+
+	private final CompressionStatistics parent;
+	private final AtomicLong compressedInputBytes = new AtomicLong();
+	private final AtomicLong compressedOutputBytes = new AtomicLong();
+	private final AtomicLong bypassedBytes = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param parent
+	 *            statistics that are updated together with these statistics
+	 *            (may be <code>null</code>).
+	 */
+	public CompressionStatistics(CompressionStatistics parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Records a packet that has been passed through the compression.
+	 * 
+	 * @param inputLength
+	 *            size of the packet payload before compression.
+	 * @param outputLength
+	 *            size of the packet payload after compression.
+	 * @param bypassed
+	 *            <code>true</code> if the compression was bypassed for the
+	 *            packet.
+	 */
+	public void record(int inputLength, int outputLength, boolean bypassed) {
+		if (bypassed) {
+			bypassedBytes.addAndGet(inputLength);
+		} else {
+			compressedInputBytes.addAndGet(inputLength);
+			compressedOutputBytes.addAndGet(outputLength);
+		}
+		if (parent != null) {
+			parent.record(inputLength, outputLength, bypassed);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes that have been compressed.
+	 * 
+	 * @return number of bytes before compression.
+	 */
+	public long getCompressedInputBytes() {
+		return compressedInputBytes.get();
+	}
+
+	/**
+	 * Returns the number of bytes that compressed data has been reduced to.
+	 * 
+	 * @return number of bytes after compression.
+	 */
+	public long getCompressedOutputBytes() {
+		return compressedOutputBytes.get();
+	}
+
+	/**
+	 * Returns the number of bytes that have been sent while the compression
+	 * was bypassed.
+	 * 
+	 * @return number of bytes sent uncompressed.
+	 */
+	public long getBypassedBytes() {
+		return bypassedBytes.get();
+	}
+
+	/**
+	 * Returns the compression ratio for the data that has not bypassed the
+	 * compression.
+	 * 
+	 * @return ratio between the size before and after compression or zero if
+	 *         no data has been compressed yet.
+	 */
+	public double getCompressionRatio() {
+		long output = compressedOutputBytes.get();
+		if (output == 0L) {
+			return 0.0;
+		}
+		return (double) compressedInputBytes.get() / output;
+	}
+
+}
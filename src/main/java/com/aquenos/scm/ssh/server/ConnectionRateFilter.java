@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MINA filter that closes connections exceeding the rate limits of a
+ * {@link ConnectionRateLimiter} right after they have been accepted. For
+ * rejected connections, no events are passed on to the SSH server, so no SSH
+ * session (and no key exchange) is ever started for them.
+ * 
+ * @author Sebastian Marsching
+ */
+class ConnectionRateFilter extends IoFilterAdapter {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(ConnectionRateFilter.class);
+
+	private final static String REJECTED_ATTRIBUTE = ConnectionRateFilter.class
+			.getName() + ".rejected";
+
+	private volatile ConnectionRateLimiter rateLimiter;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rateLimiter
+	 *            rate limiter that decides which connections are accepted.
+	 */
+	public ConnectionRateFilter(ConnectionRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Replaces the rate limiter. Connections that are accepted after this
+	 * method has been called are checked against the new rate limiter.
+	 * 
+	 * @param rateLimiter
+	 *            rate limiter that decides which connections are accepted.
+	 */
+	public void setRateLimiter(ConnectionRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	public void sessionCreated(NextFilter nextFilter, IoSession session)
+			throws Exception {
+		SocketAddress address = ProxyProtocolFilter.getClientAddress(session);
+		if (address instanceof InetSocketAddress
+				&& !rateLimiter.tryAccept(((InetSocketAddress) address)
+						.getAddress())) {
+			LOGGER.debug("Rejecting connection from " + address
+					+ ": connection rate limit exceeded.");
+			session.setAttribute(REJECTED_ATTRIBUTE, Boolean.TRUE);
+			session.close(true);
+			return;
+		}
+		nextFilter.sessionCreated(session);
+	}
+
+	@Override
+	public void sessionOpened(NextFilter nextFilter, IoSession session)
+			throws Exception {
+		if (!isRejected(session)) {
+			nextFilter.sessionOpened(session);
+		}
+	}
+
+	@Override
+	public void sessionClosed(NextFilter nextFilter, IoSession session)
+			throws Exception {
+		if (!isRejected(session)) {
+			nextFilter.sessionClosed(session);
+		}
+	}
+
+	@Override
+	public void sessionIdle(NextFilter nextFilter, IoSession session,
+			IdleStatus status) throws Exception {
+		if (!isRejected(session)) {
+			nextFilter.sessionIdle(session, status);
+		}
+	}
+
+	@Override
+	public void exceptionCaught(NextFilter nextFilter, IoSession session,
+			Throwable cause) throws Exception {
+		if (!isRejected(session)) {
+			nextFilter.exceptionCaught(session, cause);
+		}
+	}
+
+	@Override
+	public void messageReceived(NextFilter nextFilter, IoSession session,
+			Object message) throws Exception {
+		if (!isRejected(session)) {
+			nextFilter.messageReceived(session, message);
+		}
+	}
+
+	@Override
+	public void messageSent(NextFilter nextFilter, IoSession session,
+			WriteRequest writeRequest) throws Exception {
+		if (!isRejected(session)) {
+			nextFilter.messageSent(session, writeRequest);
+		}
+	}
+
+	private static boolean isRejected(IoSession session) {
+		return session.containsAttribute(REJECTED_ATTRIBUTE);
+	}
+
+}
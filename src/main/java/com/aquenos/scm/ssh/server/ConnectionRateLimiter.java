@@ -0,0 +1,226 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rate limiter for new connections. Each source address has a
+ * bucket of its own, unless the address is part of a network that has a
+ * {@link NetworkRateLimit}. In this case, all addresses of the network share
+ * the bucket of the network. Rejecting a connection before the key exchange
+ * is cheap, while accepting it costs a signature with the host key, so this
+ * limiter protects the CPU from bursts of connections.
+ * 
+ * A single host usually has a whole /64 network of IPv6 addresses at its
+ * disposal, so IPv6 addresses share the bucket of their /64 network. The
+ * number of buckets is limited. When the limit is reached, the least recently
+ * used bucket is discarded, so a client that keeps changing its address
+ * cannot make the limiter use an unbounded amount of memory. Buckets that
+ * have been refilled completely are equivalent to new buckets, so they are
+ * removed periodically.
+ * 
+ * @author Sebastian Marsching
+ */
+class ConnectionRateLimiter {
+
+	private final static int MAX_BUCKETS = 16384;
+	private final static long SWEEP_INTERVAL_NANOS = 60000000000L;
+	private final static int IPV6_PREFIX_BYTES = 8;
+
+	private volatile int connectionsPerMinute;
+	private volatile int burst;
+	private volatile List<NetworkRateLimit> networkLimits = Collections
+			.emptyList();
+
+	// A map in access order, so that the least recently used bucket is
+	// removed when the limit is reached. Only accessed while holding the lock
+	// of the map.
+	private final LinkedHashMap<Object, TokenBucket> buckets = new LinkedHashMap<Object, TokenBucket>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = -4626406957432468712L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, TokenBucket> eldest) {
+			return size() > MAX_BUCKETS;
+		}
+
+	};
+	private long lastSweep = System.nanoTime();
+	private final AtomicLong acceptedConnections = new AtomicLong();
+	private final AtomicLong rejectedConnections = new AtomicLong();
+
+	/**
+	 * Sets the limits. Existing buckets are discarded.
+	 * 
+	 * @param connectionsPerMinute
+	 *            number of connections per minute accepted from a single
+	 *            address that is not part of one of the networks. If zero,
+	 *            these addresses are not rate limited.
+	 * @param burst
+	 *            number of connections accepted at once from a single address
+	 *            that is not part of one of the networks.
+	 * @param networkLimits
+	 *            limits for networks. If an address is part of more than one
+	 *            network, the first limit is used.
+	 */
+	public void setLimits(int connectionsPerMinute, int burst,
+			List<NetworkRateLimit> networkLimits) {
+		this.connectionsPerMinute = connectionsPerMinute;
+		this.burst = burst;
+		this.networkLimits = networkLimits;
+		synchronized (buckets) {
+			buckets.clear();
+		}
+	}
+
+	/**
+	 * Decides whether a new connection is accepted.
+	 * 
+	 * @param address
+	 *            source address of the connection.
+	 * @return <code>true</code> if the connection is accepted,
+	 *         <code>false</code> if it must be closed.
+	 */
+	public boolean tryAccept(InetAddress address) {
+		Object key = null;
+		int connectionsPerMinute = this.connectionsPerMinute;
+		int burst = this.burst;
+		for (NetworkRateLimit networkLimit : networkLimits) {
+			if (networkLimit.getNetwork().contains(address)) {
+				key = networkLimit;
+				connectionsPerMinute = networkLimit.getConnectionsPerMinute();
+				burst = networkLimit.getBurst();
+				break;
+			}
+		}
+		if (connectionsPerMinute == 0) {
+			acceptedConnections.incrementAndGet();
+			return true;
+		}
+		if (key == null) {
+			key = getAddressKey(address);
+		}
+		long now = System.nanoTime();
+		boolean accepted;
+		synchronized (buckets) {
+			if (now - lastSweep >= SWEEP_INTERVAL_NANOS) {
+				removeFullBuckets(now);
+				lastSweep = now;
+			}
+			TokenBucket bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new TokenBucket(connectionsPerMinute, burst, now);
+				buckets.put(key, bucket);
+			}
+			accepted = bucket.tryAcquire(now);
+		}
+		if (accepted) {
+			acceptedConnections.incrementAndGet();
+			return true;
+		} else {
+			rejectedConnections.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of connections that have been accepted.
+	 * 
+	 * @return number of accepted connections.
+	 */
+	public long getAcceptedConnections() {
+		return acceptedConnections.get();
+	}
+
+	/**
+	 * Returns the number of connections that have been rejected because the
+	 * rate limit was exceeded.
+	 * 
+	 * @return number of rejected connections.
+	 */
+	public long getRejectedConnections() {
+		return rejectedConnections.get();
+	}
+
+	private static Object getAddressKey(InetAddress address) {
+		if (!(address instanceof Inet6Address)) {
+			return address;
+		}
+		// The upper 64 bits identify the network. The key is a Long, so it
+		// cannot be equal to the key of an IPv4 address or a network limit.
+		byte[] bytes = address.getAddress();
+		long prefix = 0L;
+		for (int i = 0; i < IPV6_PREFIX_BYTES; i++) {
+			prefix = (prefix << 8) | (bytes[i] & 0xff);
+		}
+		return prefix;
+	}
+
+	private void removeFullBuckets(long now) {
+		Iterator<TokenBucket> iterator = buckets.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().isFull(now)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Token bucket for a single key. It is only accessed while holding the
+	 * lock of the map of buckets.
+	 */
+	private static class TokenBucket {
+
+		private final double tokensPerNano;
+		private final int capacity;
+		private double tokens;
+		private long lastRefill;
+
+		public TokenBucket(int connectionsPerMinute, int capacity, long now) {
+			this.tokensPerNano = connectionsPerMinute / 60e9;
+			this.capacity = capacity;
+			this.tokens = capacity;
+			this.lastRefill = now;
+		}
+
+		public boolean tryAcquire(long now) {
+			refill(now);
+			if (tokens >= 1.0) {
+				tokens -= 1.0;
+				return true;
+			}
+			return false;
+		}
+
+		public boolean isFull(long now) {
+			refill(now);
+			return tokens >= capacity;
+		}
+
+		private void refill(long now) {
+			long elapsed = now - lastRefill;
+			if (elapsed > 0) {
+				tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+				lastRefill = now;
+			}
+		}
+
+	}
+
+}
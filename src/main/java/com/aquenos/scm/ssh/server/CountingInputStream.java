@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the number of bytes read from the underlying
+ * stream. The counter is not synchronized, so the stream must only be used by
+ * a single thread.
+ * 
+ * @author Sebastian Marsching
+ */
+class CountingInputStream extends FilterInputStream {
+
+	private long count;
+
+	/**
+	 * Creates a counting stream.
+	 * 
+	 * @param in
+	 *            stream to read from.
+	 */
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			count++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			count += n;
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of bytes that have been read (or skipped).
+	 * 
+	 * @return number of bytes read.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
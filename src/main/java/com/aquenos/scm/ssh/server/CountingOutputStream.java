@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that counts the number of bytes written to the underlying
+ * stream. The counter is not synchronized, so the stream must only be used by
+ * a single thread.
+ * 
+ * @author Sebastian Marsching
+ */
+class CountingOutputStream extends FilterOutputStream {
+
+	private long count;
+
+	/**
+	 * Creates a counting stream.
+	 * 
+	 * @param out
+	 *            stream to write to.
+	 */
+	public CountingOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		// FilterOutputStream writes arrays byte by byte, so we have to
+		// delegate directly.
+		out.write(b, off, len);
+		count += len;
+	}
+
+	/**
+	 * Returns the number of bytes that have been written.
+	 * 
+	 * @return number of bytes written.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
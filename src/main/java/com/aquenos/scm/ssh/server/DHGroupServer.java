@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+
+import org.apache.sshd.common.Digest;
+import org.apache.sshd.common.KeyExchange;
+import org.apache.sshd.common.KeyPairProvider;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.Signature;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.digest.SHA1;
+import org.apache.sshd.common.kex.DH;
+import org.apache.sshd.common.kex.DHGroupData;
+import org.apache.sshd.common.session.AbstractSession;
+import org.apache.sshd.common.util.Buffer;
+import org.apache.sshd.server.session.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server side of the Diffie-Hellman key exchange with one of the fixed groups
+ * from RFC 4253. This is the key exchange implemented by the SSH library, but
+ * the host key is encoded using {@link PublicKeyEncoding}, so that ECDSA and
+ * Ed25519 host keys can be used in addition to RSA and DSA host keys.
+ * 
+ * @author Sebastian Marsching
+ */
+class DHGroupServer implements KeyExchange {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(DHGroupServer.class);
+
+	private final byte[] prime;
+	private ServerSession session;
+	private byte[] serverVersion;
+	private byte[] clientVersion;
+	private byte[] serverKexInit;
+	private byte[] clientKexInit;
+	private Digest sha;
+	private DH dh;
+	private byte[] e;
+	private byte[] f;
+	private byte[] k;
+	private byte[] h;
+	private KeyPair hostKey;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param prime
+	 *            prime of the group.
+	 */
+	public DHGroupServer(byte[] prime) {
+		this.prime = prime;
+	}
+
+	@Override
+	public void init(AbstractSession session, byte[] serverVersion,
+			byte[] clientVersion, byte[] serverKexInit, byte[] clientKexInit)
+			throws Exception {
+		if (!(session instanceof ServerSession)) {
+			throw new IllegalStateException(
+					"Using a server side KeyExchange on a client");
+		}
+		this.session = (ServerSession) session;
+		this.serverVersion = serverVersion;
+		this.clientVersion = clientVersion;
+		this.serverKexInit = serverKexInit;
+		this.clientKexInit = clientKexInit;
+		sha = new SHA1();
+		sha.init();
+		dh = new DH();
+		dh.setG(DHGroupData.getG());
+		dh.setP(prime);
+		f = dh.getE();
+	}
+
+	@Override
+	public boolean next(Buffer buffer) throws Exception {
+		SshConstants.Message cmd = buffer.getCommand();
+		if (cmd != SshConstants.Message.SSH_MSG_KEXDH_INIT) {
+			throw new SshException(
+					SshConstants.SSH2_DISCONNECT_KEY_EXCHANGE_FAILED,
+					"Protocol error: expected packet "
+							+ SshConstants.Message.SSH_MSG_KEXDH_INIT
+							+ ", got " + cmd);
+		}
+		LOGGER.debug("Received SSH_MSG_KEXDH_INIT");
+		e = buffer.getMPIntAsBytes();
+		dh.setF(e);
+		k = dh.getK();
+
+		String algorithm = session
+				.getNegociated(SshConstants.PROPOSAL_SERVER_HOST_KEY_ALGS);
+		byte[] encodedHostKey;
+		KeyPairProvider keyPairProvider = session.getFactoryManager()
+				.getKeyPairProvider();
+		HostKey cachedHostKey = null;
+		if (keyPairProvider instanceof ScmKeyPairProvider) {
+			cachedHostKey = ((ScmKeyPairProvider) keyPairProvider)
+					.getHostKey(algorithm);
+		}
+		if (cachedHostKey != null) {
+			// The key pair and its encoding are taken from the same snapshot,
+			// so they match even if the host keys change concurrently.
+			hostKey = cachedHostKey.getKeyPair();
+			encodedHostKey = cachedHostKey.getEncodedPublicKey();
+		} else {
+			hostKey = session.getHostKey();
+			encodedHostKey = PublicKeyEncoding.encode(hostKey.getPublic());
+		}
+		Signature signature = NamedFactory.Utils.create(session
+				.getFactoryManager().getSignatureFactories(), algorithm);
+		signature.init(hostKey.getPublic(), hostKey.getPrivate());
+
+		buffer = new Buffer();
+		buffer.putString(clientVersion);
+		buffer.putString(serverVersion);
+		buffer.putString(clientKexInit);
+		buffer.putString(serverKexInit);
+		buffer.putString(encodedHostKey);
+		buffer.putMPInt(e);
+		buffer.putMPInt(f);
+		buffer.putMPInt(k);
+		sha.update(buffer.array(), 0, buffer.available());
+		h = sha.digest();
+
+		buffer.clear();
+		signature.update(h, 0, h.length);
+		buffer.putString(algorithm);
+		buffer.putString(signature.sign());
+		byte[] signedHash = buffer.getCompactData();
+
+		LOGGER.debug("Send SSH_MSG_KEXDH_REPLY");
+		buffer.clear();
+		buffer.rpos(5);
+		buffer.wpos(5);
+		buffer.putCommand(
+				SshConstants.Message.SSH_MSG_KEXDH_REPLY_KEX_DH_GEX_GROUP);
+		buffer.putString(encodedHostKey);
+		buffer.putString(f);
+		buffer.putString(signedHash);
+		session.writePacket(buffer);
+		return true;
+	}
+
+	@Override
+	public Digest getHash() {
+		return sha;
+	}
+
+	@Override
+	public byte[] getH() {
+		return h;
+	}
+
+	@Override
+	public byte[] getK() {
+		return k;
+	}
+
+	@Override
+	public PublicKey getServerKey() {
+		return hostKey.getPublic();
+	}
+
+	/**
+	 * Factory for {@link DHGroupServer}.
+	 * 
+	 * @author Sebastian Marsching
+	 */
+	public static class Factory implements NamedFactory<KeyExchange> {
+
+		private final String name;
+		private final byte[] prime;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 *            name of the key exchange algorithm (e.g.
+		 *            "diffie-hellman-group14-sha1").
+		 * @param prime
+		 *            prime of the group.
+		 */
+		public Factory(String name, byte[] prime) {
+			this.name = name;
+			this.prime = prime;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public KeyExchange create() {
+			return new DHGroupServer(prime);
+		}
+
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.UnsupportedEncodingException;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.mina.util.Base64;
+
+/**
+ * Host key of the SSH server together with the encoded form of its public key.
+ * The public key is encoded once when the host key is loaded, so that the key
+ * exchange does not have to encode it for every connection. Instances of this
+ * class are immutable.
+ * 
+ * @author Sebastian Marsching
+ */
+final class HostKey {
+
+	private final String keyType;
+	private final KeyPair keyPair;
+	private final byte[] encodedPublicKey;
+	private final String fingerprint;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param keyPair
+	 *            key pair of the host key.
+	 * @throws IllegalArgumentException
+	 *             if keys of this type are not supported.
+	 */
+	public HostKey(KeyPair keyPair) {
+		this.keyType = PublicKeyEncoding.getKeyType(keyPair.getPublic());
+		this.keyPair = keyPair;
+		this.encodedPublicKey = PublicKeyEncoding.encode(keyPair.getPublic());
+		this.fingerprint = fingerprint(encodedPublicKey);
+	}
+
+	/**
+	 * Returns the SSH key type (e.g. "ssh-ed25519").
+	 * 
+	 * @return key type.
+	 */
+	public String getKeyType() {
+		return keyType;
+	}
+
+	/**
+	 * Returns the key pair.
+	 * 
+	 * @return key pair.
+	 */
+	public KeyPair getKeyPair() {
+		return keyPair;
+	}
+
+	/**
+	 * Returns the public key in the SSH wire format. The returned array is
+	 * shared by all connections and must not be modified.
+	 * 
+	 * @return encoded public key.
+	 */
+	public byte[] getEncodedPublicKey() {
+		return encodedPublicKey;
+	}
+
+	/**
+	 * Returns the SHA-256 fingerprint of the public key in the format used by
+	 * OpenSSH (e.g. "SHA256:" followed by the unpadded Base64 encoded hash).
+	 * 
+	 * @return fingerprint of the public key.
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	private static String fingerprint(byte[] encodedPublicKey) {
+		byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-256").digest(
+					encodedPublicKey);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 algorithm not supported", e);
+		}
+		String base64;
+		try {
+			base64 = new String(Base64.encodeBase64(hash), "US-ASCII");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException("US-ASCII encoding not supported", e);
+		}
+		int end = base64.length();
+		while (end > 0 && base64.charAt(end - 1) == '=') {
+			end--;
+		}
+		return "SHA256:" + base64.substring(0, end);
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Status of a listener (endpoint) of the SSH server.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ListenerStatus implements Serializable {
+
+	private static final long serialVersionUID = 2956032157372690174L;
+
+	private String name;
+	private String listenAddress;
+	private int listenPort;
+	private SessionStatus sessions;
+
+	/**
+	 * Returns the name of the listener.
+	 * 
+	 * @return listener name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of the listener.
+	 * 
+	 * @param name
+	 *            listener name.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the address the listener is bound to.
+	 * 
+	 * @return listen address or the empty string if the listener is bound to
+	 *         all local addresses.
+	 */
+	public String getListenAddress() {
+		return listenAddress;
+	}
+
+	/**
+	 * Sets the address the listener is bound to.
+	 * 
+	 * @param listenAddress
+	 *            listen address.
+	 */
+	public void setListenAddress(String listenAddress) {
+		this.listenAddress = listenAddress;
+	}
+
+	/**
+	 * Returns the TCP port the listener is bound to.
+	 * 
+	 * @return TCP port.
+	 */
+	public int getListenPort() {
+		return listenPort;
+	}
+
+	/**
+	 * Sets the TCP port the listener is bound to.
+	 * 
+	 * @param listenPort
+	 *            TCP port.
+	 */
+	public void setListenPort(int listenPort) {
+		this.listenPort = listenPort;
+	}
+
+	/**
+	 * Returns the session statistics of the listener. Only listeners that
+	 * have their own limits have separate statistics. For all other
+	 * listeners, this is <code>null</code> and their sessions are part of the
+	 * session statistics of the server.
+	 * 
+	 * @return session statistics or <code>null</code>.
+	 */
+	public SessionStatus getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * Sets the session statistics of the listener.
+	 * 
+	 * @param sessions
+	 *            session statistics or <code>null</code>.
+	 */
+	public void setSessions(SessionStatus sessions) {
+		this.sessions = sessions;
+	}
+
+}
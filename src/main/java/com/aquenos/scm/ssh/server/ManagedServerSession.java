@@ -0,0 +1,348 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.apache.sshd.common.Compression;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.future.SshFutureListener;
+import org.apache.sshd.common.util.Buffer;
+import org.apache.sshd.server.ServerFactoryManager;
+import org.apache.sshd.server.session.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server session created by the {@link ManagedSshServer}. It enforces the
+ * session limits of the server's {@link SessionLimiter}, allows commands to
+ * bypass the compression of the session while they send incompressible data
+ * and records compression statistics for the session. The arrays for outgoing
+ * channel data packets are taken from the server's {@link PacketBufferPool}.
+ * 
+ * @author Sebastian Marsching
+ */
+class ManagedServerSession extends ServerSession {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(ManagedServerSession.class);
+
+	private final SessionLimiter sessionLimiter;
+	private final InetAddress remoteAddress;
+	private final boolean admitted;
+	private final Object limiterLock = new Object();
+	private volatile String authenticatedUsername;
+	private boolean closed;
+	private Future<?> loginTimerFuture;
+	private final CompressionStatistics compressionStatistics;
+	private final AtomicInteger compressionBypassRequests = new AtomicInteger();
+	private final PacketBufferPool packetBufferPool;
+	// Maps the buffers that have not been written yet to the arrays that
+	// have been taken from the pool for them. The array is tracked per
+	// buffer, because a buffer replaces its array when it has to grow. A
+	// channel stream drops its last buffer without writing it when the
+	// channel is closed, so the buffers are referenced weakly. Otherwise,
+	// a long-lived session would keep one array for every command it has
+	// run. Buffer does not override equals, so buffers are compared by
+	// identity.
+	private final Map<Buffer, byte[]> pooledArrays = Collections
+			.synchronizedMap(new WeakHashMap<Buffer, byte[]>());
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param server
+	 *            server that accepted the connection.
+	 * @param ioSession
+	 *            MINA session for the connection.
+	 * @throws Exception
+	 *             if the session cannot be initialized.
+	 */
+	public ManagedServerSession(ManagedSshServer server, IoSession ioSession)
+			throws Exception {
+		super(server, ioSession);
+		this.sessionLimiter = server.getSessionLimiter();
+		this.compressionStatistics = new CompressionStatistics(
+				server.getCompressionStatistics());
+		this.packetBufferPool = server.getPacketBufferPool();
+		SocketAddress socketAddress = ProxyProtocolFilter
+				.getClientAddress(ioSession);
+		setAttribute(ScmSshServer.CLIENT_ADDRESS_SESSION_ATTRIBUTE_KEY,
+				socketAddress);
+		if (socketAddress instanceof InetSocketAddress) {
+			this.remoteAddress = ((InetSocketAddress) socketAddress)
+					.getAddress();
+		} else {
+			this.remoteAddress = null;
+		}
+		this.admitted = sessionLimiter.sessionCreated(remoteAddress);
+		closeFuture.addListener(new SshFutureListener<CloseFuture>() {
+			@Override
+			public void operationComplete(CloseFuture future) {
+				synchronized (limiterLock) {
+					closed = true;
+					if (loginTimerFuture != null) {
+						loginTimerFuture.cancel(false);
+					}
+					if (admitted) {
+						sessionLimiter.sessionClosed(remoteAddress,
+								authenticatedUsername);
+					}
+				}
+				logCompressionStatistics();
+				endCompression(outCompression);
+				endCompression(inCompression);
+				// Buffers that have not been written when the session is
+				// closed are left to the garbage collector.
+				pooledArrays.clear();
+			}
+		});
+		if (!admitted) {
+			// The connection is closed before the key exchange, so that
+			// rejecting a session is cheap.
+			LOGGER.debug("Rejecting SSH session from " + socketAddress
+					+ ": session limit reached.");
+			close(true);
+			return;
+		}
+		scheduleLoginTimer();
+	}
+
+	/**
+	 * Requests that the compression of data sent to the client is bypassed or
+	 * stops such a request. Several channels of the same session may request
+	 * a bypass, so the compression is only resumed when all requests have
+	 * been stopped. Each call with <code>true</code> must be matched by a call
+	 * with <code>false</code>.
+	 * 
+	 * @param bypassed
+	 *            <code>true</code> to request a bypass, <code>false</code> to
+	 *            stop a request.
+	 */
+	public void setCompressionBypassed(boolean bypassed) {
+		int requests = bypassed ? compressionBypassRequests.incrementAndGet()
+				: compressionBypassRequests.decrementAndGet();
+		Compression compression = outCompression;
+		if (compression instanceof AdaptiveCompression) {
+			((AdaptiveCompression) compression).setBypassed(requests > 0);
+		}
+	}
+
+	@Override
+	protected void handleMessage(Buffer buffer) throws Exception {
+		super.handleMessage(buffer);
+		if (authed && authenticatedUsername == null && admitted) {
+			// The session might be closed concurrently, so we have to make
+			// sure that the limiter is updated in the right order.
+			synchronized (limiterLock) {
+				if (!closed && authenticatedUsername == null) {
+					authenticatedUsername = getUsername();
+					sessionLimiter.sessionAuthenticated(authenticatedUsername);
+				}
+			}
+		}
+	}
+
+	@Override
+	public Buffer createBuffer(SshConstants.Message cmd, int estimatedSize) {
+		// The buffers for channel data are created by the channel streams,
+		// which drop them as soon as they have been passed to writePacket,
+		// so their arrays can be reused once the write has finished. Other
+		// packets are rare and might be used after having been written, so
+		// they are created by the default implementation.
+		if (estimatedSize <= 0
+				|| (cmd != SshConstants.Message.SSH_MSG_CHANNEL_DATA
+						&& cmd != SshConstants.Message.SSH_MSG_CHANNEL_EXTENDED_DATA)) {
+			return super.createBuffer(cmd, estimatedSize);
+		}
+		// The size is calculated in the same way as by the default
+		// implementation: header, payload, padding and MAC.
+		int length = estimatedSize + 5;
+		int padding = -length & (outCipherSize - 1);
+		if (padding < outCipherSize) {
+			padding += outCipherSize;
+		}
+		length = length + padding - 4;
+		if (outMac != null) {
+			length += outMac.getBlockSize();
+		}
+		byte[] array = packetBufferPool.acquire(Math.max(length, 256));
+		Buffer buffer = new Buffer(array, false);
+		buffer.rpos(5);
+		buffer.wpos(5);
+		buffer.putByte(cmd.toByte());
+		pooledArrays.put(buffer, array);
+		return buffer;
+	}
+
+	@Override
+	public WriteFuture writePacket(Buffer buffer) throws IOException {
+		// The array taken from the pool is looked up by the buffer, because
+		// the buffer might have replaced it when it had to grow (e.g. while
+		// the channel stream filled it or while the packet is encoded). The
+		// super constructor already sends packets, so the map might not have
+		// been initialized yet.
+		final byte[] array = pooledArrays != null ? pooledArrays
+				.remove(buffer) : null;
+		WriteFuture future;
+		try {
+			future = super.writePacket(buffer);
+		} catch (IOException e) {
+			releaseUnwritten(array);
+			throw e;
+		} catch (RuntimeException e) {
+			releaseUnwritten(array);
+			throw e;
+		}
+		if (array != null) {
+			// The array might have been wrapped, not copied, so it may only
+			// be reused after the packet has been written to the socket. If
+			// the buffer has replaced it, it is not used any longer, so
+			// waiting for the write is not necessary, but harmless.
+			future.addListener(new IoFutureListener<WriteFuture>() {
+				@Override
+				public void operationComplete(WriteFuture future) {
+					packetBufferPool.release(array);
+				}
+			});
+		}
+		return future;
+	}
+
+	private void releaseUnwritten(byte[] array) {
+		// The packet has not been passed to the socket, so the array is not
+		// used any longer.
+		if (array != null) {
+			packetBufferPool.release(array);
+		}
+	}
+
+	@Override
+	protected int getActiveSessionCountForUser(String username) {
+		// This method is only called if a limit for the number of sessions
+		// per user has been set. Unlike the default implementation, it does
+		// not iterate over all sessions.
+		return sessionLimiter.getSessionCountForUser(username);
+	}
+
+	@Override
+	public void disconnect(int reason, String msg) throws IOException {
+		// The session does not tell us why it disconnects, so we derive the
+		// reason from the messages used by sshd for its timeouts and for
+		// exceeding the maximum number of authentication attempts.
+		if (reason == SshConstants.SSH2_DISCONNECT_PROTOCOL_ERROR
+				&& msg != null) {
+			if (msg.startsWith("User authentication has timed out")) {
+				sessionLimiter.authTimeout();
+			} else if (msg.startsWith("Too may authentication failures")) {
+				sessionLimiter.authFailureDisconnect();
+			} else if (msg.startsWith("User idle has timed out")) {
+				sessionLimiter.idleTimeout();
+			}
+		}
+		super.disconnect(reason, msg);
+	}
+
+	@Override
+	protected void receiveNewKeys(boolean isServer) throws Exception {
+		Compression oldOutCompression = outCompression;
+		Compression oldInCompression = inCompression;
+		super.receiveNewKeys(isServer);
+		// The key exchange replaces the compression objects, so the native
+		// memory of the old ones can be released.
+		if (oldOutCompression != outCompression) {
+			endCompression(oldOutCompression);
+		}
+		if (oldInCompression != inCompression) {
+			endCompression(oldInCompression);
+		}
+		// A key exchange creates new compression objects, so the state has
+		// to be transferred.
+		Compression compression = outCompression;
+		if (compression instanceof AdaptiveCompression) {
+			AdaptiveCompression adaptiveCompression = (AdaptiveCompression) compression;
+			adaptiveCompression.setStatistics(compressionStatistics);
+			adaptiveCompression
+					.setBypassed(compressionBypassRequests.get() > 0);
+		}
+	}
+
+	private void scheduleLoginTimer() {
+		// The authentication timer of sshd is only started when the client
+		// requests the authentication service, so a client that never
+		// finishes the key exchange could keep the session open forever.
+		// Therefore, we limit the time from accepting the connection until
+		// the successful authentication.
+		int authTimeout = getIntProperty(ServerFactoryManager.AUTH_TIMEOUT, 0);
+		if (authTimeout < 1) {
+			return;
+		}
+		synchronized (limiterLock) {
+			if (closed) {
+				return;
+			}
+			loginTimerFuture = getScheduledExecutorService().schedule(
+					new Runnable() {
+						@Override
+						public void run() {
+							processLoginTimer();
+						}
+					}, authTimeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void processLoginTimer() {
+		synchronized (limiterLock) {
+			if (closed || authed) {
+				return;
+			}
+		}
+		LOGGER.debug("Closing SSH session from " + remoteAddress
+				+ ": client did not authenticate in time.");
+		sessionLimiter.authTimeout();
+		close(true);
+	}
+
+	private void endCompression(Compression compression) {
+		if (compression instanceof AdaptiveCompression) {
+			((AdaptiveCompression) compression).end();
+		}
+	}
+
+	private void logCompressionStatistics() {
+		if (!LOGGER.isDebugEnabled()
+				|| compressionStatistics.getCompressedInputBytes()
+						+ compressionStatistics.getBypassedBytes() == 0L) {
+			return;
+		}
+		LOGGER.debug("SSH session of user " + getUsername() + " compressed "
+				+ compressionStatistics.getCompressedInputBytes()
+				+ " bytes to "
+				+ compressionStatistics.getCompressedOutputBytes()
+				+ " bytes (ratio "
+				+ compressionStatistics.getCompressionRatio() + ") and sent "
+				+ compressionStatistics.getBypassedBytes()
+				+ " bytes without compression.");
+	}
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.service.IoAcceptor;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.transport.socket.SocketSessionConfig;
+import org.apache.sshd.SshServer;
+import org.apache.sshd.common.session.AbstractSession;
+import org.apache.sshd.server.session.SessionFactory;
+
+/**
+ * SSH server that gives the {@link ScmSshServer} control over the lifecycle of
+ * the underlying acceptor. In particular, it allows to stop accepting new
+ * connections while existing sessions are kept open, so that running commands
+ * can finish before the server is stopped. Most settings can be changed while
+ * the server is running, and apply to connections that are accepted
+ * afterwards.
+ * 
+ * @author Sebastian Marsching
+ */
+class ManagedSshServer extends SshServer {
+
+	private final static String CONNECTION_RATE_FILTER_NAME = "connectionRateLimit";
+	private final static String PROXY_PROTOCOL_FILTER_NAME = "proxyProtocol";
+
+	private volatile int tcpSendBufferSize;
+	private volatile int tcpReceiveBufferSize;
+	private volatile boolean tcpNoDelay;
+	private volatile CompressionStatistics compressionStatistics = new CompressionStatistics(
+			null);
+	private volatile PacketBufferPool packetBufferPool = new PacketBufferPool();
+	private volatile SessionLimiter sessionLimiter = new SessionLimiter();
+	private volatile ConnectionRateLimiter connectionRateLimiter = new ConnectionRateLimiter();
+	private final ConnectionRateFilter connectionRateFilter = new ConnectionRateFilter(
+			connectionRateLimiter);
+	private final ProxyProtocolFilter proxyProtocolFilter = new ProxyProtocolFilter(
+			Collections.<NetworkRange> emptyList());
+	private final Object filterChainLock = new Object();
+
+	/**
+	 * Creates an SSH server with the same default settings (ciphers, key
+	 * exchange algorithms, MACs, channels, etc.) that are used by
+	 * {@link SshServer#setUpDefaultServer()}. In addition, the key exchange
+	 * supports ECDSA and Ed25519 host keys.
+	 * 
+	 * @return new SSH server with default settings.
+	 */
+	public static ManagedSshServer setUpManagedServer() {
+		SshServer defaults = SshServer.setUpDefaultServer();
+		ManagedSshServer server = new ManagedSshServer();
+		server.setKeyExchangeFactories(SshAlgorithms.selectKeyExchanges(null));
+		server.setRandomFactory(defaults.getRandomFactory());
+		server.setCipherFactories(defaults.getCipherFactories());
+		server.setCompressionFactories(defaults.getCompressionFactories());
+		server.setMacFactories(defaults.getMacFactories());
+		server.setChannelFactories(defaults.getChannelFactories());
+		server.setFileSystemFactory(defaults.getFileSystemFactory());
+		server.setTcpipForwardNioSocketAcceptorFactory(defaults
+				.getTcpipForwardingAcceptorFactory());
+		server.setX11ForwardNioSocketAcceptorFactory(defaults
+				.getX11ForwardingAcceptorFactory());
+		server.setSignatureFactories(SshAlgorithms.getSignatureFactories());
+		// The properties are updated while sessions are reading them.
+		server.setProperties(new ConcurrentHashMap<String, String>());
+		return server;
+	}
+
+	/**
+	 * Sets the options of the TCP sockets used for the connections. If the
+	 * server is running, the options apply to connections accepted after
+	 * this method has been called.
+	 * 
+	 * @param sendBufferSize
+	 *            size of the send buffer (in bytes) or zero to use the default
+	 *            of the operating system.
+	 * @param receiveBufferSize
+	 *            size of the receive buffer (in bytes) or zero to use the
+	 *            default of the operating system.
+	 * @param noDelay
+	 *            <code>true</code> to disable Nagle's algorithm.
+	 */
+	public void setSocketOptions(int sendBufferSize, int receiveBufferSize,
+			boolean noDelay) {
+		this.tcpSendBufferSize = sendBufferSize;
+		this.tcpReceiveBufferSize = receiveBufferSize;
+		this.tcpNoDelay = noDelay;
+		IoAcceptor acceptor = this.acceptor;
+		if (acceptor != null) {
+			applySocketOptions(acceptor);
+		}
+	}
+
+	/**
+	 * Sets the proxies that send a PROXY protocol header at the start of each
+	 * connection. For connections from these proxies, the client address is
+	 * taken from the header. If the server is running, the proxies apply to
+	 * connections accepted after this method has been called.
+	 * 
+	 * @param trustedProxies
+	 *            trusted proxies. If empty, PROXY protocol headers are not
+	 *            processed.
+	 */
+	public void setTrustedProxies(List<NetworkRange> trustedProxies) {
+		proxyProtocolFilter.setTrustedProxies(trustedProxies);
+		IoAcceptor acceptor = this.acceptor;
+		if (acceptor != null) {
+			updateProxyProtocolFilter(acceptor);
+		}
+	}
+
+	@Override
+	protected void configure(IoAcceptor acceptor) {
+		super.configure(acceptor);
+		acceptor.getFilterChain().addFirst(CONNECTION_RATE_FILTER_NAME,
+				connectionRateFilter);
+		updateProxyProtocolFilter(acceptor);
+		applySocketOptions(acceptor);
+	}
+
+	private void updateProxyProtocolFilter(IoAcceptor acceptor) {
+		// The filter is only added to the chain if there are trusted proxies,
+		// so that connections do not pay for it otherwise. New sessions get a
+		// copy of the chain, so changing it does not affect existing sessions.
+		synchronized (filterChainLock) {
+			DefaultIoFilterChainBuilder filterChain = acceptor
+					.getFilterChain();
+			boolean installed = filterChain
+					.contains(PROXY_PROTOCOL_FILTER_NAME);
+			if (proxyProtocolFilter.getTrustedProxies().isEmpty()) {
+				if (installed) {
+					filterChain.remove(PROXY_PROTOCOL_FILTER_NAME);
+				}
+			} else if (!installed) {
+				// The PROXY protocol header has to be processed before the
+				// rate limit is checked, because the rate limit applies to the
+				// client address from the header.
+				filterChain.addFirst(PROXY_PROTOCOL_FILTER_NAME,
+						proxyProtocolFilter);
+			}
+		}
+	}
+
+	private void applySocketOptions(IoAcceptor acceptor) {
+		if (acceptor.getSessionConfig() instanceof SocketSessionConfig) {
+			SocketSessionConfig sessionConfig = (SocketSessionConfig) acceptor
+					.getSessionConfig();
+			if (tcpSendBufferSize > 0) {
+				sessionConfig.setSendBufferSize(tcpSendBufferSize);
+			}
+			if (tcpReceiveBufferSize > 0) {
+				sessionConfig.setReceiveBufferSize(tcpReceiveBufferSize);
+			}
+			sessionConfig.setTcpNoDelay(tcpNoDelay);
+		}
+	}
+
+	/**
+	 * Returns the limiter that decides whether new sessions are admitted.
+	 * 
+	 * @return session limiter of this server.
+	 */
+	public SessionLimiter getSessionLimiter() {
+		return sessionLimiter;
+	}
+
+	/**
+	 * Sets the limiter that decides whether new sessions are admitted. The
+	 * same limiter may be used by several servers, so that their sessions
+	 * count towards the same limits. If the server is running, sessions that
+	 * already exist keep using the limiter they were admitted by.
+	 * 
+	 * @param sessionLimiter
+	 *            session limiter to be used by this server.
+	 */
+	public void setSessionLimiter(SessionLimiter sessionLimiter) {
+		this.sessionLimiter = sessionLimiter;
+	}
+
+	/**
+	 * Returns the rate limiter that decides whether new connections are
+	 * accepted.
+	 * 
+	 * @return connection rate limiter of this server.
+	 */
+	public ConnectionRateLimiter getConnectionRateLimiter() {
+		return connectionRateLimiter;
+	}
+
+	/**
+	 * Sets the rate limiter that decides whether new connections are
+	 * accepted. Like the session limiter, the rate limiter may be shared by
+	 * several servers.
+	 * 
+	 * @param connectionRateLimiter
+	 *            connection rate limiter to be used by this server.
+	 */
+	public void setConnectionRateLimiter(
+			ConnectionRateLimiter connectionRateLimiter) {
+		this.connectionRateLimiter = connectionRateLimiter;
+		connectionRateFilter.setRateLimiter(connectionRateLimiter);
+	}
+
+	/**
+	 * Returns the compression statistics accumulated over all sessions.
+	 * 
+	 * @return compression statistics of this server.
+	 */
+	public CompressionStatistics getCompressionStatistics() {
+		return compressionStatistics;
+	}
+
+	/**
+	 * Sets the object that accumulates the compression statistics of all
+	 * sessions. This method has to be called before the server is started.
+	 * 
+	 * @param compressionStatistics
+	 *            compression statistics to be updated by this server.
+	 */
+	public void setCompressionStatistics(
+			CompressionStatistics compressionStatistics) {
+		this.compressionStatistics = compressionStatistics;
+	}
+
+	/**
+	 * Returns the pool that provides the arrays for outgoing channel data
+	 * packets.
+	 * 
+	 * @return packet buffer pool of this server.
+	 */
+	public PacketBufferPool getPacketBufferPool() {
+		return packetBufferPool;
+	}
+
+	/**
+	 * Sets the pool that provides the arrays for outgoing channel data
+	 * packets. A pool can be shared by several servers. This method has to be
+	 * called before the server is started.
+	 * 
+	 * @param packetBufferPool
+	 *            packet buffer pool to be used by this server.
+	 */
+	public void setPacketBufferPool(PacketBufferPool packetBufferPool) {
+		this.packetBufferPool = packetBufferPool;
+	}
+
+	@Override
+	protected SessionFactory createSessionFactory() {
+		return new SessionFactory() {
+			@Override
+			protected AbstractSession doCreateSession(IoSession ioSession)
+					throws Exception {
+				return new ManagedServerSession((ManagedSshServer) server,
+						ioSession);
+			}
+		};
+	}
+
+	/**
+	 * Stops accepting new connections. Sessions that have already been
+	 * established are not closed. This method has no effect if the server
+	 * has not been started.
+	 */
+	public void stopAccepting() {
+		IoAcceptor acceptor = this.acceptor;
+		if (acceptor == null) {
+			return;
+		}
+		// By default, MINA closes all sessions of a service when it is
+		// deactivated, so we have to disable this before unbinding.
+		acceptor.setCloseOnDeactivation(false);
+		acceptor.unbind();
+	}
+
+	/**
+	 * Returns the number of connections that are currently open. This
+	 * includes connections that have been accepted before
+	 * {@link #stopAccepting()} was called.
+	 * 
+	 * @return number of open connections or zero if the server has not been
+	 *         started.
+	 */
+	public int getConnectionCount() {
+		IoAcceptor acceptor = this.acceptor;
+		if (acceptor == null) {
+			return 0;
+		}
+		return acceptor.getManagedSessionCount();
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range of IP addresses specified in CIDR notation (e.g. "10.0.0.0/8" or
+ * "2001:db8::/32"). A single address without a prefix length is treated as a
+ * range containing only this address. IPv4 ranges never contain IPv6
+ * addresses and vice versa.
+ * 
+ * @author Sebastian Marsching
+ */
+public final class NetworkRange {
+
+	private final byte[] network;
+	private final int prefixLength;
+	private final String text;
+
+	private NetworkRange(byte[] network, int prefixLength, String text) {
+		this.network = network;
+		this.prefixLength = prefixLength;
+		this.text = text;
+	}
+
+	/**
+	 * Parses a network range in CIDR notation. Host names are not accepted,
+	 * so parsing never causes a DNS lookup.
+	 * 
+	 * @param text
+	 *            network range (e.g. "192.168.0.0/16").
+	 * @return parsed network range.
+	 * @throws IllegalArgumentException
+	 *             if the text is not a valid network range.
+	 */
+	public static NetworkRange parse(String text) {
+		String trimmed = text.trim();
+		int slash = trimmed.indexOf('/');
+		String address = slash < 0 ? trimmed : trimmed.substring(0, slash);
+		if (address.isEmpty() || !address.matches("[0-9a-fA-F:.]+")) {
+			throw new IllegalArgumentException("Invalid IP address \""
+					+ address + "\".");
+		}
+		byte[] network;
+		try {
+			network = InetAddress.getByName(address).getAddress();
+		} catch (UnknownHostException e) {
+			throw new IllegalArgumentException("Invalid IP address \""
+					+ address + "\".", e);
+		}
+		int prefixLength = network.length * 8;
+		if (slash >= 0) {
+			try {
+				prefixLength = Integer.parseInt(trimmed.substring(slash + 1));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid prefix length in \""
+						+ trimmed + "\".", e);
+			}
+			if (prefixLength < 0 || prefixLength > network.length * 8) {
+				throw new IllegalArgumentException("Invalid prefix length in \""
+						+ trimmed + "\".");
+			}
+		}
+		// We clear the host bits, so that "10.1.2.3/8" matches the same
+		// addresses as "10.0.0.0/8".
+		for (int i = 0; i < network.length; i++) {
+			network[i] &= (byte) mask(prefixLength - i * 8);
+		}
+		return new NetworkRange(network, prefixLength, trimmed);
+	}
+
+	/**
+	 * Parses a list of network ranges in CIDR notation. The ranges may be
+	 * separated by whitespace or commas.
+	 * 
+	 * @param text
+	 *            list of network ranges (may be <code>null</code>).
+	 * @return parsed network ranges.
+	 * @throws IllegalArgumentException
+	 *             if one of the network ranges is invalid.
+	 */
+	public static List<NetworkRange> parseList(String text) {
+		List<NetworkRange> ranges = new ArrayList<NetworkRange>();
+		if (text == null) {
+			return ranges;
+		}
+		for (String range : text.split("[\\s,]+")) {
+			if (!range.isEmpty()) {
+				ranges.add(parse(range));
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * Tells whether an address is part of one of the specified ranges.
+	 * 
+	 * @param ranges
+	 *            network ranges.
+	 * @param address
+	 *            address to be checked.
+	 * @return <code>true</code> if the address is part of at least one of the
+	 *         ranges, <code>false</code> otherwise.
+	 */
+	public static boolean containsAny(List<NetworkRange> ranges,
+			InetAddress address) {
+		for (NetworkRange range : ranges) {
+			if (range.contains(address)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tells whether an address is part of this range.
+	 * 
+	 * @param address
+	 *            address to be checked.
+	 * @return <code>true</code> if the address is part of this range,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean contains(InetAddress address) {
+		byte[] bytes = address.getAddress();
+		if (bytes.length != network.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length && i * 8 < prefixLength; i++) {
+			if ((bytes[i] & mask(prefixLength - i * 8)) != (network[i] & 0xff)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mask(int bits) {
+		if (bits >= 8) {
+			return 0xff;
+		} else if (bits <= 0) {
+			return 0;
+		} else {
+			return (0xff << (8 - bits)) & 0xff;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
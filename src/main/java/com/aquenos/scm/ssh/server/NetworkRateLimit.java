@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection rate limit for a network. All addresses in the network share a
+ * single token bucket, so that a network with many clients (e.g. the build
+ * agents of a CI system) can be given a higher limit than a single address.
+ * Rules are specified one per line in the form "<code>network rate
+ * burst</code>", where the network is specified in CIDR notation, the rate
+ * is the number of connections per minute and the burst is the number of
+ * connections that may be accepted at once. A rate of zero exempts the
+ * network from rate limiting.
+ * 
+ * @author Sebastian Marsching
+ */
+public final class NetworkRateLimit {
+
+	private final NetworkRange network;
+	private final int connectionsPerMinute;
+	private final int burst;
+
+	private NetworkRateLimit(NetworkRange network, int connectionsPerMinute,
+			int burst) {
+		this.network = network;
+		this.connectionsPerMinute = connectionsPerMinute;
+		this.burst = burst;
+	}
+
+	/**
+	 * Parses a list of rules. Empty lines and lines starting with "#" are
+	 * ignored.
+	 * 
+	 * @param rules
+	 *            rules separated by line breaks (may be <code>null</code>).
+	 * @return parsed rules in the order in which they were specified.
+	 * @throws IllegalArgumentException
+	 *             if one of the rules is invalid.
+	 */
+	public static List<NetworkRateLimit> parseList(String rules) {
+		List<NetworkRateLimit> limits = new ArrayList<NetworkRateLimit>();
+		if (rules == null) {
+			return limits;
+		}
+		for (String line : rules.split("[\\r\\n]+")) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split("\\s+");
+			if (parts.length != 3) {
+				throw new IllegalArgumentException("Invalid rate limit \""
+						+ line + "\".");
+			}
+			int connectionsPerMinute;
+			int burst;
+			try {
+				connectionsPerMinute = Integer.parseInt(parts[1]);
+				burst = Integer.parseInt(parts[2]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid rate limit \""
+						+ line + "\".", e);
+			}
+			if (connectionsPerMinute < 0 || burst < 1) {
+				throw new IllegalArgumentException("Invalid rate limit \""
+						+ line + "\".");
+			}
+			limits.add(new NetworkRateLimit(NetworkRange.parse(parts[0]),
+					connectionsPerMinute, burst));
+		}
+		return limits;
+	}
+
+	/**
+	 * Returns the network this limit applies to.
+	 * 
+	 * @return network range.
+	 */
+	public NetworkRange getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Returns the number of connections per minute that are accepted from
+	 * the network in the long run.
+	 * 
+	 * @return connection rate or zero if the network is not rate limited.
+	 */
+	public int getConnectionsPerMinute() {
+		return connectionsPerMinute;
+	}
+
+	/**
+	 * Returns the number of connections that are accepted at once.
+	 * 
+	 * @return burst size.
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte arrays used for outgoing SSH packets. For each channel data
+ * packet, the SSH library allocates a new array that is only used until the
+ * packet has been written to the socket. When transferring large amounts of
+ * data (e.g. cloning a big repository), this creates a lot of garbage, so
+ * these arrays are taken from this pool and returned when the write has
+ * finished.
+ * 
+ * The arrays are grouped in size classes, so that an array can be reused for
+ * any packet that fits into its size class. Requests for arrays that are
+ * larger than the largest size class are not served from the pool. The number
+ * of idle arrays kept for each size class is limited, so that the pool does
+ * not hold on to memory after a burst of transfers.
+ * 
+ * @author Sebastian Marsching
+ */
+class PacketBufferPool {
+
+	// The default maximum packet size is 32 KB. Together with the packet
+	// header, the padding and the MAC, such a packet does not fit into a
+	// 32 KB array, so there is a size class that is slightly larger.
+	private final static int[] SIZE_CLASSES = { 1024, 4096, 16384, 33792,
+			66560 };
+	private final static int MAX_IDLE_BYTES_PER_SIZE_CLASS = 4 * 1024 * 1024;
+
+	private final SizeClass[] sizeClasses;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 */
+	public PacketBufferPool() {
+		sizeClasses = new SizeClass[SIZE_CLASSES.length];
+		for (int i = 0; i < SIZE_CLASSES.length; i++) {
+			sizeClasses[i] = new SizeClass(SIZE_CLASSES[i],
+					MAX_IDLE_BYTES_PER_SIZE_CLASS / SIZE_CLASSES[i]);
+		}
+	}
+
+	/**
+	 * Returns an array with at least the specified size. The array is taken
+	 * from the pool if possible. Its contents are undefined.
+	 * 
+	 * @param minimumSize
+	 *            minimum size of the array.
+	 * @return array that is at least as large as requested.
+	 */
+	public byte[] acquire(int minimumSize) {
+		SizeClass sizeClass = getSizeClass(minimumSize);
+		if (sizeClass == null) {
+			misses.incrementAndGet();
+			return new byte[minimumSize];
+		}
+		byte[] array = sizeClass.idleArrays.poll();
+		if (array == null) {
+			misses.incrementAndGet();
+			return new byte[sizeClass.size];
+		}
+		sizeClass.idleCount.decrementAndGet();
+		hits.incrementAndGet();
+		return array;
+	}
+
+	/**
+	 * Returns an array to the pool. The array must not be used by the caller
+	 * any longer. Arrays that do not match a size class or that exceed the
+	 * limit for idle arrays are left to the garbage collector.
+	 * 
+	 * @param array
+	 *            array that has been acquired from this pool.
+	 */
+	public void release(byte[] array) {
+		SizeClass sizeClass = getSizeClass(array.length);
+		if (sizeClass == null || sizeClass.size != array.length) {
+			return;
+		}
+		if (sizeClass.idleCount.incrementAndGet() > sizeClass.maxIdleCount) {
+			sizeClass.idleCount.decrementAndGet();
+			return;
+		}
+		sizeClass.idleArrays.offer(array);
+	}
+
+	/**
+	 * Returns the number of requests that have been served with an array
+	 * from the pool.
+	 * 
+	 * @return number of pool hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of requests for which a new array had to be
+	 * allocated.
+	 * 
+	 * @return number of pool misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private SizeClass getSizeClass(int size) {
+		for (SizeClass sizeClass : sizeClasses) {
+			if (size <= sizeClass.size) {
+				return sizeClass;
+			}
+		}
+		return null;
+	}
+
+	private static class SizeClass {
+
+		private final int size;
+		private final int maxIdleCount;
+		private final ConcurrentLinkedQueue<byte[]> idleArrays = new ConcurrentLinkedQueue<byte[]>();
+		private final AtomicInteger idleCount = new AtomicInteger();
+
+		public SizeClass(int size, int maxIdleCount) {
+			this.size = size;
+			this.maxIdleCount = maxIdleCount;
+		}
+
+	}
+
+}
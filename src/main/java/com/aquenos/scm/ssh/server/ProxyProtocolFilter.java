@@ -0,0 +1,392 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MINA filter that reads the PROXY protocol header (version 1 or 2) sent by a
+ * TCP load balancer in front of the SSH server. The header is only expected
+ * on connections from one of the trusted proxies. Connections from all other
+ * addresses are passed on unchanged, so clients can still connect directly.
+ * The rest of the filter chain and the SSH server only learn about a proxied
+ * connection after its header has been read. This way, the connection rate
+ * limits and the session limits already apply to the client address from the
+ * header. Use {@link #getClientAddress(IoSession)} to get this address.
+ * 
+ * @author Sebastian Marsching
+ */
+class ProxyProtocolFilter extends IoFilterAdapter {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(ProxyProtocolFilter.class);
+
+	private final static String CLIENT_ADDRESS_ATTRIBUTE = ProxyProtocolFilter.class
+			.getName() + ".clientAddress";
+	private final static String HEADER_BUFFER_ATTRIBUTE = ProxyProtocolFilter.class
+			.getName() + ".headerBuffer";
+
+	private final static int HEADER_TIMEOUT_SECONDS = 10;
+	private final static int MAX_V1_HEADER_LENGTH = 107;
+	private final static byte[] V2_SIGNATURE = { 0x0D, 0x0A, 0x0D, 0x0A,
+			0x00, 0x0D, 0x0A, 0x51, 0x55, 0x49, 0x54, 0x0A };
+	private final static int V2_FIXED_HEADER_LENGTH = 16;
+	private final static Charset US_ASCII = Charset.forName("US-ASCII");
+
+	private volatile List<NetworkRange> trustedProxies;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param trustedProxies
+	 *            addresses of the proxies that send a PROXY protocol header.
+	 */
+	public ProxyProtocolFilter(List<NetworkRange> trustedProxies) {
+		this.trustedProxies = trustedProxies;
+	}
+
+	/**
+	 * Returns the proxies that send a PROXY protocol header.
+	 * 
+	 * @return trusted proxies.
+	 */
+	public List<NetworkRange> getTrustedProxies() {
+		return trustedProxies;
+	}
+
+	/**
+	 * Replaces the list of trusted proxies. The new list applies to
+	 * connections that are accepted after this method has been called.
+	 * 
+	 * @param trustedProxies
+	 *            addresses of the proxies that send a PROXY protocol header.
+	 */
+	public void setTrustedProxies(List<NetworkRange> trustedProxies) {
+		this.trustedProxies = trustedProxies;
+	}
+
+	/**
+	 * Returns the address of the client that opened a connection. For a
+	 * connection from a trusted proxy, this is the address from the PROXY
+	 * protocol header. For all other connections, it is the remote address of
+	 * the socket.
+	 * 
+	 * @param session
+	 *            MINA session of the connection.
+	 * @return address of the client.
+	 */
+	static SocketAddress getClientAddress(IoSession session) {
+		SocketAddress clientAddress = (SocketAddress) session
+				.getAttribute(CLIENT_ADDRESS_ATTRIBUTE);
+		if (clientAddress != null) {
+			return clientAddress;
+		} else {
+			return session.getRemoteAddress();
+		}
+	}
+
+	@Override
+	public void sessionCreated(NextFilter nextFilter, IoSession session)
+			throws Exception {
+		SocketAddress address = session.getRemoteAddress();
+		if (address instanceof InetSocketAddress
+				&& NetworkRange.containsAny(trustedProxies,
+						((InetSocketAddress) address).getAddress())) {
+			// The sessionCreated and sessionOpened events are passed on once
+			// the header has been read.
+			session.setAttribute(HEADER_BUFFER_ATTRIBUTE, IoBuffer
+					.allocate(MAX_V1_HEADER_LENGTH).setAutoExpand(true));
+			session.getConfig().setIdleTime(IdleStatus.READER_IDLE,
+					HEADER_TIMEOUT_SECONDS);
+			return;
+		}
+		nextFilter.sessionCreated(session);
+	}
+
+	@Override
+	public void sessionOpened(NextFilter nextFilter, IoSession session)
+			throws Exception {
+		if (!isWaitingForHeader(session)) {
+			nextFilter.sessionOpened(session);
+		}
+	}
+
+	@Override
+	public void sessionClosed(NextFilter nextFilter, IoSession session)
+			throws Exception {
+		if (!isWaitingForHeader(session)) {
+			nextFilter.sessionClosed(session);
+		}
+	}
+
+	@Override
+	public void sessionIdle(NextFilter nextFilter, IoSession session,
+			IdleStatus status) throws Exception {
+		if (isWaitingForHeader(session)) {
+			LOGGER.debug("Closing connection from "
+					+ session.getRemoteAddress()
+					+ ": no PROXY protocol header received.");
+			session.close(true);
+		} else {
+			nextFilter.sessionIdle(session, status);
+		}
+	}
+
+	@Override
+	public void exceptionCaught(NextFilter nextFilter, IoSession session,
+			Throwable cause) throws Exception {
+		if (isWaitingForHeader(session)) {
+			session.close(true);
+		} else {
+			nextFilter.exceptionCaught(session, cause);
+		}
+	}
+
+	@Override
+	public void messageReceived(NextFilter nextFilter, IoSession session,
+			Object message) throws Exception {
+		IoBuffer buffer = (IoBuffer) session
+				.getAttribute(HEADER_BUFFER_ATTRIBUTE);
+		if (buffer == null) {
+			nextFilter.messageReceived(session, message);
+			return;
+		}
+		if (session.isClosing()) {
+			return;
+		}
+		buffer.put((IoBuffer) message);
+		buffer.flip();
+		Header header;
+		try {
+			header = parseHeader(buffer);
+		} catch (ProtocolException e) {
+			LOGGER.warn("Closing connection from "
+					+ session.getRemoteAddress() + ": " + e.getMessage());
+			session.close(true);
+			return;
+		}
+		if (header == null) {
+			// The header is not complete yet, so we wait for more data.
+			buffer.position(buffer.limit());
+			buffer.limit(buffer.capacity());
+			return;
+		}
+		session.removeAttribute(HEADER_BUFFER_ATTRIBUTE);
+		session.getConfig().setIdleTime(IdleStatus.READER_IDLE, 0);
+		if (header.clientAddress != null) {
+			session.setAttribute(CLIENT_ADDRESS_ATTRIBUTE,
+					header.clientAddress);
+		}
+		// The client might have sent the start of the SSH protocol together
+		// with the header.
+		buffer.position(header.length);
+		IoBuffer remainder = null;
+		if (buffer.hasRemaining()) {
+			remainder = IoBuffer.allocate(buffer.remaining());
+			remainder.put(buffer);
+			remainder.flip();
+		}
+		nextFilter.sessionCreated(session);
+		nextFilter.sessionOpened(session);
+		if (remainder != null && !session.isClosing()) {
+			nextFilter.messageReceived(session, remainder);
+		}
+	}
+
+	private static boolean isWaitingForHeader(IoSession session) {
+		return session.containsAttribute(HEADER_BUFFER_ATTRIBUTE);
+	}
+
+	/**
+	 * Parses the header at the start of the buffer. Returns <code>null</code>
+	 * if the buffer does not contain the complete header yet.
+	 */
+	private static Header parseHeader(IoBuffer buffer) throws ProtocolException {
+		if (!buffer.hasRemaining()) {
+			return null;
+		}
+		if (buffer.get(0) == 'P') {
+			return parseV1Header(buffer);
+		} else if (buffer.get(0) == V2_SIGNATURE[0]) {
+			return parseV2Header(buffer);
+		} else {
+			throw new ProtocolException("Missing PROXY protocol header.");
+		}
+	}
+
+	private static Header parseV1Header(IoBuffer buffer)
+			throws ProtocolException {
+		// A version 1 header is a single line of text, e.g.
+		// "PROXY TCP4 192.0.2.1 192.0.2.2 56324 22\r\n".
+		int available = Math.min(buffer.limit(), MAX_V1_HEADER_LENGTH);
+		int length = -1;
+		for (int i = 1; i < available; i++) {
+			if (buffer.get(i - 1) == '\r' && buffer.get(i) == '\n') {
+				length = i + 1;
+				break;
+			}
+		}
+		if (length < 0) {
+			if (buffer.limit() >= MAX_V1_HEADER_LENGTH) {
+				throw new ProtocolException(
+						"PROXY protocol header is too long.");
+			}
+			return null;
+		}
+		byte[] lineBytes = new byte[length - 2];
+		for (int i = 0; i < lineBytes.length; i++) {
+			lineBytes[i] = buffer.get(i);
+		}
+		String line = new String(lineBytes, US_ASCII);
+		String[] parts = line.split(" ");
+		if (parts.length < 2 || !parts[0].equals("PROXY")) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+		if (parts[1].equals("UNKNOWN")) {
+			// The proxy does not know the client address, so we keep the
+			// address of the proxy.
+			return new Header(length, null);
+		}
+		if (parts.length != 6
+				|| !(parts[1].equals("TCP4") || parts[1].equals("TCP6"))) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+		InetAddress address = parseAddress(parts[2], line);
+		if ((address instanceof Inet4Address) != parts[1].equals("TCP4")) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+		int port;
+		try {
+			port = Integer.parseInt(parts[4]);
+		} catch (NumberFormatException e) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+		if (port < 0 || port > 65535) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+		return new Header(length, new InetSocketAddress(address, port));
+	}
+
+	private static InetAddress parseAddress(String text, String line)
+			throws ProtocolException {
+		// We only accept IP literals, so that we never do a DNS lookup.
+		if (!text.matches("[0-9a-fA-F:.]+")) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+		try {
+			return InetAddress.getByName(text);
+		} catch (UnknownHostException e) {
+			throw new ProtocolException("Invalid PROXY protocol header \""
+					+ line + "\".");
+		}
+	}
+
+	private static Header parseV2Header(IoBuffer buffer)
+			throws ProtocolException {
+		// A version 2 header is a binary structure with a 12 byte signature,
+		// followed by the version and command, the address family, the length
+		// of the address block and the address block itself.
+		int available = buffer.limit();
+		for (int i = 0; i < Math.min(available, V2_SIGNATURE.length); i++) {
+			if (buffer.get(i) != V2_SIGNATURE[i]) {
+				throw new ProtocolException(
+						"Invalid PROXY protocol header signature.");
+			}
+		}
+		if (available < V2_FIXED_HEADER_LENGTH) {
+			return null;
+		}
+		int versionAndCommand = buffer.get(12) & 0xff;
+		int family = buffer.get(13) & 0xff;
+		int addressLength = buffer.getUnsignedShort(14);
+		int length = V2_FIXED_HEADER_LENGTH + addressLength;
+		if ((versionAndCommand >> 4) != 2) {
+			throw new ProtocolException(
+					"Unsupported PROXY protocol version.");
+		}
+		if (available < length) {
+			return null;
+		}
+		int command = versionAndCommand & 0x0f;
+		if (command == 0x0) {
+			// LOCAL command: the connection has been opened by the proxy
+			// itself (e.g. for a health check).
+			return new Header(length, null);
+		} else if (command != 0x1) {
+			throw new ProtocolException("Unsupported PROXY protocol command.");
+		}
+		int addressBytes;
+		switch (family >> 4) {
+		case 0x1:
+			addressBytes = 4;
+			break;
+		case 0x2:
+			addressBytes = 16;
+			break;
+		default:
+			// AF_UNSPEC or AF_UNIX, so there is no IP address we could use.
+			return new Header(length, null);
+		}
+		if (addressLength < 2 * addressBytes + 4) {
+			throw new ProtocolException(
+					"PROXY protocol address block is too short.");
+		}
+		byte[] sourceAddress = new byte[addressBytes];
+		for (int i = 0; i < addressBytes; i++) {
+			sourceAddress[i] = buffer.get(V2_FIXED_HEADER_LENGTH + i);
+		}
+		int sourcePort = buffer.getUnsignedShort(V2_FIXED_HEADER_LENGTH + 2
+				* addressBytes);
+		try {
+			return new Header(length, new InetSocketAddress(
+					InetAddress.getByAddress(sourceAddress), sourcePort));
+		} catch (UnknownHostException e) {
+			// This can only happen if the address has an illegal length.
+			throw new ProtocolException(
+					"Invalid address in PROXY protocol header.");
+		}
+	}
+
+	/**
+	 * Parsed PROXY protocol header.
+	 */
+	private static class Header {
+
+		private final int length;
+		private final InetSocketAddress clientAddress;
+
+		public Header(int length, InetSocketAddress clientAddress) {
+			this.length = length;
+			this.clientAddress = clientAddress;
+		}
+
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECField;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+import java.util.Arrays;
+
+import org.apache.sshd.common.util.Buffer;
+
+/**
+ * Encodes public keys in the format used by the SSH protocol. The SSH library
+ * can only encode RSA and DSA keys, so the key exchange uses this class in
+ * order to send ECDSA (RFC 5656) and Ed25519 (RFC 8709) host keys, too.
+ * 
+ * @author Sebastian Marsching
+ */
+final class PublicKeyEncoding {
+
+	/**
+	 * Key type of ECDSA keys on the NIST P-256 curve.
+	 */
+	public final static String SSH_ECDSA_NISTP256 = "ecdsa-sha2-nistp256";
+
+	/**
+	 * Key type of Ed25519 keys.
+	 */
+	public final static String SSH_ED25519 = "ssh-ed25519";
+
+	private final static String NISTP256_CURVE = "nistp256";
+	private final static int NISTP256_FIELD_SIZE = 256;
+	// Domain parameters of the NIST P-256 curve (secp256r1) as specified by
+	// SEC 2. Other curves with a field of the same size (e.g. secp256k1 or
+	// brainpoolP256r1) must not be announced as "nistp256".
+	private final static BigInteger NISTP256_P = new BigInteger(
+			"ffffffff00000001000000000000000000000000ffffffffffffffffffffffff",
+			16);
+	private final static BigInteger NISTP256_A = new BigInteger(
+			"ffffffff00000001000000000000000000000000fffffffffffffffffffffffc",
+			16);
+	private final static BigInteger NISTP256_B = new BigInteger(
+			"5ac635d8aa3a93e7b3ebbd55769886bc651d06b0cc53b0f63bce3c3e27d2604b",
+			16);
+	private final static BigInteger NISTP256_GX = new BigInteger(
+			"6b17d1f2e12c4247f8bce6e563a440f277037d812deb33a0f4a13945d898c296",
+			16);
+	private final static BigInteger NISTP256_GY = new BigInteger(
+			"4fe342e2fe1a7f9b8ee7eb4a7c0f9e162bce33576b315ececbb6406837bf51f5",
+			16);
+	private final static BigInteger NISTP256_N = new BigInteger(
+			"ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc632551",
+			16);
+	private final static int ED25519_KEY_LENGTH = 32;
+	private final static int ED25519_X509_LENGTH = 44;
+
+	private PublicKeyEncoding() {
+	}
+
+	/**
+	 * Returns the SSH key type of a public key.
+	 * 
+	 * @param key
+	 *            public key.
+	 * @return key type (e.g. "ssh-rsa") or <code>null</code> if keys of this
+	 *         type are not supported.
+	 */
+	public static String getKeyType(PublicKey key) {
+		if (key instanceof RSAPublicKey) {
+			return "ssh-rsa";
+		} else if (key instanceof DSAPublicKey) {
+			return "ssh-dss";
+		} else if (key instanceof ECPublicKey) {
+			ECParameterSpec params = ((ECPublicKey) key).getParams();
+			return isNistP256(params) ? SSH_ECDSA_NISTP256 : null;
+		} else if (isEd25519(key)) {
+			return SSH_ED25519;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Encodes a public key in the SSH wire format.
+	 * 
+	 * @param key
+	 *            public key.
+	 * @return encoded key.
+	 * @throws IllegalArgumentException
+	 *             if keys of this type are not supported.
+	 */
+	public static byte[] encode(PublicKey key) {
+		String keyType = getKeyType(key);
+		if (keyType == null) {
+			throw new IllegalArgumentException("Unsupported key algorithm: "
+					+ key.getAlgorithm());
+		}
+		Buffer buffer = new Buffer();
+		if (keyType.equals(SSH_ECDSA_NISTP256)) {
+			buffer.putString(keyType);
+			buffer.putString(NISTP256_CURVE);
+			buffer.putString(encodePoint(((ECPublicKey) key).getW()));
+		} else if (keyType.equals(SSH_ED25519)) {
+			buffer.putString(keyType);
+			buffer.putString(getEd25519KeyBytes(key));
+		} else {
+			buffer.putRawPublicKey(key);
+		}
+		return buffer.getCompactData();
+	}
+
+	private static boolean isNistP256(ECParameterSpec params) {
+		if (params == null) {
+			return false;
+		}
+		EllipticCurve curve = params.getCurve();
+		ECField field = curve.getField();
+		ECPoint generator = params.getGenerator();
+		return field instanceof ECFieldFp
+				&& ((ECFieldFp) field).getP().equals(NISTP256_P)
+				&& curve.getA().equals(NISTP256_A)
+				&& curve.getB().equals(NISTP256_B)
+				&& generator.getAffineX().equals(NISTP256_GX)
+				&& generator.getAffineY().equals(NISTP256_GY)
+				&& params.getOrder().equals(NISTP256_N)
+				&& params.getCofactor() == 1;
+	}
+
+	private static boolean isEd25519(PublicKey key) {
+		// Ed25519 keys are only supported by Java 15 and newer, so we cannot
+		// refer to their interface. Instead, we look at the X.509 encoding,
+		// which consists of a fixed prefix followed by the key itself.
+		String algorithm = key.getAlgorithm();
+		if (!algorithm.equals("Ed25519") && !algorithm.equals("EdDSA")) {
+			return false;
+		}
+		byte[] encoded = key.getEncoded();
+		return encoded != null && encoded.length == ED25519_X509_LENGTH;
+	}
+
+	private static byte[] getEd25519KeyBytes(PublicKey key) {
+		byte[] encoded = key.getEncoded();
+		return Arrays.copyOfRange(encoded, encoded.length
+				- ED25519_KEY_LENGTH, encoded.length);
+	}
+
+	private static byte[] encodePoint(ECPoint point) {
+		// Uncompressed point as specified by SEC 1: 0x04 followed by the
+		// coordinates, each padded to the size of the field.
+		int coordinateLength = NISTP256_FIELD_SIZE / 8;
+		byte[] encoded = new byte[1 + 2 * coordinateLength];
+		encoded[0] = 0x04;
+		putUnsigned(point.getAffineX(), encoded, 1, coordinateLength);
+		putUnsigned(point.getAffineY(), encoded, 1 + coordinateLength,
+				coordinateLength);
+		return encoded;
+	}
+
+	private static void putUnsigned(BigInteger value, byte[] target,
+			int offset, int length) {
+		byte[] bytes = value.toByteArray();
+		// The two's complement representation might have an additional
+		// leading zero byte.
+		int start = Math.max(0, bytes.length - length);
+		int copyLength = bytes.length - start;
+		System.arraycopy(bytes, start, target, offset + length - copyLength,
+				copyLength);
+	}
+
+}
@@ -12,15 +12,35 @@ package com.aquenos.scm.ssh.server;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.sshd.common.KeyPairProvider;
 import org.apache.sshd.common.util.SecurityUtils;
 import org.bouncycastle.openssl.PEMReader;
 import org.bouncycastle.openssl.PEMWriter;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemReader;
+import org.bouncycastle.util.io.pem.PemWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,7 +50,16 @@ import com.google.inject.Singleton;
 /**
  * A key-pair provider that stores the keys in the
  * {@link ScmSshServerConfiguration}. If no keys are stored yet, this key-pair
- * provider generates them and stores the configuration.
+ * provider generates them in the background and stores the configuration.
+ * The keys are generated one after another, starting with the types that are
+ * fastest to generate, and each key can be used as soon as it has been
+ * generated. Ed25519 and ECDSA keys are offered to clients before RSA and DSA
+ * keys, because signing with them is much faster, which matters for every key
+ * exchange.
+ * 
+ * The keys are kept in an immutable snapshot, which is replaced when the
+ * configuration changes. Key exchanges read this snapshot without locking and
+ * use the public keys that have been encoded when the snapshot was created.
  * 
  * @author Sebastian Marsching
  */
@@ -39,14 +68,23 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 
 	private final static String ALGORITHM_RSA = "RSA";
 	private final static String ALGORITHM_DSA = "DSA";
+	private final static String ALGORITHM_EC = "EC";
+	private final static String ALGORITHM_ED25519 = "Ed25519";
+
+	private final static String PEM_PRIVATE_KEY = "PRIVATE KEY";
+	private final static String PEM_PUBLIC_KEY = "PUBLIC KEY";
 
-	private final static String SSH_RSA_AND_DSS = SSH_RSA + "," + SSH_DSS;
+	private final static long GENERATOR_KEEP_ALIVE_SECONDS = 60L;
 
-	private KeyPair rsaKeyPair;
-	private KeyPair dsaKeyPair;
+	private volatile HostKeySnapshot hostKeys = new HostKeySnapshot(
+			new EnumMap<HostKeyType, String>(HostKeyType.class),
+			new EnumMap<HostKeyType, HostKey>(HostKeyType.class));
+	private final Set<HostKeyType> pendingKeyTypes = new HashSet<HostKeyType>();
 
+	// Only serializes the updates of the snapshot, readers do not use it.
 	private final Object lock = new Object();
 	private ScmSshServerConfigurationStore configurationStore;
+	private final ThreadPoolExecutor keyGenerator;
 
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(ScmKeyPairProvider.class);
@@ -71,6 +109,19 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 	@Inject
 	public ScmKeyPairProvider(ScmSshServerConfigurationStore configurationStore) {
 		this.configurationStore = configurationStore;
+		// A single thread generates the keys in the order in which they are
+		// requested. The thread terminates when there is nothing to do.
+		this.keyGenerator = new ThreadPoolExecutor(0, 1,
+				GENERATOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r,
+								"SSH-Host-Key-Generator");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
 		configurationStore
 				.addConfigurationChangeListener(new ScmSshServerConfigurationStore.ConfigurationChangeListener() {
 
@@ -86,42 +137,89 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 
 	private void reloadKeys(ScmSshServerConfiguration configuration) {
 		synchronized (lock) {
-			boolean generatedKey = false;
-			String rsaKeyString = configuration.getRsaHostKey();
-			if (rsaKeyString.trim().isEmpty()) {
-				rsaKeyPair = generateKeyPair(ALGORITHM_RSA, 2048);
-				rsaKeyString = keyPairToString(rsaKeyPair);
-				configuration.setRsaHostKey(rsaKeyString);
-				generatedKey = true;
-			} else {
-				try {
-					rsaKeyPair = stringToKeyPair(rsaKeyString, ALGORITHM_RSA);
-				} catch (IOException e) {
-					LOGGER.error(
-							"Failed to read RSA host key: " + e.getMessage(), e);
+			HostKeySnapshot oldHostKeys = hostKeys;
+			EnumMap<HostKeyType, String> keyStrings = new EnumMap<HostKeyType, String>(
+					oldHostKeys.keyStrings);
+			EnumMap<HostKeyType, HostKey> keys = new EnumMap<HostKeyType, HostKey>(
+					oldHostKeys.keys);
+			for (final HostKeyType type : HostKeyType.values()) {
+				String keyString = type.getKey(configuration);
+				if (keyString == null || keyString.trim().isEmpty()) {
+					// The old key (if any) is used until the new one has been
+					// generated.
+					if (type.isSupported() && pendingKeyTypes.add(type)) {
+						keyGenerator.execute(new Runnable() {
+							@Override
+							public void run() {
+								generateKey(type);
+							}
+						});
+					}
+					continue;
 				}
-			}
-			String dsaKeyString = configuration.getDsaHostKey();
-			if (dsaKeyString.trim().isEmpty()) {
-				this.dsaKeyPair = generateKeyPair(ALGORITHM_DSA, 1024);
-				dsaKeyString = keyPairToString(dsaKeyPair);
-				configuration.setDsaHostKey(dsaKeyString);
-				generatedKey = true;
-			} else {
+				if (keyString.equals(keyStrings.get(type))) {
+					// Most configuration changes do not affect the host keys,
+					// so we only parse keys that have changed.
+					continue;
+				}
+				keyStrings.put(type, keyString);
 				try {
-					dsaKeyPair = stringToKeyPair(dsaKeyString, ALGORITHM_DSA);
-				} catch (IOException e) {
-					LOGGER.error(
-							"Failed to read DSA host key: " + e.getMessage(), e);
+					HostKey key = new HostKey(type.parse(keyString));
+					if (!type.getKeyType().equals(key.getKeyType())) {
+						throw new IOException("Key is not a valid "
+								+ type.getKeyType() + " key");
+					}
+					keys.put(type, key);
+					LOGGER.info("Using " + type.getDisplayName()
+							+ " host key with fingerprint "
+							+ key.getFingerprint() + ".");
+				} catch (Exception e) {
+					LOGGER.error("Failed to read " + type.getDisplayName()
+							+ " host key: " + e.getMessage(), e);
 				}
 			}
-			if (generatedKey) {
-				configurationStore.store(configuration);
+			hostKeys = new HostKeySnapshot(keyStrings, keys);
+		}
+	}
+
+	private void generateKey(final HostKeyType type) {
+		try {
+			long startTime = System.currentTimeMillis();
+			KeyPair keyPair = type.generate();
+			final String keyString = type.format(keyPair);
+			LOGGER.info("Generated " + type.getDisplayName() + " host key in "
+					+ (System.currentTimeMillis() - startTime) + " ms.");
+			// The configuration is stored without holding the lock, because
+			// storing it notifies the listeners, and the listener of this
+			// provider takes the lock in another thread. Storing the key
+			// reloads it, so that it is used from now on. The key is set in an
+			// atomic update, so that a configuration saved by an administrator
+			// while the key was generated is not overwritten.
+			configurationStore
+					.update(new ScmSshServerConfigurationStore.ConfigurationUpdate() {
+						@Override
+						public boolean apply(
+								ScmSshServerConfiguration configuration) {
+							String configuredKey = type.getKey(configuration);
+							if (configuredKey != null
+									&& !configuredKey.trim().isEmpty()) {
+								return false;
+							}
+							type.setKey(configuration, keyString);
+							return true;
+						}
+					});
+		} catch (Exception e) {
+			LOGGER.error("Failed to generate " + type.getDisplayName()
+					+ " host key: " + e.getMessage(), e);
+		} finally {
+			synchronized (lock) {
+				pendingKeyTypes.remove(type);
 			}
 		}
 	}
 
-	private KeyPair generateKeyPair(String algorithm, int keyLength) {
+	private static KeyPair generateKeyPair(String algorithm, int keyLength) {
 		KeyPairGenerator generator;
 		try {
 			generator = SecurityUtils.getKeyPairGenerator(algorithm);
@@ -136,8 +234,8 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 		return generator.generateKeyPair();
 	}
 
-	private KeyPair stringToKeyPair(String keyString, String expectedAlgorithm)
-			throws IOException {
+	private static KeyPair stringToKeyPair(String keyString,
+			String expectedAlgorithm) throws IOException {
 		KeyPair kp = stringToKeyPair(keyString);
 		String keyAlgorithm = kp.getPrivate().getAlgorithm();
 		if (!keyAlgorithm.equals(expectedAlgorithm)) {
@@ -148,7 +246,8 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 		return kp;
 	}
 
-	private KeyPair stringToKeyPair(String keyPairString) throws IOException {
+	private static KeyPair stringToKeyPair(String keyPairString)
+			throws IOException {
 		StringReader stringReader = new StringReader(keyPairString);
 		PEMReader pemReader = new PEMReader(stringReader);
 		Object obj = pemReader.readObject();
@@ -161,7 +260,7 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 		}
 	}
 
-	private String keyPairToString(KeyPair keyPair) {
+	private static String keyPairToString(KeyPair keyPair) {
 		StringWriter stringWriter = new StringWriter();
 		PEMWriter pemWriter = new PEMWriter(stringWriter);
 		try {
@@ -175,32 +274,281 @@ public class ScmKeyPairProvider implements KeyPairProvider {
 		return stringWriter.getBuffer().toString();
 	}
 
-	@Override
-	public KeyPair loadKey(String type) {
-		synchronized (lock) {
-			if (type.equals(SSH_RSA)) {
-				return rsaKeyPair;
-			} else if (type.equals(SSH_DSS)) {
-				return dsaKeyPair;
-			} else {
-				return null;
+	private static KeyPair pkcs8StringToKeyPair(String keyPairString,
+			String algorithm) throws IOException {
+		// The legacy PEM format used for RSA and DSA keys does not support
+		// Ed25519 keys, so the newer key types are stored as a PKCS #8 private
+		// key followed by an X.509 public key.
+		PemReader pemReader = new PemReader(new StringReader(keyPairString));
+		byte[] privateKeyBytes = null;
+		byte[] publicKeyBytes = null;
+		PemObject pemObject;
+		while ((pemObject = pemReader.readPemObject()) != null) {
+			if (pemObject.getType().equals(PEM_PRIVATE_KEY)) {
+				privateKeyBytes = pemObject.getContent();
+			} else if (pemObject.getType().equals(PEM_PUBLIC_KEY)) {
+				publicKeyBytes = pemObject.getContent();
 			}
 		}
+		pemReader.close();
+		if (privateKeyBytes == null || publicKeyBytes == null) {
+			throw new IOException(
+					"Key must consist of a private and a public key in PEM format");
+		}
+		try {
+			KeyFactory keyFactory = KeyFactory.getInstance(algorithm);
+			PrivateKey privateKey = keyFactory
+					.generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
+			PublicKey publicKey = keyFactory
+					.generatePublic(new X509EncodedKeySpec(publicKeyBytes));
+			return new KeyPair(publicKey, privateKey);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Invalid " + algorithm + " key: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	private static String keyPairToPkcs8String(KeyPair keyPair) {
+		StringWriter stringWriter = new StringWriter();
+		PemWriter pemWriter = new PemWriter(stringWriter);
+		try {
+			pemWriter.writeObject(new PemObject(PEM_PRIVATE_KEY, keyPair
+					.getPrivate().getEncoded()));
+			pemWriter.writeObject(new PemObject(PEM_PUBLIC_KEY, keyPair
+					.getPublic().getEncoded()));
+			pemWriter.flush();
+			pemWriter.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Unexpected IOException: "
+					+ e.getMessage(), e);
+		}
+		return stringWriter.getBuffer().toString();
+	}
+
+	@Override
+	public KeyPair loadKey(String type) {
+		HostKey hostKey = hostKeys.keysByType.get(type);
+		return hostKey == null ? null : hostKey.getKeyPair();
 	}
 
 	@Override
 	public String getKeyTypes() {
-		synchronized (lock) {
-			if (rsaKeyPair != null && dsaKeyPair != null) {
-				return SSH_RSA_AND_DSS;
-			} else if (rsaKeyPair != null) {
-				return SSH_RSA;
-			} else if (dsaKeyPair != null) {
-				return SSH_DSS;
-			} else {
-				return "";
+		return hostKeys.keyTypes;
+	}
+
+	/**
+	 * Returns the host key of the specified type. In contrast to
+	 * {@link #loadKey(String)}, the returned host key also provides the encoded
+	 * public key, so that it does not have to be encoded for each connection.
+	 * 
+	 * @param type
+	 *            SSH key type (e.g. "ssh-ed25519").
+	 * @return host key or <code>null</code> if there is no key of the
+	 *         specified type.
+	 */
+	HostKey getHostKey(String type) {
+		return hostKeys.keysByType.get(type);
+	}
+
+	/**
+	 * Immutable set of host keys. The key strings from the configuration are
+	 * kept, so that unchanged keys do not have to be parsed again.
+	 */
+	private static final class HostKeySnapshot {
+
+		// The enum maps are never modified after construction. They are not
+		// wrapped, so that they can be copied efficiently.
+		private final EnumMap<HostKeyType, String> keyStrings;
+		private final EnumMap<HostKeyType, HostKey> keys;
+		private final Map<String, HostKey> keysByType;
+		private final String keyTypes;
+
+		private HostKeySnapshot(EnumMap<HostKeyType, String> keyStrings,
+				EnumMap<HostKeyType, HostKey> keys) {
+			this.keyStrings = keyStrings;
+			this.keys = keys;
+			HashMap<String, HostKey> keysByType = new HashMap<String, HostKey>();
+			StringBuilder keyTypes = new StringBuilder();
+			// The iteration order of an EnumMap is the order of the enum
+			// constants, which is the order of preference.
+			for (Map.Entry<HostKeyType, HostKey> entry : keys.entrySet()) {
+				keysByType.put(entry.getKey().getKeyType(), entry.getValue());
+				if (keyTypes.length() != 0) {
+					keyTypes.append(',');
+				}
+				keyTypes.append(entry.getKey().getKeyType());
+			}
+			this.keysByType = Collections.unmodifiableMap(keysByType);
+			this.keyTypes = keyTypes.toString();
+		}
+
+	}
+
+	/**
+	 * Types of host keys in the order in which they are offered to clients.
+	 */
+	private enum HostKeyType {
+
+		ED25519(PublicKeyEncoding.SSH_ED25519, "Ed25519") {
+			@Override
+			public boolean isSupported() {
+				return SignatureEd25519.isSupported();
+			}
+
+			@Override
+			public String getKey(ScmSshServerConfiguration configuration) {
+				return configuration.getEd25519HostKey();
+			}
+
+			@Override
+			public void setKey(ScmSshServerConfiguration configuration,
+					String key) {
+				configuration.setEd25519HostKey(key);
+			}
+
+			@Override
+			public KeyPair generate() throws GeneralSecurityException {
+				return KeyPairGenerator.getInstance(ALGORITHM_ED25519)
+						.generateKeyPair();
+			}
+
+			@Override
+			public KeyPair parse(String key) throws IOException {
+				return pkcs8StringToKeyPair(key, ALGORITHM_ED25519);
+			}
+
+			@Override
+			public String format(KeyPair keyPair) {
+				return keyPairToPkcs8String(keyPair);
+			}
+		},
+
+		ECDSA(PublicKeyEncoding.SSH_ECDSA_NISTP256, "ECDSA") {
+			@Override
+			public String getKey(ScmSshServerConfiguration configuration) {
+				return configuration.getEcdsaHostKey();
+			}
+
+			@Override
+			public void setKey(ScmSshServerConfiguration configuration,
+					String key) {
+				configuration.setEcdsaHostKey(key);
+			}
+
+			@Override
+			public KeyPair generate() throws GeneralSecurityException {
+				KeyPairGenerator generator = KeyPairGenerator
+						.getInstance(ALGORITHM_EC);
+				generator.initialize(new ECGenParameterSpec("secp256r1"));
+				return generator.generateKeyPair();
+			}
+
+			@Override
+			public KeyPair parse(String key) throws IOException {
+				KeyPair keyPair = pkcs8StringToKeyPair(key, ALGORITHM_EC);
+				// Only the NIST P-256 curve is supported. A key on another
+				// curve would be announced with the wrong key type.
+				if (!getKeyType().equals(
+						PublicKeyEncoding.getKeyType(keyPair.getPublic()))) {
+					throw new IOException(
+							"ECDSA key does not use the NIST P-256 curve");
+				}
+				return keyPair;
+			}
+
+			@Override
+			public String format(KeyPair keyPair) {
+				return keyPairToPkcs8String(keyPair);
+			}
+		},
+
+		RSA(SSH_RSA, "RSA") {
+			@Override
+			public String getKey(ScmSshServerConfiguration configuration) {
+				return configuration.getRsaHostKey();
+			}
+
+			@Override
+			public void setKey(ScmSshServerConfiguration configuration,
+					String key) {
+				configuration.setRsaHostKey(key);
+			}
+
+			@Override
+			public KeyPair generate() {
+				return generateKeyPair(ALGORITHM_RSA, 2048);
+			}
+
+			@Override
+			public KeyPair parse(String key) throws IOException {
+				return stringToKeyPair(key, ALGORITHM_RSA);
+			}
+
+			@Override
+			public String format(KeyPair keyPair) {
+				return keyPairToString(keyPair);
+			}
+		},
+
+		DSA(SSH_DSS, "DSA") {
+			@Override
+			public String getKey(ScmSshServerConfiguration configuration) {
+				return configuration.getDsaHostKey();
+			}
+
+			@Override
+			public void setKey(ScmSshServerConfiguration configuration,
+					String key) {
+				configuration.setDsaHostKey(key);
+			}
+
+			@Override
+			public KeyPair generate() {
+				return generateKeyPair(ALGORITHM_DSA, 1024);
+			}
+
+			@Override
+			public KeyPair parse(String key) throws IOException {
+				return stringToKeyPair(key, ALGORITHM_DSA);
+			}
+
+			@Override
+			public String format(KeyPair keyPair) {
+				return keyPairToString(keyPair);
 			}
+		};
+
+		private final String keyType;
+		private final String displayName;
+
+		private HostKeyType(String keyType, String displayName) {
+			this.keyType = keyType;
+			this.displayName = displayName;
+		}
+
+		public String getKeyType() {
+			return keyType;
+		}
+
+		public String getDisplayName() {
+			return displayName;
+		}
+
+		public boolean isSupported() {
+			return true;
 		}
+
+		public abstract String getKey(ScmSshServerConfiguration configuration);
+
+		public abstract void setKey(ScmSshServerConfiguration configuration,
+				String key);
+
+		public abstract KeyPair generate() throws GeneralSecurityException;
+
+		public abstract KeyPair parse(String key) throws IOException;
+
+		public abstract String format(KeyPair keyPair);
+
 	}
 
 }
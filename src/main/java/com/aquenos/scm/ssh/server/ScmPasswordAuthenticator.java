@@ -56,7 +56,7 @@ public class ScmPasswordAuthenticator implements PasswordAuthenticator {
 		shiroSession.setTimeout(-1L);
 		Subject subject = new Subject.Builder(securityManager)
 				.session(shiroSession)
-				.host(session.getIoSession().getRemoteAddress().toString())
+				.host(ScmSshServer.getClientAddress(session).toString())
 				.buildSubject();
 		try {
 			subject.login(new UsernamePasswordToken(username, password));
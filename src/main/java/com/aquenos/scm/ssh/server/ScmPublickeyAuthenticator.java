@@ -58,7 +58,7 @@ public class ScmPublickeyAuthenticator implements PublickeyAuthenticator {
 		shiroSession.setTimeout(-1L);
 		Subject subject = new Subject.Builder(securityManager)
 				.session(shiroSession)
-				.host(session.getIoSession().getRemoteAddress().toString())
+				.host(ScmSshServer.getClientAddress(session).toString())
 				.buildSubject();
 		try {
 			subject.login(new PublicKeyToken(username, publicKey));
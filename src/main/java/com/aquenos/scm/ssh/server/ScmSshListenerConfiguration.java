@@ -0,0 +1,419 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Configuration for an additional endpoint of the SSH server. Each listener
+ * has an acceptor of its own. By default, the sessions and connections of a
+ * listener count towards the limits specified in the
+ * {@link ScmSshServerConfiguration}, which are shared with the main listener.
+ * If the listener has its own limits, its sessions and connections are
+ * counted separately and only the limits specified here apply to them.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ScmSshListenerConfiguration implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = -4317580416962094283L;
+
+	private String name = "";
+	private String listenAddress = "";
+	private int listenPort = 0;
+	private boolean ownLimits = false;
+	private int maxSessions = 0;
+	private int maxSessionsPerAddress = 0;
+	private int maxUnauthenticatedSessions = 100;
+	private int maxSessionsPerUser = 0;
+	private int connectionRatePerAddress = 0;
+	private int connectionBurstPerAddress = 10;
+	private String networkRateLimits = "";
+	private String trustedProxies = "";
+
+	/**
+	 * Returns the name of the listener. The name is only used in log messages
+	 * and in the server status. Defaults to the empty string.
+	 * 
+	 * @return name of the listener.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of the listener.
+	 * 
+	 * @param name
+	 *            name of the listener.
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the listen address. This is the hostname or IP address that the
+	 * listener will bind to. If empty, the listener will bind to all locally
+	 * available addresses.
+	 * 
+	 * @return listen address (defaults to the empty string).
+	 */
+	public String getListenAddress() {
+		return listenAddress;
+	}
+
+	/**
+	 * Sets the listen address. This is the hostname or IP address that the
+	 * listener will bind to. If empty, the listener will bind to all locally
+	 * available addresses.
+	 * 
+	 * @param listenAddress
+	 *            listen address (IP address or hostname).
+	 */
+	public void setListenAddress(String listenAddress) {
+		this.listenAddress = listenAddress;
+	}
+
+	/**
+	 * Returns the TCP port the listener listens on.
+	 * 
+	 * @return TCP port for the listener.
+	 */
+	public int getListenPort() {
+		return listenPort;
+	}
+
+	/**
+	 * Sets the TCP port the listener listens on.
+	 * 
+	 * @param listenPort
+	 *            TCP port for the listener.
+	 */
+	public void setListenPort(int listenPort) {
+		this.listenPort = listenPort;
+	}
+
+	/**
+	 * Tells whether the listener has its own limits. If <code>false</code>,
+	 * the limit fields of this listener are ignored and the limits of the
+	 * main listener apply. Defaults to <code>false</code>.
+	 * 
+	 * @return <code>true</code> if the listener has its own limits.
+	 */
+	public boolean isOwnLimits() {
+		return ownLimits;
+	}
+
+	/**
+	 * Sets whether the listener has its own limits.
+	 * 
+	 * @param ownLimits
+	 *            <code>true</code> if the listener has its own limits,
+	 *            <code>false</code> if it shares the limits of the main
+	 *            listener.
+	 */
+	public void setOwnLimits(boolean ownLimits) {
+		this.ownLimits = ownLimits;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent sessions of this listener.
+	 * Defaults to zero, which means that the number of sessions is not
+	 * limited.
+	 * 
+	 * @return maximum number of sessions or zero.
+	 */
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent sessions of this listener.
+	 * 
+	 * @param maxSessions
+	 *            maximum number of sessions or zero.
+	 */
+	public void setMaxSessions(int maxSessions) {
+		this.maxSessions = maxSessions;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent sessions from a single source
+	 * address. Defaults to zero, which means that the number of sessions is
+	 * not limited.
+	 * 
+	 * @return maximum number of sessions per address or zero.
+	 */
+	public int getMaxSessionsPerAddress() {
+		return maxSessionsPerAddress;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent sessions from a single source
+	 * address.
+	 * 
+	 * @param maxSessionsPerAddress
+	 *            maximum number of sessions per address or zero.
+	 */
+	public void setMaxSessionsPerAddress(int maxSessionsPerAddress) {
+		this.maxSessionsPerAddress = maxSessionsPerAddress;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent sessions that have not been
+	 * authenticated yet. Defaults to 100.
+	 * 
+	 * @return maximum number of unauthenticated sessions or zero.
+	 */
+	public int getMaxUnauthenticatedSessions() {
+		return maxUnauthenticatedSessions;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent sessions that have not been
+	 * authenticated yet. If zero, the number is not limited.
+	 * 
+	 * @param maxUnauthenticatedSessions
+	 *            maximum number of unauthenticated sessions or zero.
+	 */
+	public void setMaxUnauthenticatedSessions(int maxUnauthenticatedSessions) {
+		this.maxUnauthenticatedSessions = maxUnauthenticatedSessions;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent sessions of a single user on
+	 * this listener. Defaults to zero, which means that the number of
+	 * sessions is not limited.
+	 * 
+	 * @return maximum number of sessions per user or zero.
+	 */
+	public int getMaxSessionsPerUser() {
+		return maxSessionsPerUser;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent sessions of a single user on this
+	 * listener.
+	 * 
+	 * @param maxSessionsPerUser
+	 *            maximum number of sessions per user or zero.
+	 */
+	public void setMaxSessionsPerUser(int maxSessionsPerUser) {
+		this.maxSessionsPerUser = maxSessionsPerUser;
+	}
+
+	/**
+	 * Returns the number of new connections per minute that are accepted from
+	 * a single source address. Defaults to zero, which means that the
+	 * connection rate is not limited.
+	 * 
+	 * @return connections per minute or zero.
+	 */
+	public int getConnectionRatePerAddress() {
+		return connectionRatePerAddress;
+	}
+
+	/**
+	 * Sets the number of new connections per minute that are accepted from a
+	 * single source address.
+	 * 
+	 * @param connectionRatePerAddress
+	 *            connections per minute or zero.
+	 */
+	public void setConnectionRatePerAddress(int connectionRatePerAddress) {
+		this.connectionRatePerAddress = connectionRatePerAddress;
+	}
+
+	/**
+	 * Returns the number of connections that are accepted at once from a
+	 * single source address before the connection rate limit applies.
+	 * Defaults to 10.
+	 * 
+	 * @return burst size.
+	 */
+	public int getConnectionBurstPerAddress() {
+		return connectionBurstPerAddress;
+	}
+
+	/**
+	 * Sets the number of connections that are accepted at once from a single
+	 * source address before the connection rate limit applies.
+	 * 
+	 * @param connectionBurstPerAddress
+	 *            burst size.
+	 */
+	public void setConnectionBurstPerAddress(int connectionBurstPerAddress) {
+		this.connectionBurstPerAddress = connectionBurstPerAddress;
+	}
+
+	/**
+	 * Returns the connection rate limits for networks, one limit per line in
+	 * the form "network rate burst". See
+	 * {@link ScmSshServerConfiguration#getNetworkRateLimits()} for details.
+	 * Defaults to the empty string.
+	 * 
+	 * @return connection rate limits for networks.
+	 */
+	public String getNetworkRateLimits() {
+		return networkRateLimits;
+	}
+
+	/**
+	 * Sets the connection rate limits for networks, one limit per line in the
+	 * form "network rate burst".
+	 * 
+	 * @param networkRateLimits
+	 *            connection rate limits for networks.
+	 */
+	public void setNetworkRateLimits(String networkRateLimits) {
+		this.networkRateLimits = networkRateLimits;
+	}
+
+	/**
+	 * Returns the proxies that send a PROXY protocol header at the start of
+	 * each connection to this listener. See
+	 * {@link ScmSshServerConfiguration#getTrustedProxies()} for details. In
+	 * contrast to the limits, this setting always applies to the listener.
+	 * Defaults to the empty string.
+	 * 
+	 * @return trusted proxies in CIDR notation.
+	 */
+	public String getTrustedProxies() {
+		return trustedProxies;
+	}
+
+	/**
+	 * Sets the proxies that send a PROXY protocol header at the start of each
+	 * connection to this listener.
+	 * 
+	 * @param trustedProxies
+	 *            trusted proxies in CIDR notation.
+	 */
+	public void setTrustedProxies(String trustedProxies) {
+		this.trustedProxies = trustedProxies;
+	}
+
+	@Override
+	public int hashCode() {
+		int seed = 29;
+		int hashCode = seed;
+		if (name != null) {
+			hashCode += name.hashCode();
+		}
+		hashCode *= seed;
+		if (listenAddress != null) {
+			hashCode += listenAddress.hashCode();
+		}
+		hashCode *= seed;
+		hashCode += listenPort;
+		hashCode *= seed;
+		hashCode += (ownLimits ? 1 : 0);
+		hashCode *= seed;
+		hashCode += maxSessions;
+		hashCode *= seed;
+		hashCode += maxSessionsPerAddress;
+		hashCode *= seed;
+		hashCode += maxUnauthenticatedSessions;
+		hashCode *= seed;
+		hashCode += maxSessionsPerUser;
+		hashCode *= seed;
+		hashCode += connectionRatePerAddress;
+		hashCode *= seed;
+		hashCode += connectionBurstPerAddress;
+		hashCode *= seed;
+		if (networkRateLimits != null) {
+			hashCode += networkRateLimits.hashCode();
+		}
+		hashCode *= seed;
+		if (trustedProxies != null) {
+			hashCode += trustedProxies.hashCode();
+		}
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == null) {
+			return false;
+		}
+		if (!(obj instanceof ScmSshListenerConfiguration)) {
+			return false;
+		}
+		ScmSshListenerConfiguration c = (ScmSshListenerConfiguration) obj;
+		return objectEquals(this.name, c.name)
+				&& objectEquals(this.listenAddress, c.listenAddress)
+				&& this.listenPort == c.listenPort
+				&& this.ownLimits == c.ownLimits
+				&& this.maxSessions == c.maxSessions
+				&& this.maxSessionsPerAddress == c.maxSessionsPerAddress
+				&& this.maxUnauthenticatedSessions == c.maxUnauthenticatedSessions
+				&& this.maxSessionsPerUser == c.maxSessionsPerUser
+				&& this.connectionRatePerAddress == c.connectionRatePerAddress
+				&& this.connectionBurstPerAddress == c.connectionBurstPerAddress
+				&& objectEquals(this.networkRateLimits, c.networkRateLimits)
+				&& objectEquals(this.trustedProxies, c.trustedProxies);
+	}
+
+	private static boolean objectEquals(Object o1, Object o2) {
+		if (o1 == null) {
+			return o2 == null;
+		} else {
+			return o1.equals(o2);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(ScmSshListenerConfiguration.class.getSimpleName());
+		sb.append(" { name=\"");
+		sb.append(name);
+		sb.append("\", listenAddress=\"");
+		sb.append(listenAddress);
+		sb.append("\", listenPort=");
+		sb.append(listenPort);
+		sb.append(", ownLimits=");
+		sb.append(ownLimits);
+		sb.append(", maxSessions=");
+		sb.append(maxSessions);
+		sb.append(", maxSessionsPerAddress=");
+		sb.append(maxSessionsPerAddress);
+		sb.append(", maxUnauthenticatedSessions=");
+		sb.append(maxUnauthenticatedSessions);
+		sb.append(", maxSessionsPerUser=");
+		sb.append(maxSessionsPerUser);
+		sb.append(", connectionRatePerAddress=");
+		sb.append(connectionRatePerAddress);
+		sb.append(", connectionBurstPerAddress=");
+		sb.append(connectionBurstPerAddress);
+		sb.append(", networkRateLimits=\"");
+		sb.append(networkRateLimits);
+		sb.append("\", trustedProxies=\"");
+		sb.append(trustedProxies);
+		sb.append("\" }");
+		return sb.toString();
+	}
+
+	@Override
+	protected ScmSshListenerConfiguration clone() {
+		try {
+			return (ScmSshListenerConfiguration) super.clone();
+		} catch (CloneNotSupportedException e) {
+			// We know that this class supports cloning, thus this exception
+			// should never be thrown.
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -12,22 +12,40 @@ package com.aquenos.scm.ssh.server;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.shiro.subject.Subject;
-import org.apache.sshd.SshServer;
+import org.apache.sshd.common.Compression;
 import org.apache.sshd.common.Factory;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.Session.AttributeKey;
+import org.apache.sshd.common.compression.CompressionNone;
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.CommandFactory;
 import org.apache.sshd.server.PasswordAuthenticator;
 import org.apache.sshd.server.PublickeyAuthenticator;
+import org.apache.sshd.server.ServerFactoryManager;
 import org.apache.sshd.server.session.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 /**
- * SSH server for SCM.
+ * SSH server for SCM. The server follows changes of its configuration while
+ * it is running: Listeners for new endpoints are started before listeners for
+ * endpoints that have been removed stop accepting connections, and sessions
+ * that have been established on a removed endpoint are kept open until they
+ * end. All other settings apply to new connections and commands.
  * 
  * @author Sebastian Marsching
  */
@@ -39,7 +57,41 @@ public class ScmSshServer {
 	 */
 	public final static AttributeKey<Subject> SUBJECT_SESSION_ATTRIBUTE_KEY = new AttributeKey<Subject>();
 
-	private SshServer sshServer;
+	/**
+	 * Key used for storing the address of the client in a
+	 * {@link ServerSession}. This is the address from the PROXY protocol
+	 * header for connections from a trusted proxy and the remote address of
+	 * the socket for all other connections. Use
+	 * {@link #getClientAddress(ServerSession)} to read it.
+	 */
+	public final static AttributeKey<SocketAddress> CLIENT_ADDRESS_SESSION_ATTRIBUTE_KEY = new AttributeKey<SocketAddress>();
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(ScmSshServer.class);
+
+	private final static long TIMER_TICK_MILLIS = 100L;
+	private final static int TIMER_WHEEL_SIZE = 512;
+	private final static long RETIRED_LISTENER_CHECK_MILLIS = 1000L;
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private final List<Listener> retiredListeners = new CopyOnWriteArrayList<Listener>();
+	private final List<CommandExecutor> retiredExecutors = new CopyOnWriteArrayList<CommandExecutor>();
+	private final Object lifecycleLock = new Object();
+	private boolean started;
+	private final SessionLimiter sessionLimiter = new SessionLimiter();
+	private final ConnectionRateLimiter connectionRateLimiter = new ConnectionRateLimiter();
+	private final CompressionStatistics compressionStatistics = new CompressionStatistics(
+			null);
+	private final PacketBufferPool packetBufferPool = new PacketBufferPool();
+	private final PasswordAuthenticator passwordAuthenticator;
+	private final PublickeyAuthenticator publickeyAuthenticator;
+	private final CommandFactory commandFactory;
+	private final ScmKeyPairProvider keyPairProvider;
+	private volatile ScmSshServerConfiguration configuration;
+	private volatile CommandExecutor commandExecutor;
+	private volatile CommandTimer commandTimer;
+	private final List<CommandListener> commandListeners = new CopyOnWriteArrayList<CommandListener>();
+	private final CommandInterceptor[] commandInterceptors;
 
 	/**
 	 * Constructor. Meant to be called by Guice.
@@ -54,55 +106,672 @@ public class ScmSshServer {
 	 *            store the the SSH server configuration.
 	 * @param keyPairProvider
 	 *            provider for SSH host keys.
+	 * @param commandInterceptors
+	 *            interceptors that are called for every command.
 	 */
 	@Inject
 	public ScmSshServer(PasswordAuthenticator passwordAuthenticator,
 			PublickeyAuthenticator publickeyAuthenticator,
 			CommandFactory commandFactory,
 			ScmSshServerConfigurationStore configStore,
-			ScmKeyPairProvider keyPairProvider) {
+			ScmKeyPairProvider keyPairProvider,
+			Set<CommandInterceptor> commandInterceptors) {
 		ScmSshServerConfiguration config = configStore.load();
 		if (config == null) {
 			config = new ScmSshServerConfiguration();
 		}
-		sshServer = SshServer.setUpDefaultServer();
-		String listenAddress = config.getListenAddress();
-		if (listenAddress != null && !listenAddress.trim().isEmpty()) {
-			sshServer.setHost(config.getListenAddress());
+		this.configuration = config;
+		this.commandInterceptors = commandInterceptors
+				.toArray(new CommandInterceptor[commandInterceptors.size()]);
+		this.passwordAuthenticator = passwordAuthenticator;
+		this.publickeyAuthenticator = publickeyAuthenticator;
+		this.commandFactory = new ExecutorAwareCommandFactory(commandFactory);
+		this.keyPairProvider = keyPairProvider;
+		sessionLimiter.setLimits(config.getMaxSessions(),
+				config.getMaxSessionsPerAddress(),
+				config.getMaxUnauthenticatedSessions(),
+				config.getMaxSessionsPerUser());
+		connectionRateLimiter.setLimits(config.getConnectionRatePerAddress(),
+				config.getConnectionBurstPerAddress(),
+				NetworkRateLimit.parseList(config.getNetworkRateLimits()));
+		for (ListenerSpec spec : getListenerSpecs(config)) {
+			listeners.add(createListener(config, spec));
+		}
+		configStore
+				.addConfigurationChangeListener(new ScmSshServerConfigurationStore.ConfigurationChangeListener() {
+
+					@Override
+					public void configurationChanged(
+							ScmSshServerConfiguration newConfiguration) {
+						reconfigure(newConfiguration);
+					}
+				});
+	}
+
+	/**
+	 * Returns the listeners specified by a configuration: the main listener
+	 * and the additional listeners.
+	 */
+	private static List<ListenerSpec> getListenerSpecs(
+			ScmSshServerConfiguration config) {
+		List<ListenerSpec> specs = new ArrayList<ListenerSpec>();
+		specs.add(new ListenerSpec("main", config.getListenAddress(), config
+				.getListenPort(), null));
+		for (ScmSshListenerConfiguration listenerConfig : config
+				.getListeners()) {
+			String name = listenerConfig.getName();
+			if (name == null || name.trim().isEmpty()) {
+				name = listenerConfig.getListenAddress() + ":"
+						+ listenerConfig.getListenPort();
+			}
+			specs.add(new ListenerSpec(name.trim(), listenerConfig
+					.getListenAddress(), listenerConfig.getListenPort(),
+					listenerConfig));
+		}
+		return specs;
+	}
+
+	/**
+	 * Creates the SSH server for a listener. Each listener has a server (and
+	 * thus an acceptor and I/O processors) of its own, but the servers share
+	 * the host keys, the authenticators and the command execution. Unless the
+	 * listener has its own limits, they also share the session and connection
+	 * rate limiters.
+	 */
+	private Listener createListener(ScmSshServerConfiguration config,
+			ListenerSpec spec) {
+		ManagedSshServer sshServer = ManagedSshServer.setUpManagedServer();
+		if (spec.listenAddress != null && !spec.listenAddress.trim().isEmpty()) {
+			sshServer.setHost(spec.listenAddress.trim());
 		}
-		sshServer.setPort(config.getListenPort());
+		sshServer.setPort(spec.listenPort);
+		if (config.getNioWorkers() > 0) {
+			sshServer.setNioWorkers(config.getNioWorkers());
+		}
+		sshServer.setCompressionStatistics(compressionStatistics);
+		sshServer.setPacketBufferPool(packetBufferPool);
 		sshServer.setKeyPairProvider(keyPairProvider);
 		sshServer.setPasswordAuthenticator(passwordAuthenticator);
 		sshServer.setPublickeyAuthenticator(publickeyAuthenticator);
 		sshServer.setCommandFactory(commandFactory);
 		sshServer.setShellFactory(new NoShellCommandFactory());
+		Listener listener = new Listener(spec.getEndpoint(),
+				spec.listenAddress, spec.listenPort, sshServer);
+		applySettings(listener, config, spec, null);
+		return listener;
+	}
+
+	/**
+	 * Applies the settings that can be changed while a listener is running.
+	 * They apply to connections that are accepted afterwards. Sessions that
+	 * already exist keep the limiters they have been admitted by.
+	 * 
+	 * @param oldListenerConfig
+	 *            configuration that has been applied to the listener before or
+	 *            <code>null</code> if the listener is new or had no
+	 *            configuration of its own. This is used to keep the state of
+	 *            the listener's connection rate limiter if its limits do not
+	 *            change.
+	 */
+	private void applySettings(Listener listener,
+			ScmSshServerConfiguration config, ListenerSpec spec,
+			ScmSshListenerConfiguration oldListenerConfig) {
+		ManagedSshServer sshServer = listener.server;
+		ScmSshListenerConfiguration listenerConfig = spec.configuration;
+		String trustedProxies = listenerConfig == null ? config
+				.getTrustedProxies() : listenerConfig.getTrustedProxies();
+		sshServer.setTrustedProxies(NetworkRange.parseList(trustedProxies));
+		// The factory lists are replaced while sessions may read them. The
+		// unmodifiable wrappers make sure that the sessions see complete
+		// lists.
+		sshServer.setCipherFactories(Collections
+				.unmodifiableList(SshAlgorithms.selectCiphers(config
+						.getCiphers())));
+		sshServer.setMacFactories(Collections.unmodifiableList(SshAlgorithms
+				.selectMacs(config.getMacs())));
+		sshServer.setKeyExchangeFactories(Collections
+				.unmodifiableList(SshAlgorithms.selectKeyExchanges(config
+						.getKeyExchanges())));
+		List<NamedFactory<Compression>> compressionFactories = new ArrayList<NamedFactory<Compression>>();
+		if (config.isCompressionEnabled()) {
+			if (AdaptiveCompression.isSupported()) {
+				compressionFactories.add(new AdaptiveCompression.Factory(
+						config.getCompressionLevel()));
+			} else {
+				LOGGER.warn("Compression is not supported by this Java runtime, it requires Java 7 or newer.");
+			}
+		}
+		compressionFactories.add(new CompressionNone.Factory());
+		sshServer.setCompressionFactories(Collections
+				.unmodifiableList(compressionFactories));
+		Map<String, String> properties = new HashMap<String, String>();
+		properties.put(FactoryManager.WINDOW_SIZE,
+				Integer.toString(config.getChannelWindowSize()));
+		properties.put(FactoryManager.MAX_PACKET_SIZE,
+				Integer.toString(config.getChannelMaxPacketSize()));
+		properties.put(ServerFactoryManager.MAX_AUTH_REQUESTS,
+				Integer.toString(config.getMaxAuthAttempts()));
+		properties.put(ServerFactoryManager.AUTH_TIMEOUT,
+				Long.toString(config.getAuthTimeout() * 1000L));
+		properties.put(ServerFactoryManager.IDLE_TIMEOUT,
+				Long.toString(config.getSessionIdleTimeout() * 1000L));
+		boolean ownLimits = listenerConfig != null
+				&& listenerConfig.isOwnLimits();
+		int maxSessionsPerUser;
+		if (ownLimits) {
+			boolean rateLimitsChanged = oldListenerConfig == null
+					|| !oldListenerConfig.isOwnLimits()
+					|| rateLimitsChanged(
+							oldListenerConfig.getConnectionRatePerAddress(),
+							oldListenerConfig.getConnectionBurstPerAddress(),
+							oldListenerConfig.getNetworkRateLimits(),
+							listenerConfig.getConnectionRatePerAddress(),
+							listenerConfig.getConnectionBurstPerAddress(),
+							listenerConfig.getNetworkRateLimits());
+			if (listener.ownSessionLimiter == null) {
+				// The limiters are kept when the listener temporarily uses
+				// the shared limiters, so that sessions admitted by them are
+				// still counted when the listener gets its own limits again.
+				listener.ownSessionLimiter = new SessionLimiter();
+				listener.ownConnectionRateLimiter = new ConnectionRateLimiter();
+				rateLimitsChanged = true;
+			}
+			listener.ownSessionLimiter.setLimits(
+					listenerConfig.getMaxSessions(),
+					listenerConfig.getMaxSessionsPerAddress(),
+					listenerConfig.getMaxUnauthenticatedSessions(),
+					listenerConfig.getMaxSessionsPerUser());
+			if (rateLimitsChanged) {
+				listener.ownConnectionRateLimiter.setLimits(
+						listenerConfig.getConnectionRatePerAddress(),
+						listenerConfig.getConnectionBurstPerAddress(),
+						NetworkRateLimit.parseList(listenerConfig
+								.getNetworkRateLimits()));
+			}
+			sshServer.setSessionLimiter(listener.ownSessionLimiter);
+			sshServer
+					.setConnectionRateLimiter(listener.ownConnectionRateLimiter);
+			maxSessionsPerUser = listenerConfig.getMaxSessionsPerUser();
+		} else {
+			sshServer.setSessionLimiter(sessionLimiter);
+			sshServer.setConnectionRateLimiter(connectionRateLimiter);
+			maxSessionsPerUser = config.getMaxSessionsPerUser();
+		}
+		if (maxSessionsPerUser > 0) {
+			// The check itself is done by the session, which only asks for
+			// the number of sessions of a user if this property is set.
+			properties.put(ServerFactoryManager.MAX_CONCURRENT_SESSIONS,
+					Integer.toString(maxSessionsPerUser));
+		}
+		sshServer.getProperties().putAll(properties);
+		sshServer.getProperties().keySet().retainAll(properties.keySet());
+		sshServer.setSocketOptions(config.getTcpSendBufferSize(),
+				config.getTcpReceiveBufferSize(), config.isTcpNoDelay());
+		listener.name = spec.name;
+		listener.ownLimits = ownLimits;
+		listener.configuration = listenerConfig;
+	}
+
+	private static boolean rateLimitsChanged(int oldRate, int oldBurst,
+			String oldNetworkRateLimits, int newRate, int newBurst,
+			String newNetworkRateLimits) {
+		// Changing the limits discards the token buckets, so we only do this
+		// if the limits have actually changed.
+		return oldRate != newRate
+				|| oldBurst != newBurst
+				|| !String.valueOf(oldNetworkRateLimits).equals(
+						String.valueOf(newNetworkRateLimits));
+	}
+
+	/**
+	 * Applies a changed configuration. Listeners for endpoints that have not
+	 * changed are updated in place. Listeners for new endpoints are started
+	 * first, so that clients can always connect. Only if all of them have
+	 * been started, the listeners for endpoints that have been removed stop
+	 * accepting connections. They are stopped once their last session has
+	 * ended.
+	 */
+	private void reconfigure(ScmSshServerConfiguration newConfig) {
+		synchronized (lifecycleLock) {
+			ScmSshServerConfiguration oldConfig = configuration;
+			sessionLimiter.setLimits(newConfig.getMaxSessions(),
+					newConfig.getMaxSessionsPerAddress(),
+					newConfig.getMaxUnauthenticatedSessions(),
+					newConfig.getMaxSessionsPerUser());
+			if (rateLimitsChanged(oldConfig.getConnectionRatePerAddress(),
+					oldConfig.getConnectionBurstPerAddress(),
+					oldConfig.getNetworkRateLimits(),
+					newConfig.getConnectionRatePerAddress(),
+					newConfig.getConnectionBurstPerAddress(),
+					newConfig.getNetworkRateLimits())) {
+				connectionRateLimiter.setLimits(
+						newConfig.getConnectionRatePerAddress(),
+						newConfig.getConnectionBurstPerAddress(),
+						NetworkRateLimit.parseList(newConfig
+								.getNetworkRateLimits()));
+			}
+			Map<String, Listener> oldListeners = new HashMap<String, Listener>();
+			for (Listener listener : listeners) {
+				oldListeners.put(listener.endpoint, listener);
+			}
+			List<Listener> newListeners = new ArrayList<Listener>();
+			List<Listener> addedListeners = new ArrayList<Listener>();
+			for (ListenerSpec spec : getListenerSpecs(newConfig)) {
+				Listener listener = oldListeners.remove(spec.getEndpoint());
+				if (listener != null) {
+					applySettings(listener, newConfig, spec,
+							listener.configuration);
+				} else {
+					listener = createListener(newConfig, spec);
+					addedListeners.add(listener);
+				}
+				newListeners.add(listener);
+			}
+			if (oldConfig.getNioWorkers() != newConfig.getNioWorkers()
+					&& newListeners.size() > addedListeners.size()) {
+				LOGGER.info("The number of SSH I/O threads has been changed. The new number only applies to listeners that are added. The other listeners keep their I/O threads until the server is restarted.");
+			}
+			if (started) {
+				for (Listener listener : addedListeners) {
+					try {
+						listener.server.start();
+						LOGGER.info("Started SSH listener \"" + listener.name
+								+ "\" on " + listener.endpoint + ".");
+					} catch (IOException e) {
+						LOGGER.error("Error while trying to start SSH listener \""
+								+ listener.name
+								+ "\": "
+								+ e.getMessage()
+								+ ". The listeners that have been removed from the configuration are kept until the next change.",
+								e);
+						newListeners.remove(listener);
+						newListeners.addAll(oldListeners.values());
+						oldListeners.clear();
+					}
+				}
+			}
+			listeners.clear();
+			listeners.addAll(newListeners);
+			configuration = newConfig;
+			if (started) {
+				for (Listener listener : oldListeners.values()) {
+					retire(listener);
+				}
+				if (executorSettingsChanged(oldConfig, newConfig)) {
+					CommandExecutor oldExecutor = commandExecutor;
+					commandExecutor = new CommandExecutor(newConfig);
+					// Commands that have already been queued or started by
+					// the old executor are still run.
+					oldExecutor.shutdown();
+					for (CommandExecutor executor : retiredExecutors) {
+						if (executor.getActiveCommands() == 0) {
+							retiredExecutors.remove(executor);
+						}
+					}
+					retiredExecutors.add(oldExecutor);
+				}
+			}
+		}
+	}
+
+	private static boolean executorSettingsChanged(
+			ScmSshServerConfiguration oldConfig,
+			ScmSshServerConfiguration newConfig) {
+		return oldConfig.getCommandThreadPoolCoreSize() != newConfig
+				.getCommandThreadPoolCoreSize()
+				|| oldConfig.getCommandThreadPoolMaxSize() != newConfig
+						.getCommandThreadPoolMaxSize()
+				|| oldConfig.getCommandQueueSize() != newConfig
+						.getCommandQueueSize()
+				|| oldConfig.getWriteCommandThreadPoolCoreSize() != newConfig
+						.getWriteCommandThreadPoolCoreSize()
+				|| oldConfig.getWriteCommandThreadPoolMaxSize() != newConfig
+						.getWriteCommandThreadPoolMaxSize()
+				|| oldConfig.getWriteCommandQueueSize() != newConfig
+						.getWriteCommandQueueSize()
+				|| oldConfig.getCommandRejectionPolicy() != newConfig
+						.getCommandRejectionPolicy()
+				|| oldConfig.getCommandWaitTimeout() != newConfig
+						.getCommandWaitTimeout()
+				|| oldConfig.isUseVirtualThreads() != newConfig
+						.isUseVirtualThreads();
 	}
 
 	/**
-	 * Starts the SSH server in a thread of its own.
+	 * Stops accepting connections on a listener that has been removed from
+	 * the configuration and stops it in the background once all its sessions
+	 * have ended.
+	 */
+	private void retire(final Listener listener) {
+		listener.server.stopAccepting();
+		retiredListeners.add(listener);
+		LOGGER.info("Stopped accepting connections on SSH listener \""
+				+ listener.name + "\" (" + listener.endpoint + "). "
+				+ listener.server.getConnectionCount()
+				+ " connection(s) are kept open until they end.");
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (retiredListeners.contains(listener)
+							&& listener.server.getConnectionCount() > 0) {
+						Thread.sleep(RETIRED_LISTENER_CHECK_MILLIS);
+					}
+				} catch (InterruptedException e) {
+					// We stop the listener right away.
+				}
+				stopRetiredListener(listener);
+			}
+		}, "SSH-Listener-Retirement-" + listener.endpoint);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void stopRetiredListener(Listener listener) {
+		// The listener might be stopped by this method and by stop() at the
+		// same time, but only the caller that removes it actually stops it.
+		if (retiredListeners.remove(listener)) {
+			try {
+				listener.server.stop(true);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the address of the client that opened a session. If the client
+	 * connected through a trusted proxy, this is the address the proxy
+	 * reported in the PROXY protocol header, not the address of the proxy.
+	 * 
+	 * @param session
+	 *            SSH session.
+	 * @return address of the client.
+	 */
+	public static SocketAddress getClientAddress(ServerSession session) {
+		SocketAddress clientAddress = session
+				.getAttribute(CLIENT_ADDRESS_SESSION_ATTRIBUTE_KEY);
+		if (clientAddress != null) {
+			return clientAddress;
+		} else {
+			return session.getIoSession().getRemoteAddress();
+		}
+	}
+
+	/**
+	 * Starts the SSH server in a thread of its own. If one of the listeners
+	 * cannot be started, the listeners that have already been started are
+	 * stopped again.
 	 */
 	public void start() {
-		try {
-			sshServer.start();
-		} catch (IOException e) {
-			throw new RuntimeException(
-					"Error while trying to start SSH server: " + e.getMessage(),
-					e);
+		synchronized (lifecycleLock) {
+			commandExecutor = new CommandExecutor(configuration);
+			commandTimer = new CommandTimer(TIMER_TICK_MILLIS,
+					TIMER_WHEEL_SIZE);
+			for (int i = 0; i < listeners.size(); i++) {
+				Listener listener = listeners.get(i);
+				try {
+					listener.server.start();
+				} catch (IOException e) {
+					for (Listener startedListener : listeners.subList(0, i)) {
+						try {
+							startedListener.server.stop(true);
+						} catch (InterruptedException e2) {
+							Thread.currentThread().interrupt();
+						}
+					}
+					throw new RuntimeException(
+							"Error while trying to start SSH listener \""
+									+ listener.name + "\": " + e.getMessage(),
+							e);
+				}
+			}
+			started = true;
 		}
 	}
 
 	/**
-	 * Stops the SSH server. This method will block until the SSH server has
-	 * been stopped.
+	 * Stops the SSH server. The server first stops accepting new connections
+	 * and commands and waits for running commands to finish, up to the drain
+	 * timeout specified in the configuration. Commands that are still running
+	 * after this time are aborted. This method will block until the SSH server
+	 * has been stopped.
 	 */
 	public void stop() {
-		try {
-			sshServer.stop();
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
+		synchronized (lifecycleLock) {
+			started = false;
+			CommandExecutor executor = commandExecutor;
+			try {
+				if (executor != null) {
+					drain(executor);
+				}
+				for (Listener listener : listeners) {
+					listener.server.stop();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Listener listener : listeners) {
+					try {
+						listener.server.stop(true);
+					} catch (InterruptedException e2) {
+						// We are already handling an interrupt.
+					}
+				}
+			}
+			for (Listener listener : retiredListeners) {
+				stopRetiredListener(listener);
+			}
+			if (executor != null) {
+				executor.shutdown();
+			}
+			retiredExecutors.clear();
+			CommandTimer timer = commandTimer;
+			if (timer != null) {
+				timer.stop();
+			}
 		}
 	}
 
+	private void drain(CommandExecutor executor) throws InterruptedException {
+		long drainTimeout = Math.max(0, configuration.getDrainTimeout()) * 1000L;
+		for (Listener listener : listeners) {
+			listener.server.stopAccepting();
+		}
+		// Commands that are started in existing sessions while draining are
+		// rejected by the executor.
+		executor.shutdown();
+		// Executors that have been replaced because of a configuration change
+		// might still be running commands.
+		int activeCommands = executor.getActiveCommands();
+		for (CommandExecutor retiredExecutor : retiredExecutors) {
+			activeCommands += retiredExecutor.getActiveCommands();
+		}
+		if (activeCommands == 0) {
+			return;
+		}
+		LOGGER.info("Waiting up to " + (drainTimeout / 1000L) + " seconds for "
+				+ activeCommands + " SSH command(s) to finish.");
+		long deadline = System.currentTimeMillis() + drainTimeout;
+		int remainingCommands = executor.awaitIdle(drainTimeout);
+		for (CommandExecutor retiredExecutor : retiredExecutors) {
+			remainingCommands += retiredExecutor.awaitIdle(Math.max(0L,
+					deadline - System.currentTimeMillis()));
+		}
+		LOGGER.info("SSH server drained: "
+				+ Math.max(0, activeCommands - remainingCommands)
+				+ " command(s) completed, " + remainingCommands
+				+ " command(s) aborted.");
+	}
+
+	/**
+	 * Returns a snapshot of the runtime statistics of the SSH server. If the
+	 * server has not been started yet, the returned status does not contain
+	 * any lane statistics.
+	 * 
+	 * @return current status of the SSH server.
+	 */
+	public ScmSshServerStatus getStatus() {
+		ScmSshServerStatus status = new ScmSshServerStatus();
+		CommandExecutor executor = commandExecutor;
+		if (executor != null) {
+			status.setCommandLanes(executor.getLaneStatus());
+		}
+		status.setSessions(getSessionStatus(sessionLimiter,
+				connectionRateLimiter));
+		for (Listener listener : listeners) {
+			ListenerStatus listenerStatus = new ListenerStatus();
+			listenerStatus.setName(listener.name);
+			listenerStatus.setListenAddress(listener.listenAddress);
+			listenerStatus.setListenPort(listener.listenPort);
+			if (listener.ownLimits) {
+				listenerStatus.setSessions(getSessionStatus(
+						listener.server.getSessionLimiter(),
+						listener.server.getConnectionRateLimiter()));
+			}
+			status.getListeners().add(listenerStatus);
+		}
+		status.setCompressedInputBytes(compressionStatistics
+				.getCompressedInputBytes());
+		status.setCompressedOutputBytes(compressionStatistics
+				.getCompressedOutputBytes());
+		status.setCompressionBypassedBytes(compressionStatistics
+				.getBypassedBytes());
+		status.setPacketBufferPoolHits(packetBufferPool.getHits());
+		status.setPacketBufferPoolMisses(packetBufferPool.getMisses());
+		return status;
+	}
+
+	private static SessionStatus getSessionStatus(
+			SessionLimiter sessionLimiter,
+			ConnectionRateLimiter connectionRateLimiter) {
+		SessionStatus sessionStatus = sessionLimiter.getStatus();
+		sessionStatus.setAcceptedConnections(connectionRateLimiter
+				.getAcceptedConnections());
+		sessionStatus.setRateLimitedConnections(connectionRateLimiter
+				.getRejectedConnections());
+		return sessionStatus;
+	}
+
+	/**
+	 * Registers a listener that is notified whenever a command has finished.
+	 * The listener receives the resource usage (wall-clock time, CPU time,
+	 * allocated memory and transferred bytes) of the command.
+	 * 
+	 * @param listener
+	 *            listener to be added.
+	 */
+	public void addCommandListener(CommandListener listener) {
+		commandListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener that has been registered with
+	 * {@link #addCommandListener(CommandListener)}.
+	 * 
+	 * @param listener
+	 *            listener to be removed.
+	 */
+	public void removeCommandListener(CommandListener listener) {
+		commandListeners.remove(listener);
+	}
+
+	/**
+	 * Returns the executor that currently runs the SSH commands. The executor
+	 * is replaced when the thread pool settings are changed.
+	 * 
+	 * @return current command executor or <code>null</code> if the server has
+	 *         never been started.
+	 */
+	CommandExecutor getCommandExecutor() {
+		return commandExecutor;
+	}
+
+	private Command prepareCommand(Command command, String commandLine) {
+		if (command instanceof AbstractCommand) {
+			AbstractCommand abstractCommand = (AbstractCommand) command;
+			abstractCommand.setCommandLine(commandLine);
+			abstractCommand.setCommandInterceptors(commandInterceptors);
+			abstractCommand.setServer(this);
+			abstractCommand.setCommandListeners(commandListeners);
+			abstractCommand.setCommandTimer(commandTimer,
+					Math.max(0, configuration.getCommandIdleTimeout()) * 1000L,
+					Math.max(0, configuration.getCommandMaxDuration()) * 1000L);
+		}
+		return command;
+	}
+
+	/**
+	 * Endpoint of the SSH server as specified by the configuration.
+	 */
+	private static class ListenerSpec {
+
+		private final String name;
+		private final String listenAddress;
+		private final int listenPort;
+		private final ScmSshListenerConfiguration configuration;
+
+		public ListenerSpec(String name, String listenAddress, int listenPort,
+				ScmSshListenerConfiguration configuration) {
+			this.name = name;
+			this.listenAddress = listenAddress;
+			this.listenPort = listenPort;
+			this.configuration = configuration;
+		}
+
+		public String getEndpoint() {
+			String address = listenAddress == null ? "" : listenAddress.trim();
+			return address + ":" + listenPort;
+		}
+
+	}
+
+	/**
+	 * Endpoint of the SSH server with the server instance that serves it. The
+	 * endpoint never changes, but the other settings of a listener are updated
+	 * when the configuration changes.
+	 */
+	private static class Listener {
+
+		private final String endpoint;
+		private final String listenAddress;
+		private final int listenPort;
+		private final ManagedSshServer server;
+		private volatile String name;
+		private volatile boolean ownLimits;
+		private volatile ScmSshListenerConfiguration configuration;
+		private SessionLimiter ownSessionLimiter;
+		private ConnectionRateLimiter ownConnectionRateLimiter;
+
+		public Listener(String endpoint, String listenAddress, int listenPort,
+				ManagedSshServer server) {
+			this.endpoint = endpoint;
+			this.listenAddress = listenAddress;
+			this.listenPort = listenPort;
+			this.server = server;
+		}
+
+	}
+
+	/**
+	 * Command factory that delegates to the command factory passed to the
+	 * constructor and prepares the created commands for being run by the
+	 * shared command executor.
+	 */
+	private class ExecutorAwareCommandFactory implements CommandFactory {
+
+		private CommandFactory delegate;
+
+		public ExecutorAwareCommandFactory(CommandFactory delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Command createCommand(String command) {
+			return prepareCommand(delegate.createCommand(command), command);
+		}
+
+	}
+
 	/**
 	 * Simple command factory that creates a command which signals the client
 	 * that no shell is available.
@@ -111,7 +780,12 @@ public class ScmSshServer {
 
 		@Override
 		public Command create() {
-			return new AbstractCommand() {
+			return prepareCommand(new AbstractCommand() {
+				@Override
+				protected String getCommandName() {
+					return "shell";
+				}
+
 				@Override
 				protected int run() {
 					try {
@@ -132,7 +806,7 @@ public class ScmSshServer {
 					}
 					return 1;
 				}
-			};
+			}, null);
 		}
 
 	}
@@ -10,6 +10,8 @@
 package com.aquenos.scm.ssh.server;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -30,6 +32,52 @@ public class ScmSshServerConfiguration implements Cloneable, Serializable {
 	private int listenPort = 8022;
 	private String rsaHostKey = "";
 	private String dsaHostKey = "";
+	private String ecdsaHostKey = "";
+	private String ed25519HostKey = "";
+	private int commandThreadPoolCoreSize = 8;
+	private int commandThreadPoolMaxSize = 64;
+	private int commandQueueSize = 128;
+	private CommandRejectionPolicy commandRejectionPolicy = CommandRejectionPolicy.REJECT;
+	private boolean useVirtualThreads = false;
+	private int maxCommandsPerUser = 0;
+	private int maxCommandsPerRepository = 0;
+	private int commandWaitTimeout = 60;
+	private int writeCommandThreadPoolCoreSize = 2;
+	private int writeCommandThreadPoolMaxSize = 16;
+	private int writeCommandQueueSize = 32;
+	private int drainTimeout = 30;
+	private int commandIdleTimeout = 600;
+	private int commandMaxDuration = 14400;
+	private int maxHeapUsage = 90;
+	private int maxSystemLoad = 0;
+	private int maxPackGenerations = 0;
+	private int nioWorkers = 0;
+	private int channelWindowSize = 2097152;
+	private int channelMaxPacketSize = 32768;
+	private int tcpSendBufferSize = 0;
+	private int tcpReceiveBufferSize = 0;
+	private boolean tcpNoDelay = false;
+	private String ciphers = "";
+	private String macs = "";
+	private String keyExchanges = "";
+	private boolean compressionEnabled = false;
+	private int compressionLevel = 6;
+	private int maxSessions = 0;
+	private int maxSessionsPerAddress = 0;
+	private int maxUnauthenticatedSessions = 100;
+	private int maxSessionsPerUser = 0;
+	private int maxAuthAttempts = 20;
+	private int authTimeout = 120;
+	private int sessionIdleTimeout = 600;
+	private int connectionRatePerAddress = 0;
+	private int connectionBurstPerAddress = 10;
+	private String networkRateLimits = "";
+	private List<ScmSshListenerConfiguration> listeners = new ArrayList<ScmSshListenerConfiguration>();
+	private String trustedProxies = "";
+	private boolean recordIpAddressesOnly = false;
+	private int maxBandwidthPerUser = 0;
+	private int maxBandwidthPerRepository = 0;
+	private int maxBandwidth = 0;
 
 	/**
 	 * Returns the listen address. This is the hostname or IP address that the
@@ -115,6 +163,1077 @@ public class ScmSshServerConfiguration implements Cloneable, Serializable {
 		this.dsaHostKey = dsaHostKey;
 	}
 
+	/**
+	 * Returns the ECDSA (NIST P-256) host key in PEM format. If empty, a new
+	 * key is generated in the background on server startup. Defaults to the
+	 * empty string.
+	 * 
+	 * @return ECDSA private and public key in PEM format.
+	 */
+	public String getEcdsaHostKey() {
+		return ecdsaHostKey;
+	}
+
+	/**
+	 * Sets the ECDSA (NIST P-256) host key in PEM format. If empty, a new key
+	 * is generated in the background on server startup.
+	 * 
+	 * @param ecdsaHostKey
+	 *            ECDSA private and public key in PEM format.
+	 */
+	public void setEcdsaHostKey(String ecdsaHostKey) {
+		this.ecdsaHostKey = ecdsaHostKey;
+	}
+
+	/**
+	 * Returns the Ed25519 host key in PEM format. If empty, a new key is
+	 * generated in the background on server startup, provided that the Java
+	 * runtime supports Ed25519. Defaults to the empty string.
+	 * 
+	 * @return Ed25519 private and public key in PEM format.
+	 */
+	public String getEd25519HostKey() {
+		return ed25519HostKey;
+	}
+
+	/**
+	 * Sets the Ed25519 host key in PEM format. If empty, a new key is
+	 * generated in the background on server startup, provided that the Java
+	 * runtime supports Ed25519.
+	 * 
+	 * @param ed25519HostKey
+	 *            Ed25519 private and public key in PEM format.
+	 */
+	public void setEd25519HostKey(String ed25519HostKey) {
+		this.ed25519HostKey = ed25519HostKey;
+	}
+
+	/**
+	 * Returns the number of threads that are kept in the command thread pool,
+	 * even if they are idle. This thread pool runs read commands (fetches and
+	 * clones) and all other commands that are not write commands. Defaults to
+	 * 8.
+	 * 
+	 * @return core size of the command thread pool.
+	 */
+	public int getCommandThreadPoolCoreSize() {
+		return commandThreadPoolCoreSize;
+	}
+
+	/**
+	 * Sets the number of threads that are kept in the command thread pool,
+	 * even if they are idle.
+	 * 
+	 * @param commandThreadPoolCoreSize
+	 *            core size of the command thread pool.
+	 */
+	public void setCommandThreadPoolCoreSize(int commandThreadPoolCoreSize) {
+		this.commandThreadPoolCoreSize = commandThreadPoolCoreSize;
+	}
+
+	/**
+	 * Returns the maximum number of threads in the command thread pool. Threads
+	 * beyond the core size are created when a command is started while all
+	 * threads are busy. Commands are only queued once the pool has reached its
+	 * maximum size. Defaults to 64.
+	 * 
+	 * @return maximum size of the command thread pool.
+	 */
+	public int getCommandThreadPoolMaxSize() {
+		return commandThreadPoolMaxSize;
+	}
+
+	/**
+	 * Sets the maximum number of threads in the command thread pool. Threads
+	 * beyond the core size are created when a command is started while all
+	 * threads are busy.
+	 * 
+	 * @param commandThreadPoolMaxSize
+	 *            maximum size of the command thread pool.
+	 */
+	public void setCommandThreadPoolMaxSize(int commandThreadPoolMaxSize) {
+		this.commandThreadPoolMaxSize = commandThreadPoolMaxSize;
+	}
+
+	/**
+	 * Returns the number of commands that may wait for a free thread in the
+	 * command thread pool. If zero, commands are never queued. Defaults to 128.
+	 * 
+	 * @return maximum number of queued commands.
+	 */
+	public int getCommandQueueSize() {
+		return commandQueueSize;
+	}
+
+	/**
+	 * Sets the number of commands that may wait for a free thread in the
+	 * command thread pool. If zero, commands are never queued.
+	 * 
+	 * @param commandQueueSize
+	 *            maximum number of queued commands.
+	 */
+	public void setCommandQueueSize(int commandQueueSize) {
+		this.commandQueueSize = commandQueueSize;
+	}
+
+	/**
+	 * Returns the policy applied to commands that can neither be run by the
+	 * command thread pool nor be queued. This policy is used for both the read
+	 * and the write command thread pool. Defaults to
+	 * {@link CommandRejectionPolicy#REJECT}.
+	 * 
+	 * @return policy for rejected commands.
+	 */
+	public CommandRejectionPolicy getCommandRejectionPolicy() {
+		return commandRejectionPolicy;
+	}
+
+	/**
+	 * Sets the policy applied to commands that can neither be run by the
+	 * command thread pool nor be queued.
+	 * 
+	 * @param commandRejectionPolicy
+	 *            policy for rejected commands.
+	 */
+	public void setCommandRejectionPolicy(
+			CommandRejectionPolicy commandRejectionPolicy) {
+		this.commandRejectionPolicy = commandRejectionPolicy;
+	}
+
+	/**
+	 * Tells whether commands are run in virtual threads instead of the command
+	 * thread pool. Virtual threads are only used if the Java runtime supports
+	 * them. Otherwise, the command thread pool is used even if this option is
+	 * set. Defaults to <code>false</code>.
+	 * 
+	 * @return <code>true</code> if commands shall be run in virtual threads,
+	 *         <code>false</code> if they shall be run by the command thread
+	 *         pool.
+	 */
+	public boolean isUseVirtualThreads() {
+		return useVirtualThreads;
+	}
+
+	/**
+	 * Sets whether commands are run in virtual threads instead of the command
+	 * thread pool. Virtual threads are only used if the Java runtime supports
+	 * them.
+	 * 
+	 * @param useVirtualThreads
+	 *            <code>true</code> if commands shall be run in virtual
+	 *            threads, <code>false</code> if they shall be run by the
+	 *            command thread pool.
+	 */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+	}
+
+	/**
+	 * Returns the maximum number of Git commands that may run concurrently on
+	 * behalf of a single user. Additional commands have to wait. If zero, the
+	 * number of commands per user is not limited. Defaults to zero.
+	 * 
+	 * @return maximum number of concurrent commands per user.
+	 */
+	public int getMaxCommandsPerUser() {
+		return maxCommandsPerUser;
+	}
+
+	/**
+	 * Sets the maximum number of Git commands that may run concurrently on
+	 * behalf of a single user. If zero, the number of commands per user is not
+	 * limited.
+	 * 
+	 * @param maxCommandsPerUser
+	 *            maximum number of concurrent commands per user.
+	 */
+	public void setMaxCommandsPerUser(int maxCommandsPerUser) {
+		this.maxCommandsPerUser = maxCommandsPerUser;
+	}
+
+	/**
+	 * Returns the maximum number of Git commands that may run concurrently on a
+	 * single repository. Additional commands have to wait. If zero, the number
+	 * of commands per repository is not limited. Defaults to zero.
+	 * 
+	 * @return maximum number of concurrent commands per repository.
+	 */
+	public int getMaxCommandsPerRepository() {
+		return maxCommandsPerRepository;
+	}
+
+	/**
+	 * Sets the maximum number of Git commands that may run concurrently on a
+	 * single repository. If zero, the number of commands per repository is not
+	 * limited.
+	 * 
+	 * @param maxCommandsPerRepository
+	 *            maximum number of concurrent commands per repository.
+	 */
+	public void setMaxCommandsPerRepository(int maxCommandsPerRepository) {
+		this.maxCommandsPerRepository = maxCommandsPerRepository;
+	}
+
+	/**
+	 * Returns the number of seconds a Git command waits when the limit for its
+	 * user or repository has been reached or when it has been queued because
+	 * all command threads are busy. When this time has passed, the command is
+	 * rejected and the client is asked to retry later. Defaults to 60 seconds.
+	 * 
+	 * @return maximum wait time in seconds.
+	 */
+	public int getCommandWaitTimeout() {
+		return commandWaitTimeout;
+	}
+
+	/**
+	 * Sets the number of seconds a Git command waits when the limit for its
+	 * user or repository has been reached or when all command threads are
+	 * busy. The time is counted from the moment the command is started, so
+	 * that the time spent waiting for the limit and for a thread cannot add
+	 * up to more than this timeout. If zero, a command that cannot run
+	 * immediately is rejected and commands are never queued by the command
+	 * thread pools.
+	 * 
+	 * @param commandWaitTimeout
+	 *            maximum wait time in seconds.
+	 */
+	public void setCommandWaitTimeout(int commandWaitTimeout) {
+		this.commandWaitTimeout = commandWaitTimeout;
+	}
+
+	/**
+	 * Returns the number of threads that are kept in the thread pool for write
+	 * commands (pushes), even if they are idle. Write commands have a thread
+	 * pool of their own, so that they are not delayed by a large number of
+	 * read commands. Defaults to 2.
+	 * 
+	 * @return core size of the write command thread pool.
+	 */
+	public int getWriteCommandThreadPoolCoreSize() {
+		return writeCommandThreadPoolCoreSize;
+	}
+
+	/**
+	 * Sets the number of threads that are kept in the thread pool for write
+	 * commands (pushes), even if they are idle.
+	 * 
+	 * @param writeCommandThreadPoolCoreSize
+	 *            core size of the write command thread pool.
+	 */
+	public void setWriteCommandThreadPoolCoreSize(
+			int writeCommandThreadPoolCoreSize) {
+		this.writeCommandThreadPoolCoreSize = writeCommandThreadPoolCoreSize;
+	}
+
+	/**
+	 * Returns the maximum number of threads in the thread pool for write
+	 * commands (pushes). Defaults to 16.
+	 * 
+	 * @return maximum size of the write command thread pool.
+	 */
+	public int getWriteCommandThreadPoolMaxSize() {
+		return writeCommandThreadPoolMaxSize;
+	}
+
+	/**
+	 * Sets the maximum number of threads in the thread pool for write commands
+	 * (pushes).
+	 * 
+	 * @param writeCommandThreadPoolMaxSize
+	 *            maximum size of the write command thread pool.
+	 */
+	public void setWriteCommandThreadPoolMaxSize(
+			int writeCommandThreadPoolMaxSize) {
+		this.writeCommandThreadPoolMaxSize = writeCommandThreadPoolMaxSize;
+	}
+
+	/**
+	 * Returns the number of write commands (pushes) that may wait for a free
+	 * thread in the write command thread pool. If zero, write commands are
+	 * never queued. Defaults to 32.
+	 * 
+	 * @return maximum number of queued write commands.
+	 */
+	public int getWriteCommandQueueSize() {
+		return writeCommandQueueSize;
+	}
+
+	/**
+	 * Sets the number of write commands (pushes) that may wait for a free
+	 * thread in the write command thread pool. If zero, write commands are
+	 * never queued.
+	 * 
+	 * @param writeCommandQueueSize
+	 *            maximum number of queued write commands.
+	 */
+	public void setWriteCommandQueueSize(int writeCommandQueueSize) {
+		this.writeCommandQueueSize = writeCommandQueueSize;
+	}
+
+	/**
+	 * Returns the number of seconds the server waits for running commands to
+	 * finish when it is stopped. During this time, no new connections and
+	 * commands are accepted. Commands that are still running when this time has
+	 * passed are aborted. Defaults to 30 seconds.
+	 * 
+	 * @return drain timeout in seconds.
+	 */
+	public int getDrainTimeout() {
+		return drainTimeout;
+	}
+
+	/**
+	 * Sets the number of seconds the server waits for running commands to
+	 * finish when it is stopped. If zero, running commands are aborted
+	 * immediately.
+	 * 
+	 * @param drainTimeout
+	 *            drain timeout in seconds.
+	 */
+	public void setDrainTimeout(int drainTimeout) {
+		this.drainTimeout = drainTimeout;
+	}
+
+	/**
+	 * Returns the number of seconds after which a Git command is aborted if it
+	 * has been waiting that long for the client to send or accept data. Time
+	 * the command spends computing data is not limited by this timeout.
+	 * Clients may request a different idle timeout for fetches (upload-pack).
+	 * Defaults to 600 seconds.
+	 * 
+	 * @return idle timeout in seconds.
+	 */
+	public int getCommandIdleTimeout() {
+		return commandIdleTimeout;
+	}
+
+	/**
+	 * Sets the number of seconds after which a Git command is aborted if it
+	 * has been waiting that long for the client to send or accept data. If
+	 * zero, commands are not aborted when they are idle, unless the client
+	 * requests a timeout.
+	 * 
+	 * @param commandIdleTimeout
+	 *            idle timeout in seconds.
+	 */
+	public void setCommandIdleTimeout(int commandIdleTimeout) {
+		this.commandIdleTimeout = commandIdleTimeout;
+	}
+
+	/**
+	 * Returns the maximum number of seconds a Git command may run, regardless
+	 * of whether it is sending or receiving data. Defaults to 14400 seconds
+	 * (four hours).
+	 * 
+	 * @return maximum duration in seconds.
+	 */
+	public int getCommandMaxDuration() {
+		return commandMaxDuration;
+	}
+
+	/**
+	 * Sets the maximum number of seconds a Git command may run, regardless of
+	 * whether it is sending or receiving data. If zero, there is no limit.
+	 * 
+	 * @param commandMaxDuration
+	 *            maximum duration in seconds.
+	 */
+	public void setCommandMaxDuration(int commandMaxDuration) {
+		this.commandMaxDuration = commandMaxDuration;
+	}
+
+	/**
+	 * Returns the heap occupancy after garbage collection (in percent of the
+	 * maximum heap size) above which new read commands (fetch, clone) are
+	 * rejected and the client is asked to retry later. Write commands (push)
+	 * are still accepted. Defaults to 90 percent.
+	 * 
+	 * @return heap usage watermark in percent.
+	 */
+	public int getMaxHeapUsage() {
+		return maxHeapUsage;
+	}
+
+	/**
+	 * Sets the heap occupancy after garbage collection (in percent of the
+	 * maximum heap size) above which new read commands are rejected. If zero,
+	 * the heap occupancy is not checked.
+	 * 
+	 * @param maxHeapUsage
+	 *            heap usage watermark in percent.
+	 */
+	public void setMaxHeapUsage(int maxHeapUsage) {
+		this.maxHeapUsage = maxHeapUsage;
+	}
+
+	/**
+	 * Returns the system load average (in percent of the number of available
+	 * processors) above which new read commands (fetch, clone) are rejected and
+	 * the client is asked to retry later. Write commands (push) are still
+	 * accepted. Defaults to zero, which means that the system load is not
+	 * checked.
+	 * 
+	 * @return system load watermark in percent.
+	 */
+	public int getMaxSystemLoad() {
+		return maxSystemLoad;
+	}
+
+	/**
+	 * Sets the system load average (in percent of the number of available
+	 * processors) above which new read commands are rejected. If zero, the
+	 * system load is not checked.
+	 * 
+	 * @param maxSystemLoad
+	 *            system load watermark in percent.
+	 */
+	public void setMaxSystemLoad(int maxSystemLoad) {
+		this.maxSystemLoad = maxSystemLoad;
+	}
+
+	/**
+	 * Returns the number of concurrent pack generations above which new read
+	 * commands (fetch, clone) are rejected and the client is asked to retry
+	 * later. Write commands (push) are still accepted. Defaults to zero, which
+	 * means that there is no limit.
+	 * 
+	 * @return maximum number of concurrent pack generations.
+	 */
+	public int getMaxPackGenerations() {
+		return maxPackGenerations;
+	}
+
+	/**
+	 * Sets the number of concurrent pack generations above which new read
+	 * commands are rejected. If zero, there is no limit.
+	 * 
+	 * @param maxPackGenerations
+	 *            maximum number of concurrent pack generations.
+	 */
+	public void setMaxPackGenerations(int maxPackGenerations) {
+		this.maxPackGenerations = maxPackGenerations;
+	}
+
+	/**
+	 * Returns the number of I/O worker threads used by the SSH server. These
+	 * threads handle the network I/O and the SSH protocol (encryption,
+	 * compression) for all connections, while the Git commands are run by the
+	 * command threads. Defaults to zero, which means that the number of
+	 * available processors plus one is used.
+	 * 
+	 * @return number of I/O worker threads or zero for the default.
+	 */
+	public int getNioWorkers() {
+		return nioWorkers;
+	}
+
+	/**
+	 * Sets the number of I/O worker threads used by the SSH server. If zero,
+	 * the number of available processors plus one is used.
+	 * 
+	 * @param nioWorkers
+	 *            number of I/O worker threads or zero for the default.
+	 */
+	public void setNioWorkers(int nioWorkers) {
+		this.nioWorkers = nioWorkers;
+	}
+
+	/**
+	 * Returns the size of the SSH channel window (in bytes). The window limits
+	 * the amount of data that may be in flight on a channel before the receiver
+	 * has to acknowledge it, so on links with a high latency, a small window
+	 * limits the throughput. Defaults to 2 MB.
+	 * 
+	 * @return channel window size (in bytes).
+	 */
+	public int getChannelWindowSize() {
+		return channelWindowSize;
+	}
+
+	/**
+	 * Sets the size of the SSH channel window (in bytes).
+	 * 
+	 * @param channelWindowSize
+	 *            channel window size (in bytes).
+	 */
+	public void setChannelWindowSize(int channelWindowSize) {
+		this.channelWindowSize = channelWindowSize;
+	}
+
+	/**
+	 * Returns the maximum size of a data packet sent over an SSH channel (in
+	 * bytes). Defaults to 32 KB.
+	 * 
+	 * @return maximum packet size (in bytes).
+	 */
+	public int getChannelMaxPacketSize() {
+		return channelMaxPacketSize;
+	}
+
+	/**
+	 * Sets the maximum size of a data packet sent over an SSH channel (in
+	 * bytes).
+	 * 
+	 * @param channelMaxPacketSize
+	 *            maximum packet size (in bytes).
+	 */
+	public void setChannelMaxPacketSize(int channelMaxPacketSize) {
+		this.channelMaxPacketSize = channelMaxPacketSize;
+	}
+
+	/**
+	 * Returns the size of the TCP send buffer of each connection (in bytes).
+	 * Defaults to zero, which means that the default of the operating system is
+	 * used.
+	 * 
+	 * @return TCP send buffer size (in bytes) or zero for the default.
+	 */
+	public int getTcpSendBufferSize() {
+		return tcpSendBufferSize;
+	}
+
+	/**
+	 * Sets the size of the TCP send buffer of each connection (in bytes). If
+	 * zero, the default of the operating system is used.
+	 * 
+	 * @param tcpSendBufferSize
+	 *            TCP send buffer size (in bytes) or zero for the default.
+	 */
+	public void setTcpSendBufferSize(int tcpSendBufferSize) {
+		this.tcpSendBufferSize = tcpSendBufferSize;
+	}
+
+	/**
+	 * Returns the size of the TCP receive buffer of each connection (in bytes).
+	 * Defaults to zero, which means that the default of the operating system is
+	 * used.
+	 * 
+	 * @return TCP receive buffer size (in bytes) or zero for the default.
+	 */
+	public int getTcpReceiveBufferSize() {
+		return tcpReceiveBufferSize;
+	}
+
+	/**
+	 * Sets the size of the TCP receive buffer of each connection (in bytes). If
+	 * zero, the default of the operating system is used.
+	 * 
+	 * @param tcpReceiveBufferSize
+	 *            TCP receive buffer size (in bytes) or zero for the default.
+	 */
+	public void setTcpReceiveBufferSize(int tcpReceiveBufferSize) {
+		this.tcpReceiveBufferSize = tcpReceiveBufferSize;
+	}
+
+	/**
+	 * Tells whether Nagle's algorithm is disabled (TCP_NODELAY) for the
+	 * connections. Disabling it reduces the latency of the many small packets
+	 * exchanged during the negotiation phase of a Git command. Defaults to
+	 * <code>false</code>.
+	 * 
+	 * @return <code>true</code> if Nagle's algorithm is disabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	/**
+	 * Sets whether Nagle's algorithm is disabled (TCP_NODELAY) for the
+	 * connections.
+	 * 
+	 * @param tcpNoDelay
+	 *            <code>true</code> to disable Nagle's algorithm,
+	 *            <code>false</code> to enable it.
+	 */
+	public void setTcpNoDelay(boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+	}
+
+	/**
+	 * Returns the ciphers offered to clients as a comma-separated list in order
+	 * of preference (e.g. "aes128-ctr,aes256-ctr"). Defaults to an empty
+	 * string, which means that all supported ciphers are offered in an order
+	 * determined automatically.
+	 * 
+	 * @return comma-separated list of ciphers or an empty string.
+	 */
+	public String getCiphers() {
+		return ciphers;
+	}
+
+	/**
+	 * Sets the ciphers offered to clients as a comma-separated list in order of
+	 * preference. If empty, all supported ciphers are offered in an order
+	 * determined automatically.
+	 * 
+	 * @param ciphers
+	 *            comma-separated list of ciphers or an empty string.
+	 */
+	public void setCiphers(String ciphers) {
+		this.ciphers = ciphers;
+	}
+
+	/**
+	 * Returns the message authentication codes (MACs) offered to clients as a
+	 * comma-separated list in order of preference (e.g. "hmac-sha1,hmac-md5").
+	 * Defaults to an empty string, which means that all supported MACs are
+	 * offered in an order determined automatically.
+	 * 
+	 * @return comma-separated list of MACs or an empty string.
+	 */
+	public String getMacs() {
+		return macs;
+	}
+
+	/**
+	 * Sets the message authentication codes (MACs) offered to clients as a
+	 * comma-separated list in order of preference. If empty, all supported
+	 * MACs are offered in an order determined automatically.
+	 * 
+	 * @param macs
+	 *            comma-separated list of MACs or an empty string.
+	 */
+	public void setMacs(String macs) {
+		this.macs = macs;
+	}
+
+	/**
+	 * Returns the key exchange algorithms offered to clients as a
+	 * comma-separated list in order of preference (e.g.
+	 * "diffie-hellman-group14-sha1"). Defaults to an empty string, which means
+	 * that all supported key exchange algorithms are offered in an order
+	 * determined automatically.
+	 * 
+	 * @return comma-separated list of key exchange algorithms or an empty
+	 *         string.
+	 */
+	public String getKeyExchanges() {
+		return keyExchanges;
+	}
+
+	/**
+	 * Sets the key exchange algorithms offered to clients as a comma-separated
+	 * list in order of preference. If empty, all supported key exchange
+	 * algorithms are offered in an order determined automatically.
+	 * 
+	 * @param keyExchanges
+	 *            comma-separated list of key exchange algorithms or an empty
+	 *            string.
+	 */
+	public void setKeyExchanges(String keyExchanges) {
+		this.keyExchanges = keyExchanges;
+	}
+
+	/**
+	 * Tells whether delayed zlib compression (zlib@openssh.com) is offered to
+	 * clients. The compression is bypassed while pack data, which is already
+	 * compressed, is sent. Defaults to <code>false</code>.
+	 * 
+	 * @return <code>true</code> if compression is offered,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isCompressionEnabled() {
+		return compressionEnabled;
+	}
+
+	/**
+	 * Sets whether delayed zlib compression (zlib@openssh.com) is offered to
+	 * clients. Compression is only offered if the Java runtime is Java 7 or
+	 * newer.
+	 * 
+	 * @param compressionEnabled
+	 *            <code>true</code> to offer compression, <code>false</code>
+	 *            otherwise.
+	 */
+	public void setCompressionEnabled(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+	}
+
+	/**
+	 * Returns the zlib compression level (1 to 9) used for SSH compression.
+	 * Defaults to 6.
+	 * 
+	 * @return compression level.
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Sets the zlib compression level (1 to 9) used for SSH compression.
+	 * 
+	 * @param compressionLevel
+	 *            compression level.
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent SSH sessions. Additional
+	 * connections are closed right after they have been accepted. Defaults to
+	 * zero, which means that the number of sessions is not limited.
+	 * 
+	 * @return maximum number of sessions or zero.
+	 */
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent SSH sessions. If zero, the number
+	 * of sessions is not limited.
+	 * 
+	 * @param maxSessions
+	 *            maximum number of sessions or zero.
+	 */
+	public void setMaxSessions(int maxSessions) {
+		this.maxSessions = maxSessions;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent SSH sessions from a single
+	 * source address. Defaults to zero, which means that the number of sessions
+	 * is not limited.
+	 * 
+	 * @return maximum number of sessions per address or zero.
+	 */
+	public int getMaxSessionsPerAddress() {
+		return maxSessionsPerAddress;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent SSH sessions from a single source
+	 * address. If zero, the number of sessions is not limited.
+	 * 
+	 * @param maxSessionsPerAddress
+	 *            maximum number of sessions per address or zero.
+	 */
+	public void setMaxSessionsPerAddress(int maxSessionsPerAddress) {
+		this.maxSessionsPerAddress = maxSessionsPerAddress;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent SSH sessions that have not been
+	 * authenticated yet. This limits the number of half-open sessions that port
+	 * scanners or misbehaving clients can hold. Defaults to 100. Zero means
+	 * that the number of sessions is not limited.
+	 * 
+	 * @return maximum number of unauthenticated sessions or zero.
+	 */
+	public int getMaxUnauthenticatedSessions() {
+		return maxUnauthenticatedSessions;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent SSH sessions that have not been
+	 * authenticated yet. If zero, the number of sessions is not limited.
+	 * 
+	 * @param maxUnauthenticatedSessions
+	 *            maximum number of unauthenticated sessions or zero.
+	 */
+	public void setMaxUnauthenticatedSessions(int maxUnauthenticatedSessions) {
+		this.maxUnauthenticatedSessions = maxUnauthenticatedSessions;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent SSH sessions of a single user.
+	 * Defaults to zero, which means that the number of sessions is not limited.
+	 * 
+	 * @return maximum number of sessions per user or zero.
+	 */
+	public int getMaxSessionsPerUser() {
+		return maxSessionsPerUser;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent SSH sessions of a single user. If
+	 * zero, the number of sessions is not limited.
+	 * 
+	 * @param maxSessionsPerUser
+	 *            maximum number of sessions per user or zero.
+	 */
+	public void setMaxSessionsPerUser(int maxSessionsPerUser) {
+		this.maxSessionsPerUser = maxSessionsPerUser;
+	}
+
+	/**
+	 * Returns the maximum number of authentication attempts per session. When a
+	 * client exceeds this number, the session is closed. Defaults to 20.
+	 * 
+	 * @return maximum number of authentication attempts.
+	 */
+	public int getMaxAuthAttempts() {
+		return maxAuthAttempts;
+	}
+
+	/**
+	 * Sets the maximum number of authentication attempts per session.
+	 * 
+	 * @param maxAuthAttempts
+	 *            maximum number of authentication attempts.
+	 */
+	public void setMaxAuthAttempts(int maxAuthAttempts) {
+		this.maxAuthAttempts = maxAuthAttempts;
+	}
+
+	/**
+	 * Returns the time (in seconds) a client may take to authenticate after
+	 * connecting. When this time has passed, the session is closed. Defaults to
+	 * 120 seconds.
+	 * 
+	 * @return authentication timeout (in seconds).
+	 */
+	public int getAuthTimeout() {
+		return authTimeout;
+	}
+
+	/**
+	 * Sets the time (in seconds) a client may take to authenticate after
+	 * connecting.
+	 * 
+	 * @param authTimeout
+	 *            authentication timeout (in seconds).
+	 */
+	public void setAuthTimeout(int authTimeout) {
+		this.authTimeout = authTimeout;
+	}
+
+	/**
+	 * Returns the time (in seconds) after which an authenticated session is
+	 * closed if the client has not sent any message. Defaults to 600 seconds.
+	 * Zero means that idle sessions are never closed.
+	 * 
+	 * @return session idle timeout (in seconds) or zero.
+	 */
+	public int getSessionIdleTimeout() {
+		return sessionIdleTimeout;
+	}
+
+	/**
+	 * Sets the time (in seconds) after which an authenticated session is closed
+	 * if the client has not sent any message. If zero, idle sessions are never
+	 * closed.
+	 * 
+	 * @param sessionIdleTimeout
+	 *            session idle timeout (in seconds) or zero.
+	 */
+	public void setSessionIdleTimeout(int sessionIdleTimeout) {
+		this.sessionIdleTimeout = sessionIdleTimeout;
+	}
+
+	/**
+	 * Returns the number of new connections per minute that are accepted from a
+	 * single source address in the long run. Connections exceeding this rate
+	 * are closed before the key exchange. IPv6 addresses share the limit of
+	 * their /64 network. Addresses that are part of a network listed in the
+	 * network rate limits share the limit of the network instead. Defaults to
+	 * zero, which means that the connection rate is not limited.
+	 * 
+	 * @return connections per minute or zero.
+	 */
+	public int getConnectionRatePerAddress() {
+		return connectionRatePerAddress;
+	}
+
+	/**
+	 * Sets the number of new connections per minute that are accepted from a
+	 * single source address. If zero, the connection rate is not limited.
+	 * 
+	 * @param connectionRatePerAddress
+	 *            connections per minute or zero.
+	 */
+	public void setConnectionRatePerAddress(int connectionRatePerAddress) {
+		this.connectionRatePerAddress = connectionRatePerAddress;
+	}
+
+	/**
+	 * Returns the number of connections that are accepted at once from a single
+	 * source address before the connection rate limit applies. Defaults to 10.
+	 * 
+	 * @return burst size.
+	 */
+	public int getConnectionBurstPerAddress() {
+		return connectionBurstPerAddress;
+	}
+
+	/**
+	 * Sets the number of connections that are accepted at once from a single
+	 * source address before the connection rate limit applies.
+	 * 
+	 * @param connectionBurstPerAddress
+	 *            burst size.
+	 */
+	public void setConnectionBurstPerAddress(int connectionBurstPerAddress) {
+		this.connectionBurstPerAddress = connectionBurstPerAddress;
+	}
+
+	/**
+	 * Returns the connection rate limits for networks. Each line has the form
+	 * "network rate burst", where the network is given in CIDR notation, the
+	 * rate in connections per minute and the burst in connections (e.g.
+	 * "10.1.0.0/16 600 100"). All addresses of a network share one limit. A
+	 * rate of zero exempts the network from rate limiting. Defaults to an empty
+	 * string.
+	 * 
+	 * @return connection rate limits for networks.
+	 */
+	public String getNetworkRateLimits() {
+		return networkRateLimits;
+	}
+
+	/**
+	 * Sets the connection rate limits for networks, one limit per line in the
+	 * form "network rate burst".
+	 * 
+	 * @param networkRateLimits
+	 *            connection rate limits for networks.
+	 */
+	public void setNetworkRateLimits(String networkRateLimits) {
+		this.networkRateLimits = networkRateLimits;
+	}
+
+	/**
+	 * Returns the additional listeners. Each listener is an endpoint with an
+	 * acceptor of its own, which is used in addition to the main endpoint
+	 * specified by the listen address and port. Defaults to an empty list.
+	 * 
+	 * @return additional listeners (never <code>null</code>).
+	 */
+	public List<ScmSshListenerConfiguration> getListeners() {
+		if (listeners == null) {
+			listeners = new ArrayList<ScmSshListenerConfiguration>();
+		}
+		return listeners;
+	}
+
+	/**
+	 * Sets the additional listeners.
+	 * 
+	 * @param listeners
+	 *            additional listeners.
+	 */
+	public void setListeners(List<ScmSshListenerConfiguration> listeners) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Returns the proxies that send a PROXY protocol header (version 1 or 2) at
+	 * the start of each connection to the main listener. The proxies are
+	 * specified in CIDR notation and separated by whitespace or commas. For
+	 * connections from these proxies, the client address is taken from the
+	 * header, so that limits, authentication and logging use the address of the
+	 * actual client. Connections from other addresses are handled as direct
+	 * connections. Defaults to the empty string, which means that PROXY
+	 * protocol headers are not processed.
+	 * 
+	 * @return trusted proxies in CIDR notation.
+	 */
+	public String getTrustedProxies() {
+		return trustedProxies;
+	}
+
+	/**
+	 * Sets the proxies that send a PROXY protocol header at the start of each
+	 * connection to the main listener.
+	 * 
+	 * @param trustedProxies
+	 *            trusted proxies in CIDR notation.
+	 */
+	public void setTrustedProxies(String trustedProxies) {
+		this.trustedProxies = trustedProxies;
+	}
+
+	/**
+	 * Tells whether only the IP addresses of remote hosts are recorded, e.g. in
+	 * the reflog of Git repositories. If <code>false</code>, the host names are
+	 * resolved using reverse DNS lookups, which are cached.
+	 * 
+	 * @return <code>true</code> if only IP addresses are recorded,
+	 *         <code>false</code> if host names are resolved.
+	 */
+	public boolean isRecordIpAddressesOnly() {
+		return recordIpAddressesOnly;
+	}
+
+	/**
+	 * Defines whether only the IP addresses of remote hosts are recorded
+	 * instead of their host names.
+	 * 
+	 * @param recordIpAddressesOnly
+	 *            <code>true</code> if only IP addresses shall be recorded,
+	 *            <code>false</code> if host names shall be resolved.
+	 */
+	public void setRecordIpAddressesOnly(boolean recordIpAddressesOnly) {
+		this.recordIpAddressesOnly = recordIpAddressesOnly;
+	}
+
+	/**
+	 * Returns the maximum rate at which the Git commands of a single user send
+	 * data to clients. If zero, the rate is not limited.
+	 * 
+	 * @return maximum rate in KB per second or zero if there is no limit.
+	 */
+	public int getMaxBandwidthPerUser() {
+		return maxBandwidthPerUser;
+	}
+
+	/**
+	 * Sets the maximum rate at which the Git commands of a single user send
+	 * data to clients.
+	 * 
+	 * @param maxBandwidthPerUser
+	 *            maximum rate in KB per second or zero if there is no limit.
+	 */
+	public void setMaxBandwidthPerUser(int maxBandwidthPerUser) {
+		this.maxBandwidthPerUser = maxBandwidthPerUser;
+	}
+
+	/**
+	 * Returns the maximum rate at which the Git commands operating on a single
+	 * repository send data to clients. If zero, the rate is not limited.
+	 * 
+	 * @return maximum rate in KB per second or zero if there is no limit.
+	 */
+	public int getMaxBandwidthPerRepository() {
+		return maxBandwidthPerRepository;
+	}
+
+	/**
+	 * Sets the maximum rate at which the Git commands operating on a single
+	 * repository send data to clients.
+	 * 
+	 * @param maxBandwidthPerRepository
+	 *            maximum rate in KB per second or zero if there is no limit.
+	 */
+	public void setMaxBandwidthPerRepository(int maxBandwidthPerRepository) {
+		this.maxBandwidthPerRepository = maxBandwidthPerRepository;
+	}
+
+	/**
+	 * Returns the maximum rate at which all Git commands together send data to
+	 * clients. Commands that are limited by this rate get equal shares of it.
+	 * If zero, the rate is not limited.
+	 * 
+	 * @return maximum rate in KB per second or zero if there is no limit.
+	 */
+	public int getMaxBandwidth() {
+		return maxBandwidth;
+	}
+
+	/**
+	 * Sets the maximum rate at which all Git commands together send data to
+	 * clients.
+	 * 
+	 * @param maxBandwidth
+	 *            maximum rate in KB per second or zero if there is no limit.
+	 */
+	public void setMaxBandwidth(int maxBandwidth) {
+		this.maxBandwidth = maxBandwidth;
+	}
+
 	@Override
 	public int hashCode() {
 		int seed = 23;
@@ -132,6 +1251,116 @@ public class ScmSshServerConfiguration implements Cloneable, Serializable {
 		if (dsaHostKey != null) {
 			hashCode += dsaHostKey.hashCode();
 		}
+		hashCode *= seed;
+		if (ecdsaHostKey != null) {
+			hashCode += ecdsaHostKey.hashCode();
+		}
+		hashCode *= seed;
+		if (ed25519HostKey != null) {
+			hashCode += ed25519HostKey.hashCode();
+		}
+		hashCode *= seed;
+		hashCode += commandThreadPoolCoreSize;
+		hashCode *= seed;
+		hashCode += commandThreadPoolMaxSize;
+		hashCode *= seed;
+		hashCode += commandQueueSize;
+		hashCode *= seed;
+		if (commandRejectionPolicy != null) {
+			hashCode += commandRejectionPolicy.hashCode();
+		}
+		hashCode *= seed;
+		hashCode += useVirtualThreads ? 1 : 0;
+		hashCode *= seed;
+		hashCode += maxCommandsPerUser;
+		hashCode *= seed;
+		hashCode += maxCommandsPerRepository;
+		hashCode *= seed;
+		hashCode += commandWaitTimeout;
+		hashCode *= seed;
+		hashCode += writeCommandThreadPoolCoreSize;
+		hashCode *= seed;
+		hashCode += writeCommandThreadPoolMaxSize;
+		hashCode *= seed;
+		hashCode += writeCommandQueueSize;
+		hashCode *= seed;
+		hashCode += drainTimeout;
+		hashCode *= seed;
+		hashCode += commandIdleTimeout;
+		hashCode *= seed;
+		hashCode += commandMaxDuration;
+		hashCode *= seed;
+		hashCode += maxHeapUsage;
+		hashCode *= seed;
+		hashCode += maxSystemLoad;
+		hashCode *= seed;
+		hashCode += maxPackGenerations;
+		hashCode *= seed;
+		hashCode += nioWorkers;
+		hashCode *= seed;
+		hashCode += channelWindowSize;
+		hashCode *= seed;
+		hashCode += channelMaxPacketSize;
+		hashCode *= seed;
+		hashCode += tcpSendBufferSize;
+		hashCode *= seed;
+		hashCode += tcpReceiveBufferSize;
+		hashCode *= seed;
+		hashCode += (tcpNoDelay ? 1 : 0);
+		hashCode *= seed;
+		if (ciphers != null) {
+			hashCode += ciphers.hashCode();
+		}
+		hashCode *= seed;
+		if (macs != null) {
+			hashCode += macs.hashCode();
+		}
+		hashCode *= seed;
+		if (keyExchanges != null) {
+			hashCode += keyExchanges.hashCode();
+		}
+		hashCode *= seed;
+		hashCode += (compressionEnabled ? 1 : 0);
+		hashCode *= seed;
+		hashCode += compressionLevel;
+		hashCode *= seed;
+		hashCode += maxSessions;
+		hashCode *= seed;
+		hashCode += maxSessionsPerAddress;
+		hashCode *= seed;
+		hashCode += maxUnauthenticatedSessions;
+		hashCode *= seed;
+		hashCode += maxSessionsPerUser;
+		hashCode *= seed;
+		hashCode += maxAuthAttempts;
+		hashCode *= seed;
+		hashCode += authTimeout;
+		hashCode *= seed;
+		hashCode += sessionIdleTimeout;
+		hashCode *= seed;
+		hashCode += connectionRatePerAddress;
+		hashCode *= seed;
+		hashCode += connectionBurstPerAddress;
+		hashCode *= seed;
+		if (networkRateLimits != null) {
+			hashCode += networkRateLimits.hashCode();
+		}
+		hashCode *= seed;
+		if (listeners != null) {
+			hashCode += listeners.hashCode();
+		}
+		hashCode *= seed;
+		if (trustedProxies != null) {
+			hashCode += trustedProxies.hashCode();
+		}
+		hashCode *= seed;
+		hashCode += (recordIpAddressesOnly ? 1 : 0);
+		hashCode *= seed;
+		hashCode += maxBandwidthPerUser;
+		hashCode *= seed;
+		hashCode += maxBandwidthPerRepository;
+		hashCode *= seed;
+		hashCode += maxBandwidth;
 		return hashCode;
 	}
 
@@ -147,7 +1376,54 @@ public class ScmSshServerConfiguration implements Cloneable, Serializable {
 		return objectEquals(this.listenAddress, c.listenAddress)
 				&& this.listenPort == c.listenPort
 				&& objectEquals(this.rsaHostKey, c.rsaHostKey)
-				&& objectEquals(this.dsaHostKey, c.dsaHostKey);
+				&& objectEquals(this.dsaHostKey, c.dsaHostKey)
+				&& objectEquals(this.ecdsaHostKey, c.ecdsaHostKey)
+				&& objectEquals(this.ed25519HostKey, c.ed25519HostKey)
+				&& this.commandThreadPoolCoreSize == c.commandThreadPoolCoreSize
+				&& this.commandThreadPoolMaxSize == c.commandThreadPoolMaxSize
+				&& this.commandQueueSize == c.commandQueueSize
+				&& objectEquals(this.commandRejectionPolicy,
+						c.commandRejectionPolicy)
+				&& this.useVirtualThreads == c.useVirtualThreads
+				&& this.maxCommandsPerUser == c.maxCommandsPerUser
+				&& this.maxCommandsPerRepository == c.maxCommandsPerRepository
+				&& this.commandWaitTimeout == c.commandWaitTimeout
+				&& this.writeCommandThreadPoolCoreSize == c.writeCommandThreadPoolCoreSize
+				&& this.writeCommandThreadPoolMaxSize == c.writeCommandThreadPoolMaxSize
+				&& this.writeCommandQueueSize == c.writeCommandQueueSize
+				&& this.drainTimeout == c.drainTimeout
+				&& this.commandIdleTimeout == c.commandIdleTimeout
+				&& this.commandMaxDuration == c.commandMaxDuration
+				&& this.maxHeapUsage == c.maxHeapUsage
+				&& this.maxSystemLoad == c.maxSystemLoad
+				&& this.maxPackGenerations == c.maxPackGenerations
+				&& this.nioWorkers == c.nioWorkers
+				&& this.channelWindowSize == c.channelWindowSize
+				&& this.channelMaxPacketSize == c.channelMaxPacketSize
+				&& this.tcpSendBufferSize == c.tcpSendBufferSize
+				&& this.tcpReceiveBufferSize == c.tcpReceiveBufferSize
+				&& this.tcpNoDelay == c.tcpNoDelay
+				&& objectEquals(this.ciphers, c.ciphers)
+				&& objectEquals(this.macs, c.macs)
+				&& objectEquals(this.keyExchanges, c.keyExchanges)
+				&& this.compressionEnabled == c.compressionEnabled
+				&& this.compressionLevel == c.compressionLevel
+				&& this.maxSessions == c.maxSessions
+				&& this.maxSessionsPerAddress == c.maxSessionsPerAddress
+				&& this.maxUnauthenticatedSessions == c.maxUnauthenticatedSessions
+				&& this.maxSessionsPerUser == c.maxSessionsPerUser
+				&& this.maxAuthAttempts == c.maxAuthAttempts
+				&& this.authTimeout == c.authTimeout
+				&& this.sessionIdleTimeout == c.sessionIdleTimeout
+				&& this.connectionRatePerAddress == c.connectionRatePerAddress
+				&& this.connectionBurstPerAddress == c.connectionBurstPerAddress
+				&& objectEquals(this.networkRateLimits, c.networkRateLimits)
+				&& objectEquals(this.listeners, c.listeners)
+				&& objectEquals(this.trustedProxies, c.trustedProxies)
+				&& this.recordIpAddressesOnly == c.recordIpAddressesOnly
+				&& this.maxBandwidthPerUser == c.maxBandwidthPerUser
+				&& this.maxBandwidthPerRepository == c.maxBandwidthPerRepository
+				&& this.maxBandwidth == c.maxBandwidth;
 	}
 
 	private static boolean objectEquals(Object o1, Object o2) {
@@ -174,14 +1450,120 @@ public class ScmSshServerConfiguration implements Cloneable, Serializable {
 		sb.append(rsaHostKey);
 		sb.append("\", dsaHostKey=\"");
 		sb.append(dsaHostKey);
-		sb.append("\" }");
+		sb.append("\", ecdsaHostKey=\"");
+		sb.append(ecdsaHostKey);
+		sb.append("\", ed25519HostKey=\"");
+		sb.append(ed25519HostKey);
+		sb.append("\", commandThreadPoolCoreSize=");
+		sb.append(commandThreadPoolCoreSize);
+		sb.append(", commandThreadPoolMaxSize=");
+		sb.append(commandThreadPoolMaxSize);
+		sb.append(", commandQueueSize=");
+		sb.append(commandQueueSize);
+		sb.append(", commandRejectionPolicy=");
+		sb.append(commandRejectionPolicy);
+		sb.append(", useVirtualThreads=");
+		sb.append(useVirtualThreads);
+		sb.append(", maxCommandsPerUser=");
+		sb.append(maxCommandsPerUser);
+		sb.append(", maxCommandsPerRepository=");
+		sb.append(maxCommandsPerRepository);
+		sb.append(", commandWaitTimeout=");
+		sb.append(commandWaitTimeout);
+		sb.append(", writeCommandThreadPoolCoreSize=");
+		sb.append(writeCommandThreadPoolCoreSize);
+		sb.append(", writeCommandThreadPoolMaxSize=");
+		sb.append(writeCommandThreadPoolMaxSize);
+		sb.append(", writeCommandQueueSize=");
+		sb.append(writeCommandQueueSize);
+		sb.append(", drainTimeout=");
+		sb.append(drainTimeout);
+		sb.append(", commandIdleTimeout=");
+		sb.append(commandIdleTimeout);
+		sb.append(", commandMaxDuration=");
+		sb.append(commandMaxDuration);
+		sb.append(", maxHeapUsage=");
+		sb.append(maxHeapUsage);
+		sb.append(", maxSystemLoad=");
+		sb.append(maxSystemLoad);
+		sb.append(", maxPackGenerations=");
+		sb.append(maxPackGenerations);
+		sb.append(", nioWorkers=");
+		sb.append(nioWorkers);
+		sb.append(", channelWindowSize=");
+		sb.append(channelWindowSize);
+		sb.append(", channelMaxPacketSize=");
+		sb.append(channelMaxPacketSize);
+		sb.append(", tcpSendBufferSize=");
+		sb.append(tcpSendBufferSize);
+		sb.append(", tcpReceiveBufferSize=");
+		sb.append(tcpReceiveBufferSize);
+		sb.append(", tcpNoDelay=");
+		sb.append(tcpNoDelay);
+		sb.append(", ciphers=\"");
+		sb.append(ciphers);
+		sb.append("\"");
+		sb.append(", macs=\"");
+		sb.append(macs);
+		sb.append("\"");
+		sb.append(", keyExchanges=\"");
+		sb.append(keyExchanges);
+		sb.append("\"");
+		sb.append(", compressionEnabled=");
+		sb.append(compressionEnabled);
+		sb.append(", compressionLevel=");
+		sb.append(compressionLevel);
+		sb.append(", maxSessions=");
+		sb.append(maxSessions);
+		sb.append(", maxSessionsPerAddress=");
+		sb.append(maxSessionsPerAddress);
+		sb.append(", maxUnauthenticatedSessions=");
+		sb.append(maxUnauthenticatedSessions);
+		sb.append(", maxSessionsPerUser=");
+		sb.append(maxSessionsPerUser);
+		sb.append(", maxAuthAttempts=");
+		sb.append(maxAuthAttempts);
+		sb.append(", authTimeout=");
+		sb.append(authTimeout);
+		sb.append(", sessionIdleTimeout=");
+		sb.append(sessionIdleTimeout);
+		sb.append(", connectionRatePerAddress=");
+		sb.append(connectionRatePerAddress);
+		sb.append(", connectionBurstPerAddress=");
+		sb.append(connectionBurstPerAddress);
+		sb.append(", networkRateLimits=\"");
+		sb.append(networkRateLimits);
+		sb.append("\"");
+		sb.append(", listeners=");
+		sb.append(listeners);
+		sb.append(", trustedProxies=\"");
+		sb.append(trustedProxies);
+		sb.append("\"");
+		sb.append(", recordIpAddressesOnly=");
+		sb.append(recordIpAddressesOnly);
+		sb.append(", maxBandwidthPerUser=");
+		sb.append(maxBandwidthPerUser);
+		sb.append(", maxBandwidthPerRepository=");
+		sb.append(maxBandwidthPerRepository);
+		sb.append(", maxBandwidth=");
+		sb.append(maxBandwidth);
+		sb.append(" }");
 		return sb.toString();
 	}
 
 	@Override
 	protected ScmSshServerConfiguration clone() {
 		try {
-			return (ScmSshServerConfiguration) super.clone();
+			ScmSshServerConfiguration clone = (ScmSshServerConfiguration) super
+					.clone();
+			if (listeners != null) {
+				clone.listeners = new ArrayList<ScmSshListenerConfiguration>(
+						listeners.size());
+				for (ScmSshListenerConfiguration listener : listeners) {
+					clone.listeners.add(listener.clone());
+				}
+			}
+			return clone;
 		} catch (CloneNotSupportedException e) {
 			// We know that this class supports cloning, thus this exception
 			// should never be thrown.
@@ -61,6 +61,29 @@ public class ScmSshServerConfigurationStore {
 
 	}
 
+	/**
+	 * Interface implemented by configuration updates that are applied with
+	 * {@link ScmSshServerConfigurationStore#update(ConfigurationUpdate)}.
+	 * 
+	 * @author Sebastian Marsching
+	 */
+	public static interface ConfigurationUpdate {
+
+		/**
+		 * Modifies the current configuration. This method is called while
+		 * the configuration store is locked, so it should return quickly and
+		 * must not call any methods of the configuration store.
+		 * 
+		 * @param configuration
+		 *            copy of the current configuration that can be modified.
+		 * @return <code>true</code> if the configuration has been modified
+		 *         and shall be stored, <code>false</code> if it shall be left
+		 *         unchanged.
+		 */
+		boolean apply(ScmSshServerConfiguration configuration);
+
+	}
+
 	/**
 	 * Creates a new configuration store. This object should be managed by Guice
 	 * to ensure that there is only a single shared instance.
@@ -94,18 +117,7 @@ public class ScmSshServerConfigurationStore {
 		ScmSshServerConfiguration newConfiguration;
 		synchronized (configLock) {
 			oldConfiguration = configuration;
-			if (configuration == null) {
-				if (!configurationFile.exists()) {
-					configuration = new ScmSshServerConfiguration();
-				} else {
-					doLoad();
-				}
-			} else {
-				if (configurationFile.exists()
-						&& configurationFile.lastModified() > configurationLastModified) {
-					doLoad();
-				}
-			}
+			loadIfModified();
 			newConfiguration = configuration;
 		}
 		if (oldConfiguration != null
@@ -115,6 +127,21 @@ public class ScmSshServerConfigurationStore {
 		return configuration.clone();
 	}
 
+	private void loadIfModified() {
+		if (configuration == null) {
+			if (!configurationFile.exists()) {
+				configuration = new ScmSshServerConfiguration();
+			} else {
+				doLoad();
+			}
+		} else {
+			if (configurationFile.exists()
+					&& configurationFile.lastModified() > configurationLastModified) {
+				doLoad();
+			}
+		}
+	}
+
 	private void doLoad() {
 		try {
 			long lastModified = configurationFile.lastModified();
@@ -148,33 +175,72 @@ public class ScmSshServerConfigurationStore {
 		// Make a copy of the object that has been passed in.
 		configuration = configuration.clone();
 		ScmSshServerConfiguration oldConfiguration;
-		// Create parent directory.
-		if (!configurationFile.getParentFile().exists()) {
-			configurationFile.getParentFile().mkdirs();
-		}
 		synchronized (configLock) {
 			oldConfiguration = this.configuration;
-			try {
-				Marshaller marshaller = context.createMarshaller();
-				marshaller.marshal(configuration, configurationFile);
-			} catch (JAXBException e) {
-				throw new ConfigurationException(
-						"Error while trying to store ssh-server configuration in "
-								+ configurationFile, e);
-			}
-			this.configuration = configuration;
-			// There is a slight chance of a race condition here, when the file
-			// is modified using the store method and directly on the filesystem
-			// at the same moment. However this case is very unlikely and even
-			// if it happens the only harm will be, that the changes on the
-			// filesystem will be ignored.
-			this.configurationLastModified = configurationFile.lastModified();
+			doStore(configuration);
 		}
 		if (oldConfiguration != null && !oldConfiguration.equals(configuration)) {
 			notifyListeners(configuration);
 		}
 	}
 
+	/**
+	 * Atomically updates the configuration. The current configuration is
+	 * loaded, passed to the update and stored if the update has modified it.
+	 * No other load or store operation can happen in between, so changes
+	 * that are stored concurrently are not overwritten.
+	 * 
+	 * @param update
+	 *            update that modifies the configuration.
+	 * @return <code>true</code> if the configuration has been modified and
+	 *         stored, <code>false</code> if the update left it unchanged.
+	 * @throws ConfigurationException
+	 *             if the configuration cannot be loaded or saved.
+	 */
+	public boolean update(ConfigurationUpdate update) {
+		ScmSshServerConfiguration oldConfiguration;
+		ScmSshServerConfiguration newConfiguration;
+		boolean modified;
+		synchronized (configLock) {
+			oldConfiguration = this.configuration;
+			loadIfModified();
+			ScmSshServerConfiguration updatedConfiguration = this.configuration
+					.clone();
+			modified = update.apply(updatedConfiguration);
+			if (modified) {
+				doStore(updatedConfiguration);
+			}
+			newConfiguration = this.configuration;
+		}
+		if (oldConfiguration != null
+				&& !oldConfiguration.equals(newConfiguration)) {
+			notifyListeners(newConfiguration);
+		}
+		return modified;
+	}
+
+	private void doStore(ScmSshServerConfiguration configuration) {
+		// Create parent directory.
+		if (!configurationFile.getParentFile().exists()) {
+			configurationFile.getParentFile().mkdirs();
+		}
+		try {
+			Marshaller marshaller = context.createMarshaller();
+			marshaller.marshal(configuration, configurationFile);
+		} catch (JAXBException e) {
+			throw new ConfigurationException(
+					"Error while trying to store ssh-server configuration in "
+							+ configurationFile, e);
+		}
+		this.configuration = configuration;
+		// There is a slight chance of a race condition here, when the file
+		// is modified using the store method and directly on the filesystem
+		// at the same moment. However this case is very unlikely and even
+		// if it happens the only harm will be, that the changes on the
+		// filesystem will be ignored.
+		this.configurationLastModified = configurationFile.lastModified();
+	}
+
 	private void notifyListeners(ScmSshServerConfiguration newConfiguration) {
 		synchronized (listenerLock) {
 			for (ConfigurationChangeListener listener : listeners) {
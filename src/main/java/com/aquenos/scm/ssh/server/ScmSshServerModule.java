@@ -15,6 +15,7 @@ import org.apache.sshd.server.PublickeyAuthenticator;
 
 import com.aquenos.scm.ssh.git.GitCommandFactory;
 import com.google.inject.PrivateModule;
+import com.google.inject.multibindings.Multibinder;
 
 /**
  * Internal Guice module for the SSH server. This module contains all the
@@ -31,6 +32,9 @@ public class ScmSshServerModule extends PrivateModule {
 		bind(PasswordAuthenticator.class).to(ScmPasswordAuthenticator.class);
 		bind(PublickeyAuthenticator.class).to(ScmPublickeyAuthenticator.class);
 		bind(CommandFactory.class).to(GitCommandFactory.class);
+		// Command interceptors are added to this set binder. The set is empty
+		// unless an interceptor is registered here.
+		Multibinder.newSetBinder(binder(), CommandInterceptor.class);
 		bind(ScmSshServer.class);
 		expose(ScmSshServer.class);
 		bind(ScmSshServerConfigurationStore.class);
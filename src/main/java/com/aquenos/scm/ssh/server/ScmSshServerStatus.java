@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Snapshot of the runtime statistics of the SSH server.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlRootElement(name = "scm-ssh-plugin-status")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ScmSshServerStatus implements Serializable {
+
+	private static final long serialVersionUID = 6315209542862390153L;
+
+	@XmlElement(name = "commandLane")
+	private List<CommandLaneStatus> commandLanes = new ArrayList<CommandLaneStatus>();
+	private SessionStatus sessions;
+	@XmlElement(name = "listener")
+	private List<ListenerStatus> listeners = new ArrayList<ListenerStatus>();
+	private long compressedInputBytes;
+	private long compressedOutputBytes;
+	private long compressionBypassedBytes;
+	private long packetBufferPoolHits;
+	private long packetBufferPoolMisses;
+
+	/**
+	 * Returns the statistics of the execution lanes. There is one lane for
+	 * read commands and one lane for write commands.
+	 * 
+	 * @return statistics of the execution lanes.
+	 */
+	public List<CommandLaneStatus> getCommandLanes() {
+		return commandLanes;
+	}
+
+	/**
+	 * Sets the statistics of the execution lanes.
+	 * 
+	 * @param commandLanes
+	 *            statistics of the execution lanes.
+	 */
+	public void setCommandLanes(List<CommandLaneStatus> commandLanes) {
+		this.commandLanes = commandLanes;
+	}
+
+	/**
+	 * Returns the statistics of the SSH sessions. This includes the sessions
+	 * of all listeners that do not have their own limits.
+	 * 
+	 * @return session statistics.
+	 */
+	public SessionStatus getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * Sets the statistics of the SSH sessions.
+	 * 
+	 * @param sessions
+	 *            session statistics.
+	 */
+	public void setSessions(SessionStatus sessions) {
+		this.sessions = sessions;
+	}
+
+	/**
+	 * Returns the status of the listeners. The main listener is the first
+	 * element of the list.
+	 * 
+	 * @return status of the listeners.
+	 */
+	public List<ListenerStatus> getListeners() {
+		return listeners;
+	}
+
+	/**
+	 * Sets the status of the listeners.
+	 * 
+	 * @param listeners
+	 *            status of the listeners.
+	 */
+	public void setListeners(List<ListenerStatus> listeners) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Returns the number of bytes that have been compressed by the SSH
+	 * compression since the server was started.
+	 * 
+	 * @return number of bytes before compression.
+	 */
+	public long getCompressedInputBytes() {
+		return compressedInputBytes;
+	}
+
+	/**
+	 * Sets the number of bytes that have been compressed.
+	 * 
+	 * @param compressedInputBytes
+	 *            number of bytes before compression.
+	 */
+	public void setCompressedInputBytes(long compressedInputBytes) {
+		this.compressedInputBytes = compressedInputBytes;
+	}
+
+	/**
+	 * Returns the number of bytes that the compressed data has been reduced
+	 * to. Together with {@link #getCompressedInputBytes()}, this gives the
+	 * effective compression ratio.
+	 * 
+	 * @return number of bytes after compression.
+	 */
+	public long getCompressedOutputBytes() {
+		return compressedOutputBytes;
+	}
+
+	/**
+	 * Sets the number of bytes that the compressed data has been reduced to.
+	 * 
+	 * @param compressedOutputBytes
+	 *            number of bytes after compression.
+	 */
+	public void setCompressedOutputBytes(long compressedOutputBytes) {
+		this.compressedOutputBytes = compressedOutputBytes;
+	}
+
+	/**
+	 * Returns the number of bytes that have been sent without compression in
+	 * sessions using compression, because they contained pack data.
+	 * 
+	 * @return number of uncompressed bytes.
+	 */
+	public long getCompressionBypassedBytes() {
+		return compressionBypassedBytes;
+	}
+
+	/**
+	 * Sets the number of bytes that have been sent without compression.
+	 * 
+	 * @param compressionBypassedBytes
+	 *            number of uncompressed bytes.
+	 */
+	public void setCompressionBypassedBytes(long compressionBypassedBytes) {
+		this.compressionBypassedBytes = compressionBypassedBytes;
+	}
+
+	/**
+	 * Returns the number of outgoing data packets that have been sent using
+	 * an array from the packet buffer pool since the server was started.
+	 * 
+	 * @return number of packet buffer pool hits.
+	 */
+	public long getPacketBufferPoolHits() {
+		return packetBufferPoolHits;
+	}
+
+	/**
+	 * Sets the number of outgoing data packets that have been sent using an
+	 * array from the packet buffer pool.
+	 * 
+	 * @param packetBufferPoolHits
+	 *            number of packet buffer pool hits.
+	 */
+	public void setPacketBufferPoolHits(long packetBufferPoolHits) {
+		this.packetBufferPoolHits = packetBufferPoolHits;
+	}
+
+	/**
+	 * Returns the number of outgoing data packets for which a new array had
+	 * to be allocated, because the packet buffer pool had no matching array.
+	 * 
+	 * @return number of packet buffer pool misses.
+	 */
+	public long getPacketBufferPoolMisses() {
+		return packetBufferPoolMisses;
+	}
+
+	/**
+	 * Sets the number of outgoing data packets for which a new array had to
+	 * be allocated.
+	 * 
+	 * @param packetBufferPoolMisses
+	 *            number of packet buffer pool misses.
+	 */
+	public void setPacketBufferPoolMisses(long packetBufferPoolMisses) {
+		this.packetBufferPoolMisses = packetBufferPoolMisses;
+	}
+
+}
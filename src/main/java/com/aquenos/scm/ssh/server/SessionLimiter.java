@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of concurrent SSH sessions. There are limits for the total
+ * number of sessions, the number of sessions from a single source address,
+ * the number of sessions that have not been authenticated yet and the number
+ * of sessions of a single user. A limit of zero disables the respective
+ * check. The limiter also counts rejected sessions and sessions that have
+ * been closed because of a timeout.
+ * 
+ * @author Sebastian Marsching
+ */
+class SessionLimiter {
+
+	private volatile int maxSessions;
+	private volatile int maxSessionsPerAddress;
+	private volatile int maxUnauthenticatedSessions;
+	private volatile int maxSessionsPerUser;
+
+	private final Object lock = new Object();
+	private int sessions;
+	private int unauthenticatedSessions;
+	private final Map<InetAddress, Integer> sessionsPerAddress = new HashMap<InetAddress, Integer>();
+	private final Map<String, Integer> sessionsPerUser = new HashMap<String, Integer>();
+
+	private final AtomicLong rejectedSessions = new AtomicLong();
+	private final AtomicLong rejectedSessionsPerAddress = new AtomicLong();
+	private final AtomicLong rejectedUnauthenticatedSessions = new AtomicLong();
+	private final AtomicLong rejectedSessionsPerUser = new AtomicLong();
+	private final AtomicLong authTimeouts = new AtomicLong();
+	private final AtomicLong authFailureDisconnects = new AtomicLong();
+	private final AtomicLong idleTimeouts = new AtomicLong();
+
+	/**
+	 * Sets the limits.
+	 * 
+	 * @param maxSessions
+	 *            maximum number of concurrent sessions.
+	 * @param maxSessionsPerAddress
+	 *            maximum number of concurrent sessions from a single source
+	 *            address.
+	 * @param maxUnauthenticatedSessions
+	 *            maximum number of concurrent sessions that have not been
+	 *            authenticated yet.
+	 * @param maxSessionsPerUser
+	 *            maximum number of concurrent sessions of a single user.
+	 */
+	public void setLimits(int maxSessions, int maxSessionsPerAddress,
+			int maxUnauthenticatedSessions, int maxSessionsPerUser) {
+		this.maxSessions = maxSessions;
+		this.maxSessionsPerAddress = maxSessionsPerAddress;
+		this.maxUnauthenticatedSessions = maxUnauthenticatedSessions;
+		this.maxSessionsPerUser = maxSessionsPerUser;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent sessions of a single user.
+	 * 
+	 * @return maximum number of sessions per user or zero if the number is
+	 *         not limited.
+	 */
+	public int getMaxSessionsPerUser() {
+		return maxSessionsPerUser;
+	}
+
+	/**
+	 * Registers a new session. If this method returns <code>true</code>,
+	 * {@link #sessionClosed(InetAddress, String)} must be called when the
+	 * session is closed.
+	 * 
+	 * @param address
+	 *            source address of the session (may be <code>null</code>).
+	 * @return <code>true</code> if the session is admitted,
+	 *         <code>false</code> if it must be closed because a limit has
+	 *         been reached.
+	 */
+	public boolean sessionCreated(InetAddress address) {
+		int maxSessions = this.maxSessions;
+		int maxSessionsPerAddress = this.maxSessionsPerAddress;
+		int maxUnauthenticatedSessions = this.maxUnauthenticatedSessions;
+		synchronized (lock) {
+			if (maxSessions > 0 && sessions >= maxSessions) {
+				rejectedSessions.incrementAndGet();
+				return false;
+			}
+			if (maxUnauthenticatedSessions > 0
+					&& unauthenticatedSessions >= maxUnauthenticatedSessions) {
+				rejectedUnauthenticatedSessions.incrementAndGet();
+				return false;
+			}
+			if (address != null) {
+				Integer count = sessionsPerAddress.get(address);
+				if (count == null) {
+					count = 0;
+				}
+				if (maxSessionsPerAddress > 0 && count >= maxSessionsPerAddress) {
+					rejectedSessionsPerAddress.incrementAndGet();
+					return false;
+				}
+				sessionsPerAddress.put(address, count + 1);
+			}
+			sessions++;
+			unauthenticatedSessions++;
+			return true;
+		}
+	}
+
+	/**
+	 * Records that an admitted session has been authenticated.
+	 * 
+	 * @param username
+	 *            name of the authenticated user.
+	 */
+	public void sessionAuthenticated(String username) {
+		synchronized (lock) {
+			unauthenticatedSessions--;
+			Integer count = sessionsPerUser.get(username);
+			sessionsPerUser.put(username, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * Records that an admitted session has been closed.
+	 * 
+	 * @param address
+	 *            source address of the session (may be <code>null</code>).
+	 * @param username
+	 *            name of the authenticated user or <code>null</code> if the
+	 *            session has not been authenticated.
+	 */
+	public void sessionClosed(InetAddress address, String username) {
+		synchronized (lock) {
+			sessions--;
+			if (username == null) {
+				unauthenticatedSessions--;
+			} else {
+				decrement(sessionsPerUser, username);
+			}
+			if (address != null) {
+				decrement(sessionsPerAddress, address);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a user has reached the maximum number of sessions. This
+	 * method is called while a session is being authenticated, so the session
+	 * itself is not counted yet.
+	 * 
+	 * @param username
+	 *            name of the user.
+	 * @return number of authenticated sessions of the user.
+	 */
+	public int getSessionCountForUser(String username) {
+		int maxSessionsPerUser = this.maxSessionsPerUser;
+		synchronized (lock) {
+			Integer count = sessionsPerUser.get(username);
+			int sessionCount = count == null ? 0 : count;
+			if (maxSessionsPerUser > 0 && sessionCount >= maxSessionsPerUser) {
+				rejectedSessionsPerUser.incrementAndGet();
+			}
+			return sessionCount;
+		}
+	}
+
+	/**
+	 * Records that a session has been closed because the client did not
+	 * authenticate within the authentication timeout.
+	 */
+	public void authTimeout() {
+		authTimeouts.incrementAndGet();
+	}
+
+	/**
+	 * Records that a session has been closed because the client exceeded the
+	 * maximum number of authentication attempts.
+	 */
+	public void authFailureDisconnect() {
+		authFailureDisconnects.incrementAndGet();
+	}
+
+	/**
+	 * Records that a session has been closed because it was idle for longer
+	 * than the idle timeout.
+	 */
+	public void idleTimeout() {
+		idleTimeouts.incrementAndGet();
+	}
+
+	/**
+	 * Returns a snapshot of the counters.
+	 * 
+	 * @return session statistics.
+	 */
+	public SessionStatus getStatus() {
+		SessionStatus status = new SessionStatus();
+		synchronized (lock) {
+			status.setActiveSessions(sessions);
+			status.setUnauthenticatedSessions(unauthenticatedSessions);
+		}
+		status.setRejectedSessions(rejectedSessions.get());
+		status.setRejectedSessionsPerAddress(rejectedSessionsPerAddress.get());
+		status.setRejectedUnauthenticatedSessions(rejectedUnauthenticatedSessions
+				.get());
+		status.setRejectedSessionsPerUser(rejectedSessionsPerUser.get());
+		status.setAuthTimeouts(authTimeouts.get());
+		status.setAuthFailureDisconnects(authFailureDisconnects.get());
+		status.setIdleTimeouts(idleTimeouts.get());
+		return status;
+	}
+
+	private static <K> void decrement(Map<K, Integer> counts, K key) {
+		Integer count = counts.get(key);
+		if (count == null || count <= 1) {
+			counts.remove(key);
+		} else {
+			counts.put(key, count - 1);
+		}
+	}
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Statistics about the SSH sessions of the server, including the number of
+ * sessions that have been rejected or closed because of a limit or timeout.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class SessionStatus implements Serializable {
+
+	private static final long serialVersionUID = -5524716420319734102L;
+
+	private int activeSessions;
+	private int unauthenticatedSessions;
+	private long rejectedSessions;
+	private long rejectedSessionsPerAddress;
+	private long rejectedUnauthenticatedSessions;
+	private long rejectedSessionsPerUser;
+	private long authTimeouts;
+	private long authFailureDisconnects;
+	private long idleTimeouts;
+	private long acceptedConnections;
+	private long rateLimitedConnections;
+
+	/**
+	 * Returns the number of open sessions.
+	 * 
+	 * @return number of open sessions.
+	 */
+	public int getActiveSessions() {
+		return activeSessions;
+	}
+
+	/**
+	 * Sets the number of open sessions.
+	 * 
+	 * @param activeSessions
+	 *            number of open sessions.
+	 */
+	public void setActiveSessions(int activeSessions) {
+		this.activeSessions = activeSessions;
+	}
+
+	/**
+	 * Returns the number of open sessions that have not been authenticated yet.
+	 * 
+	 * @return number of unauthenticated sessions.
+	 */
+	public int getUnauthenticatedSessions() {
+		return unauthenticatedSessions;
+	}
+
+	/**
+	 * Sets the number of open sessions that have not been authenticated yet.
+	 * 
+	 * @param unauthenticatedSessions
+	 *            number of unauthenticated sessions.
+	 */
+	public void setUnauthenticatedSessions(int unauthenticatedSessions) {
+		this.unauthenticatedSessions = unauthenticatedSessions;
+	}
+
+	/**
+	 * Returns the number of sessions that have been rejected because the
+	 * maximum number of sessions was reached.
+	 * 
+	 * @return number of rejected sessions.
+	 */
+	public long getRejectedSessions() {
+		return rejectedSessions;
+	}
+
+	/**
+	 * Sets the number of sessions that have been rejected because the maximum
+	 * number of sessions was reached.
+	 * 
+	 * @param rejectedSessions
+	 *            number of rejected sessions.
+	 */
+	public void setRejectedSessions(long rejectedSessions) {
+		this.rejectedSessions = rejectedSessions;
+	}
+
+	/**
+	 * Returns the number of sessions that have been rejected because the
+	 * maximum number of sessions from the source address was reached.
+	 * 
+	 * @return number of rejected sessions.
+	 */
+	public long getRejectedSessionsPerAddress() {
+		return rejectedSessionsPerAddress;
+	}
+
+	/**
+	 * Sets the number of sessions that have been rejected because the maximum
+	 * number of sessions from the source address was reached.
+	 * 
+	 * @param rejectedSessionsPerAddress
+	 *            number of rejected sessions.
+	 */
+	public void setRejectedSessionsPerAddress(long rejectedSessionsPerAddress) {
+		this.rejectedSessionsPerAddress = rejectedSessionsPerAddress;
+	}
+
+	/**
+	 * Returns the number of sessions that have been rejected because the
+	 * maximum number of unauthenticated sessions was reached.
+	 * 
+	 * @return number of rejected sessions.
+	 */
+	public long getRejectedUnauthenticatedSessions() {
+		return rejectedUnauthenticatedSessions;
+	}
+
+	/**
+	 * Sets the number of sessions that have been rejected because the maximum
+	 * number of unauthenticated sessions was reached.
+	 * 
+	 * @param rejectedUnauthenticatedSessions
+	 *            number of rejected sessions.
+	 */
+	public void setRejectedUnauthenticatedSessions(
+			long rejectedUnauthenticatedSessions) {
+		this.rejectedUnauthenticatedSessions = rejectedUnauthenticatedSessions;
+	}
+
+	/**
+	 * Returns the number of sessions that have been rejected because the
+	 * maximum number of sessions of the user was reached.
+	 * 
+	 * @return number of rejected sessions.
+	 */
+	public long getRejectedSessionsPerUser() {
+		return rejectedSessionsPerUser;
+	}
+
+	/**
+	 * Sets the number of sessions that have been rejected because the maximum
+	 * number of sessions of the user was reached.
+	 * 
+	 * @param rejectedSessionsPerUser
+	 *            number of rejected sessions.
+	 */
+	public void setRejectedSessionsPerUser(long rejectedSessionsPerUser) {
+		this.rejectedSessionsPerUser = rejectedSessionsPerUser;
+	}
+
+	/**
+	 * Returns the number of sessions that have been closed because the client
+	 * did not authenticate in time.
+	 * 
+	 * @return number of authentication timeouts.
+	 */
+	public long getAuthTimeouts() {
+		return authTimeouts;
+	}
+
+	/**
+	 * Sets the number of sessions that have been closed because the client did
+	 * not authenticate in time.
+	 * 
+	 * @param authTimeouts
+	 *            number of authentication timeouts.
+	 */
+	public void setAuthTimeouts(long authTimeouts) {
+		this.authTimeouts = authTimeouts;
+	}
+
+	/**
+	 * Returns the number of sessions that have been closed because the client
+	 * exceeded the maximum number of authentication attempts.
+	 * 
+	 * @return number of sessions closed after failed authentication attempts.
+	 */
+	public long getAuthFailureDisconnects() {
+		return authFailureDisconnects;
+	}
+
+	/**
+	 * Sets the number of sessions that have been closed because the client
+	 * exceeded the maximum number of authentication attempts.
+	 * 
+	 * @param authFailureDisconnects
+	 *            number of sessions closed after failed authentication attempts.
+	 */
+	public void setAuthFailureDisconnects(long authFailureDisconnects) {
+		this.authFailureDisconnects = authFailureDisconnects;
+	}
+
+	/**
+	 * Returns the number of sessions that have been closed because they were
+	 * idle for too long.
+	 * 
+	 * @return number of idle timeouts.
+	 */
+	public long getIdleTimeouts() {
+		return idleTimeouts;
+	}
+
+	/**
+	 * Sets the number of sessions that have been closed because they were idle
+	 * for too long.
+	 * 
+	 * @param idleTimeouts
+	 *            number of idle timeouts.
+	 */
+	public void setIdleTimeouts(long idleTimeouts) {
+		this.idleTimeouts = idleTimeouts;
+	}
+
+	/**
+	 * Returns the number of connections that have passed the connection rate
+	 * limit.
+	 * 
+	 * @return number of accepted connections.
+	 */
+	public long getAcceptedConnections() {
+		return acceptedConnections;
+	}
+
+	/**
+	 * Sets the number of connections that have passed the connection rate
+	 * limit.
+	 * 
+	 * @param acceptedConnections
+	 *            number of accepted connections.
+	 */
+	public void setAcceptedConnections(long acceptedConnections) {
+		this.acceptedConnections = acceptedConnections;
+	}
+
+	/**
+	 * Returns the number of connections that have been closed because they
+	 * exceeded the connection rate limit.
+	 * 
+	 * @return number of rate-limited connections.
+	 */
+	public long getRateLimitedConnections() {
+		return rateLimitedConnections;
+	}
+
+	/**
+	 * Sets the number of connections that have been closed because they
+	 * exceeded the connection rate limit.
+	 * 
+	 * @param rateLimitedConnections
+	 *            number of rate-limited connections.
+	 */
+	public void setRateLimitedConnections(long rateLimitedConnections) {
+		this.rateLimitedConnections = rateLimitedConnections;
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SignatureException;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.Signature;
+import org.apache.sshd.common.util.Buffer;
+
+/**
+ * Signature algorithm <code>ecdsa-sha2-nistp256</code> (RFC 5656). The JCE
+ * creates and expects DER encoded signatures, while the SSH protocol uses
+ * the two integers of the signature encoded as multiple precision integers,
+ * so this class converts between these formats.
+ * 
+ * @author Sebastian Marsching
+ */
+class SignatureECDSA implements Signature {
+
+	private final static String ALGORITHM = "SHA256withECDSA";
+	private final static int DER_SEQUENCE = 0x30;
+	private final static int DER_INTEGER = 0x02;
+
+	private java.security.Signature signature;
+
+	@Override
+	public void init(PublicKey publicKey, PrivateKey privateKey)
+			throws Exception {
+		signature = java.security.Signature.getInstance(ALGORITHM);
+		if (privateKey != null) {
+			signature.initSign(privateKey);
+		} else {
+			signature.initVerify(publicKey);
+		}
+	}
+
+	@Override
+	public void update(byte[] data, int offset, int length) throws Exception {
+		signature.update(data, offset, length);
+	}
+
+	@Override
+	public byte[] sign() throws Exception {
+		byte[] der = signature.sign();
+		// SEQUENCE { INTEGER r, INTEGER s }
+		int[] position = { 0 };
+		readHeader(der, position, DER_SEQUENCE);
+		BigInteger r = new BigInteger(readValue(der, position, DER_INTEGER));
+		BigInteger s = new BigInteger(readValue(der, position, DER_INTEGER));
+		Buffer buffer = new Buffer();
+		buffer.putMPInt(r);
+		buffer.putMPInt(s);
+		return buffer.getCompactData();
+	}
+
+	@Override
+	public boolean verify(byte[] sig) throws Exception {
+		Buffer buffer = new Buffer(sig);
+		byte[] r = buffer.getMPInt().toByteArray();
+		byte[] s = buffer.getMPInt().toByteArray();
+		// The integers of a P-256 signature are short enough for the short
+		// form of the DER length.
+		int length = 4 + r.length + s.length;
+		if (length > 127) {
+			return false;
+		}
+		byte[] der = new byte[2 + length];
+		der[0] = DER_SEQUENCE;
+		der[1] = (byte) length;
+		der[2] = DER_INTEGER;
+		der[3] = (byte) r.length;
+		System.arraycopy(r, 0, der, 4, r.length);
+		der[4 + r.length] = DER_INTEGER;
+		der[5 + r.length] = (byte) s.length;
+		System.arraycopy(s, 0, der, 6 + r.length, s.length);
+		return signature.verify(der);
+	}
+
+	private static int readHeader(byte[] der, int[] position, int expectedTag)
+			throws SignatureException {
+		if (position[0] + 2 > der.length
+				|| (der[position[0]] & 0xff) != expectedTag) {
+			throw new SignatureException("Invalid DER encoded signature.");
+		}
+		int length = der[position[0] + 1] & 0xff;
+		position[0] += 2;
+		if ((length & 0x80) != 0) {
+			// Long form: the lower bits specify the number of length bytes.
+			int lengthBytes = length & 0x7f;
+			if (lengthBytes == 0 || lengthBytes > 2
+					|| position[0] + lengthBytes > der.length) {
+				throw new SignatureException("Invalid DER encoded signature.");
+			}
+			length = 0;
+			for (int i = 0; i < lengthBytes; i++) {
+				length = (length << 8) | (der[position[0]++] & 0xff);
+			}
+		}
+		if (position[0] + length > der.length) {
+			throw new SignatureException("Invalid DER encoded signature.");
+		}
+		return length;
+	}
+
+	private static byte[] readValue(byte[] der, int[] position,
+			int expectedTag) throws SignatureException {
+		int length = readHeader(der, position, expectedTag);
+		byte[] value = new byte[length];
+		System.arraycopy(der, position[0], value, 0, length);
+		position[0] += length;
+		return value;
+	}
+
+	/**
+	 * Factory for {@link SignatureECDSA}.
+	 * 
+	 * @author Sebastian Marsching
+	 */
+	public static class Factory implements NamedFactory<Signature> {
+
+		@Override
+		public String getName() {
+			return PublicKeyEncoding.SSH_ECDSA_NISTP256;
+		}
+
+		@Override
+		public Signature create() {
+			return new SignatureECDSA();
+		}
+
+	}
+
+}
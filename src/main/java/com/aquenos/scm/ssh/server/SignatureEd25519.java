@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.Signature;
+
+/**
+ * Signature algorithm <code>ssh-ed25519</code> (RFC 8709). The JCE and the SSH
+ * protocol use the same encoding for Ed25519 signatures, so the signature is
+ * passed on unchanged. Ed25519 is only supported by Java 15 and newer, so
+ * {@link #isSupported()} has to be checked before using this algorithm.
+ * 
+ * @author Sebastian Marsching
+ */
+class SignatureEd25519 implements Signature {
+
+	private final static String ALGORITHM = "Ed25519";
+
+	private java.security.Signature signature;
+
+	/**
+	 * Tells whether the Java runtime supports Ed25519 signatures.
+	 * 
+	 * @return <code>true</code> if Ed25519 is supported, <code>false</code>
+	 *         otherwise.
+	 */
+	public static boolean isSupported() {
+		try {
+			java.security.Signature.getInstance(ALGORITHM);
+			return true;
+		} catch (NoSuchAlgorithmException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void init(PublicKey publicKey, PrivateKey privateKey)
+			throws Exception {
+		signature = java.security.Signature.getInstance(ALGORITHM);
+		if (privateKey != null) {
+			signature.initSign(privateKey);
+		} else {
+			signature.initVerify(publicKey);
+		}
+	}
+
+	@Override
+	public void update(byte[] data, int offset, int length) throws Exception {
+		signature.update(data, offset, length);
+	}
+
+	@Override
+	public byte[] sign() throws Exception {
+		return signature.sign();
+	}
+
+	@Override
+	public boolean verify(byte[] sig) throws Exception {
+		return signature.verify(sig);
+	}
+
+	/**
+	 * Factory for {@link SignatureEd25519}.
+	 * 
+	 * @author Sebastian Marsching
+	 */
+	public static class Factory implements NamedFactory<Signature> {
+
+		@Override
+		public String getName() {
+			return PublicKeyEncoding.SSH_ED25519;
+		}
+
+		@Override
+		public Signature create() {
+			return new SignatureEd25519();
+		}
+
+	}
+
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sshd.SshServer;
+import org.apache.sshd.common.Cipher;
+import org.apache.sshd.common.KeyExchange;
+import org.apache.sshd.common.Mac;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.Signature;
+import org.apache.sshd.common.kex.DHGroupData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the ciphers, message authentication codes (MACs) and key exchange
+ * algorithms offered by the SSH server. An administrator can specify an
+ * ordered list of algorithms for each category. If no list is specified, the
+ * ciphers and MACs are ordered by their throughput measured on this host, so
+ * that clients supporting several algorithms pick the one that causes the
+ * least CPU load during large transfers. Ciphers that are not based on AES and
+ * truncated MACs are always placed after the other ones.
+ * 
+ * @author Sebastian Marsching
+ */
+public final class SshAlgorithms {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(SshAlgorithms.class);
+
+	private final static int BENCHMARK_CHUNK_SIZE = 32768;
+	private final static int BENCHMARK_WARMUP_BYTES = 1048576;
+	private final static int BENCHMARK_BYTES = 4194304;
+
+	private final static List<NamedFactory<Cipher>> SUPPORTED_CIPHERS;
+	private final static List<NamedFactory<Mac>> SUPPORTED_MACS;
+	private final static List<NamedFactory<KeyExchange>> SUPPORTED_KEY_EXCHANGES;
+	private final static List<NamedFactory<Signature>> SUPPORTED_SIGNATURES;
+
+	private static List<NamedFactory<Cipher>> orderedCiphers;
+	private static List<NamedFactory<Mac>> orderedMacs;
+
+	static {
+		// The default server only contains the algorithms that are
+		// supported by the JCE provider of this JVM.
+		SshServer defaults = SshServer.setUpDefaultServer();
+		SUPPORTED_CIPHERS = Collections.unmodifiableList(defaults
+				.getCipherFactories());
+		SUPPORTED_MACS = Collections.unmodifiableList(defaults
+				.getMacFactories());
+		// The key exchanges of the SSH library can only send RSA and DSA host
+		// keys, so we replace them with our own implementation.
+		List<NamedFactory<KeyExchange>> keyExchanges = new ArrayList<NamedFactory<KeyExchange>>();
+		for (NamedFactory<KeyExchange> factory : defaults
+				.getKeyExchangeFactories()) {
+			if (factory.getName().equals("diffie-hellman-group14-sha1")) {
+				keyExchanges.add(new DHGroupServer.Factory(factory.getName(),
+						DHGroupData.getP14()));
+			} else if (factory.getName().equals("diffie-hellman-group1-sha1")) {
+				keyExchanges.add(new DHGroupServer.Factory(factory.getName(),
+						DHGroupData.getP1()));
+			} else {
+				keyExchanges.add(factory);
+			}
+		}
+		SUPPORTED_KEY_EXCHANGES = Collections.unmodifiableList(keyExchanges);
+		List<NamedFactory<Signature>> signatures = new ArrayList<NamedFactory<Signature>>();
+		if (SignatureEd25519.isSupported()) {
+			signatures.add(new SignatureEd25519.Factory());
+		}
+		signatures.add(new SignatureECDSA.Factory());
+		signatures.addAll(defaults.getSignatureFactories());
+		SUPPORTED_SIGNATURES = Collections.unmodifiableList(signatures);
+	}
+
+	private SshAlgorithms() {
+	}
+
+	/**
+	 * Returns the names of the ciphers supported by the SSH server.
+	 * 
+	 * @return names of the supported ciphers.
+	 */
+	public static List<String> getSupportedCiphers() {
+		return getNames(SUPPORTED_CIPHERS);
+	}
+
+	/**
+	 * Returns the names of the MACs supported by the SSH server.
+	 * 
+	 * @return names of the supported MACs.
+	 */
+	public static List<String> getSupportedMacs() {
+		return getNames(SUPPORTED_MACS);
+	}
+
+	/**
+	 * Returns the names of the key exchange algorithms supported by the SSH
+	 * server.
+	 * 
+	 * @return names of the supported key exchange algorithms.
+	 */
+	public static List<String> getSupportedKeyExchanges() {
+		return getNames(SUPPORTED_KEY_EXCHANGES);
+	}
+
+	/**
+	 * Checks an algorithm list specified by the user. A list is valid if it
+	 * is empty or if it only contains supported algorithm names.
+	 * 
+	 * @param list
+	 *            comma-separated list of algorithm names (may be
+	 *            <code>null</code>).
+	 * @param supportedNames
+	 *            names of the supported algorithms.
+	 * @return <code>true</code> if the list is valid, <code>false</code>
+	 *         otherwise.
+	 */
+	public static boolean isValidList(String list, List<String> supportedNames) {
+		for (String name : parseList(list)) {
+			if (!supportedNames.contains(name)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the cipher factories for the specified list. If the list is
+	 * empty, all supported ciphers are returned, ordered by their throughput.
+	 * 
+	 * @param list
+	 *            comma-separated list of cipher names (may be
+	 *            <code>null</code>).
+	 * @return cipher factories in order of preference.
+	 */
+	static List<NamedFactory<Cipher>> selectCiphers(String list) {
+		if (parseList(list).isEmpty()) {
+			return getOrderedCiphers();
+		}
+		return select(SUPPORTED_CIPHERS, list);
+	}
+
+	/**
+	 * Returns the MAC factories for the specified list. If the list is empty,
+	 * all supported MACs are returned, ordered by their throughput.
+	 * 
+	 * @param list
+	 *            comma-separated list of MAC names (may be <code>null</code>).
+	 * @return MAC factories in order of preference.
+	 */
+	static List<NamedFactory<Mac>> selectMacs(String list) {
+		if (parseList(list).isEmpty()) {
+			return getOrderedMacs();
+		}
+		return select(SUPPORTED_MACS, list);
+	}
+
+	/**
+	 * Returns the key exchange factories for the specified list. If the list
+	 * is empty, all supported key exchange algorithms are returned in the
+	 * default order, which prefers the larger Diffie-Hellman group.
+	 * 
+	 * @param list
+	 *            comma-separated list of key exchange algorithm names (may be
+	 *            <code>null</code>).
+	 * @return key exchange factories in order of preference.
+	 */
+	static List<NamedFactory<KeyExchange>> selectKeyExchanges(String list) {
+		if (parseList(list).isEmpty()) {
+			return new ArrayList<NamedFactory<KeyExchange>>(
+					SUPPORTED_KEY_EXCHANGES);
+		}
+		return select(SUPPORTED_KEY_EXCHANGES, list);
+	}
+
+	/**
+	 * Returns the factories for the signature algorithms that can be used
+	 * with the host keys. Unlike the other algorithms, the host key
+	 * algorithms offered to clients are determined by the host keys that are
+	 * available.
+	 * 
+	 * @return signature factories.
+	 */
+	static List<NamedFactory<Signature>> getSignatureFactories() {
+		return new ArrayList<NamedFactory<Signature>>(SUPPORTED_SIGNATURES);
+	}
+
+	private static synchronized List<NamedFactory<Cipher>> getOrderedCiphers() {
+		// The benchmark is only run once, so that restarting the server after
+		// a configuration change does not take longer than necessary.
+		if (orderedCiphers == null) {
+			final Map<NamedFactory<Cipher>, Double> throughput = new HashMap<NamedFactory<Cipher>, Double>();
+			for (NamedFactory<Cipher> factory : SUPPORTED_CIPHERS) {
+				throughput.put(factory, measureCipher(factory));
+			}
+			orderedCiphers = orderByThroughput(SUPPORTED_CIPHERS, throughput,
+					new Preference<Cipher>() {
+						@Override
+						public boolean isPreferred(NamedFactory<Cipher> factory) {
+							return factory.getName().startsWith("aes");
+						}
+					});
+		}
+		return new ArrayList<NamedFactory<Cipher>>(orderedCiphers);
+	}
+
+	private static synchronized List<NamedFactory<Mac>> getOrderedMacs() {
+		if (orderedMacs == null) {
+			final Map<NamedFactory<Mac>, Double> throughput = new HashMap<NamedFactory<Mac>, Double>();
+			for (NamedFactory<Mac> factory : SUPPORTED_MACS) {
+				throughput.put(factory, measureMac(factory));
+			}
+			orderedMacs = orderByThroughput(SUPPORTED_MACS, throughput,
+					new Preference<Mac>() {
+						@Override
+						public boolean isPreferred(NamedFactory<Mac> factory) {
+							return !factory.getName().endsWith("-96");
+						}
+					});
+		}
+		return new ArrayList<NamedFactory<Mac>>(orderedMacs);
+	}
+
+	private static <T> List<NamedFactory<T>> orderByThroughput(
+			List<NamedFactory<T>> factories,
+			final Map<NamedFactory<T>, Double> throughput,
+			final Preference<T> preference) {
+		List<NamedFactory<T>> ordered = new ArrayList<NamedFactory<T>>(
+				factories);
+		// The sort is stable, so algorithms that are not preferred keep their
+		// default order.
+		Collections.sort(ordered, new Comparator<NamedFactory<T>>() {
+			@Override
+			public int compare(NamedFactory<T> o1, NamedFactory<T> o2) {
+				boolean preferred1 = preference.isPreferred(o1);
+				boolean preferred2 = preference.isPreferred(o2);
+				if (preferred1 != preferred2) {
+					return preferred1 ? -1 : 1;
+				}
+				if (!preferred1) {
+					return 0;
+				}
+				return Double.compare(throughput.get(o2), throughput.get(o1));
+			}
+		});
+		StringBuilder sb = new StringBuilder();
+		for (NamedFactory<T> factory : ordered) {
+			if (sb.length() != 0) {
+				sb.append(", ");
+			}
+			sb.append(factory.getName());
+			sb.append(" (");
+			sb.append(Math.round(throughput.get(factory)));
+			sb.append(" MB/s)");
+		}
+		LOGGER.info("Measured SSH algorithm throughput: " + sb);
+		return Collections.unmodifiableList(ordered);
+	}
+
+	private static double measureCipher(NamedFactory<Cipher> factory) {
+		try {
+			Cipher cipher = factory.create();
+			cipher.init(Cipher.Mode.Encrypt, new byte[cipher.getBlockSize()],
+					new byte[cipher.getIVSize()]);
+			byte[] buffer = new byte[BENCHMARK_CHUNK_SIZE];
+			for (int i = 0; i < BENCHMARK_WARMUP_BYTES; i += buffer.length) {
+				cipher.update(buffer, 0, buffer.length);
+			}
+			long startTime = System.nanoTime();
+			for (int i = 0; i < BENCHMARK_BYTES; i += buffer.length) {
+				cipher.update(buffer, 0, buffer.length);
+			}
+			return toMegabytesPerSecond(System.nanoTime() - startTime);
+		} catch (Exception e) {
+			LOGGER.warn("Could not measure throughput of cipher "
+					+ factory.getName() + ": " + e.getMessage(), e);
+			return 0.0;
+		}
+	}
+
+	private static double measureMac(NamedFactory<Mac> factory) {
+		try {
+			Mac mac = factory.create();
+			mac.init(new byte[mac.getBlockSize()]);
+			byte[] buffer = new byte[BENCHMARK_CHUNK_SIZE];
+			byte[] result = new byte[mac.getBlockSize()];
+			for (int i = 0; i < BENCHMARK_WARMUP_BYTES; i += buffer.length) {
+				mac.update(buffer, 0, buffer.length);
+				mac.doFinal(result, 0);
+			}
+			long startTime = System.nanoTime();
+			for (int i = 0; i < BENCHMARK_BYTES; i += buffer.length) {
+				mac.update(buffer, 0, buffer.length);
+				mac.doFinal(result, 0);
+			}
+			return toMegabytesPerSecond(System.nanoTime() - startTime);
+		} catch (Exception e) {
+			LOGGER.warn("Could not measure throughput of MAC "
+					+ factory.getName() + ": " + e.getMessage(), e);
+			return 0.0;
+		}
+	}
+
+	private static double toMegabytesPerSecond(long nanos) {
+		return BENCHMARK_BYTES / 1048576.0 / (Math.max(1L, nanos) / 1e9);
+	}
+
+	private static <T> List<NamedFactory<T>> select(
+			List<NamedFactory<T>> supported, String list) {
+		List<NamedFactory<T>> selected = new ArrayList<NamedFactory<T>>();
+		for (String name : parseList(list)) {
+			NamedFactory<T> factory = NamedFactory.Utils.get(supported, name);
+			if (factory == null) {
+				LOGGER.warn("Ignoring unsupported SSH algorithm \"" + name
+						+ "\".");
+			} else if (!selected.contains(factory)) {
+				selected.add(factory);
+			}
+		}
+		if (selected.isEmpty()) {
+			LOGGER.warn("None of the SSH algorithms \"" + list
+					+ "\" is supported, using the defaults.");
+			selected.addAll(supported);
+		}
+		return selected;
+	}
+
+	private static List<String> parseList(String list) {
+		List<String> names = new ArrayList<String>();
+		if (list == null) {
+			return names;
+		}
+		for (String name : list.split(",")) {
+			name = name.trim();
+			if (!name.isEmpty()) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+	private static <T> List<String> getNames(List<NamedFactory<T>> factories) {
+		List<String> names = new ArrayList<String>(factories.size());
+		for (NamedFactory<T> factory : factories) {
+			names.add(factory.getName());
+		}
+		return names;
+	}
+
+	private interface Preference<T> {
+
+		boolean isPreferred(NamedFactory<T> factory);
+
+	}
+
+}
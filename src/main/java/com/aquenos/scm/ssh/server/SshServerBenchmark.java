@@ -0,0 +1,287 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.ClientChannel;
+import org.apache.sshd.ClientSession;
+import org.apache.sshd.SshClient;
+import org.apache.sshd.client.future.AuthFuture;
+import org.apache.sshd.client.keyverifier.AcceptAllServerKeyVerifier;
+import org.apache.sshd.common.KeyPairProvider;
+import org.apache.sshd.server.Command;
+import org.apache.sshd.server.CommandFactory;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.PasswordAuthenticator;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for the I/O layer of the SSH server. For a number of different I/O
+ * worker thread counts, a temporary SSH server is started on the loopback
+ * interface and an SSH client connected to it measures the time needed for
+ * the handshake (key exchange and authentication) and the throughput of
+ * several concurrent channels transferring data from the server to the
+ * client. The benchmark does not touch the SSH server that serves the
+ * repositories, but it competes with it for CPU time, so it should not be run
+ * while the server is under heavy load.
+ * 
+ * @author Sebastian Marsching
+ */
+public class SshServerBenchmark {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(SshServerBenchmark.class);
+
+	private final static String BENCHMARK_USER = "benchmark";
+	private final static String BENCHMARK_COMMAND = "benchmark";
+	private final static int BUFFER_SIZE = 32768;
+	private final static long TIMEOUT_MILLIS = 300000L;
+
+	private int connections;
+	private int megabytes;
+	private KeyPairProvider keyPairProvider;
+	private String password;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connections
+	 *            number of concurrent connections used for the handshake and
+	 *            the throughput measurement.
+	 * @param megabytes
+	 *            number of megabytes transferred over each connection for the
+	 *            throughput measurement.
+	 */
+	public SshServerBenchmark(int connections, int megabytes) {
+		this.connections = connections;
+		this.megabytes = megabytes;
+	}
+
+	/**
+	 * Runs the benchmark for a number of I/O worker thread counts between one
+	 * and twice the number of available processors.
+	 * 
+	 * @return results of the benchmark.
+	 * @throws Exception
+	 *             if a temporary server or client cannot be started or a
+	 *             connection fails.
+	 */
+	public SshServerBenchmarkResult run() throws Exception {
+		int processors = Runtime.getRuntime().availableProcessors();
+		TreeSet<Integer> nioWorkerCounts = new TreeSet<Integer>();
+		nioWorkerCounts.add(1);
+		nioWorkerCounts.add(Math.max(1, processors / 2));
+		nioWorkerCounts.add(processors);
+		nioWorkerCounts.add(processors + 1);
+		nioWorkerCounts.add(2 * processors);
+		// The host key is generated once, so that the key generation does
+		// not distort the measurement of the first run.
+		keyPairProvider = new SimpleGeneratorHostKeyProvider();
+		keyPairProvider.getKeyTypes();
+		byte[] passwordBytes = new byte[16];
+		new SecureRandom().nextBytes(passwordBytes);
+		password = new BigInteger(1, passwordBytes).toString(36);
+		List<SshServerBenchmarkRun> runs = new ArrayList<SshServerBenchmarkRun>();
+		for (int nioWorkers : nioWorkerCounts) {
+			runs.add(runWithNioWorkers(nioWorkers));
+		}
+		SshServerBenchmarkResult result = new SshServerBenchmarkResult();
+		result.setConnections(connections);
+		result.setMegabytesPerConnection(megabytes);
+		result.setRuns(runs);
+		return result;
+	}
+
+	private SshServerBenchmarkRun runWithNioWorkers(int nioWorkers)
+			throws Exception {
+		ManagedSshServer server = ManagedSshServer.setUpManagedServer();
+		server.setHost("127.0.0.1");
+		server.setPort(0);
+		server.setNioWorkers(nioWorkers);
+		server.setKeyPairProvider(keyPairProvider);
+		server.setPasswordAuthenticator(new PasswordAuthenticator() {
+			@Override
+			public boolean authenticate(String username, String password,
+					ServerSession session) {
+				return BENCHMARK_USER.equals(username)
+						&& SshServerBenchmark.this.password.equals(password);
+			}
+		});
+		server.setCommandFactory(new CommandFactory() {
+			@Override
+			public Command createCommand(String command) {
+				return new TransferCommand();
+			}
+		});
+		SshClient client = SshClient.setUpDefaultClient();
+		client.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+		server.start();
+		try {
+			client.start();
+			try {
+				return measure(nioWorkers, server.getPort(), client);
+			} finally {
+				client.stop();
+			}
+		} finally {
+			server.stop(true);
+		}
+	}
+
+	private SshServerBenchmarkRun measure(int nioWorkers, int port,
+			SshClient client) throws Exception {
+		List<ClientSession> sessions = new ArrayList<ClientSession>(
+				connections);
+		try {
+			long handshakeStart = System.nanoTime();
+			for (int i = 0; i < connections; i++) {
+				ClientSession session = client.connect("127.0.0.1", port)
+						.await().getSession();
+				sessions.add(session);
+				AuthFuture authFuture = session.authPassword(BENCHMARK_USER,
+						password);
+				authFuture.await();
+				if (!authFuture.isSuccess()) {
+					throw new IOException(
+							"Authentication with benchmark server failed.");
+				}
+			}
+			long handshakeNanos = System.nanoTime() - handshakeStart;
+
+			final AtomicLong receivedBytes = new AtomicLong();
+			List<ClientChannel> channels = new ArrayList<ClientChannel>(
+					connections);
+			long transferStart = System.nanoTime();
+			for (ClientSession session : sessions) {
+				ClientChannel channel = session
+						.createExecChannel(BENCHMARK_COMMAND);
+				channel.setIn(new ByteArrayInputStream(new byte[0]));
+				channel.setOut(new OutputStream() {
+					@Override
+					public void write(int b) {
+						receivedBytes.incrementAndGet();
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) {
+						receivedBytes.addAndGet(len);
+					}
+				});
+				channel.setErr(new OutputStream() {
+					@Override
+					public void write(int b) {
+					}
+				});
+				channel.open().await();
+				channels.add(channel);
+			}
+			for (ClientChannel channel : channels) {
+				channel.waitFor(ClientChannel.CLOSED, TIMEOUT_MILLIS);
+			}
+			long transferNanos = System.nanoTime() - transferStart;
+			long expectedBytes = (long) connections * megabytes * 1048576L;
+			if (receivedBytes.get() != expectedBytes) {
+				throw new IOException("Benchmark transfer incomplete: received "
+						+ receivedBytes.get() + " of " + expectedBytes
+						+ " bytes.");
+			}
+
+			SshServerBenchmarkRun run = new SshServerBenchmarkRun();
+			run.setNioWorkers(nioWorkers);
+			run.setAverageHandshakeMillis(handshakeNanos / 1000000.0
+					/ connections);
+			run.setThroughputMegabytesPerSecond(expectedBytes / 1048576.0
+					/ (transferNanos / 1000000000.0));
+			LOGGER.info("SSH benchmark with " + nioWorkers
+					+ " I/O threads: handshake "
+					+ run.getAverageHandshakeMillis() + " ms, throughput "
+					+ run.getThroughputMegabytesPerSecond() + " MB/s.");
+			return run;
+		} finally {
+			for (ClientSession session : sessions) {
+				session.close(true);
+			}
+		}
+	}
+
+	private class TransferCommand implements Command, Runnable {
+
+		private OutputStream out;
+		private ExitCallback exitCallback;
+		private volatile Thread thread;
+
+		@Override
+		public void setInputStream(InputStream in) {
+		}
+
+		@Override
+		public void setOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void setErrorStream(OutputStream err) {
+		}
+
+		@Override
+		public void setExitCallback(ExitCallback callback) {
+			this.exitCallback = callback;
+		}
+
+		@Override
+		public void start(Environment env) throws IOException {
+			thread = new Thread(this, "SSH-Benchmark-Command");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void destroy() {
+			Thread thread = this.thread;
+			if (thread != null) {
+				thread.interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long remaining = megabytes * 1048576L;
+			int exitValue = 0;
+			try {
+				while (remaining > 0) {
+					int length = (int) Math.min(buffer.length, remaining);
+					out.write(buffer, 0, length);
+					remaining -= length;
+				}
+				out.flush();
+			} catch (IOException e) {
+				exitValue = 1;
+			}
+			exitCallback.onExit(exitValue);
+		}
+
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Results of the {@link SshServerBenchmark}.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlRootElement(name = "scm-ssh-plugin-benchmark")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class SshServerBenchmarkResult implements Serializable {
+
+	private static final long serialVersionUID = -3058214920446672514L;
+
+	private int connections;
+	private int megabytesPerConnection;
+	@XmlElement(name = "run")
+	private List<SshServerBenchmarkRun> runs = new ArrayList<SshServerBenchmarkRun>();
+
+	/**
+	 * Returns the number of concurrent connections used by the benchmark.
+	 * 
+	 * @return number of connections.
+	 */
+	public int getConnections() {
+		return connections;
+	}
+
+	/**
+	 * Sets the number of concurrent connections used by the benchmark.
+	 * 
+	 * @param connections
+	 *            number of connections.
+	 */
+	public void setConnections(int connections) {
+		this.connections = connections;
+	}
+
+	/**
+	 * Returns the amount of data transferred over each connection.
+	 * 
+	 * @return amount of data per connection (in megabytes).
+	 */
+	public int getMegabytesPerConnection() {
+		return megabytesPerConnection;
+	}
+
+	/**
+	 * Sets the amount of data transferred over each connection.
+	 * 
+	 * @param megabytesPerConnection
+	 *            amount of data per connection (in megabytes).
+	 */
+	public void setMegabytesPerConnection(int megabytesPerConnection) {
+		this.megabytesPerConnection = megabytesPerConnection;
+	}
+
+	/**
+	 * Returns the results for the different numbers of I/O worker threads.
+	 * 
+	 * @return results of the individual runs.
+	 */
+	public List<SshServerBenchmarkRun> getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Sets the results for the different numbers of I/O worker threads.
+	 * 
+	 * @param runs
+	 *            results of the individual runs.
+	 */
+	public void setRuns(List<SshServerBenchmarkRun> runs) {
+		this.runs = runs;
+	}
+
+}
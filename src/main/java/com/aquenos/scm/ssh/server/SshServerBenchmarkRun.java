@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Result of a single run of the {@link SshServerBenchmark} with a specific
+ * number of I/O worker threads.
+ * 
+ * @author Sebastian Marsching
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class SshServerBenchmarkRun implements Serializable {
+
+	private static final long serialVersionUID = 2716520488183317424L;
+
+	private int nioWorkers;
+	private double averageHandshakeMillis;
+	private double throughputMegabytesPerSecond;
+
+	/**
+	 * Returns the number of I/O worker threads used for this run.
+	 * 
+	 * @return number of I/O worker threads.
+	 */
+	public int getNioWorkers() {
+		return nioWorkers;
+	}
+
+	/**
+	 * Sets the number of I/O worker threads used for this run.
+	 * 
+	 * @param nioWorkers
+	 *            number of I/O worker threads.
+	 */
+	public void setNioWorkers(int nioWorkers) {
+		this.nioWorkers = nioWorkers;
+	}
+
+	/**
+	 * Returns the average time needed to establish a connection, including
+	 * the key exchange and the authentication.
+	 * 
+	 * @return average handshake time (in milliseconds).
+	 */
+	public double getAverageHandshakeMillis() {
+		return averageHandshakeMillis;
+	}
+
+	/**
+	 * Sets the average time needed to establish a connection.
+	 * 
+	 * @param averageHandshakeMillis
+	 *            average handshake time (in milliseconds).
+	 */
+	public void setAverageHandshakeMillis(double averageHandshakeMillis) {
+		this.averageHandshakeMillis = averageHandshakeMillis;
+	}
+
+	/**
+	 * Returns the aggregate throughput of all connections.
+	 * 
+	 * @return throughput (in megabytes per second).
+	 */
+	public double getThroughputMegabytesPerSecond() {
+		return throughputMegabytesPerSecond;
+	}
+
+	/**
+	 * Sets the aggregate throughput of all connections.
+	 * 
+	 * @param throughputMegabytesPerSecond
+	 *            throughput (in megabytes per second).
+	 */
+	public void setThroughputMegabytesPerSecond(
+			double throughputMegabytesPerSecond) {
+		this.throughputMegabytesPerSecond = throughputMegabytesPerSecond;
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012 aquenos GmbH.
+ * All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ */
+
+package com.aquenos.scm.ssh.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the CPU time used and the memory allocated by the current thread.
+ * Both measurements depend on support by the Java runtime. Allocated memory is
+ * only available on runtimes that provide the
+ * <code>com.sun.management.ThreadMXBean</code> extension.
+ * 
+ * @author Sebastian Marsching
+ */
+class ThreadResourceMeter {
+
+	private final static ThreadMXBean THREAD_MX_BEAN = ManagementFactory
+			.getThreadMXBean();
+
+	private static volatile boolean allocatedBytesAvailable = true;
+
+	private ThreadResourceMeter() {
+	}
+
+	/**
+	 * Returns the CPU time used by the current thread.
+	 * 
+	 * @return CPU time in nanoseconds or -1 if CPU time measurement is not
+	 *         supported or not enabled.
+	 */
+	public static long getCurrentThreadCpuTime() {
+		try {
+			if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+					&& THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+				return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+			}
+		} catch (UnsupportedOperationException e) {
+			// Fall through.
+		}
+		return -1L;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread.
+	 * 
+	 * @return allocated bytes or -1 if allocation measurement is not supported
+	 *         or not enabled.
+	 */
+	public static long getCurrentThreadAllocatedBytes() {
+		if (!allocatedBytesAvailable) {
+			return -1L;
+		}
+		try {
+			return ExtendedThreadMXBean.getCurrentThreadAllocatedBytes();
+		} catch (LinkageError e) {
+			// The extension is not available in this Java runtime.
+			allocatedBytesAvailable = false;
+		} catch (UnsupportedOperationException e) {
+			allocatedBytesAvailable = false;
+		}
+		return -1L;
+	}
+
+	/**
+	 * Access to the <code>com.sun.management.ThreadMXBean</code> extension.
+	 * This is a separate class, so that it is only loaded when it is used and
+	 * a missing extension results in a {@link LinkageError} that we can catch.
+	 */
+	private static class ExtendedThreadMXBean {
+
+		public static long getCurrentThreadAllocatedBytes() {
+			if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+				throw new UnsupportedOperationException();
+			}
+			com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+			if (!threadMXBean.isThreadAllocatedMemorySupported()
+					|| !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+				return -1L;
+			}
+			return threadMXBean.getThreadAllocatedBytes(Thread.currentThread()
+					.getId());
+		}
+
+	}
+
+}
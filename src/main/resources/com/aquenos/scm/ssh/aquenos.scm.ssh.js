@@ -289,13 +289,121 @@ Aquenos.scm.ssh.ServerConfigForm = Ext
 
       titleText: 'SSH Server Settings',
       listenAddressText: 'Server address',
-      listenAddressHelpText: 'The IP address or hostname the SSH server shall listen on. The server will listen on all available interfaces if this option is left empty. The server needs to be restarted for changes in this option to take effect.',
+      listenAddressHelpText: 'The IP address or hostname the SSH server shall listen on. The server will listen on all available interfaces if this option is left empty. When this option is changed, the server starts listening on the new address before it stops listening on the old one. Existing sessions are not interrupted.',
       listenPortText: 'Server port',
-      listenPortHelpText: 'The TCP port number the SSH Server shall listen on. The server needs to be restarted for changes in this option to take effect.',
+      listenPortHelpText: 'The TCP port number the SSH Server shall listen on. When this option is changed, the server starts listening on the new address before it stops listening on the old one. Existing sessions are not interrupted.',
+      trustedProxiesText: 'Trusted proxies',
+      recordIpAddressesOnlyText: 'Record IP addresses only',
+      recordIpAddressesOnlyHelpText: 'Record the IP addresses of clients (e.g. in the reflog of Git repositories) instead of resolving their host names. Host names are resolved in the background and cached, so a slow DNS server does not delay Git commands, but the IP address is recorded when a host name is not known yet.',
+      trustedProxiesHelpText: 'The addresses of TCP load balancers (e.g. HAProxy) that send a PROXY protocol header (version 1 or 2) in front of each connection, in CIDR notation and separated by spaces or commas. For connections from these addresses, the client address is taken from the header. Connections from other addresses are handled as direct connections. If empty, PROXY protocol headers are not processed.',
+      listenersText: 'Additional listeners',
+      listenersHelpText: 'Additional addresses and ports the SSH server shall listen on. Each listener has its own acceptor. A listener shares the session and connection rate limits of the server address above, unless "Own limits" is checked. In this case, the limits in its row apply to its sessions instead. When this option is changed, the server starts listening on the new address before it stops listening on the old one. Existing sessions are not interrupted.',
+      listenerNameText: 'Name',
+      listenerAddressText: 'Address',
+      listenerPortText: 'Port',
+      listenerOwnLimitsText: 'Own limits',
+      listenerMaxSessionsText: 'Sessions',
+      listenerMaxSessionsPerAddressText: 'Sessions / address',
+      listenerMaxUnauthenticatedSessionsText: 'Unauth. sessions',
+      listenerMaxSessionsPerUserText: 'Sessions / user',
+      listenerConnectionRatePerAddressText: 'Connections / min.',
+      listenerConnectionBurstPerAddressText: 'Burst',
+      listenerNetworkRateLimitsText: 'Network rate limits',
+      listenerTrustedProxiesText: 'Trusted proxies',
+      addListenerText: 'Add listener',
+      removeListenerText: 'Remove listener',
       rsaHostKeyText: 'RSA host key',
-      rsaHostKeyHelpText: 'The RSA host key for the SSH server in PEM format. If this field is left empty, a new key will be generated.',
+      rsaHostKeyHelpText: 'The RSA host key for the SSH server in PEM format. If this field is left empty, the current key is kept, or a new key is generated if there is none yet.',
       dsaHostKeyText: 'DSA host key',
-      dsaHostKeyHelpText: 'The DSA host key for the SSH server in PEM format. If this field is left empty, a new key will be generated.',
+      dsaHostKeyHelpText: 'The DSA host key for the SSH server in PEM format. If this field is left empty, the current key is kept, or a new key is generated if there is none yet.',
+      ecdsaHostKeyText: 'ECDSA host key',
+      ecdsaHostKeyHelpText: 'The ECDSA (NIST P-256) host key for the SSH server, consisting of the private key in PKCS #8 format and the public key in X.509 format, both PEM encoded. ECDSA keys are offered to clients before RSA and DSA keys, because signing with them is much faster. If this field is left empty, the current key is kept, or a new key is generated if there is none yet.',
+      ed25519HostKeyText: 'Ed25519 host key',
+      ed25519HostKeyHelpText: 'The Ed25519 host key for the SSH server, consisting of the private key in PKCS #8 format and the public key in X.509 format, both PEM encoded. Ed25519 keys are offered to clients first, because signing with them is fastest. If this field is left empty, the current key is kept, or a new key is generated if there is none yet. Ed25519 keys require Java 15 or newer.',
+      commandThreadPoolCoreSizeText: 'Fetch threads (core)',
+      commandThreadPoolCoreSizeHelpText: 'The number of threads that are kept for running read commands (fetch, clone), even if they are idle.',
+      commandThreadPoolMaxSizeText: 'Fetch threads (max.)',
+      commandThreadPoolMaxSizeHelpText: 'The maximum number of threads for running read commands (fetch, clone). Threads beyond the core size are started when all threads are busy, and commands are only queued once this number of threads is running.',
+      commandQueueSizeText: 'Fetch queue size',
+      commandQueueSizeHelpText: 'The number of read commands (fetch, clone) that may wait for a free fetch thread. If zero, commands are never queued.',
+      writeCommandThreadPoolCoreSizeText: 'Push threads (core)',
+      writeCommandThreadPoolCoreSizeHelpText: 'The number of threads that are kept for running write commands (push), even if they are idle.',
+      writeCommandThreadPoolMaxSizeText: 'Push threads (max.)',
+      writeCommandThreadPoolMaxSizeHelpText: 'The maximum number of threads for running write commands (push). Threads beyond the core size are started when all threads are busy, and pushes are only queued once this number of threads is running.',
+      writeCommandQueueSizeText: 'Push queue size',
+      writeCommandQueueSizeHelpText: 'The number of write commands (push) that may wait for a free push thread. If zero, pushes are never queued.',
+      commandRejectionPolicyText: 'Overload policy',
+      commandRejectionPolicyHelpText: 'What happens to a Git command when all threads are busy and the queue is full.',
+      commandRejectionPolicyRejectText: 'Ask client to retry later',
+      commandRejectionPolicyNewThreadText: 'Run in additional thread',
+      useVirtualThreadsText: 'Use virtual threads',
+      useVirtualThreadsHelpText: 'Run each Git command in a virtual thread instead of the command thread pool. This option only has an effect if the Java runtime supports virtual threads (Java 21 or newer).',
+      maxCommandsPerUserText: 'Commands per user',
+      maxCommandsPerUserHelpText: 'The maximum number of Git commands that may run at the same time for a single user. Additional commands wait until one of the running commands has finished. If zero, the number of commands is not limited.',
+      maxCommandsPerRepositoryText: 'Commands per repository',
+      maxCommandsPerRepositoryHelpText: 'The maximum number of Git commands that may run at the same time for a single repository. Additional commands wait until one of the running commands has finished. If zero, the number of commands is not limited.',
+      maxBandwidthPerUserText: 'Bandwidth per user (KB/s)',
+      maxBandwidthPerUserHelpText: 'The maximum rate (in KB per second) at which the Git commands of a single user send data to clients. If zero, the rate is not limited.',
+      maxBandwidthPerRepositoryText: 'Bandwidth per repository (KB/s)',
+      maxBandwidthPerRepositoryHelpText: 'The maximum rate (in KB per second) at which the Git commands operating on a single repository send data to clients. If zero, the rate is not limited.',
+      maxBandwidthText: 'Total bandwidth (KB/s)',
+      maxBandwidthHelpText: 'The maximum rate (in KB per second) at which all Git commands together send data to clients. Commands that are limited by this rate get equal shares of it, and bandwidth not used by one command is available to the others. If zero, the rate is not limited.',
+      commandWaitTimeoutText: 'Maximum wait time',
+      commandWaitTimeoutHelpText: 'The number of seconds a Git command waits when one of the limits above has been reached or when it has been queued because all threads are busy. The time spent waiting for the limits and for a thread is added up. When this time has passed, the client is asked to retry later. If zero, commands that cannot run immediately are rejected.',
+      drainTimeoutText: 'Shutdown grace period',
+      drainTimeoutHelpText: 'When SCM-Manager is stopped, the SSH server stops accepting new connections and waits up to this number of seconds for running Git commands to finish. Commands that are still running after this time are aborted. If zero, running commands are aborted immediately.',
+      commandIdleTimeoutText: 'Command idle timeout',
+      commandIdleTimeoutHelpText: 'The number of seconds after which a Git command is aborted if it has been waiting that long for the client to send or accept data. If zero, idle commands are not aborted. Clients may request a different timeout for fetches.',
+      commandMaxDurationText: 'Maximum command duration',
+      commandMaxDurationHelpText: 'The maximum number of seconds a Git command may run. If zero, there is no limit.',
+      maxHeapUsageText: 'Heap usage limit for fetches (%)',
+      maxHeapUsageHelpText: 'If the heap usage after garbage collection exceeds this percentage of the maximum heap size, new fetches and clones are rejected and the client is asked to retry later. Pushes are still accepted. If zero, the heap usage is not checked.',
+      maxSystemLoadText: 'Load limit for fetches (%)',
+      maxSystemLoadHelpText: 'If the system load average exceeds this percentage of the number of processors, new fetches and clones are rejected and the client is asked to retry later. Pushes are still accepted. If zero, the system load is not checked.',
+      maxPackGenerationsText: 'Max. concurrent pack generations',
+      maxPackGenerationsHelpText: 'If this number of fetches or clones is already generating packs, new fetches and clones are rejected and the client is asked to retry later. Pushes are still accepted. If zero, there is no limit.',
+      nioWorkersText: 'I/O threads',
+      nioWorkersHelpText: 'The number of threads that handle the network I/O and the encryption for all SSH connections. If zero, the number of processors plus one is used. Changes in this option only apply to listeners that are added. The other listeners keep their threads until the server is restarted.',
+      channelWindowSizeText: 'Channel window size',
+      channelWindowSizeHelpText: 'The number of bytes that may be sent over an SSH channel before the receiver has to acknowledge them. On links with a high latency, a larger window allows for a higher throughput. Must not be less than the maximum packet size.',
+      channelMaxPacketSizeText: 'Maximum packet size',
+      channelMaxPacketSizeHelpText: 'The maximum number of bytes sent in a single SSH channel packet (1024 to 131072).',
+      tcpSendBufferSizeText: 'TCP send buffer size',
+      tcpSendBufferSizeHelpText: 'The size of the TCP send buffer of each connection in bytes. If zero, the default of the operating system is used.',
+      tcpReceiveBufferSizeText: 'TCP receive buffer size',
+      tcpReceiveBufferSizeHelpText: 'The size of the TCP receive buffer of each connection in bytes. If zero, the default of the operating system is used.',
+      tcpNoDelayText: 'Disable Nagle algorithm',
+      tcpNoDelayHelpText: 'Send small packets immediately (TCP_NODELAY). This reduces the latency during the negotiation phase of Git commands.',
+      ciphersText: 'Ciphers',
+      ciphersHelpText: 'Comma-separated list of the ciphers offered to clients, in order of preference (e.g. aes128-ctr,aes256-ctr). If empty, all supported ciphers are offered, the fastest ones first.',
+      macsText: 'MACs',
+      macsHelpText: 'Comma-separated list of the message authentication codes offered to clients, in order of preference (e.g. hmac-sha1,hmac-md5). If empty, all supported MACs are offered, the fastest ones first.',
+      keyExchangesText: 'Key exchanges',
+      keyExchangesHelpText: 'Comma-separated list of the key exchange algorithms offered to clients, in order of preference (e.g. diffie-hellman-group14-sha1). If empty, all supported key exchange algorithms are offered.',
+      compressionEnabledText: 'Enable compression',
+      compressionEnabledHelpText: 'Offer delayed zlib compression (zlib@openssh.com) to clients. Ref advertisements and negotiation are compressed, while pack data, which is already compressed, is sent without compression. Requires Java 7 or newer.',
+      compressionLevelText: 'Compression level',
+      compressionLevelHelpText: 'The zlib compression level (1 to 9). Higher levels compress better, but need more CPU time.',
+      maxSessionsText: 'Maximum sessions',
+      maxSessionsHelpText: 'The maximum number of concurrent SSH sessions. Additional connections are closed immediately. If zero, the number of sessions is not limited.',
+      maxSessionsPerAddressText: 'Sessions per address',
+      maxSessionsPerAddressHelpText: 'The maximum number of concurrent SSH sessions from a single IP address. If zero, the number of sessions is not limited.',
+      maxUnauthenticatedSessionsText: 'Unauthenticated sessions',
+      maxUnauthenticatedSessionsHelpText: 'The maximum number of concurrent SSH sessions that have not been authenticated yet. If zero, the number of sessions is not limited.',
+      maxSessionsPerUserText: 'Sessions per user',
+      maxSessionsPerUserHelpText: 'The maximum number of concurrent SSH sessions of a single user. If zero, the number of sessions is not limited.',
+      maxAuthAttemptsText: 'Authentication attempts',
+      maxAuthAttemptsHelpText: 'The maximum number of authentication attempts per session. When a client exceeds this number, the session is closed.',
+      authTimeoutText: 'Authentication timeout',
+      authTimeoutHelpText: 'The number of seconds a client may take to authenticate after connecting.',
+      sessionIdleTimeoutText: 'Session idle timeout',
+      sessionIdleTimeoutHelpText: 'The number of seconds after which an authenticated session is closed if the client does not send any data. If zero, idle sessions are never closed.',
+      connectionRatePerAddressText: 'Connections per minute',
+      connectionRatePerAddressHelpText: 'The number of new connections per minute accepted from a single IP address. IPv6 addresses are limited per /64 network. Connections exceeding this rate are closed before the key exchange. If zero, the connection rate is not limited.',
+      connectionBurstPerAddressText: 'Connection burst',
+      connectionBurstPerAddressHelpText: 'The number of connections accepted at once from a single IP address before the rate limit applies.',
+      networkRateLimitsText: 'Network rate limits',
+      networkRateLimitsHelpText: 'Connection rate limits for networks, one per line in the form "network rate burst" (e.g. "10.1.0.0/16 600 100"). All addresses of a network share one limit. A rate of zero exempts the network from rate limiting.',
       loadingText: 'Loading data...',
       submitText: 'Transferring data...',
       errorTitleText: 'Communication Error',
@@ -320,6 +428,110 @@ Aquenos.scm.ssh.ServerConfigForm = Ext
             allowNegative: false,
             minValue: 1,
             maxValue: 65535
+          }, {
+            xtype: 'textfield',
+            fieldLabel: this.trustedProxiesText,
+            name: 'trustedProxies',
+            helpText: this.trustedProxiesHelpText
+          }, {
+            xtype: 'checkbox',
+            fieldLabel: this.recordIpAddressesOnlyText,
+            name: 'recordIpAddressesOnly',
+            inputValue: 'true',
+            helpText: this.recordIpAddressesOnlyHelpText
+          }, {
+            id: 'sshServerListenersGrid',
+            xtype: 'editorgrid',
+            fieldLabel: this.listenersText,
+            helpText: this.listenersHelpText,
+            height: 150,
+            clicksToEdit: 1,
+            store: new Ext.data.JsonStore({
+              fields: [ 'name', 'listenAddress', 'listenPort',
+                'trustedProxies', 'ownLimits', 'maxSessions',
+                'maxSessionsPerAddress',
+                'maxUnauthenticatedSessions', 'maxSessionsPerUser',
+                'connectionRatePerAddress', 'connectionBurstPerAddress',
+                'networkRateLimits' ]
+            }),
+            colModel: new Ext.grid.ColumnModel({
+              defaults: {
+                sortable: false,
+                width: 80
+              },
+              columns: [ {
+                header: this.listenerNameText,
+                dataIndex: 'name',
+                editor: new Ext.form.TextField()
+              }, {
+                header: this.listenerAddressText,
+                dataIndex: 'listenAddress',
+                width: 120,
+                editor: new Ext.form.TextField()
+              }, {
+                header: this.listenerPortText,
+                dataIndex: 'listenPort',
+                width: 60,
+                editor: this.createListenerNumberField(1, 65535)
+              }, {
+                header: this.listenerTrustedProxiesText,
+                dataIndex: 'trustedProxies',
+                width: 120,
+                editor: new Ext.form.TextField()
+              }, {
+                xtype: 'booleancolumn',
+                header: this.listenerOwnLimitsText,
+                dataIndex: 'ownLimits',
+                width: 70,
+                editor: new Ext.form.Checkbox()
+              }, {
+                header: this.listenerMaxSessionsText,
+                dataIndex: 'maxSessions',
+                editor: this.createListenerNumberField(0)
+              }, {
+                header: this.listenerMaxSessionsPerAddressText,
+                dataIndex: 'maxSessionsPerAddress',
+                editor: this.createListenerNumberField(0)
+              }, {
+                header: this.listenerMaxUnauthenticatedSessionsText,
+                dataIndex: 'maxUnauthenticatedSessions',
+                editor: this.createListenerNumberField(0)
+              }, {
+                header: this.listenerMaxSessionsPerUserText,
+                dataIndex: 'maxSessionsPerUser',
+                editor: this.createListenerNumberField(0)
+              }, {
+                header: this.listenerConnectionRatePerAddressText,
+                dataIndex: 'connectionRatePerAddress',
+                editor: this.createListenerNumberField(0)
+              }, {
+                header: this.listenerConnectionBurstPerAddressText,
+                dataIndex: 'connectionBurstPerAddress',
+                width: 60,
+                editor: this.createListenerNumberField(1)
+              }, {
+                header: this.listenerNetworkRateLimitsText,
+                dataIndex: 'networkRateLimits',
+                width: 160,
+                renderer: function(value) {
+                  return Ext.util.Format.htmlEncode(value == null ? '' : String(value).replace(/[\r\n]+/g, '; '));
+                },
+                // Enter has to insert a line break instead of completing the
+                // edit, because there is one rule per line.
+                editor: new Ext.grid.GridEditor(new Ext.form.TextArea(), {
+                  completeOnEnter: false
+                })
+              } ]
+            }),
+            tbar: [ {
+              text: this.addListenerText,
+              scope: this,
+              handler: this.addListener
+            }, {
+              text: this.removeListenerText,
+              scope: this,
+              handler: this.removeListener
+            } ]
           }, {
             xtype: 'textarea',
             fieldLabel: this.rsaHostKeyText,
@@ -336,9 +548,383 @@ Aquenos.scm.ssh.ServerConfigForm = Ext
             autoScroll: true,
             height: 150,
             wordWrap: false
+          }, {
+            xtype: 'textarea',
+            fieldLabel: this.ecdsaHostKeyText,
+            name: 'ecdsaHostKey',
+            helpText: this.ecdsaHostKeyHelpText,
+            autoScroll: true,
+            height: 150,
+            wordWrap: false
+          }, {
+            xtype: 'textarea',
+            fieldLabel: this.ed25519HostKeyText,
+            name: 'ed25519HostKey',
+            helpText: this.ed25519HostKeyHelpText,
+            autoScroll: true,
+            height: 150,
+            wordWrap: false
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.commandThreadPoolCoreSizeText,
+            name: 'commandThreadPoolCoreSize',
+            helpText: this.commandThreadPoolCoreSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.commandThreadPoolMaxSizeText,
+            name: 'commandThreadPoolMaxSize',
+            helpText: this.commandThreadPoolMaxSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.commandQueueSizeText,
+            name: 'commandQueueSize',
+            helpText: this.commandQueueSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.writeCommandThreadPoolCoreSizeText,
+            name: 'writeCommandThreadPoolCoreSize',
+            helpText: this.writeCommandThreadPoolCoreSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.writeCommandThreadPoolMaxSizeText,
+            name: 'writeCommandThreadPoolMaxSize',
+            helpText: this.writeCommandThreadPoolMaxSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.writeCommandQueueSizeText,
+            name: 'writeCommandQueueSize',
+            helpText: this.writeCommandQueueSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'combo',
+            fieldLabel: this.commandRejectionPolicyText,
+            name: 'commandRejectionPolicy',
+            hiddenName: 'commandRejectionPolicy',
+            helpText: this.commandRejectionPolicyHelpText,
+            allowBlank: false,
+            editable: false,
+            triggerAction: 'all',
+            mode: 'local',
+            valueField: 'value',
+            displayField: 'label',
+            store: new Ext.data.ArrayStore({
+              fields: [ 'value', 'label' ],
+              data: [
+                [ 'REJECT', this.commandRejectionPolicyRejectText ],
+                [ 'NEW_THREAD', this.commandRejectionPolicyNewThreadText ]
+              ]
+            })
+          }, {
+            xtype: 'checkbox',
+            fieldLabel: this.useVirtualThreadsText,
+            name: 'useVirtualThreads',
+            inputValue: 'true',
+            helpText: this.useVirtualThreadsHelpText
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxCommandsPerUserText,
+            name: 'maxCommandsPerUser',
+            helpText: this.maxCommandsPerUserHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxCommandsPerRepositoryText,
+            name: 'maxCommandsPerRepository',
+            helpText: this.maxCommandsPerRepositoryHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxBandwidthPerUserText,
+            name: 'maxBandwidthPerUser',
+            helpText: this.maxBandwidthPerUserHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxBandwidthPerRepositoryText,
+            name: 'maxBandwidthPerRepository',
+            helpText: this.maxBandwidthPerRepositoryHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxBandwidthText,
+            name: 'maxBandwidth',
+            helpText: this.maxBandwidthHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.commandWaitTimeoutText,
+            name: 'commandWaitTimeout',
+            helpText: this.commandWaitTimeoutHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.drainTimeoutText,
+            name: 'drainTimeout',
+            helpText: this.drainTimeoutHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.commandIdleTimeoutText,
+            name: 'commandIdleTimeout',
+            helpText: this.commandIdleTimeoutHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.commandMaxDurationText,
+            name: 'commandMaxDuration',
+            helpText: this.commandMaxDurationHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxHeapUsageText,
+            name: 'maxHeapUsage',
+            helpText: this.maxHeapUsageHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0,
+            maxValue: 100
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxSystemLoadText,
+            name: 'maxSystemLoad',
+            helpText: this.maxSystemLoadHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxPackGenerationsText,
+            name: 'maxPackGenerations',
+            helpText: this.maxPackGenerationsHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.nioWorkersText,
+            name: 'nioWorkers',
+            helpText: this.nioWorkersHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.channelWindowSizeText,
+            name: 'channelWindowSize',
+            helpText: this.channelWindowSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1024
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.channelMaxPacketSizeText,
+            name: 'channelMaxPacketSize',
+            helpText: this.channelMaxPacketSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1024,
+            maxValue: 131072
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.tcpSendBufferSizeText,
+            name: 'tcpSendBufferSize',
+            helpText: this.tcpSendBufferSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.tcpReceiveBufferSizeText,
+            name: 'tcpReceiveBufferSize',
+            helpText: this.tcpReceiveBufferSizeHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'checkbox',
+            fieldLabel: this.tcpNoDelayText,
+            name: 'tcpNoDelay',
+            inputValue: 'true',
+            helpText: this.tcpNoDelayHelpText
+          }, {
+            xtype: 'textfield',
+            fieldLabel: this.ciphersText,
+            name: 'ciphers',
+            helpText: this.ciphersHelpText
+          }, {
+            xtype: 'textfield',
+            fieldLabel: this.macsText,
+            name: 'macs',
+            helpText: this.macsHelpText
+          }, {
+            xtype: 'textfield',
+            fieldLabel: this.keyExchangesText,
+            name: 'keyExchanges',
+            helpText: this.keyExchangesHelpText
+          }, {
+            xtype: 'checkbox',
+            fieldLabel: this.compressionEnabledText,
+            name: 'compressionEnabled',
+            inputValue: 'true',
+            helpText: this.compressionEnabledHelpText
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.compressionLevelText,
+            name: 'compressionLevel',
+            helpText: this.compressionLevelHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1,
+            maxValue: 9
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxSessionsText,
+            name: 'maxSessions',
+            helpText: this.maxSessionsHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxSessionsPerAddressText,
+            name: 'maxSessionsPerAddress',
+            helpText: this.maxSessionsPerAddressHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxUnauthenticatedSessionsText,
+            name: 'maxUnauthenticatedSessions',
+            helpText: this.maxUnauthenticatedSessionsHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxSessionsPerUserText,
+            name: 'maxSessionsPerUser',
+            helpText: this.maxSessionsPerUserHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.maxAuthAttemptsText,
+            name: 'maxAuthAttempts',
+            helpText: this.maxAuthAttemptsHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.authTimeoutText,
+            name: 'authTimeout',
+            helpText: this.authTimeoutHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.sessionIdleTimeoutText,
+            name: 'sessionIdleTimeout',
+            helpText: this.sessionIdleTimeoutHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.connectionRatePerAddressText,
+            name: 'connectionRatePerAddress',
+            helpText: this.connectionRatePerAddressHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 0
+          }, {
+            xtype: 'numberfield',
+            fieldLabel: this.connectionBurstPerAddressText,
+            name: 'connectionBurstPerAddress',
+            helpText: this.connectionBurstPerAddressHelpText,
+            allowBlank: false,
+            allowDecimals: false,
+            allowNegative: false,
+            minValue: 1
+          }, {
+            xtype: 'textarea',
+            fieldLabel: this.networkRateLimitsText,
+            name: 'networkRateLimits',
+            helpText: this.networkRateLimitsHelpText
           } ],
 
           onSubmit: function(values) {
+            values.listeners = this.getListeners();
             this.el.mask(this.submitText);
             Ext.Ajax.request({
               url: restUrl + "scm-ssh-plugin/server-config.json",
@@ -378,6 +964,7 @@ Aquenos.scm.ssh.ServerConfigForm = Ext
           success: function(response) {
             var obj = Ext.decode(response.responseText);
             this.load(obj);
+            this.loadListeners(obj.listeners);
             clearTimeout(tid);
             el.unmask();
           },
@@ -387,6 +974,71 @@ Aquenos.scm.ssh.ServerConfigForm = Ext
             main.handleRestFailure(result, this.errorTitleText, this.errorMsgText);
           }
         });
+      },
+
+      createListenerNumberField: function(minValue, maxValue) {
+        return new Ext.form.NumberField({
+          allowBlank: false,
+          allowDecimals: false,
+          allowNegative: false,
+          minValue: minValue,
+          maxValue: maxValue
+        });
+      },
+
+      loadListeners: function(listeners) {
+        var store = Ext.getCmp('sshServerListenersGrid').getStore();
+        // A list with a single element may be serialized as an object instead
+        // of an array.
+        if (listeners == null) {
+          listeners = [];
+        } else if (!Ext.isArray(listeners)) {
+          listeners = [ listeners ];
+        }
+        Ext.each(listeners, function(listener) {
+          listener.ownLimits = (listener.ownLimits === true || listener.ownLimits == 'true');
+        });
+        store.loadData(listeners);
+      },
+
+      getListeners: function() {
+        var grid = Ext.getCmp('sshServerListenersGrid');
+        grid.stopEditing();
+        var listeners = [];
+        grid.getStore().each(function(record) {
+          listeners.push(Ext.apply({}, record.data));
+        });
+        return listeners;
+      },
+
+      addListener: function() {
+        var grid = Ext.getCmp('sshServerListenersGrid');
+        var store = grid.getStore();
+        grid.stopEditing();
+        store.add(new store.recordType({
+          name: '',
+          listenAddress: '',
+          listenPort: '',
+          trustedProxies: '',
+          ownLimits: false,
+          maxSessions: 0,
+          maxSessionsPerAddress: 0,
+          maxUnauthenticatedSessions: 100,
+          maxSessionsPerUser: 0,
+          connectionRatePerAddress: 0,
+          connectionBurstPerAddress: 10,
+          networkRateLimits: ''
+        }));
+        grid.startEditing(store.getCount() - 1, 0);
+      },
+
+      removeListener: function() {
+        var grid = Ext.getCmp('sshServerListenersGrid');
+        var cell = grid.getSelectionModel().getSelectedCell();
+        grid.stopEditing();
+        if (cell != null) {
+          grid.getStore().removeAt(cell[0]);
+        }
       }
 
     });
@@ -455,13 +1107,121 @@ if (i18n != null && i18n.country == "de") {
       {
         titleText: 'SSH-Server-Einstellungen',
         listenAddressText: 'Server-Adresse',
-        listenAddressHelpText: 'Die IP-Adresse oder der Rechnername auf dem der SSH-Server Verbindungen annehmen soll. Wenn dieses Feld leer gelassen wird, nimmt der Server Verbindungen auf allen verfügbaren Schnittstellen entgegen. Der Server muss neugestartet werden, damit Änderungen an dieser Einstellung wirksam werden.',
+        listenAddressHelpText: 'Die IP-Adresse oder der Rechnername auf dem der SSH-Server Verbindungen annehmen soll. Wenn dieses Feld leer gelassen wird, nimmt der Server Verbindungen auf allen verfügbaren Schnittstellen entgegen. Wenn diese Einstellung geändert wird, nimmt der Server zuerst Verbindungen auf der neuen Adresse an, bevor er die alte Adresse freigibt. Bestehende Sitzungen werden nicht unterbrochen.',
         listenPortText: 'Server-Port',
-        listenPortHelpText: 'Die TCP-Port-Nummer auf welcher der SSH-Server Verbindungen annehmen soll. Der Server muss neugestartet werden, damit Änderungen an dieser Einstellung wirksam werden.',
+        listenPortHelpText: 'Die TCP-Port-Nummer auf welcher der SSH-Server Verbindungen annehmen soll. Wenn diese Einstellung geändert wird, nimmt der Server zuerst Verbindungen auf der neuen Adresse an, bevor er die alte Adresse freigibt. Bestehende Sitzungen werden nicht unterbrochen.',
+        trustedProxiesText: 'Vertrauenswürdige Proxys',
+        recordIpAddressesOnlyText: 'Nur IP-Adressen aufzeichnen',
+        recordIpAddressesOnlyHelpText: 'Die IP-Adressen der Clients aufzeichnen (z.B. im Reflog von Git-Repositories), anstatt ihre Host-Namen aufzulösen. Host-Namen werden im Hintergrund aufgelöst und zwischengespeichert, sodass ein langsamer DNS-Server Git-Befehle nicht verzögert. Ist ein Host-Name noch nicht bekannt, wird jedoch die IP-Adresse aufgezeichnet.',
+        trustedProxiesHelpText: 'Die Adressen von TCP-Load-Balancern (z.B. HAProxy), die jeder Verbindung einen PROXY-Protokoll-Header (Version 1 oder 2) voranstellen, in CIDR-Notation und durch Leerzeichen oder Kommas getrennt. Für Verbindungen von diesen Adressen wird die Client-Adresse aus dem Header übernommen. Verbindungen von anderen Adressen werden als direkte Verbindungen behandelt. Wenn leer, werden keine PROXY-Protokoll-Header verarbeitet.',
+        listenersText: 'Zusätzliche Listener',
+        listenersHelpText: 'Zusätzliche Adressen und Ports, auf denen der SSH-Server Verbindungen annehmen soll. Jeder Listener hat einen eigenen Acceptor. Ein Listener teilt sich die Sitzungs- und Verbindungsratenlimits mit der obigen Server-Adresse, außer wenn "Eigene Limits" ausgewählt ist. In diesem Fall gelten stattdessen die Limits in seiner Zeile für seine Sitzungen. Wenn diese Einstellung geändert wird, nimmt der Server zuerst Verbindungen auf der neuen Adresse an, bevor er die alte Adresse freigibt. Bestehende Sitzungen werden nicht unterbrochen.',
+        listenerNameText: 'Name',
+        listenerAddressText: 'Adresse',
+        listenerPortText: 'Port',
+        listenerOwnLimitsText: 'Eigene Limits',
+        listenerMaxSessionsText: 'Sitzungen',
+        listenerMaxSessionsPerAddressText: 'Sitzungen / Adresse',
+        listenerMaxUnauthenticatedSessionsText: 'Nicht auth. Sitzungen',
+        listenerMaxSessionsPerUserText: 'Sitzungen / Benutzer',
+        listenerConnectionRatePerAddressText: 'Verbindungen / Min.',
+        listenerConnectionBurstPerAddressText: 'Burst',
+        listenerNetworkRateLimitsText: 'Netzwerk-Ratenlimits',
+        listenerTrustedProxiesText: 'Vertrauenswürdige Proxys',
+        addListenerText: 'Listener hinzufügen',
+        removeListenerText: 'Listener entfernen',
         rsaHostKeyText: 'RSA-Host-Schlüssel',
-        rsaHostKeyHelpText: 'Der RSA-Host-Schlüssel für den SSH-Server im PEM-Format. Wenn dieses Feld leer gelassen wird, wird ein neuer Schlüssel generiert.',
+        rsaHostKeyHelpText: 'Der RSA-Host-Schlüssel für den SSH-Server im PEM-Format. Wenn dieses Feld leer gelassen wird, wird der bisherige Schlüssel beibehalten oder, falls es noch keinen gibt, ein neuer Schlüssel generiert.',
         dsaHostKeyText: 'DSA-Host-Schlüssel',
-        dsaHostKeyHelpText: 'Der DSA-Host-Schlüssel für den SSH-Server im PEM-Format. Wenn dieses Feld leer gelassen wird, wird ein neuer Schlüssel generiert.',
+        dsaHostKeyHelpText: 'Der DSA-Host-Schlüssel für den SSH-Server im PEM-Format. Wenn dieses Feld leer gelassen wird, wird der bisherige Schlüssel beibehalten oder, falls es noch keinen gibt, ein neuer Schlüssel generiert.',
+        ecdsaHostKeyText: 'ECDSA-Host-Schlüssel',
+        ecdsaHostKeyHelpText: 'Der ECDSA-Host-Schlüssel (NIST P-256) für den SSH-Server, bestehend aus dem privaten Schlüssel im PKCS-#8-Format und dem öffentlichen Schlüssel im X.509-Format, beide PEM-kodiert. ECDSA-Schlüssel werden Clients vor RSA- und DSA-Schlüsseln angeboten, weil das Signieren mit ihnen deutlich schneller ist. Wenn dieses Feld leer gelassen wird, wird der bisherige Schlüssel beibehalten oder, falls es noch keinen gibt, ein neuer Schlüssel generiert.',
+        ed25519HostKeyText: 'Ed25519-Host-Schlüssel',
+        ed25519HostKeyHelpText: 'Der Ed25519-Host-Schlüssel für den SSH-Server, bestehend aus dem privaten Schlüssel im PKCS-#8-Format und dem öffentlichen Schlüssel im X.509-Format, beide PEM-kodiert. Ed25519-Schlüssel werden Clients zuerst angeboten, weil das Signieren mit ihnen am schnellsten ist. Wenn dieses Feld leer gelassen wird, wird der bisherige Schlüssel beibehalten oder, falls es noch keinen gibt, ein neuer Schlüssel generiert. Ed25519-Schlüssel erfordern Java 15 oder neuer.',
+        commandThreadPoolCoreSizeText: 'Fetch-Threads (min.)',
+        commandThreadPoolCoreSizeHelpText: 'Die Anzahl der Threads für die Ausführung lesender Befehle (fetch, clone), die auch ohne Last vorgehalten werden.',
+        commandThreadPoolMaxSizeText: 'Fetch-Threads (max.)',
+        commandThreadPoolMaxSizeHelpText: 'Die maximale Anzahl der Threads für die Ausführung lesender Befehle (fetch, clone). Über die Grundanzahl hinaus werden Threads gestartet, wenn alle Threads beschäftigt sind, und Befehle werden erst in die Warteschlange gestellt, wenn diese Anzahl von Threads läuft.',
+        commandQueueSizeText: 'Länge der Fetch-Warteschlange',
+        commandQueueSizeHelpText: 'Die Anzahl der lesenden Befehle (fetch, clone), die auf einen freien Fetch-Thread warten dürfen. Bei null werden Befehle nie in die Warteschlange gestellt.',
+        writeCommandThreadPoolCoreSizeText: 'Push-Threads (min.)',
+        writeCommandThreadPoolCoreSizeHelpText: 'Die Anzahl der Threads für die Ausführung schreibender Befehle (push), die auch ohne Last vorgehalten werden.',
+        writeCommandThreadPoolMaxSizeText: 'Push-Threads (max.)',
+        writeCommandThreadPoolMaxSizeHelpText: 'Die maximale Anzahl der Threads für die Ausführung schreibender Befehle (push). Über die Grundanzahl hinaus werden Threads gestartet, wenn alle Threads beschäftigt sind, und Pushes werden erst in die Warteschlange gestellt, wenn diese Anzahl von Threads läuft.',
+        writeCommandQueueSizeText: 'Länge der Push-Warteschlange',
+        writeCommandQueueSizeHelpText: 'Die Anzahl der schreibenden Befehle (push), die auf einen freien Push-Thread warten dürfen. Bei null werden Pushes nie in die Warteschlange gestellt.',
+        commandRejectionPolicyText: 'Verhalten bei Überlast',
+        commandRejectionPolicyHelpText: 'Was mit einem Git-Befehl geschieht, wenn alle Threads belegt sind und die Warteschlange voll ist.',
+        commandRejectionPolicyRejectText: 'Client später erneut versuchen lassen',
+        commandRejectionPolicyNewThreadText: 'In zusätzlichem Thread ausführen',
+        useVirtualThreadsText: 'Virtuelle Threads verwenden',
+        useVirtualThreadsHelpText: 'Jeden Git-Befehl in einem virtuellen Thread statt im Thread-Pool ausführen. Diese Einstellung ist nur wirksam, wenn die Java-Laufzeitumgebung virtuelle Threads unterstützt (ab Java 21).',
+        maxCommandsPerUserText: 'Befehle pro Benutzer',
+        maxCommandsPerUserHelpText: 'Die maximale Anzahl der Git-Befehle, die für einen Benutzer gleichzeitig ausgeführt werden dürfen. Weitere Befehle warten, bis einer der laufenden Befehle beendet ist. Bei null ist die Anzahl nicht begrenzt.',
+        maxCommandsPerRepositoryText: 'Befehle pro Repository',
+        maxCommandsPerRepositoryHelpText: 'Die maximale Anzahl der Git-Befehle, die für ein Repository gleichzeitig ausgeführt werden dürfen. Weitere Befehle warten, bis einer der laufenden Befehle beendet ist. Bei null ist die Anzahl nicht begrenzt.',
+        maxBandwidthPerUserText: 'Bandbreite pro Benutzer (KB/s)',
+        maxBandwidthPerUserHelpText: 'Die maximale Rate (in KB pro Sekunde), mit der die Git-Befehle eines Benutzers Daten an Clients senden. Bei null ist die Rate nicht begrenzt.',
+        maxBandwidthPerRepositoryText: 'Bandbreite pro Repository (KB/s)',
+        maxBandwidthPerRepositoryHelpText: 'Die maximale Rate (in KB pro Sekunde), mit der die Git-Befehle für ein Repository Daten an Clients senden. Bei null ist die Rate nicht begrenzt.',
+        maxBandwidthText: 'Gesamtbandbreite (KB/s)',
+        maxBandwidthHelpText: 'Die maximale Rate (in KB pro Sekunde), mit der alle Git-Befehle zusammen Daten an Clients senden. Befehle, die durch diese Rate begrenzt werden, erhalten gleiche Anteile davon, und Bandbreite, die ein Befehl nicht nutzt, steht den anderen zur Verfügung. Bei null ist die Rate nicht begrenzt.',
+        commandWaitTimeoutText: 'Maximale Wartezeit',
+        commandWaitTimeoutHelpText: 'Die Zeit in Sekunden, die ein Git-Befehl wartet, wenn eine der obigen Grenzen erreicht ist oder wenn er in die Warteschlange gestellt wurde, weil alle Threads beschäftigt sind. Die Wartezeit für die Grenzen und für einen Thread wird zusammengezählt. Danach wird der Client gebeten, es später erneut zu versuchen. Bei null werden Befehle, die nicht sofort ausgeführt werden können, abgelehnt.',
+        drainTimeoutText: 'Wartezeit beim Beenden',
+        drainTimeoutHelpText: 'Wenn SCM-Manager beendet wird, nimmt der SSH-Server keine neuen Verbindungen mehr an und wartet bis zu dieser Anzahl von Sekunden darauf, dass laufende Git-Befehle abgeschlossen werden. Befehle, die danach noch laufen, werden abgebrochen. Bei null werden laufende Befehle sofort abgebrochen.',
+        commandIdleTimeoutText: 'Leerlauf-Timeout für Befehle',
+        commandIdleTimeoutHelpText: 'Die Anzahl der Sekunden, nach denen ein Git-Befehl abgebrochen wird, wenn er so lange darauf gewartet hat, dass der Client Daten sendet oder annimmt. Bei null werden Befehle im Leerlauf nicht abgebrochen. Clients können für Fetches einen anderen Timeout anfordern.',
+        commandMaxDurationText: 'Maximale Befehlsdauer',
+        commandMaxDurationHelpText: 'Die maximale Anzahl der Sekunden, die ein Git-Befehl laufen darf. Bei null gibt es keine Begrenzung.',
+        maxHeapUsageText: 'Heap-Grenze für Fetches (%)',
+        maxHeapUsageHelpText: 'Wenn die Heap-Belegung nach der Garbage-Collection diesen Anteil der maximalen Heap-Größe überschreitet, werden neue Fetches und Clones abgelehnt und der Client wird gebeten, es später erneut zu versuchen. Pushes werden weiterhin angenommen. Bei null wird die Heap-Belegung nicht geprüft.',
+        maxSystemLoadText: 'Last-Grenze für Fetches (%)',
+        maxSystemLoadHelpText: 'Wenn die durchschnittliche Systemlast diesen Anteil der Anzahl der Prozessoren überschreitet, werden neue Fetches und Clones abgelehnt und der Client wird gebeten, es später erneut zu versuchen. Pushes werden weiterhin angenommen. Bei null wird die Systemlast nicht geprüft.',
+        maxPackGenerationsText: 'Max. gleichzeitige Pack-Erzeugungen',
+        maxPackGenerationsHelpText: 'Wenn bereits diese Anzahl von Fetches oder Clones Packs erzeugt, werden neue Fetches und Clones abgelehnt und der Client wird gebeten, es später erneut zu versuchen. Pushes werden weiterhin angenommen. Bei null gibt es keine Begrenzung.',
+        nioWorkersText: 'I/O-Threads',
+        nioWorkersHelpText: 'Die Anzahl der Threads, die die Netzwerk-Ein- und -Ausgabe und die Verschlüsselung für alle SSH-Verbindungen übernehmen. Bei null wird die Anzahl der Prozessoren plus eins verwendet. Änderungen an dieser Einstellung gelten nur für neu hinzugefügte Listener. Die übrigen Listener behalten ihre Threads, bis der Server neugestartet wird.',
+        channelWindowSizeText: 'Kanal-Fenstergröße',
+        channelWindowSizeHelpText: 'Die Anzahl der Bytes, die über einen SSH-Kanal gesendet werden dürfen, bevor der Empfänger sie bestätigen muss. Bei Verbindungen mit hoher Latenz ermöglicht ein größeres Fenster einen höheren Durchsatz. Darf nicht kleiner als die maximale Paketgröße sein.',
+        channelMaxPacketSizeText: 'Maximale Paketgröße',
+        channelMaxPacketSizeHelpText: 'Die maximale Anzahl der Bytes in einem einzelnen SSH-Kanal-Paket (1024 bis 131072).',
+        tcpSendBufferSizeText: 'TCP-Sendepuffer',
+        tcpSendBufferSizeHelpText: 'Die Größe des TCP-Sendepuffers jeder Verbindung in Bytes. Bei null wird die Voreinstellung des Betriebssystems verwendet.',
+        tcpReceiveBufferSizeText: 'TCP-Empfangspuffer',
+        tcpReceiveBufferSizeHelpText: 'Die Größe des TCP-Empfangspuffers jeder Verbindung in Bytes. Bei null wird die Voreinstellung des Betriebssystems verwendet.',
+        tcpNoDelayText: 'Nagle-Algorithmus abschalten',
+        tcpNoDelayHelpText: 'Kleine Pakete sofort senden (TCP_NODELAY). Dies verringert die Latenz während der Verhandlungsphase von Git-Befehlen.',
+        ciphersText: 'Verschlüsselungsverfahren',
+        ciphersHelpText: 'Kommagetrennte Liste der den Clients angebotenen Verschlüsselungsverfahren in der Reihenfolge ihrer Priorität (z.B. aes128-ctr,aes256-ctr). Bei leerer Liste werden alle unterstützten Verfahren angeboten, die schnellsten zuerst.',
+        macsText: 'MACs',
+        macsHelpText: 'Kommagetrennte Liste der den Clients angebotenen Nachrichtenauthentifizierungscodes in der Reihenfolge ihrer Priorität (z.B. hmac-sha1,hmac-md5). Bei leerer Liste werden alle unterstützten MACs angeboten, die schnellsten zuerst.',
+        keyExchangesText: 'Schlüsselaustausch',
+        keyExchangesHelpText: 'Kommagetrennte Liste der den Clients angebotenen Schlüsselaustauschverfahren in der Reihenfolge ihrer Priorität (z.B. diffie-hellman-group14-sha1). Bei leerer Liste werden alle unterstützten Verfahren angeboten.',
+        compressionEnabledText: 'Kompression aktivieren',
+        compressionEnabledHelpText: 'Den Clients verzögerte zlib-Kompression (zlib@openssh.com) anbieten. Ref-Listen und Verhandlung werden komprimiert, während Pack-Daten, die bereits komprimiert sind, unkomprimiert gesendet werden. Erfordert Java 7 oder neuer.',
+        compressionLevelText: 'Kompressionsstufe',
+        compressionLevelHelpText: 'Die zlib-Kompressionsstufe (1 bis 9). Höhere Stufen komprimieren besser, benötigen aber mehr Rechenzeit.',
+        maxSessionsText: 'Maximale Sitzungen',
+        maxSessionsHelpText: 'Die maximale Anzahl gleichzeitiger SSH-Sitzungen. Weitere Verbindungen werden sofort geschlossen. Bei null ist die Anzahl nicht begrenzt.',
+        maxSessionsPerAddressText: 'Sitzungen pro Adresse',
+        maxSessionsPerAddressHelpText: 'Die maximale Anzahl gleichzeitiger SSH-Sitzungen von einer IP-Adresse. Bei null ist die Anzahl nicht begrenzt.',
+        maxUnauthenticatedSessionsText: 'Nicht authentifizierte Sitzungen',
+        maxUnauthenticatedSessionsHelpText: 'Die maximale Anzahl gleichzeitiger SSH-Sitzungen, die noch nicht authentifiziert sind. Bei null ist die Anzahl nicht begrenzt.',
+        maxSessionsPerUserText: 'Sitzungen pro Benutzer',
+        maxSessionsPerUserHelpText: 'Die maximale Anzahl gleichzeitiger SSH-Sitzungen eines Benutzers. Bei null ist die Anzahl nicht begrenzt.',
+        maxAuthAttemptsText: 'Authentifizierungsversuche',
+        maxAuthAttemptsHelpText: 'Die maximale Anzahl von Authentifizierungsversuchen pro Sitzung. Wenn ein Client diese Anzahl überschreitet, wird die Sitzung geschlossen.',
+        authTimeoutText: 'Authentifizierungs-Timeout',
+        authTimeoutHelpText: 'Die Anzahl der Sekunden, die ein Client nach dem Verbindungsaufbau für die Authentifizierung benötigen darf.',
+        sessionIdleTimeoutText: 'Sitzungs-Leerlauf-Timeout',
+        sessionIdleTimeoutHelpText: 'Die Anzahl der Sekunden, nach denen eine authentifizierte Sitzung geschlossen wird, wenn der Client keine Daten sendet. Bei null werden Sitzungen im Leerlauf nie geschlossen.',
+        connectionRatePerAddressText: 'Verbindungen pro Minute',
+        connectionRatePerAddressHelpText: 'Die Anzahl neuer Verbindungen pro Minute, die von einer IP-Adresse angenommen werden. IPv6-Adressen werden pro /64-Netz begrenzt. Verbindungen, die diese Rate überschreiten, werden vor dem Schlüsselaustausch geschlossen. Bei null ist die Rate nicht begrenzt.',
+        connectionBurstPerAddressText: 'Verbindungs-Burst',
+        connectionBurstPerAddressHelpText: 'Die Anzahl der Verbindungen, die von einer IP-Adresse auf einmal angenommen werden, bevor die Ratenbegrenzung greift.',
+        networkRateLimitsText: 'Netzwerk-Ratenlimits',
+        networkRateLimitsHelpText: 'Verbindungsratenlimits für Netzwerke, eines pro Zeile in der Form "Netzwerk Rate Burst" (z.B. "10.1.0.0/16 600 100"). Alle Adressen eines Netzwerks teilen sich ein Limit. Eine Rate von null nimmt das Netzwerk von der Ratenbegrenzung aus.',
         loadingText: 'Lade Daten...',
         submitText: 'Übertrage Daten...',
         errorTitleText: 'Verbindungsfehler',